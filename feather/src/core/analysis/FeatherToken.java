@@ -1,4 +1,12 @@
 package core.analysis;
 
-public record FeatherToken(String term, int startOffset, int endOffset) {
+/**
+ * A single analyzed token.
+ *
+ * @param term        the token text
+ * @param position    the token position, counted in tokens from the start of the field value
+ * @param startOffset the character offset where the token starts
+ * @param endOffset   the character offset where the token ends
+ */
+public record FeatherToken(String term, int position, int startOffset, int endOffset) {
 }
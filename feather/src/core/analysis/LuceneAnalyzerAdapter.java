@@ -4,6 +4,7 @@ import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
 import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
@@ -26,11 +27,16 @@ public class LuceneAnalyzerAdapter implements FeatherAnalyzer {
 
             CharTermAttribute termAttr = tokenStream.getAttribute(CharTermAttribute.class);
             OffsetAttribute offsetAttr = tokenStream.getAttribute(OffsetAttribute.class);
+            PositionIncrementAttribute posIncrAttr = tokenStream.getAttribute(PositionIncrementAttribute.class);
+
+            // Positions are accumulated from the increments so that gaps left by removed tokens (e.g. stop words) are kept.
+            int[] position = {-1};
 
             return Stream.generate(() -> {
                         try {
                             if (tokenStream.incrementToken()) {
-                                return new FeatherToken(termAttr.toString(), offsetAttr.startOffset(), offsetAttr.endOffset());
+                                position[0] += posIncrAttr.getPositionIncrement();
+                                return new FeatherToken(termAttr.toString(), position[0], offsetAttr.startOffset(), offsetAttr.endOffset());
                             }
                             return null;
                         } catch (IOException e) {
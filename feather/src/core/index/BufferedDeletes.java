@@ -0,0 +1,155 @@
+package core.index;
+
+import storage.IOContext;
+import storage.SegmentInfo;
+import storage.Storage;
+import storage.file.DictionaryFile;
+import storage.file.Document;
+import storage.file.FileType;
+import storage.file.LiveDocs;
+import storage.file.PostingFile;
+import storage.file.PostingsEnum;
+import storage.file.Term;
+import storage.writer.LiveDocsFileWriter;
+
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Deletions requested since the last flush, waiting to be applied to the flushed segments.
+ *
+ * <p>Applying them to a segment never touches its immutable files: the segment's live docs are
+ * loaded (or built from its document IDs on the first deletion), the deleted documents are
+ * cleared, and the result is written as the next live docs generation.</p>
+ */
+class BufferedDeletes {
+    private final Set<Integer> docIds = new LinkedHashSet<>();
+    private final Set<DeleteTerm> terms = new LinkedHashSet<>();
+
+    private record DeleteTerm(String field, String text) {
+    }
+
+    void addDocId(int docId) {
+        docIds.add(docId);
+    }
+
+    void addTerm(String field, String text) {
+        terms.add(new DeleteTerm(field, text));
+    }
+
+    boolean containsDocId(int docId) {
+        return docIds.contains(docId);
+    }
+
+    /**
+     * Returns whether a pending term delete matches the document, judged by {@code matcher}.
+     */
+    boolean matchesTerm(Document doc, TermMatcher matcher) {
+        for (DeleteTerm term : terms) {
+            if (matcher.contains(doc, term.field(), term.text())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @FunctionalInterface
+    interface TermMatcher {
+        boolean contains(Document doc, String field, String text);
+    }
+
+    boolean isEmpty() {
+        return docIds.isEmpty() && terms.isEmpty();
+    }
+
+    void clear() {
+        docIds.clear();
+        terms.clear();
+    }
+
+    /**
+     * Applies the deletes to one segment, writing a new live docs generation if any of its
+     * documents were deleted.
+     *
+     * @return the updated segment info, or null if no document of the segment matched
+     */
+    SegmentInfo apply(Storage storage, SegmentInfo info, PrimaryKeyIndex primaryKeys) throws IOException {
+        LiveDocs liveDocs = null;
+        int delCount = info.getDelCount();
+
+        for (int docId : docIds) {
+            if (!primaryKeys.contains(storage, info, docId)) {
+                continue;
+            }
+            if (liveDocs == null) {
+                liveDocs = loadLiveDocs(storage, info, primaryKeys);
+            }
+            if (liveDocs.delete(docId)) {
+                delCount++;
+            }
+        }
+
+        if (!terms.isEmpty()) {
+            String name = info.getName();
+            try (DictionaryFile dictionary = (DictionaryFile) storage.openFile(name + FileType.DIC.getExtension(), IOContext.RANDOM);
+                 PostingFile postings = (PostingFile) storage.openFile(name + FileType.POST.getExtension(), IOContext.RANDOM)) {
+                for (DeleteTerm deleteTerm : terms) {
+                    Term term = dictionary.findTerm(deleteTerm.field(), deleteTerm.text());
+                    if (term == null) {
+                        continue;
+                    }
+                    if (liveDocs == null) {
+                        liveDocs = loadLiveDocs(storage, info, primaryKeys);
+                    }
+                    PostingsEnum docs = postings.postings(term.getPostingPosition());
+                    for (int doc = docs.nextDoc(); doc != PostingsEnum.NO_MORE_DOCS; doc = docs.nextDoc()) {
+                        if (liveDocs.delete(doc)) {
+                            delCount++;
+                        }
+                    }
+                }
+            }
+        }
+
+        if (delCount == info.getDelCount()) {
+            return null;
+        }
+        long delGen = info.getDelGen() + 1;
+        long checksum = writeLiveDocs(storage, info.getName(), delGen, liveDocs, delCount);
+        return info.withDeletes(delGen, delCount, checksum);
+    }
+
+    /**
+     * Loads a modifiable copy of the segment's live docs.
+     */
+    static LiveDocs loadLiveDocs(Storage storage, SegmentInfo info, PrimaryKeyIndex primaryKeys) throws IOException {
+        LiveDocs liveDocs = primaryKeys.liveDocs(storage, info);
+        if (liveDocs != null) {
+            return liveDocs.copy();
+        }
+        return LiveDocs.of(info.getMinDocId(), info.getMaxDocId(), primaryKeys.ids(storage, info));
+    }
+
+    /**
+     * Writes a live docs generation.
+     *
+     * @return the checksum of the written file
+     */
+    static long writeLiveDocs(Storage storage, String segmentName, long delGen, LiveDocs liveDocs, int delCount)
+            throws IOException {
+        String name = SegmentInfo.liveDocsName(segmentName, delGen);
+        try (LiveDocsFileWriter writer = (LiveDocsFileWriter) storage.createFileWriter(name, FileType.LIVE)) {
+            writer.writeLiveDocs(liveDocs, delCount);
+            writer.complete().close();
+            return storage.checksum(name + FileType.LIVE.getExtension());
+        } catch (IOException e) {
+            try {
+                storage.deleteFile(name + FileType.LIVE.getExtension());
+            } catch (IOException deleteException) {
+                e.addSuppressed(deleteException);
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package core.index;
+
+import storage.merge.MergeRateLimiter;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs merges on a pool of background threads so that {@link IndexWriter#addDocument} and
+ * {@link IndexWriter#commit()} never wait for them.
+ *
+ * <p>All merge threads share one {@link MergeRateLimiter}. It allows {@code maxMbPerSec} while
+ * the index is idle and drops to {@code minMbPerSec} for {@value #FOREGROUND_WINDOW_MILLIS} ms
+ * after each call to {@link #noteForegroundActivity()}, leaving the disk to indexing and queries.</p>
+ *
+ * <p>{@link #close()} waits for queued and running merges. The scheduler may be used again
+ * afterwards; a new pool is started with the next merge.</p>
+ */
+public class ConcurrentMergeScheduler extends MergeScheduler {
+    public static final int DEFAULT_MAX_THREADS = 2;
+    public static final double DEFAULT_MAX_MB_PER_SEC = 40;
+    public static final double DEFAULT_MIN_MB_PER_SEC = 5;
+
+    private static final long FOREGROUND_WINDOW_MILLIS = 1000;
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    private final int maxThreads;
+    private final MergeRateLimiter rateLimiter;
+    private volatile long lastForegroundNanos = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(FOREGROUND_WINDOW_MILLIS);
+    private ExecutorService executor;
+
+    public ConcurrentMergeScheduler() {
+        this(DEFAULT_MAX_THREADS, DEFAULT_MAX_MB_PER_SEC, DEFAULT_MIN_MB_PER_SEC);
+    }
+
+    public ConcurrentMergeScheduler(int maxThreads, double maxMbPerSec, double minMbPerSec) {
+        if (maxThreads <= 0) {
+            throw new IllegalArgumentException("maxThreads must be greater than 0");
+        }
+        this.maxThreads = maxThreads;
+        this.rateLimiter = new MergeRateLimiter(maxMbPerSec, minMbPerSec, this::isForegroundActive);
+    }
+
+    @Override
+    public synchronized void merge(MergeTask task) {
+        if (executor == null) {
+            executor = newExecutor();
+        }
+        executor.execute(() -> task.run(rateLimiter));
+    }
+
+    @Override
+    public void noteForegroundActivity() {
+        lastForegroundNanos = System.nanoTime();
+    }
+
+    private boolean isForegroundActive() {
+        return System.nanoTime() - lastForegroundNanos < TimeUnit.MILLISECONDS.toNanos(FOREGROUND_WINDOW_MILLIS);
+    }
+
+    public MergeRateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    private ExecutorService newExecutor() {
+        return new ThreadPoolExecutor(maxThreads, maxThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "feather-merge-" + THREAD_COUNTER.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        ExecutorService pool;
+        synchronized (this) {
+            pool = executor;
+            executor = null;
+        }
+        if (pool == null) {
+            return;
+        }
+        pool.shutdown();
+        try {
+            while (!pool.awaitTermination(1, TimeUnit.SECONDS)) {
+                // Merges are bounded by the size of their segments; keep waiting.
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for merges to finish");
+        }
+    }
+}
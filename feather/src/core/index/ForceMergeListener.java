@@ -0,0 +1,19 @@
+package core.index;
+
+import storage.SegmentInfo;
+
+/**
+ * Receives progress of {@link IndexWriter#forceMerge(int, int, ForceMergeListener)}.
+ */
+@FunctionalInterface
+public interface ForceMergeListener {
+
+    /**
+     * Called after each merge has been committed. With several merge threads this is called
+     * from those threads, one call at a time.
+     *
+     * @param merged       the segment the merge produced
+     * @param segmentCount the number of segments in the index after the merge
+     */
+    void onMergeCommitted(SegmentInfo merged, int segmentCount);
+}
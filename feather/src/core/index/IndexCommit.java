@@ -0,0 +1,72 @@
+package core.index;
+
+import storage.SegmentInfo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A commit point: one {@code segments_N} generation and the files it references. Commits are
+ * handed to an {@link IndexDeletionPolicy}, which decides which of them to keep.
+ */
+public class IndexCommit {
+    private final long generation;
+    private final List<SegmentInfo> segments;
+    private final Map<String, String> userData;
+    private final List<String> fileNames;
+    private boolean deleted;
+
+    IndexCommit(long generation, List<SegmentInfo> segments, Map<String, String> userData) {
+        this.generation = generation;
+        this.segments = List.copyOf(segments);
+        this.userData = userData;
+        List<String> files = new ArrayList<>();
+        files.add(Segments.segmentsFileName(generation));
+        for (SegmentInfo segment : segments) {
+            files.addAll(segment.files());
+        }
+        this.fileNames = Collections.unmodifiableList(files);
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    public String getSegmentsFileName() {
+        return Segments.segmentsFileName(generation);
+    }
+
+    public List<SegmentInfo> getSegments() {
+        return segments;
+    }
+
+    /**
+     * Returns the names of all files of this commit, its segments file included.
+     */
+    public List<String> getFileNames() {
+        return fileNames;
+    }
+
+    public Map<String, String> getUserData() {
+        return userData;
+    }
+
+    /**
+     * Marks this commit for deletion. Its files are deleted once no kept commit, the writer or an
+     * open reader uses them any more.
+     */
+    public void delete() {
+        deleted = true;
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    @Override
+    public String toString() {
+        return "IndexCommit{" + getSegmentsFileName() + ", segments=" + segments.size() + "}";
+    }
+}
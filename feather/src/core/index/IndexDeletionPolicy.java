@@ -0,0 +1,22 @@
+package core.index;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Decides which commit points of an index to keep. Old commits are deleted by calling
+ * {@link IndexCommit#delete()} from either callback.
+ */
+public interface IndexDeletionPolicy {
+
+    /**
+     * Called when a writer opens the index, with the existing commits, oldest first.
+     */
+    void onInit(List<? extends IndexCommit> commits) throws IOException;
+
+    /**
+     * Called after each commit, with all commits not deleted yet, oldest first; the last one is
+     * the new commit.
+     */
+    void onCommit(List<? extends IndexCommit> commits) throws IOException;
+}
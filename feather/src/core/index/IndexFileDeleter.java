@@ -0,0 +1,170 @@
+package core.index;
+
+import storage.SegmentInfo;
+import storage.Storage;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Deletes index files once nothing uses them any more, by reference counting.
+ *
+ * <p>A file is referenced by every kept commit containing it, by the writer's current segments
+ * (the last checkpoint), by merges reading it and by near-real-time segment readers. When the
+ * last reference goes, the file is deleted. Which commits are kept is up to the
+ * {@link IndexDeletionPolicy}; dropping a commit releases its references, including the one to
+ * its {@code segments_N} file.</p>
+ *
+ * <p>On open, files that look like index files but are referenced by no commit, such as those
+ * of segments flushed by a writer that crashed before committing or of an interrupted merge,
+ * are deleted. Files only ever created by a flush or merge in progress are not referenced yet
+ * and therefore never touched.</p>
+ *
+ * <p>Thread-safe: readers may release their references from any thread.</p>
+ */
+class IndexFileDeleter {
+    private static final Pattern INDEX_FILE = Pattern.compile(
+            "segments_\\d+|segment_\\d+(\\.[a-z]+|_\\d+\\.liv)|pending_(segments|gen)_.*\\.tmp");
+
+    private final Storage storage;
+    private final IndexDeletionPolicy policy;
+    private final Map<String, Integer> refCounts = new HashMap<>();
+    private final List<IndexCommit> commits = new ArrayList<>();
+    private List<String> lastFiles = List.of();
+    private boolean closed;
+
+    /**
+     * Loads the existing commits, applies the policy to them and deletes unreferenced files.
+     *
+     * @param current the segments the writer starts from
+     */
+    IndexFileDeleter(Storage storage, IndexDeletionPolicy policy, Segments current) throws IOException {
+        this.storage = storage;
+        this.policy = policy;
+
+        String[] files = storage.listFiles();
+        for (String file : files) {
+            long generation = Segments.parseGeneration(file);
+            if (generation < 0) {
+                continue;
+            }
+            try {
+                Segments segments = generation == current.getGeneration() ? current : Segments.read(storage, generation);
+                commits.add(new IndexCommit(generation, segments.getCommittedSegments(), segments.getUserData()));
+            } catch (IOException e) {
+                // Left unreferenced, so it is deleted below with the other orphans.
+                System.err.println("Ignoring unreadable commit " + file + ": " + e.getMessage());
+            }
+        }
+        commits.sort((a, b) -> Long.compare(a.getGeneration(), b.getGeneration()));
+
+        synchronized (this) {
+            for (IndexCommit commit : commits) {
+                incRef(commit.getFileNames());
+            }
+            if (!commits.isEmpty()) {
+                policy.onInit(Collections.unmodifiableList(commits));
+            }
+            checkpoint(current.getSegments());
+            deleteCommits();
+
+            for (String file : files) {
+                if (INDEX_FILE.matcher(file).matches() && !refCounts.containsKey(file)) {
+                    System.out.println("Deleting unreferenced file " + file);
+                    delete(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Records the writer's current segments, releasing the files of the previous checkpoint
+     * that are no longer part of them.
+     */
+    synchronized void checkpoint(List<SegmentInfo> current) {
+        List<String> files = filesOf(current);
+        incRef(files);
+        decRef(lastFiles);
+        lastFiles = files;
+    }
+
+    /**
+     * Registers the generation just written by {@code segments} as a new commit and lets the
+     * policy delete old ones.
+     */
+    synchronized void onCommit(Segments segments) throws IOException {
+        IndexCommit commit = new IndexCommit(segments.getGeneration(), segments.getCommittedSegments(),
+                segments.getUserData());
+        incRef(commit.getFileNames());
+        commits.add(commit);
+        policy.onCommit(Collections.unmodifiableList(commits));
+        deleteCommits();
+    }
+
+    synchronized void incRef(Collection<String> files) {
+        for (String file : files) {
+            refCounts.merge(file, 1, Integer::sum);
+        }
+    }
+
+    synchronized void decRef(Collection<String> files) {
+        for (String file : files) {
+            Integer count = refCounts.get(file);
+            if (count == null) {
+                throw new IllegalStateException("File " + file + " is not referenced");
+            }
+            if (count > 1) {
+                refCounts.put(file, count - 1);
+            } else {
+                refCounts.remove(file);
+                delete(file);
+            }
+        }
+    }
+
+    static List<String> filesOf(List<SegmentInfo> segments) {
+        List<String> files = new ArrayList<>(segments.size() * 6);
+        for (SegmentInfo segment : segments) {
+            files.addAll(segment.files());
+        }
+        return files;
+    }
+
+    private void deleteCommits() {
+        Iterator<IndexCommit> it = commits.iterator();
+        while (it.hasNext()) {
+            IndexCommit commit = it.next();
+            if (commit.isDeleted()) {
+                it.remove();
+                System.out.println("Deleting commit " + commit.getSegmentsFileName());
+                decRef(commit.getFileNames());
+            }
+        }
+    }
+
+    private void delete(String file) {
+        // Once the writer is closed its storage is too; leftovers are removed on the next open.
+        if (closed) {
+            return;
+        }
+        try {
+            storage.deleteFile(file);
+        } catch (IOException e) {
+            System.err.println("Failed to delete " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stops deleting files. References released afterwards leave their files in place.
+     */
+    synchronized void close() {
+        closed = true;
+    }
+}
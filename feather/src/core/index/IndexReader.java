@@ -0,0 +1,133 @@
+package core.index;
+
+import storage.SegmentInfo;
+import storage.Storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A point-in-time view over a list of segments: those of the latest commit, or, for a reader
+ * from {@link IndexWriter#getReader()}, the writer's current segments including uncommitted ones.
+ */
+public class IndexReader implements Closeable {
+    private final List<SegmentReader> segmentReaders;
+    // The writer and its segments version this reader reflects, for IndexWriter.refresh(); null for commit readers.
+    private final IndexWriter writer;
+    private final long version;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private IndexReader(List<SegmentReader> segmentReaders) {
+        this(segmentReaders, null, -1);
+    }
+
+    /**
+     * Creates a reader over segment readers it holds one reference to each.
+     */
+    IndexReader(List<SegmentReader> segmentReaders, IndexWriter writer, long version) {
+        this.segmentReaders = Collections.unmodifiableList(segmentReaders);
+        this.writer = writer;
+        this.version = version;
+    }
+
+    /**
+     * Opens a reader over the segments referenced by the most recent segments file.
+     */
+    public static IndexReader open(Storage storage) throws IOException {
+        return open(storage, Segments.readLatest(storage).getSegments());
+    }
+
+    /**
+     * Opens a reader over the segments of a commit point. The commit's files must still exist,
+     * e.g. because it is held by a {@link SnapshotDeletionPolicy} snapshot.
+     */
+    public static IndexReader open(Storage storage, IndexCommit commit) throws IOException {
+        if (commit.isDeleted()) {
+            throw new IllegalArgumentException("Commit " + commit.getSegmentsFileName() + " is deleted");
+        }
+        return open(storage, commit.getSegments());
+    }
+
+    private static IndexReader open(Storage storage, List<SegmentInfo> segments) throws IOException {
+        List<SegmentReader> readers = new ArrayList<>(segments.size());
+        try {
+            for (SegmentInfo info : segments) {
+                readers.add(SegmentReader.open(storage, info));
+            }
+        } catch (IOException e) {
+            for (SegmentReader reader : readers) {
+                try {
+                    reader.decRef();
+                } catch (IOException closeException) {
+                    e.addSuppressed(closeException);
+                }
+            }
+            throw e;
+        }
+        return new IndexReader(readers);
+    }
+
+    public List<SegmentReader> leaves() {
+        return segmentReaders;
+    }
+
+    /**
+     * Returns the number of live documents.
+     */
+    public int numDocs() {
+        int numDocs = 0;
+        for (SegmentReader reader : segmentReaders) {
+            numDocs += reader.numDocs();
+        }
+        return numDocs;
+    }
+
+    /**
+     * Tells the writer this reader was obtained from that a search is running on it, so its
+     * merges yield disk bandwidth. Does nothing for a reader over a commit, which no writer's
+     * merges are aware of.
+     */
+    public void noteSearchActivity() {
+        if (writer != null) {
+            writer.noteForegroundActivity();
+        }
+    }
+
+    IndexWriter getWriter() {
+        return writer;
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    /**
+     * Releases this reader's reference to each segment reader. Segment readers shared with
+     * other index readers stay open until those are closed too.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        IOException failure = null;
+        for (SegmentReader reader : segmentReaders) {
+            try {
+                reader.decRef();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
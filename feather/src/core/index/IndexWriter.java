@@ -2,35 +2,84 @@ package core.index;
 
 import core.analysis.FeatherAnalyzer;
 import core.analysis.FeatherToken;
+import storage.IOContext;
 import storage.SegmentInfo;
 import storage.Storage;
 import storage.file.*;
+import storage.merge.MergeSpec;
+import storage.merge.SegmentMerger;
 import storage.writer.DictionaryFileWriter;
 import storage.writer.DocumentFileWriter;
 import storage.writer.MetaFileWriter;
+import storage.writer.PointsFileWriter;
 import storage.writer.PostingFileWriter;
+import storage.writer.RateLimiter;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Stream;
 
+/**
+ * Adds documents to an index, flushing them into new segments.
+ *
+ * <p>After each {@link #commit()} the {@link storage.merge.MergePolicy} is asked for merges,
+ * which the {@link MergeScheduler} runs in the background. A finished merge is published by
+ * writing a new segments generation in which it replaces its source segments. Segment state
+ * shared with merge threads is guarded by this writer's monitor.</p>
+ *
+ * <p>Deletions remove matching buffered documents immediately and are buffered for the flushed
+ * segments until the next {@link #flush()}, which records them in a new live docs generation
+ * per affected segment. Segments whose documents are all deleted are dropped, and merges
+ * reclaim the space of deleted documents.</p>
+ */
 public class IndexWriter implements Closeable {
+    private static final int MAX_FORCE_MERGE_AT_ONCE = 30;
+    // Segments user data key of the oldest translog generation a commit does not cover.
+    private static final String TRANSLOG_GENERATION = "translog_generation";
 
     private final Storage storage;
     private final IndexWriterConfig config;
-    private final List<Document> documentBuffer;
+    // Buffered documents by ID, the version map: a buffered document is replaced or deleted in O(1).
+    private final Map<Integer, Document> documentBuffer;
     private final List<SegmentInfo> segments; // This will now be managed by segmentsManager
     private final Segments segmentsManager;
+    private final MergeScheduler mergeScheduler;
+    private final Set<String> mergingSegments;
     private int segmentCounter;
+    private boolean closing;
+    private boolean closed;
+    private Throwable mergeException;
+    // Segments of failed background merges, which are not proposed again to avoid retrying in a loop.
+    private final Set<String> failedMergeSegments = new HashSet<>();
+    private final BufferedDeletes bufferedDeletes;
+    private final PrimaryKeyIndex primaryKeys;
+    private final Translog translog;
+    private final ReaderPool readerPool;
+    private SegmentRangeIndex segmentRanges;
+    private long segmentRangesVersion;
+    private final IndexFileDeleter deleter;
 
     public IndexWriter(Storage storage, IndexWriterConfig config) throws IOException {
         this.storage = storage;
         this.config = config;
-        this.documentBuffer = new ArrayList<>();
+        this.mergeScheduler = config.getMergeScheduler();
+        this.mergingSegments = new HashSet<>();
+        this.bufferedDeletes = new BufferedDeletes();
+        this.primaryKeys = new PrimaryKeyIndex();
+        this.documentBuffer = new LinkedHashMap<>();
         
         // Load existing segments from the last commit point in storage.
         this.segmentsManager = Segments.readLatest(storage);
@@ -40,29 +89,239 @@ public class IndexWriter implements Closeable {
         // Find the highest segment number from existing segments and increment it.
         int maxSegmentNum = -1;
         for (SegmentInfo si : segments) {
-            String name = si.getName();
-            if (name.startsWith("segment_")) {
-                try {
-                    int num = Integer.parseInt(name.substring("segment_".length()));
-                    if (num > maxSegmentNum) {
-                        maxSegmentNum = num;
-                    }
-                } catch (NumberFormatException e) {
-                    // Ignore segments with non-numeric suffixes
+            maxSegmentNum = Math.max(maxSegmentNum, segmentNumber(si.getName()));
+        }
+        // Uncommitted segments of a writer that crashed may still have files until the deleter
+        // removes them; their documents are replayed from the translog into new segments.
+        for (String fileName : storage.listFiles()) {
+            maxSegmentNum = Math.max(maxSegmentNum, segmentNumber(fileName));
+        }
+        this.segmentCounter = maxSegmentNum + 1;
+
+        // Applies the deletion policy to the existing commits and removes files no commit references.
+        this.deleter = new IndexFileDeleter(storage, config.getIndexDeletionPolicy(), segmentsManager);
+        this.readerPool = new ReaderPool(storage, deleter);
+
+        // Operations since the last commit are in the translog generations it did not cover.
+        long translogGeneration = Long.parseLong(segmentsManager.getUserData().getOrDefault(TRANSLOG_GENERATION, "0"));
+        this.translog = Translog.open(storage, translogGeneration,
+                config.getTranslogSyncEveryOps(), config.getTranslogSyncIntervalMillis());
+        try {
+            replayTranslog();
+        } catch (IOException | RuntimeException e) {
+            try {
+                translog.close();
+            } catch (IOException closeException) {
+                e.addSuppressed(closeException);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Re-applies the operations recovered from the translog. They stay in the translog until
+     * the next commit covers them, so they are not logged again.
+     */
+    private void replayTranslog() throws IOException {
+        List<Translog.Operation> operations = translog.getRecoveredOperations();
+        if (operations.isEmpty()) {
+            return;
+        }
+        System.out.println("Replaying " + operations.size() + " translog operations.");
+        for (Translog.Operation op : operations) {
+            switch (op.type()) {
+                case ADD -> doAddDocument(op.document());
+                case UPDATE -> {
+                    doDeleteById(op.docId());
+                    doAddDocument(op.document());
                 }
+                case DELETE_ID -> doDeleteById(op.docId());
+                case DELETE_TERM -> doDeleteDocuments(op.field(), op.text());
             }
         }
-        this.segmentCounter = maxSegmentNum + 1;
     }
 
+    /**
+     * Buffers a document. A buffered document with the same ID is replaced, but copies in
+     * flushed segments are kept; use {@link #updateDocument(int, Document)} to replace those.
+     * The document is logged to the translog first, so it survives a crash before the next
+     * commit once the translog is synced.
+     */
     public void addDocument(Document doc) throws IOException {
-        documentBuffer.add(doc);
+        translog.add(Translog.Operation.add(doc));
+        doAddDocument(doc);
+    }
+
+    private void doAddDocument(Document doc) throws IOException {
+        mergeScheduler.noteForegroundActivity();
+        // Re-inserted so the buffer keeps the order in which documents were last added.
+        documentBuffer.remove(doc.getId());
+        documentBuffer.put(doc.getId(), doc);
         if (documentBuffer.size() >= config.getMaxBufferedDocs()) {
             flush();
         }
     }
 
+    /**
+     * Deletes the document with the given ID. A matching buffered document is dropped at once.
+     */
+    public void deleteById(int docId) throws IOException {
+        translog.add(Translog.Operation.deleteById(docId));
+        doDeleteById(docId);
+    }
+
+    private void doDeleteById(int docId) {
+        mergeScheduler.noteForegroundActivity();
+        // Buffered documents were all added before this delete.
+        documentBuffer.remove(docId);
+        synchronized (this) {
+            bufferedDeletes.addDocId(docId);
+        }
+    }
+
+    /**
+     * Deletes all documents containing the given indexed term, i.e. the documents a
+     * {@code TermQuery} for the same field and text matches.
+     */
+    public void deleteDocuments(String field, String text) throws IOException {
+        translog.add(Translog.Operation.deleteTerm(field, text));
+        doDeleteDocuments(field, text);
+    }
+
+    private void doDeleteDocuments(String field, String text) {
+        mergeScheduler.noteForegroundActivity();
+        documentBuffer.values().removeIf(doc -> containsTerm(doc, field, text));
+        synchronized (this) {
+            bufferedDeletes.addTerm(field, text);
+        }
+    }
+
+    private boolean containsTerm(Document doc, String field, String text) {
+        if (!(doc.getFields().get(field) instanceof String value)) {
+            return false;
+        }
+        try (Stream<FeatherToken> tokens = config.getAnalyzer().analyze(value)) {
+            return tokens.anyMatch(token -> token.term().equals(text));
+        }
+    }
+
+    /**
+     * Replaces the document with the given ID: the previous version is deleted wherever it
+     * lives, in the buffer or in a flushed segment, and {@code doc} is added. Both take effect
+     * at the same flush, so every commit sees exactly one version; if that flush fails,
+     * {@code doc} stays buffered and is written by the next one.
+     *
+     * <p>Finding the previous version costs a hash lookup in the buffer, and at flush a range
+     * check plus a binary search over each segment's sorted IDs.</p>
+     */
+    public void updateDocument(int docId, Document doc) throws IOException {
+        if (doc.getId() != docId) {
+            throw new IllegalArgumentException("Document ID " + doc.getId() + " does not match " + docId);
+        }
+        translog.add(Translog.Operation.update(doc));
+        doDeleteById(docId);
+        doAddDocument(doc);
+    }
+
+    /**
+     * Returns the latest version of the document with the given ID, whether it is still
+     * buffered, flushed but uncommitted, or committed; null if it does not exist or a delete
+     * has been issued for it. Like {@link #addDocument(Document)}, this must be called from the
+     * indexing thread.
+     *
+     * <p>Buffered documents are found with a hash lookup. Otherwise the segments whose ID range
+     * contains the ID are found in an interval index over the segment ranges, and each is
+     * checked, newest first, with a binary search over its sorted IDs, so a lookup reads a
+     * single document record: that of the newest live copy.</p>
+     */
+    public Document get(int docId) throws IOException {
+        Document buffered = documentBuffer.get(docId);
+        if (buffered != null) {
+            return buffered;
+        }
+        synchronized (this) {
+            if (bufferedDeletes.containsDocId(docId)) {
+                return null;
+            }
+            if (segmentRanges == null || segmentRangesVersion != segmentsManager.getVersion()) {
+                segmentRanges = new SegmentRangeIndex(segmentsManager.getSegments());
+                segmentRangesVersion = segmentsManager.getVersion();
+            }
+            for (SegmentInfo info : segmentRanges.find(docId)) {
+                if (!primaryKeys.contains(storage, info, docId)) {
+                    continue;
+                }
+                LiveDocs liveDocs = primaryKeys.liveDocs(storage, info);
+                if (liveDocs != null && !liveDocs.isLive(docId)) {
+                    continue;
+                }
+                Document doc = primaryKeys.document(storage, info, docId);
+                return bufferedDeletes.matchesTerm(doc, this::containsTerm) ? null : doc;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Returns a reader over all changes made so far, committed or not. Buffered documents and
+     * deletes are flushed into segments, but nothing is synced and no segments file is written,
+     * so this is much cheaper than {@link #commit()}; the translog keeps the changes durable.
+     *
+     * <p>The reader shares the readers of unchanged segments with other readers from this
+     * writer, and keeps the segments it uses alive until it is closed, even if they are merged
+     * away or dropped meanwhile.</p>
+     */
+    public IndexReader getReader() throws IOException {
+        flush();
+        synchronized (this) {
+            List<SegmentReader> readers = new ArrayList<>(segmentsManager.size());
+            try {
+                for (SegmentInfo info : segmentsManager.getSegments()) {
+                    readers.add(readerPool.acquire(info));
+                }
+            } catch (IOException e) {
+                for (SegmentReader reader : readers) {
+                    try {
+                        reader.decRef();
+                    } catch (IOException closeException) {
+                        e.addSuppressed(closeException);
+                    }
+                }
+                throw e;
+            }
+            return new IndexReader(readers, this, segmentsManager.getVersion());
+        }
+    }
+
+    /**
+     * Returns a new reader if anything changed since {@code reader} was obtained from this
+     * writer, or null if it is still current. The caller remains responsible for closing
+     * {@code reader}.
+     */
+    public IndexReader refresh(IndexReader reader) throws IOException {
+        if (reader.getWriter() != this) {
+            throw new IllegalArgumentException("Reader was not obtained from this writer");
+        }
+        synchronized (this) {
+            if (documentBuffer.isEmpty() && bufferedDeletes.isEmpty()
+                    && reader.getVersion() == segmentsManager.getVersion()) {
+                return null;
+            }
+        }
+        return getReader();
+    }
+
+    /**
+     * Called by searches on readers from this writer, so merges yield to them as to indexing.
+     */
+    void noteForegroundActivity() {
+        mergeScheduler.noteForegroundActivity();
+    }
+
     public void flush() throws IOException {
+        // Applied first, so deletes never reach the segment of documents added after them.
+        applyBufferedDeletes();
+
         System.out.println("Flushing " + documentBuffer.size() + " documents.");
 
         if (documentBuffer.isEmpty()) {
@@ -70,7 +329,7 @@ public class IndexWriter implements Closeable {
             return;
         }
 
-        String segmentName = "segment_" + (segmentCounter++);
+        String segmentName = newSegmentName();
         System.out.println("Generated segment name: " + segmentName);
 
         InMemoryIndex inMemoryIndex = buildInMemoryIndex();
@@ -79,22 +338,25 @@ public class IndexWriter implements Closeable {
         DocumentFileWriter docWriter = null;
         PostingFileWriter postWriter = null;
         DictionaryFileWriter dicWriter = null;
+        PointsFileWriter pointsWriter = null;
         MetaFileWriter metaWriter = null;
 
         try {
-            docWriter = (DocumentFileWriter) storage.createFileWriter(segmentName, FileType.DOC);
-            postWriter = (PostingFileWriter) storage.createFileWriter(segmentName, FileType.POST);
-            dicWriter = (DictionaryFileWriter) storage.createFileWriter(segmentName, FileType.DIC);
+            docWriter = (DocumentFileWriter) storage.createFileWriter(segmentName, FileType.DOC, IOContext.SEQUENTIAL);
+            postWriter = (PostingFileWriter) storage.createFileWriter(segmentName, FileType.POST, IOContext.SEQUENTIAL);
+            dicWriter = (DictionaryFileWriter) storage.createFileWriter(segmentName, FileType.DIC, IOContext.SEQUENTIAL);
+            pointsWriter = (PointsFileWriter) storage.createFileWriter(segmentName, FileType.POINTS, IOContext.SEQUENTIAL);
 
-            SegmentWriters writers = new SegmentWriters(docWriter, postWriter, dicWriter);
+            SegmentWriters writers = new SegmentWriters(docWriter, postWriter, dicWriter, pointsWriter);
             writeSegmentData(segmentName, writers, inMemoryIndex);
 
             DocumentFile docFile = docWriter.complete();
             PostingFile postFile = postWriter.complete();
             DictionaryFile dicFile = dicWriter.complete();
-            System.out.println("Finalized .doc, .post, and .dic files for " + segmentName);
+            PointsFile pointsFile = pointsWriter.complete();
+            System.out.println("Finalized .doc, .post, .dic, and .pnt files for " + segmentName);
 
-            SegmentFiles files = new SegmentFiles(docFile, postFile, dicFile);
+            SegmentFiles files = new SegmentFiles(docFile, postFile, dicFile, pointsFile);
 
             SegmentMetadata metadata = new SegmentMetadata(inMemoryIndex.docCount, inMemoryIndex.minDocId, inMemoryIndex.maxDocId);
             metaWriter = storage.createMetaFileWriter(segmentName, metadata);
@@ -102,17 +364,20 @@ public class IndexWriter implements Closeable {
             System.out.println("Wrote metadata to " + segmentName + FileType.META.getExtension());
 
             registerNewSegment(segmentName, inMemoryIndex, files, metaFile);
+            documentBuffer.clear();
+            System.out.println("Document buffer cleared.");
 
         } catch (IOException e) {
+            // The buffer is kept for the next flush: deletes already applied above may belong
+            // to updates whose new versions are in it, and must not be committed without them.
             cleanupFailedSegment(segmentName);
             throw new IOException("Failed to flush segment " + segmentName, e);
         } finally {
-            documentBuffer.clear();
-            System.out.println("Document buffer cleared.");
             try {
                 if (docWriter != null) docWriter.close();
                 if (postWriter != null) postWriter.close();
                 if (dicWriter != null) dicWriter.close();
+                if (pointsWriter != null) pointsWriter.close();
                 if (metaWriter != null) metaWriter.close();
             } catch (IOException ex) {
                 System.err.println("Error closing file writers: " + ex.getMessage());
@@ -120,6 +385,33 @@ public class IndexWriter implements Closeable {
         }
     }
 
+    /**
+     * Returns the number of a segment name, or of the segment a file such as
+     * {@code segment_3.doc} or {@code segment_3_1.liv} belongs to; -1 for other names.
+     */
+    private static int segmentNumber(String name) {
+        if (!name.startsWith("segment_")) {
+            return -1;
+        }
+        int start = "segment_".length();
+        int end = start;
+        while (end < name.length() && Character.isDigit(name.charAt(end))) {
+            end++;
+        }
+        if (end == start || (end < name.length() && name.charAt(end) != '.' && name.charAt(end) != '_')) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(name.substring(start, end));
+        } catch (NumberFormatException e) {
+            return -1; // Ignore segments with out-of-range suffixes
+        }
+    }
+
+    private synchronized String newSegmentName() {
+        return "segment_" + (segmentCounter++);
+    }
+
     private InMemoryIndex buildInMemoryIndex() {
         FeatherAnalyzer analyzer = config.getAnalyzer();
         if (analyzer == null) {
@@ -127,10 +419,11 @@ public class IndexWriter implements Closeable {
         }
 
         Map<String, Map<Integer, List<Integer>>> postingLists = new HashMap<>();
+        Map<String, Map<Integer, Long>> numericValues = new HashMap<>();
         int minDocId = Integer.MAX_VALUE;
         int maxDocId = Integer.MIN_VALUE;
 
-        for (Document doc : documentBuffer) {
+        for (Document doc : documentBuffer.values()) {
             int docId = doc.getId();
             minDocId = Math.min(minDocId, docId);
             maxDocId = Math.max(maxDocId, docId);
@@ -150,7 +443,7 @@ public class IndexWriter implements Closeable {
                                 postingLists
                                         .computeIfAbsent(fullTerm, k -> new HashMap<>())
                                         .computeIfAbsent(docId, k -> new ArrayList<>())
-                                        .add(token.startOffset());
+                                        .add(token.position());
                             });
                         }
                     } else {
@@ -161,16 +454,28 @@ public class IndexWriter implements Closeable {
                                 .computeIfAbsent(docId, k -> new ArrayList<>())
                                 .add(0);
                     }
+                } else if (fieldValue instanceof Number number) {
+                    // Stored as a long by DocumentFileWriter, so the points index uses the same value.
+                    numericValues
+                            .computeIfAbsent(fieldName, k -> new HashMap<>())
+                            .put(docId, number.longValue());
                 }
             }
         }
-        return new InMemoryIndex(postingLists, documentBuffer.size(), minDocId, maxDocId);
+        return new InMemoryIndex(postingLists, numericValues, documentBuffer.size(), minDocId, maxDocId);
     }
 
     private void writeSegmentData(String segmentName, SegmentWriters writers, InMemoryIndex inMemoryIndex) throws IOException {
-        // Writes documents.
-        for (Document doc : documentBuffer) {
-            writers.docWriter.writeDocument(doc);
+        // Writes documents, keeping their offsets for lookups by ID.
+        int[] ids = new int[documentBuffer.size()];
+        long[] offsets = new long[ids.length];
+        int count = 0;
+        for (Document doc : documentBuffer.values()) {
+            ids[count] = doc.getId();
+            offsets[count++] = writers.docWriter.writeDocument(doc);
+        }
+        synchronized (this) {
+            primaryKeys.put(segmentName, DocumentIdIndex.of(ids, offsets));
         }
         System.out.println("Wrote " + inMemoryIndex.docCount + " documents to " + segmentName + FileType.DOC.getExtension());
 
@@ -202,18 +507,42 @@ public class IndexWriter implements Closeable {
             writers.dicWriter.addTermRecord(term);
         }
         System.out.println("Added " + terms.size() + " terms to dictionary writer for " + segmentName);
+
+        // Write points of numeric fields.
+        for (Map.Entry<String, Map<Integer, Long>> entry : inMemoryIndex.numericValues.entrySet()) {
+            Map<Integer, Long> valuesByDoc = entry.getValue();
+            long[] values = new long[valuesByDoc.size()];
+            int[] docIds = new int[valuesByDoc.size()];
+            int i = 0;
+            for (Map.Entry<Integer, Long> point : valuesByDoc.entrySet()) {
+                docIds[i] = point.getKey();
+                values[i++] = point.getValue();
+            }
+            writers.pointsWriter.writeField(entry.getKey(), values, docIds);
+        }
+        System.out.println("Wrote points of " + inMemoryIndex.numericValues.size() + " numeric fields to " + segmentName + FileType.POINTS.getExtension());
     }
 
-    private void registerNewSegment(String segmentName, InMemoryIndex inMemoryIndex, SegmentFiles files, MetaFile metaFile) throws IOException {
+    private synchronized void registerNewSegment(String segmentName, InMemoryIndex inMemoryIndex, SegmentFiles files, MetaFile metaFile) throws IOException {
         SegmentInfo newSegment = new SegmentInfo(segmentName, System.currentTimeMillis(), inMemoryIndex.docCount, inMemoryIndex.minDocId, inMemoryIndex.maxDocId);
-        long segmentSize = files.docFile.size() + files.postFile.size() + files.dicFile.size() + metaFile.size();
+        long segmentSize = files.docFile.size() + files.postFile.size() + files.dicFile.size()
+                + files.pointsFile.size() + metaFile.size();
         newSegment.setSizeInBytes(segmentSize);
+        newSegment.setFileChecksums(storage.checksumSegmentFiles(segmentName));
         segmentsManager.addSegment(newSegment);
+        deleter.checkpoint(segmentsManager.getSegments());
         System.out.println("Created and registered new segment in-memory: " + newSegment);
     }
 
     private void cleanupFailedSegment(String segmentName) {
         System.err.println("Attempting to clean up failed segment: " + segmentName);
+        synchronized (this) {
+            primaryKeys.remove(segmentName);
+        }
+        deleteSegmentFiles(segmentName);
+    }
+
+    private void deleteSegmentFiles(String segmentName) {
         for (FileType type : FileType.values()) {
             try {
                 // deleteFile() safely handles cases where the file may not exist.
@@ -222,32 +551,477 @@ public class IndexWriter implements Closeable {
                 System.err.println("Failed to delete cleanup file " + segmentName + type.getExtension() + ": " + ex.getMessage());
             }
         }
+        try {
+            for (String file : storage.listFiles()) {
+                if (file.startsWith(segmentName + "_") && file.endsWith(FileType.LIVE.getExtension())) {
+                    storage.deleteFile(file);
+                }
+            }
+        } catch (IOException ex) {
+            System.err.println("Failed to delete live docs files of " + segmentName + ": " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Applies the buffered deletes to every segment and drops segments left without live
+     * documents. Runs under the writer's monitor so no merge commits in between.
+     */
+    private synchronized void applyBufferedDeletes() throws IOException {
+        if (!bufferedDeletes.isEmpty()) {
+            for (SegmentInfo info : segmentsManager.getSegments()) {
+                SegmentInfo updated = bufferedDeletes.apply(storage, info, primaryKeys);
+                if (updated == null) {
+                    continue;
+                }
+                segmentsManager.updateSegment(updated);
+                System.out.println("Applied deletes to " + updated);
+            }
+            bufferedDeletes.clear();
+            // References the new live docs, so that those of segments dropped below are deleted too.
+            deleter.checkpoint(segmentsManager.getSegments());
+        }
+
+        // A segment being merged is left to the merge, which drops its deleted documents.
+        for (SegmentInfo info : segmentsManager.getSegments()) {
+            if (info.getDelCount() == info.getDocumentCount() && !mergingSegments.contains(info.getName())) {
+                segmentsManager.removeSegment(info.getName());
+                primaryKeys.remove(info.getName());
+                readerPool.drop(info.getName());
+                System.out.println("Dropped fully deleted segment " + info.getName());
+            }
+        }
+        // Superseded live docs and dropped segments are deleted once no commit or reader uses them.
+        deleter.checkpoint(segmentsManager.getSegments());
     }
 
+    /**
+     * Writes buffered changes to a new commit point and asks the merge policy for merges.
+     *
+     * @throws IOException if committing failed, or if a background merge failed since the
+     *                     last commit; the changes are committed in that case
+     */
     public void commit() throws IOException {
+        flushAndWriteSegments();
+        maybeMerge();
+        Throwable failure;
+        synchronized (this) {
+            failure = mergeException;
+            mergeException = null;
+        }
+        if (failure != null) {
+            throw new IOException("Background merge failed", failure);
+        }
+    }
+
+    private void flushAndWriteSegments() throws IOException {
+        // Every operation logged so far is buffered, so this commit covers all older generations.
+        long translogGeneration = translog.rollGeneration();
+
         flush(); // Ensure all buffered documents are written to segments
 
         // Persist segment metadata (segments_N file) using the Segments manager
-        segmentsManager.write(storage);
+        synchronized (this) {
+            segmentsManager.setUserData(Map.of(TRANSLOG_GENERATION, String.valueOf(translogGeneration)));
+            segmentsManager.write(storage);
+            deleter.checkpoint(segmentsManager.getSegments());
+            deleter.onCommit(segmentsManager);
+        }
+        translog.trimBelow(translogGeneration);
+    }
+
+    /**
+     * Merges on the calling thread until at most {@code maxSegments} segments remain.
+     *
+     * @see #forceMerge(int, int, ForceMergeListener)
+     */
+    public void forceMerge(int maxSegments) throws IOException {
+        forceMerge(maxSegments, 1, null);
     }
 
+    /**
+     * Commits buffered documents, then merges until at most {@code maxSegments} segments
+     * remain. Meant for indexes that are only read afterwards; a single segment gives the
+     * fastest searches and the smallest index.
+     *
+     * <p>Each round splits the segments, smallest first, into independent groups of at most
+     * {@value #MAX_FORCE_MERGE_AT_ONCE}. With {@code maxThreads} greater than one and more
+     * segments than threads, the groups are sized so that {@code maxThreads} of them run in
+     * parallel on a temporary pool, at the cost of rewriting their output in a later round. These merges
+     * are not throttled. Segments taking part in background merges are waited for.</p>
+     *
+     * @param listener notified after each merge, or null
+     * @throws IOException if flushing or any merge fails; merges committed before remain
+     */
+    public void forceMerge(int maxSegments, int maxThreads, ForceMergeListener listener) throws IOException {
+        if (maxSegments < 1) {
+            throw new IllegalArgumentException("maxSegments must be at least 1");
+        }
+        if (maxThreads < 1) {
+            throw new IllegalArgumentException("maxThreads must be at least 1");
+        }
+        flushAndWriteSegments();
+
+        ExecutorService pool = maxThreads > 1 ? Executors.newFixedThreadPool(maxThreads) : null;
+        try {
+            List<MergeSpec> round;
+            while (!(round = nextForceMergeRound(maxSegments, maxThreads)).isEmpty()) {
+                System.out.println("Force merge round of " + round.size() + " merges towards " + maxSegments + " segments");
+                if (pool == null) {
+                    for (int i = 0; i < round.size(); i++) {
+                        try {
+                            forceMergeOne(round.get(i), listener);
+                        } catch (IOException | RuntimeException e) {
+                            releaseClaims(round.subList(i + 1, round.size()));
+                            throw e;
+                        }
+                    }
+                } else {
+                    runForceMergeRound(pool, round, listener);
+                }
+            }
+        } finally {
+            if (pool != null) {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    private void runForceMergeRound(ExecutorService pool, List<MergeSpec> round, ForceMergeListener listener) throws IOException {
+        List<Future<?>> futures = new ArrayList<>(round.size());
+        for (MergeSpec spec : round) {
+            futures.add(pool.submit(() -> {
+                forceMergeOne(spec, listener);
+                return null;
+            }));
+        }
+        IOException failure = null;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for force merges");
+            } catch (ExecutionException e) {
+                IOException cause = e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+                if (failure == null) {
+                    failure = cause;
+                } else {
+                    failure.addSuppressed(cause);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Plans the next round of a force merge and claims its segments, waiting for background
+     * merges when they hold the segments needed to make progress.
+     *
+     * @return the merges of the round, or an empty list once at most maxSegments remain
+     */
+    private synchronized List<MergeSpec> nextForceMergeRound(int maxSegments, int maxThreads) throws IOException {
+        while (true) {
+            List<SegmentInfo> segments = segmentsManager.getSegments();
+            int excess = segments.size() - maxSegments;
+            if (excess <= 0) {
+                return List.of();
+            }
+            List<SegmentInfo> eligible = segments.stream()
+                    .filter(segment -> !mergingSegments.contains(segment.getName()))
+                    .sorted(Comparator.comparingLong(SegmentInfo::getSizeInBytes))
+                    .toList();
+            // Splitting only pays off while there are more segments than threads.
+            int perThread = eligible.size() <= maxThreads ? eligible.size() : (eligible.size() + maxThreads - 1) / maxThreads;
+            int groupSize = Math.max(2, Math.min(MAX_FORCE_MERGE_AT_ONCE, perThread));
+
+            List<MergeSpec> round = new ArrayList<>();
+            int start = 0;
+            while (excess > 0 && eligible.size() - start >= 2) {
+                int count = Math.min(groupSize, Math.min(excess + 1, eligible.size() - start));
+                round.add(inIndexOrder(eligible.subList(start, start + count)));
+                start += count;
+                excess -= count - 1;
+            }
+            if (!round.isEmpty()) {
+                round.forEach(this::claim);
+                return round;
+            }
+            if (mergingSegments.isEmpty()) {
+                return List.of();
+            }
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for background merges");
+            }
+        }
+    }
+
+    /**
+     * Returns a spec of the segments ordered as in the index, oldest first, so that later
+     * sources are the newer ones when deletes are carried over to the merged segment.
+     */
+    private MergeSpec inIndexOrder(List<SegmentInfo> segments) {
+        List<String> order = segmentsManager.getSegments().stream().map(SegmentInfo::getName).toList();
+        List<SegmentInfo> sorted = new ArrayList<>(segments);
+        sorted.sort(Comparator.comparingInt(segment -> order.indexOf(segment.getName())));
+        return new MergeSpec(sorted);
+    }
+
+    private synchronized void releaseClaims(List<MergeSpec> specs) {
+        specs.forEach(this::release);
+        notifyAll();
+    }
+
+    /**
+     * Claims the segments of a merge, keeping the files it reads, including live docs
+     * generations superseded meanwhile, until the claim is released.
+     */
+    private synchronized void claim(MergeSpec spec) {
+        spec.getSegments().forEach(segment -> mergingSegments.add(segment.getName()));
+        deleter.incRef(IndexFileDeleter.filesOf(spec.getSegments()));
+    }
+
+    private synchronized void release(MergeSpec spec) {
+        spec.getSegments().forEach(segment -> mergingSegments.remove(segment.getName()));
+        deleter.decRef(IndexFileDeleter.filesOf(spec.getSegments()));
+    }
+
+    private void forceMergeOne(MergeSpec spec, ForceMergeListener listener) throws IOException {
+        String mergedName = newSegmentName();
+        SegmentInfo merged = doMerge(spec, mergedName, null);
+        if (merged != null && listener != null) {
+            int segmentCount;
+            synchronized (this) {
+                segmentCount = segmentsManager.size();
+            }
+            synchronized (listener) {
+                listener.onMergeCommitted(merged, segmentCount);
+            }
+        }
+    }
+
+    /**
+     * Asks the merge policy for merges among the segments not already being merged and hands
+     * them to the merge scheduler.
+     */
+    private synchronized void maybeMerge() {
+        if (closing) {
+            return;
+        }
+        List<SegmentInfo> eligible = segmentsManager.getSegments().stream()
+                .filter(segment -> !mergingSegments.contains(segment.getName()))
+                .filter(segment -> !failedMergeSegments.contains(segment.getName()))
+                .toList();
+        for (MergeSpec proposed : config.getMergePolicy().findMerges(eligible)) {
+            MergeSpec spec = inIndexOrder(proposed.getSegments());
+            // Policies may propose overlapping merges; only the first claims a segment.
+            if (spec.getSegments().stream().anyMatch(segment -> mergingSegments.contains(segment.getName()))) {
+                continue;
+            }
+            claim(spec);
+            String mergedName = newSegmentName();
+            System.out.println("Scheduling merge of " + spec + " into " + mergedName);
+            mergeScheduler.merge(rateLimiter -> runMerge(spec, mergedName, rateLimiter));
+        }
+    }
+
+    private void runMerge(MergeSpec spec, String mergedName, RateLimiter rateLimiter) {
+        try {
+            doMerge(spec, mergedName, rateLimiter);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Merge into " + mergedName + " failed: " + e.getMessage());
+            synchronized (this) {
+                if (mergeException == null) {
+                    mergeException = e;
+                }
+                // Retrying would most likely fail the same way, so the segments are left as they are.
+                spec.getSegments().forEach(segment -> failedMergeSegments.add(segment.getName()));
+            }
+            return;
+        }
+        // The merged segment may itself be worth merging now.
+        maybeMerge();
+    }
+
+    /**
+     * Merges segments already claimed in {@code mergingSegments} and commits the result,
+     * releasing the claim either way.
+     *
+     * @return the merged segment, or null if the merge was discarded
+     */
+    private SegmentInfo doMerge(MergeSpec spec, String mergedName, RateLimiter rateLimiter) throws IOException {
+        // The merger reads the IDs of newer segments holding copies of source documents, so their
+        // files are kept until it is done, even if those segments are merged away meanwhile.
+        List<SegmentInfo> segments;
+        synchronized (this) {
+            segments = segmentsManager.getSegments();
+            deleter.incRef(IndexFileDeleter.filesOf(segments));
+        }
+        try {
+            SegmentInfo merged = new SegmentMerger(storage, spec, mergedName, rateLimiter, segments).merge();
+            // Synced here so that committing the merge under the writer's lock does not wait for it.
+            try {
+                storage.sync(merged.getFileChecksums().keySet());
+            } catch (IOException e) {
+                deleteSegmentFiles(merged.getName());
+                throw e;
+            }
+            return commitMerge(spec, merged) ? merged : null;
+        } finally {
+            synchronized (this) {
+                deleter.decRef(IndexFileDeleter.filesOf(segments));
+                release(spec);
+                notifyAll();
+            }
+        }
+    }
+
+    private synchronized boolean commitMerge(MergeSpec spec, SegmentInfo merged) throws IOException {
+        boolean committed;
+        try {
+            merged = carryOverDeletes(spec, merged);
+            committed = segmentsManager.commitMerge(storage, spec.getSegments(), merged);
+        } catch (IOException e) {
+            deleteSegmentFiles(merged.getName());
+            throw e;
+        }
+        if (!committed) {
+            System.err.println("Source segments of " + merged.getName() + " are gone, discarding the merge.");
+            deleteSegmentFiles(merged.getName());
+            return false;
+        }
+        System.out.println("Committed merge of " + spec + " as " + merged);
+        for (SegmentInfo source : spec.getSegments()) {
+            primaryKeys.remove(source.getName());
+            readerPool.drop(source.getName());
+        }
+        deleter.checkpoint(segmentsManager.getSegments());
+        deleter.onCommit(segmentsManager);
+        return true;
+    }
+
+    /**
+     * Applies deletes made to the source segments while they were being merged to the merged
+     * segment. The merge dropped exactly the documents deleted in the generation it read, so
+     * a document deleted since then is deleted in the merged segment too. Doc IDs are never
+     * remapped, so no translation is needed.
+     */
+    private SegmentInfo carryOverDeletes(MergeSpec spec, SegmentInfo merged) throws IOException {
+        LiveDocs mergedLiveDocs = null;
+        int delCount = 0;
+        List<SegmentInfo> sources = spec.getSegments();
+        for (int i = 0; i < sources.size(); i++) {
+            SegmentInfo source = sources.get(i);
+            SegmentInfo current = segmentsManager.getSegment(source.getName());
+            if (current == null || current.getDelGen() == source.getDelGen()) {
+                continue;
+            }
+            LiveDocs before = BufferedDeletes.loadLiveDocs(storage, source, primaryKeys);
+            LiveDocs now = SegmentReader.readLiveDocs(storage, current);
+            if (mergedLiveDocs == null) {
+                mergedLiveDocs = BufferedDeletes.loadLiveDocs(storage, merged, primaryKeys);
+            }
+            List<SegmentInfo> newer = sources.subList(i + 1, sources.size());
+            // Only the source's own IDs are visited; its ID range may be far larger.
+            for (int docId : primaryKeys.ids(storage, source)) {
+                if (before.isLive(docId) && !now.isLive(docId) && !hasLiveCopy(newer, docId)
+                        && mergedLiveDocs.delete(docId)) {
+                    delCount++;
+                }
+            }
+        }
+        if (delCount == 0) {
+            return merged;
+        }
+        long checksum = BufferedDeletes.writeLiveDocs(storage, merged.getName(), 1, mergedLiveDocs, delCount);
+        return merged.withDeletes(1, delCount, checksum);
+    }
+
+    /**
+     * Returns whether one of the segments, as the merger read them, holds a live copy of the
+     * document, in which case the merged segment kept that copy instead.
+     */
+    private boolean hasLiveCopy(List<SegmentInfo> segments, int docId) throws IOException {
+        for (SegmentInfo segment : segments) {
+            if (primaryKeys.contains(storage, segment, docId)) {
+                LiveDocs liveDocs = SegmentReader.readLiveDocs(storage, segment);
+                if (liveDocs == null || liveDocs.isLive(docId)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Commits, waits for running merges and closes the translog and the storage. Closing
+     * again has no effect.
+     *
+     * @throws IOException if committing failed or a background merge failed
+     */
     @Override
     public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
         try {
             commit();
         } finally {
-            storage.close();
+            synchronized (this) {
+                closing = true;
+            }
+            closeAll(mergeScheduler, readerPool, () -> {
+                synchronized (this) {
+                    primaryKeys.close();
+                }
+            }, translog, deleter::close, storage);
+        }
+        synchronized (this) {
+            if (mergeException != null) {
+                throw new IOException("Background merge failed", mergeException);
+            }
+        }
+    }
+
+    /**
+     * Closes each resource in order even if closing an earlier one fails, then rethrows the
+     * first failure.
+     */
+    private static void closeAll(Closeable... resources) throws IOException {
+        IOException failure = null;
+        for (Closeable resource : resources) {
+            try {
+                resource.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
         }
     }
 
-    private record InMemoryIndex(Map<String, Map<Integer, List<Integer>>> postingLists, int docCount, int minDocId,
+    private record InMemoryIndex(Map<String, Map<Integer, List<Integer>>> postingLists,
+                                 Map<String, Map<Integer, Long>> numericValues, int docCount, int minDocId,
                                  int maxDocId) {
     }
 
     private record SegmentWriters(DocumentFileWriter docWriter, PostingFileWriter postWriter,
-                                  DictionaryFileWriter dicWriter) {
+                                  DictionaryFileWriter dicWriter, PointsFileWriter pointsWriter) {
     }
 
-    private record SegmentFiles(DocumentFile docFile, PostingFile postFile, DictionaryFile dicFile) {
+    private record SegmentFiles(DocumentFile docFile, PostingFile postFile, DictionaryFile dicFile,
+                                PointsFile pointsFile) {
     }
 }
\ No newline at end of file
@@ -9,6 +9,11 @@ public class IndexWriterConfig {
     private final FeatherAnalyzer analyzer;
     private final MergePolicy mergePolicy;
     private final int maxBufferedDocs;
+    private MergeScheduler mergeScheduler = new ConcurrentMergeScheduler();
+    private IndexDeletionPolicy indexDeletionPolicy = new KeepLastCommitsDeletionPolicy();
+    // Durable by default: one translog fsync per operation, see setTranslogSync.
+    private int translogSyncEveryOps = 1;
+    private long translogSyncIntervalMillis = 0;
 
     public IndexWriterConfig(FeatherAnalyzer analyzer, MergePolicy mergePolicy, int maxBufferedDocs) {
         this.analyzer = Objects.requireNonNull(analyzer, "FeatherAnalyzer must not be null");
@@ -22,4 +27,45 @@ public class IndexWriterConfig {
     public FeatherAnalyzer getAnalyzer() { return analyzer; }
     public MergePolicy getMergePolicy() { return mergePolicy; }
     public int getMaxBufferedDocs() { return maxBufferedDocs; }
+    public MergeScheduler getMergeScheduler() { return mergeScheduler; }
+    public IndexDeletionPolicy getIndexDeletionPolicy() { return indexDeletionPolicy; }
+    public int getTranslogSyncEveryOps() { return translogSyncEveryOps; }
+    public long getTranslogSyncIntervalMillis() { return translogSyncIntervalMillis; }
+
+    public IndexWriterConfig setMergeScheduler(MergeScheduler mergeScheduler) {
+        this.mergeScheduler = Objects.requireNonNull(mergeScheduler, "MergeScheduler must not be null");
+        return this;
+    }
+
+    /**
+     * Sets the policy deciding which commit points are kept. By default only the latest one is.
+     */
+    public IndexWriterConfig setIndexDeletionPolicy(IndexDeletionPolicy indexDeletionPolicy) {
+        this.indexDeletionPolicy = Objects.requireNonNull(indexDeletionPolicy, "IndexDeletionPolicy must not be null");
+        return this;
+    }
+
+    /**
+     * Sets how the translog amortizes fsyncs. By default every operation is synced before it
+     * returns, so an acknowledged operation always survives a crash, at the cost of one fsync
+     * per add, update or delete: on a disk without a write cache that caps a single indexing
+     * thread at a few hundred operations per second. Concurrent callers share a sync, so the
+     * cost is per sync rather than per thread.
+     *
+     * <p>With {@code syncEveryOps} greater than 1, operations are synced in groups of that
+     * size, and a positive {@code syncIntervalMillis} additionally syncs whatever is pending at
+     * that interval; a crash loses at most the operations not synced yet. Bulk loads that can
+     * be replayed from their source should raise it.</p>
+     */
+    public IndexWriterConfig setTranslogSync(int syncEveryOps, long syncIntervalMillis) {
+        if (syncEveryOps <= 0) {
+            throw new IllegalArgumentException("syncEveryOps must be greater than 0");
+        }
+        if (syncIntervalMillis < 0) {
+            throw new IllegalArgumentException("syncIntervalMillis must not be negative");
+        }
+        this.translogSyncEveryOps = syncEveryOps;
+        this.translogSyncIntervalMillis = syncIntervalMillis;
+        return this;
+    }
 }
\ No newline at end of file
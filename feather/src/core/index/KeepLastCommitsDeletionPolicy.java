@@ -0,0 +1,34 @@
+package core.index;
+
+import java.util.List;
+
+/**
+ * Keeps the newest {@code n} commits and deletes all older ones. With the default of one, only
+ * the latest commit survives, like an index without commit history.
+ */
+public class KeepLastCommitsDeletionPolicy implements IndexDeletionPolicy {
+    private final int numToKeep;
+
+    public KeepLastCommitsDeletionPolicy() {
+        this(1);
+    }
+
+    public KeepLastCommitsDeletionPolicy(int numToKeep) {
+        if (numToKeep < 1) {
+            throw new IllegalArgumentException("numToKeep must be at least 1");
+        }
+        this.numToKeep = numToKeep;
+    }
+
+    @Override
+    public void onInit(List<? extends IndexCommit> commits) {
+        onCommit(commits);
+    }
+
+    @Override
+    public void onCommit(List<? extends IndexCommit> commits) {
+        for (int i = 0; i < commits.size() - numToKeep; i++) {
+            commits.get(i).delete();
+        }
+    }
+}
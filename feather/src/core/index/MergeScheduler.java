@@ -0,0 +1,40 @@
+package core.index;
+
+import storage.writer.RateLimiter;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Decides when and on which thread the merges selected by the {@link storage.merge.MergePolicy}
+ * run.
+ */
+public abstract class MergeScheduler implements Closeable {
+
+    /**
+     * A merge handed to the scheduler. The task reports its own failures to the writer; the
+     * scheduler only supplies the rate limiter its writes should be throttled by.
+     */
+    @FunctionalInterface
+    public interface MergeTask {
+        void run(RateLimiter rateLimiter);
+    }
+
+    /**
+     * Runs or queues the given merge. Must not block the caller on other merges.
+     */
+    public abstract void merge(MergeTask task);
+
+    /**
+     * Tells the scheduler that indexing or searching is in progress, so merges can yield I/O to
+     * it. Does nothing by default.
+     */
+    public void noteForegroundActivity() {
+    }
+
+    /**
+     * Waits for all scheduled merges to finish.
+     */
+    @Override
+    public abstract void close() throws IOException;
+}
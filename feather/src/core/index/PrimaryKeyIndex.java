@@ -0,0 +1,129 @@
+package core.index;
+
+import storage.IOContext;
+import storage.SegmentInfo;
+import storage.Storage;
+import storage.file.Document;
+import storage.file.DocumentFile;
+import storage.file.DocumentIdIndex;
+import storage.file.FileType;
+import storage.file.LiveDocs;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per-segment lookup structures of the writer: the {@link DocumentIdIndex} of each segment, so
+ * a document is located by ID with a range check against {@link SegmentInfo#containsDocId(int)}
+ * and a binary search instead of a scan, plus the current live docs and an open document file
+ * for reading documents by ID.
+ *
+ * <p>ID indexes of newly flushed segments are registered by the writer; those of other
+ * segments are read from their document file on first use. Everything is kept until the
+ * segment leaves the index. Deleted documents stay in the ID index; liveness is tracked by the
+ * segment's live docs. Not thread-safe; the writer uses it under its monitor.</p>
+ */
+class PrimaryKeyIndex implements Closeable {
+    private final Map<String, DocumentIdIndex> idIndexes = new HashMap<>();
+    private final Map<String, SegmentInfo> liveDocsInfos = new HashMap<>();
+    private final Map<String, LiveDocs> liveDocs = new HashMap<>();
+    private final Map<String, DocumentFile> documentFiles = new HashMap<>();
+
+    void put(String segmentName, DocumentIdIndex idIndex) {
+        idIndexes.put(segmentName, idIndex);
+    }
+
+    DocumentIdIndex idIndex(Storage storage, SegmentInfo info) throws IOException {
+        DocumentIdIndex idIndex = idIndexes.get(info.getName());
+        if (idIndex == null) {
+            idIndex = documentFile(storage, info).readIdIndex();
+            idIndexes.put(info.getName(), idIndex);
+        }
+        return idIndex;
+    }
+
+    /**
+     * Returns the sorted IDs of all documents in the segment, including deleted ones.
+     */
+    int[] ids(Storage storage, SegmentInfo info) throws IOException {
+        return idIndex(storage, info).ids();
+    }
+
+    /**
+     * Returns whether the segment contains a document with the given ID, deleted or not.
+     */
+    boolean contains(Storage storage, SegmentInfo info, int docId) throws IOException {
+        return info.containsDocId(docId) && idIndex(storage, info).contains(docId);
+    }
+
+    /**
+     * Returns the segment's live docs for the deletion generation of {@code info}, or null if
+     * it has no deletions. The result is shared and must not be modified.
+     */
+    LiveDocs liveDocs(Storage storage, SegmentInfo info) throws IOException {
+        SegmentInfo cachedFor = liveDocsInfos.get(info.getName());
+        if (cachedFor == null || cachedFor.getDelGen() != info.getDelGen()) {
+            liveDocs.put(info.getName(), SegmentReader.readLiveDocs(storage, info));
+            liveDocsInfos.put(info.getName(), info);
+        }
+        return liveDocs.get(info.getName());
+    }
+
+    /**
+     * Reads the document with the given ID from the segment, whether deleted or not.
+     *
+     * @return the document, or null if the segment does not contain it
+     */
+    Document document(Storage storage, SegmentInfo info, int docId) throws IOException {
+        if (!info.containsDocId(docId)) {
+            return null;
+        }
+        long offset = idIndex(storage, info).offsetOf(docId);
+        return offset < 0 ? null : documentFile(storage, info).readDocumentAt(offset);
+    }
+
+    private DocumentFile documentFile(Storage storage, SegmentInfo info) throws IOException {
+        DocumentFile file = documentFiles.get(info.getName());
+        if (file == null) {
+            file = (DocumentFile) storage.openFile(info.getName() + FileType.DOC.getExtension(), IOContext.RANDOM);
+            documentFiles.put(info.getName(), file);
+        }
+        return file;
+    }
+
+    void remove(String segmentName) {
+        idIndexes.remove(segmentName);
+        liveDocsInfos.remove(segmentName);
+        liveDocs.remove(segmentName);
+        DocumentFile file = documentFiles.remove(segmentName);
+        if (file != null) {
+            try {
+                file.close();
+            } catch (IOException e) {
+                System.err.println("Failed to close document file of " + segmentName + ": " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (DocumentFile file : documentFiles.values()) {
+            try {
+                file.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        documentFiles.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
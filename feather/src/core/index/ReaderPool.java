@@ -0,0 +1,87 @@
+package core.index;
+
+import storage.SegmentInfo;
+import storage.Storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The segment readers shared by the near-real-time readers of a writer.
+ *
+ * <p>The pool holds one reference to the reader of each segment in its current deletion
+ * generation, and every index reader holds one more. A reader is reused by later index readers
+ * until the segment's deletes change or the segment leaves the index, and its files are
+ * closed once the last reference is released.</p>
+ *
+ * <p>Each reader holds references to its segment's files in the {@link IndexFileDeleter}, so
+ * files of a segment that left the index outlive every reader still using them.</p>
+ */
+class ReaderPool implements Closeable {
+    private final Storage storage;
+    private final IndexFileDeleter deleter;
+    private final Map<String, SegmentReader> pooled = new HashMap<>();
+
+    ReaderPool(Storage storage, IndexFileDeleter deleter) {
+        this.storage = storage;
+        this.deleter = deleter;
+    }
+
+    /**
+     * Returns a reader over the segment as described by {@code info}, with a reference taken for
+     * the caller.
+     */
+    synchronized SegmentReader acquire(SegmentInfo info) throws IOException {
+        SegmentReader reader = pooled.get(info.getName());
+        if (reader != null && reader.getSegmentInfo().getDelGen() != info.getDelGen()) {
+            drop(info.getName());
+            reader = null;
+        }
+        if (reader == null) {
+            reader = SegmentReader.open(storage, info);
+            List<String> files = info.files();
+            deleter.incRef(files);
+            reader.addCloseListener(() -> deleter.decRef(files));
+            pooled.put(info.getName(), reader);
+        }
+        reader.incRef();
+        return reader;
+    }
+
+    /**
+     * Releases the pool's reference to the segment's reader, e.g. when the segment leaves the
+     * index. Index readers using it keep it open.
+     */
+    synchronized void drop(String segmentName) throws IOException {
+        SegmentReader reader = pooled.remove(segmentName);
+        if (reader != null) {
+            reader.decRef();
+        }
+    }
+
+    /**
+     * Releases the pool's references. Index readers still open stay usable.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        IOException failure = null;
+        for (String name : Set.copyOf(pooled.keySet())) {
+            try {
+                drop(name);
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
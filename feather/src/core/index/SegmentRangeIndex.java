@@ -0,0 +1,73 @@
+package core.index;
+
+import storage.SegmentInfo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * An interval index over the [minDocId, maxDocId] ranges of a fixed list of segments.
+ *
+ * <p>Segments are sorted by {@code minDocId}, and for each position the largest
+ * {@code maxDocId} up to it is kept. A lookup binary-searches the last segment starting at or
+ * before the ID and walks back only while some earlier segment can still reach it, so
+ * segments with disjoint ranges cost O(log n) per lookup. Each segment also keeps its
+ * position in the list, so that matches are returned newest first.</p>
+ */
+class SegmentRangeIndex {
+    private final SegmentInfo[] byMinDocId;
+    // The position in the index of each segment of byMinDocId
+    private final int[] positions;
+    private final int[] maxDocIdUpTo;
+
+    /**
+     * @param segments the segments of the index, oldest first
+     */
+    SegmentRangeIndex(List<SegmentInfo> segments) {
+        Integer[] order = new Integer[segments.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingInt(i -> segments.get(i).getMinDocId()));
+        byMinDocId = new SegmentInfo[order.length];
+        positions = new int[order.length];
+        maxDocIdUpTo = new int[order.length];
+        int max = Integer.MIN_VALUE;
+        for (int i = 0; i < order.length; i++) {
+            byMinDocId[i] = segments.get(order[i]);
+            positions[i] = order[i];
+            max = Math.max(max, byMinDocId[i].getMaxDocId());
+            maxDocIdUpTo[i] = max;
+        }
+    }
+
+    /**
+     * Returns the segments whose ID range contains {@code docId}, newest first, as the copy in
+     * the newest segment holding the ID is the current one.
+     */
+    List<SegmentInfo> find(int docId) {
+        int low = 0;
+        int high = byMinDocId.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (byMinDocId[mid].getMinDocId() <= docId) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        List<Integer> matches = new ArrayList<>(1);
+        for (int i = low - 1; i >= 0 && maxDocIdUpTo[i] >= docId; i--) {
+            if (byMinDocId[i].getMaxDocId() >= docId) {
+                matches.add(i);
+            }
+        }
+        if (matches.size() > 1) {
+            matches.sort(Comparator.comparingInt((Integer i) -> positions[i]).reversed());
+        }
+        return matches.stream().map(i -> byMinDocId[i]).toList();
+    }
+}
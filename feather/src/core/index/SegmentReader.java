@@ -0,0 +1,279 @@
+package core.index;
+
+import storage.IOContext;
+import storage.SegmentInfo;
+import storage.Storage;
+import storage.file.DictionaryFile;
+import storage.file.FileType;
+import storage.file.LiveDocs;
+import storage.file.LiveDocsFile;
+import storage.file.PointsFile;
+import storage.file.PostingFile;
+import storage.file.PostingsEnum;
+import storage.file.Term;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read access to the term dictionary and posting lists of a single segment.
+ */
+public class SegmentReader implements Closeable {
+    private static final int MAX_CACHED_EXPANSIONS = 64;
+    private static final AtomicLong NEXT_ID = new AtomicLong();
+
+    private final long id = NEXT_ID.getAndIncrement();
+    private final SegmentInfo info;
+    private final DictionaryFile dictionary;
+    private final PostingFile postings;
+    private final PointsFile points;
+    private final LiveDocs liveDocs;
+    private final AtomicInteger refCount = new AtomicInteger(1);
+    private final Object closeListenersLock = new Object();
+    // Guarded by closeListenersLock; null once the listeners have run.
+    private List<Runnable> closeListeners = new ArrayList<>(1);
+    // Segments are immutable, so a cached expansion stays valid as long as this reader is open.
+    private final Map<Object, List<Term>> termExpansions = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Object, List<Term>> eldest) {
+            return size() > MAX_CACHED_EXPANSIONS;
+        }
+    };
+
+    private SegmentReader(SegmentInfo info, DictionaryFile dictionary, PostingFile postings, PointsFile points,
+                          LiveDocs liveDocs) {
+        this.info = info;
+        this.dictionary = dictionary;
+        this.postings = postings;
+        this.points = points;
+        this.liveDocs = liveDocs;
+    }
+
+    public static SegmentReader open(Storage storage, SegmentInfo info) throws IOException {
+        String name = info.getName();
+        DictionaryFile dictionary = (DictionaryFile) storage.openFile(name + FileType.DIC.getExtension(), IOContext.RANDOM);
+        PostingFile postings = null;
+        PointsFile points = null;
+        try {
+            postings = (PostingFile) storage.openFile(name + FileType.POST.getExtension(), IOContext.RANDOM);
+            // Segments written before the points index existed have no points file.
+            String pointsName = name + FileType.POINTS.getExtension();
+            points = storage.fileExists(pointsName) ? (PointsFile) storage.openFile(pointsName, IOContext.RANDOM) : null;
+            return new SegmentReader(info, dictionary, postings, points, readLiveDocs(storage, info));
+        } catch (IOException e) {
+            try {
+                dictionary.close();
+                if (postings != null) postings.close();
+                if (points != null) points.close();
+            } catch (IOException closeException) {
+                e.addSuppressed(closeException);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the live docs of the segment's current deletion generation.
+     *
+     * @return the live docs, or null if the segment has no deletions
+     */
+    static LiveDocs readLiveDocs(Storage storage, SegmentInfo info) throws IOException {
+        String fileName = info.getLiveDocsFileName();
+        if (fileName == null) {
+            return null;
+        }
+        try (LiveDocsFile file = (LiveDocsFile) storage.openFile(fileName, IOContext.READ_ONCE)) {
+            return file.readLiveDocs();
+        }
+    }
+
+    /**
+     * Takes another reference to this reader, e.g. for an index reader sharing it. Each
+     * reference is released with {@link #decRef()}.
+     *
+     * @throws IllegalStateException if the reader is already closed
+     */
+    public void incRef() {
+        int count;
+        do {
+            count = refCount.get();
+            if (count <= 0) {
+                throw new IllegalStateException(this + " is already closed");
+            }
+        } while (!refCount.compareAndSet(count, count + 1));
+    }
+
+    /**
+     * Releases a reference, closing the reader when the last one is released. A reader starts
+     * with one reference, held by whoever opened it.
+     */
+    public void decRef() throws IOException {
+        int count = refCount.decrementAndGet();
+        if (count == 0) {
+            close();
+        } else if (count < 0) {
+            throw new IllegalStateException(this + " was released too often");
+        }
+    }
+
+    public int getRefCount() {
+        return refCount.get();
+    }
+
+    /**
+     * Adds an action run once the reader's files are closed, e.g. to release what is held for
+     * this reader. It runs at once if the reader is already closed.
+     */
+    public void addCloseListener(Runnable listener) {
+        synchronized (closeListenersLock) {
+            if (closeListeners != null) {
+                closeListeners.add(listener);
+                return;
+            }
+        }
+        listener.run();
+    }
+
+    /**
+     * Returns an ID unique among the readers opened in this JVM. A reader's files and live docs
+     * never change, so the ID identifies what it reads, even across indexes whose segments
+     * share names.
+     */
+    public long getId() {
+        return id;
+    }
+
+    public SegmentInfo getSegmentInfo() {
+        return info;
+    }
+
+    /**
+     * Returns the number of documents in the segment, including deleted ones.
+     */
+    public int getDocumentCount() {
+        return info.getDocumentCount();
+    }
+
+    /**
+     * Returns the number of live documents.
+     */
+    public int numDocs() {
+        return info.getDocumentCount() - info.getDelCount();
+    }
+
+    /**
+     * Returns the live documents, or null if no document of the segment is deleted.
+     * Postings still contain deleted documents; searches must skip those that are not live.
+     */
+    public LiveDocs getLiveDocs() {
+        return liveDocs;
+    }
+
+    public DictionaryFile getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Looks up the exact term in this segment's dictionary.
+     *
+     * @return the term, or null if the segment does not contain it
+     */
+    public Term getTerm(String field, String text) throws IOException {
+        return dictionary.findTerm(field, text);
+    }
+
+    public PostingsEnum postings(Term term) throws IOException {
+        return postings.postings(term.getPostingPosition());
+    }
+
+    /**
+     * Returns the numeric points of this segment, or null if the segment has none.
+     */
+    public PointsFile getPoints() {
+        return points;
+    }
+
+    /**
+     * Returns the terms of this segment a multi-term query expands to, computing them with
+     * {@code expander} only if no expansion for an equal key is cached.
+     *
+     * @param key a value identifying the expansion, typically the query itself
+     */
+    public List<Term> getTermExpansion(Object key, TermExpander expander) throws IOException {
+        synchronized (termExpansions) {
+            List<Term> cached = termExpansions.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        // Expand outside the lock; concurrent searches for the same key may both compute it.
+        List<Term> expansion = List.copyOf(expander.expand());
+        synchronized (termExpansions) {
+            termExpansions.put(key, expansion);
+        }
+        return expansion;
+    }
+
+    @FunctionalInterface
+    public interface TermExpander {
+        List<Term> expand() throws IOException;
+    }
+
+    /**
+     * Closes the reader's files regardless of outstanding references. Shared readers are
+     * released with {@link #decRef()} instead.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            dictionary.close();
+        } finally {
+            try {
+                postings.close();
+            } finally {
+                try {
+                    if (points != null) points.close();
+                } finally {
+                    runCloseListeners();
+                }
+            }
+        }
+    }
+
+    private void runCloseListeners() {
+        List<Runnable> listeners;
+        synchronized (closeListenersLock) {
+            listeners = closeListeners;
+            closeListeners = null;
+        }
+        if (listeners == null) {
+            return;
+        }
+        RuntimeException failure = null;
+        for (Runnable listener : listeners) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SegmentReader{" + info.getName() + "}";
+    }
+}
@@ -2,32 +2,52 @@ package core.index;
 
 import storage.SegmentInfo;
 import storage.Storage;
-import storage.FileSystemStorage;
+import storage.file.FeatherFileHeader;
+import storage.file.FileType;
 
 import java.io.*;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
 
 /*
     Segments is
  */
 public class Segments {
     public static final String SEGMENTS_GEN = "segments.gen";
+    private static final String SEGMENTS_PREFIX = "segments_";
+    private static final int FORMAT_VERSION = 1;
 
     private final List<SegmentInfo> segments;
+    // The segments as of the last written generation; merges are published against this list so
+    // that flushed but uncommitted segments do not become visible early.
+    private List<SegmentInfo> committedSegments;
     private long generation; // The version of the segments file (the _N in segments_N)
+    private long version;
+    // Opaque commit data stored with each generation, e.g. the translog generation the commit needs.
+    private Map<String, String> userData;
+    private Map<String, String> committedUserData;
 
     public Segments() {
         this.segments = new ArrayList<>();
+        this.committedSegments = new ArrayList<>();
         this.generation = -1;
+        this.userData = Map.of();
+        this.committedUserData = Map.of();
     }
 
-    private Segments(long generation, List<SegmentInfo> segments) {
+    private Segments(long generation, List<SegmentInfo> segments, Map<String, String> userData) {
         this.generation = generation;
         this.segments = segments;
+        this.committedSegments = new ArrayList<>(segments);
+        this.userData = userData;
+        this.committedUserData = userData;
     }
 
     public List<SegmentInfo> getSegments() {
@@ -36,83 +56,424 @@ public class Segments {
 
     public void addSegment(SegmentInfo segment) {
         this.segments.add(segment);
+        version++;
+    }
+
+    /**
+     * Returns a counter that changes whenever the list of segments or any of their infos
+     * changes, for callers caching structures derived from the segments.
+     */
+    public long getVersion() {
+        return version;
     }
 
     public int size() {
         return segments.size();
     }
 
+    /**
+     * Returns the current info of the named segment, or null if it is not part of the index.
+     */
+    public SegmentInfo getSegment(String name) {
+        for (SegmentInfo segment : segments) {
+            if (segment.getName().equals(name)) {
+                return segment;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Replaces the info of a segment with an updated one of the same name, e.g. after deletions.
+     *
+     * @return false if no segment of that name is present
+     */
+    public boolean updateSegment(SegmentInfo updated) {
+        for (int i = 0; i < segments.size(); i++) {
+            if (segments.get(i).getName().equals(updated.getName())) {
+                segments.set(i, updated);
+                version++;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean removeSegment(String name) {
+        boolean removed = segments.removeIf(segment -> segment.getName().equals(name));
+        if (removed) {
+            version++;
+        }
+        return removed;
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Returns the segments of the last written or read generation.
+     */
+    public List<SegmentInfo> getCommittedSegments() {
+        return new ArrayList<>(committedSegments);
+    }
+
+    /**
+     * Returns the user data of the last written or read generation.
+     */
+    public Map<String, String> getUserData() {
+        return committedUserData;
+    }
+
+    /**
+     * Verifies every file of the current segments against the checksum recorded when it was
+     * written. This reads all segment files, so it is meant for diagnostics rather than open.
+     *
+     * @throws IOException if a file is missing or its contents changed
+     */
+    public void checkIntegrity(Storage storage) throws IOException {
+        for (SegmentInfo segment : segments) {
+            for (Map.Entry<String, Long> entry : segment.getFileChecksums().entrySet()) {
+                if (!storage.fileExists(entry.getKey())) {
+                    throw new IOException("File " + entry.getKey() + " of " + segment.getName() + " is missing");
+                }
+                long actual = storage.checksum(entry.getKey());
+                if (actual != entry.getValue()) {
+                    throw new IOException(String.format("Checksum mismatch in %s: expected %08x, found %08x",
+                            entry.getKey(), entry.getValue(), actual));
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets the user data stored by the next {@link #write(Storage)}. Generations written for
+     * merges keep the user data of the last commit.
+     */
+    public void setUserData(Map<String, String> userData) {
+        this.userData = Map.copyOf(userData);
+    }
+
+    /**
+     * Replaces the source segments of a finished merge with the merged segment and writes a new
+     * generation containing the last committed segments with the merge applied.
+     *
+     * @return false, leaving everything unchanged, if a source segment is no longer present
+     * @throws IOException If an I/O error occurs.
+     */
+    public boolean commitMerge(Storage storage, List<SegmentInfo> sources, SegmentInfo merged) throws IOException {
+        if (!containsAll(segments, sources) || !containsAll(committedSegments, sources)) {
+            return false;
+        }
+        List<SegmentInfo> committed = replace(committedSegments, sources, merged);
+        writeGeneration(storage, committed, committedUserData);
+        committedSegments = committed;
+
+        List<SegmentInfo> current = replace(segments, sources, merged);
+        segments.clear();
+        segments.addAll(current);
+        version++;
+        return true;
+    }
+
+    private static boolean containsAll(List<SegmentInfo> segments, List<SegmentInfo> sources) {
+        for (SegmentInfo source : sources) {
+            if (segments.stream().noneMatch(s -> s.getName().equals(source.getName()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // The merged segment takes the place of the newest source. The merger drops every source
+    // copy that a later segment holds, so what it kept is not shadowed by segments in between.
+    private static List<SegmentInfo> replace(List<SegmentInfo> segments, List<SegmentInfo> sources, SegmentInfo merged) {
+        List<SegmentInfo> result = new ArrayList<>(segments.size());
+        int remaining = sources.size();
+        for (SegmentInfo segment : segments) {
+            boolean isSource = sources.stream().anyMatch(s -> s.getName().equals(segment.getName()));
+            if (!isSource) {
+                result.add(segment);
+            } else if (--remaining == 0) {
+                result.add(merged);
+            }
+        }
+        return result;
+    }
+
     /**
      * Writes the current list of segments to a new segments file.
      * @param storage The storage to write to.
      * @throws IOException If an I/O error occurs.
      */
     public void write(Storage storage) throws IOException {
+        List<SegmentInfo> snapshot = new ArrayList<>(segments);
+        writeGeneration(storage, snapshot, userData);
+        committedSegments = snapshot;
+        committedUserData = userData;
+    }
+
+    /**
+     * Writes the next generation durably: the files of its segments are synced, then the
+     * segments file, and a single directory sync covers the new names. Files synced earlier,
+     * e.g. by a merge before it committed, are not synced again.
+     */
+    private void writeGeneration(Storage storage, List<SegmentInfo> segments, Map<String, String> userData) throws IOException {
         long nextGeneration = generation + 1;
-        String segmentsFileName = "segments_" + nextGeneration;
-        Path directory = ((FileSystemStorage) storage).getRootPath();
-        Path tempSegmentsFile = Files.createTempFile(directory, "pending_segments_", ".tmp");
+        String segmentsFileName = segmentsFileName(nextGeneration);
+
+        // 1. Make the segment files durable before any segments file references them; older
+        //    segments may lack optional files such as points
+        List<String> files = new ArrayList<>();
+        for (SegmentInfo segment : segments) {
+            for (String file : segment.files()) {
+                if (storage.fileExists(file)) {
+                    files.add(file);
+                }
+            }
+        }
+        storage.sync(files);
 
-        // 1. Serialize segments list to a byte array
-        byte[] data = serializeSegments(nextGeneration);
+        // 2. Serialize segments list to a byte array
+        byte[] data = serializeSegments(nextGeneration, segments, userData);
 
-        // 2. Write data to a temporary file
-        Files.write(tempSegmentsFile, data);
+        // 3. Write data to a temporary file and force it, so a renamed file is always complete
+        String tempSegmentsFile = "pending_segments_" + nextGeneration + ".tmp";
+        writeFile(storage, tempSegmentsFile, data);
 
-        // 3. Atomically rename the temporary file to the new segments file
-        Files.move(tempSegmentsFile, directory.resolve(segmentsFileName), StandardCopyOption.ATOMIC_MOVE);
+        // 4. Rename the temporary file to the new segments file. Only another writer on this
+        //    storage can have left a file of the same generation; it is replaced
+        storage.deleteFile(segmentsFileName);
+        storage.rename(tempSegmentsFile, segmentsFileName);
 
-        // 4. Atomically update the generation file
-        Path tempGenFile = Files.createTempFile(directory, "pending_gen_", ".tmp");
-        Files.writeString(tempGenFile, String.valueOf(nextGeneration));
-        Files.move(tempGenFile, directory.resolve(SEGMENTS_GEN), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        // 5. Update the generation file. It is only a hint, so replacing it need not be atomic
+        String tempGenFile = "pending_gen_" + nextGeneration + ".tmp";
+        writeFile(storage, tempGenFile, String.valueOf(nextGeneration).getBytes(StandardCharsets.UTF_8));
+        storage.deleteFile(SEGMENTS_GEN);
+        storage.rename(tempGenFile, SEGMENTS_GEN);
+
+        // 6. One directory sync makes the new segment files, segments_N and segments.gen durable
+        storage.syncMetaData();
 
         System.out.println("Successfully wrote " + segmentsFileName + " and updated " + SEGMENTS_GEN);
 
-        // 5. TODO: Clean up old, unreferenced segments_N files
+        // Old segments_N files are deleted by the writer's IndexFileDeleter as its deletion policy allows.
 
         this.generation = nextGeneration;
     }
 
-    private byte[] serializeSegments(long currentGeneration) throws IOException {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
-            oos.writeLong(currentGeneration); // Write the generation number
-            oos.writeInt(this.segments.size());
-            for (SegmentInfo segment : segments) {
-                oos.writeObject(segment);
+    private static void writeFile(Storage storage, String name, byte[] data) throws IOException {
+        // Left over by a crash during an earlier attempt at this generation
+        storage.deleteFile(name);
+        try (FileChannel channel = storage.createChannel(name)) {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+    }
+
+    private static byte[] readFile(Storage storage, String name) throws IOException {
+        try (FileChannel channel = storage.openChannel(name)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Segments file too large: " + name);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Keep reading until the buffer is full
+            }
+            return buffer.array();
+        }
+    }
+
+    /*
+     * Segments file layout:
+     *   FeatherFileHeader (type SEGMENTS, record count = number of segments)
+     *   format version (4), generation (8)
+     *   user data: count (4), then key and value strings
+     *   per segment: name, creation time (8), document count (4), min/max doc ID (4 + 4),
+     *                deleted flag (1), size in bytes (8), deleted count (4), deletion generation (8),
+     *                file checksums: count (4), then file name and CRC32 (8)
+     *   CRC32 of everything before it (8)
+     * Strings are written as a 2-byte length and UTF-8 bytes.
+     */
+    private static byte[] serializeSegments(long currentGeneration, List<SegmentInfo> segments,
+                                            Map<String, String> userData) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(64 + segments.size() * 256);
+        DataOutputStream out = new DataOutputStream(baos);
+        new FeatherFileHeader(FileType.SEGMENTS, segments.size()).writeTo(out);
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(currentGeneration);
+
+        out.writeInt(userData.size());
+        for (Map.Entry<String, String> entry : userData.entrySet()) {
+            writeString(out, entry.getKey());
+            writeString(out, entry.getValue());
+        }
+
+        for (SegmentInfo segment : segments) {
+            writeString(out, segment.getName());
+            out.writeLong(segment.getCreationTime());
+            out.writeInt(segment.getDocumentCount());
+            out.writeInt(segment.getMinDocId());
+            out.writeInt(segment.getMaxDocId());
+            out.writeBoolean(segment.isDeleted());
+            out.writeLong(segment.getSizeInBytes());
+            out.writeInt(segment.getDelCount());
+            out.writeLong(segment.getDelGen());
+            Map<String, Long> checksums = segment.getFileChecksums();
+            out.writeInt(checksums.size());
+            for (Map.Entry<String, Long> entry : checksums.entrySet()) {
+                writeString(out, entry.getKey());
+                out.writeLong(entry.getValue());
             }
         }
+        out.flush();
+
+        CRC32 crc = new CRC32();
+        crc.update(baos.toByteArray());
+        out.writeLong(crc.getValue());
+        out.flush();
         return baos.toByteArray();
     }
 
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("String too long for a segments file: " + value.length() + " chars");
+        }
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
     /**
      * Reads the most recent segments file from the storage.
      * @param storage The storage to read from.
      * @throws IOException If an I/O error occurs.
      */
     public static Segments readLatest(Storage storage) throws IOException {
-        Path directory = ((FileSystemStorage) storage).getRootPath();
-        Path genFile = directory.resolve(SEGMENTS_GEN);
-
-        if (!Files.exists(genFile)) {
+        // Both renames of a commit become durable with one directory sync, so after a crash
+        // segments.gen may lag or lead the segments files; the newest segments_N present wins.
+        long latestGeneration = -1;
+        for (String file : storage.listFiles()) {
+            latestGeneration = Math.max(latestGeneration, parseGeneration(file));
+        }
+        if (latestGeneration < 0) {
             // No segments file yet, this is a new index
             return new Segments();
         }
+        return read(storage, latestGeneration);
+    }
+
+    /**
+     * Reads the segments file of a specific generation, e.g. an older commit point.
+     */
+    public static Segments read(Storage storage, long generation) throws IOException {
+        String segmentsFileName = segmentsFileName(generation);
+
+        if (!storage.fileExists(segmentsFileName)) {
+            throw new IOException("Segments file not found for generation: " + generation);
+        }
+
+        byte[] data = readFile(storage, segmentsFileName);
+        return deserializeSegments(segmentsFileName, data);
+    }
+
+    public static String segmentsFileName(long generation) {
+        return SEGMENTS_PREFIX + generation;
+    }
+
+    /**
+     * Returns the generation of a segments file name, or -1 if the name is not one.
+     */
+    public static long parseGeneration(String fileName) {
+        if (!fileName.startsWith(SEGMENTS_PREFIX) || fileName.length() == SEGMENTS_PREFIX.length()) {
+            return -1;
+        }
+        String suffix = fileName.substring(SEGMENTS_PREFIX.length());
+        if (!suffix.chars().allMatch(Character::isDigit)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(suffix);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static Segments deserializeSegments(String fileName, byte[] data) throws IOException {
+        // Segments files written before the binary format are Java serialization streams.
+        if (data.length >= 2 && (data[0] & 0xFF) == 0xAC && (data[1] & 0xFF) == 0xED) {
+            return deserializeLegacySegments(data);
+        }
+        if (data.length < FeatherFileHeader.HEADER_SIZE + 8) {
+            throw new IOException("Segments file " + fileName + " is truncated");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length - 8);
+        ByteBuffer in = ByteBuffer.wrap(data);
+        if (in.getLong(data.length - 8) != crc.getValue()) {
+            throw new IOException("Checksum mismatch in segments file " + fileName);
+        }
 
-        long latestGeneration = Long.parseLong(Files.readString(genFile));
-        String segmentsFileName = "segments_" + latestGeneration;
-        Path segmentsFile = directory.resolve(segmentsFileName);
+        try {
+            FeatherFileHeader header = FeatherFileHeader.readFrom(
+                    new DataInputStream(new ByteArrayInputStream(data, 0, FeatherFileHeader.HEADER_SIZE)));
+            if (header.getFileType() != FileType.SEGMENTS) {
+                throw new IOException("Not a segments file: " + fileName);
+            }
+            in.position(FeatherFileHeader.HEADER_SIZE);
+            int formatVersion = in.getInt();
+            if (formatVersion != FORMAT_VERSION) {
+                throw new IOException("Unsupported segments format version " + formatVersion + " in " + fileName);
+            }
+            long generation = in.getLong();
+
+            int userDataSize = in.getInt();
+            Map<String, String> userData = new HashMap<>(userDataSize * 2);
+            for (int i = 0; i < userDataSize; i++) {
+                userData.put(readString(in), readString(in));
+            }
 
-        if (!Files.exists(segmentsFile)) {
-            throw new IOException("Segments file not found for generation: " + latestGeneration);
+            int size = header.getRecordCount();
+            List<SegmentInfo> segments = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                String name = readString(in);
+                long creationTime = in.getLong();
+                int documentCount = in.getInt();
+                int minDocId = in.getInt();
+                int maxDocId = in.getInt();
+                boolean deleted = in.get() != 0;
+                SegmentInfo segment = new SegmentInfo(name, creationTime, documentCount, minDocId, maxDocId, deleted);
+                segment.setSizeInBytes(in.getLong());
+                int delCount = in.getInt();
+                segment.setDeletes(in.getLong(), delCount);
+                int fileCount = in.getInt();
+                Map<String, Long> checksums = new HashMap<>(fileCount * 2);
+                for (int j = 0; j < fileCount; j++) {
+                    checksums.put(readString(in), in.getLong());
+                }
+                segment.setFileChecksums(checksums);
+                segments.add(segment);
+            }
+            if (in.position() != data.length - 8) {
+                throw new IOException("Unexpected trailing bytes in segments file " + fileName);
+            }
+            return new Segments(generation, segments, Map.copyOf(userData));
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Malformed segments file " + fileName, e);
         }
+    }
 
-        byte[] data = Files.readAllBytes(segmentsFile);
-        return deserializeSegments(data);
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getShort() & 0xFFFF];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
     }
 
-    private static Segments deserializeSegments(byte[] data) throws IOException {
+    private static Segments deserializeLegacySegments(byte[] data) throws IOException {
         ByteArrayInputStream bais = new ByteArrayInputStream(data);
         try (ObjectInputStream ois = new ObjectInputStream(bais)) {
             long generation = ois.readLong();
@@ -121,9 +482,18 @@ public class Segments {
             for (int i = 0; i < size; i++) {
                 segments.add((SegmentInfo) ois.readObject());
             }
-            return new Segments(generation, segments);
+            return new Segments(generation, segments, readUserData(ois));
         } catch (ClassNotFoundException e) {
             throw new IOException("Failed to deserialize Segments file, class not found.", e);
         }
     }
+    @SuppressWarnings("unchecked")
+    private static Map<String, String> readUserData(ObjectInputStream ois) throws IOException, ClassNotFoundException {
+        try {
+            return Map.copyOf((Map<String, String>) ois.readObject());
+        } catch (EOFException e) {
+            // Written before segments files carried user data.
+            return Map.of();
+        }
+    }
 }
\ No newline at end of file
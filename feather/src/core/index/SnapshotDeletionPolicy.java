@@ -0,0 +1,83 @@
+package core.index;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Wraps another policy and additionally keeps commits that have been snapshotted, e.g. while a
+ * reader opened with {@link IndexReader#open(storage.Storage, IndexCommit)} or a backup uses them.
+ * A snapshot is held until it is released as often as it was taken.
+ */
+public class SnapshotDeletionPolicy implements IndexDeletionPolicy {
+    private final IndexDeletionPolicy primary;
+    private final Map<Long, Integer> snapshotRefs = new HashMap<>();
+    private IndexCommit lastCommit;
+
+    public SnapshotDeletionPolicy(IndexDeletionPolicy primary) {
+        this.primary = primary;
+    }
+
+    @Override
+    public synchronized void onInit(List<? extends IndexCommit> commits) throws IOException {
+        primary.onInit(wrap(commits));
+        lastCommit = commits.isEmpty() ? null : commits.get(commits.size() - 1);
+    }
+
+    @Override
+    public synchronized void onCommit(List<? extends IndexCommit> commits) throws IOException {
+        primary.onCommit(wrap(commits));
+        lastCommit = commits.get(commits.size() - 1);
+    }
+
+    /**
+     * Protects the latest commit from deletion until {@link #release(IndexCommit)}.
+     *
+     * @throws IllegalStateException if the index has no commit yet
+     */
+    public synchronized IndexCommit snapshot() {
+        if (lastCommit == null) {
+            throw new IllegalStateException("No commit to snapshot");
+        }
+        snapshotRefs.merge(lastCommit.getGeneration(), 1, Integer::sum);
+        return lastCommit;
+    }
+
+    /**
+     * Releases a snapshot. The commit is deleted at a later commit if the primary policy no
+     * longer keeps it.
+     */
+    public synchronized void release(IndexCommit commit) {
+        Integer refs = snapshotRefs.get(commit.getGeneration());
+        if (refs == null) {
+            throw new IllegalArgumentException(commit + " is not snapshotted");
+        }
+        if (refs == 1) {
+            snapshotRefs.remove(commit.getGeneration());
+        } else {
+            snapshotRefs.put(commit.getGeneration(), refs - 1);
+        }
+    }
+
+    public synchronized int getSnapshotCount() {
+        return snapshotRefs.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    // Hands the primary policy views whose delete() is ignored for snapshotted commits.
+    private List<IndexCommit> wrap(List<? extends IndexCommit> commits) {
+        List<IndexCommit> wrapped = new ArrayList<>(commits.size());
+        for (IndexCommit commit : commits) {
+            wrapped.add(new IndexCommit(commit.getGeneration(), commit.getSegments(), commit.getUserData()) {
+                @Override
+                public void delete() {
+                    if (!snapshotRefs.containsKey(commit.getGeneration())) {
+                        commit.delete();
+                    }
+                }
+            });
+        }
+        return wrapped;
+    }
+}
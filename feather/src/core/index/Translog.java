@@ -0,0 +1,501 @@
+package core.index;
+
+import storage.Storage;
+import storage.file.Document;
+import storage.file.DocumentFile;
+import storage.writer.DocumentFileWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only write-ahead log of the writer's operations, so documents and deletes survive
+ * a crash between commits.
+ *
+ * <p>The log is split into generations, one file {@code translog-<N>.tlog} each. A commit
+ * rolls to a new generation before it flushes, records that generation in the segments file,
+ * and then deletes all older generations: their operations are part of the commit. On open,
+ * the operations of all generations from the committed one on are read back for replay, and
+ * appending continues in a fresh generation.</p>
+ *
+ * <p>Every record carries a CRC32 checksum. A record torn by a crash at the end of the newest
+ * generation is dropped, and the generation is rewritten without it before appending moves on
+ * to a new one, so a second crash does not leave the torn record in an older generation; a
+ * damaged record anywhere else fails the open.</p>
+ *
+ * <p>Appends are written to the file at once but synced in groups: after every
+ * {@code syncEveryOps} operations, and by a background task every {@code syncIntervalMillis}
+ * if anything is unsynced. A sync covers every operation written before it, so concurrent
+ * callers waiting for their operations to become durable share a single fsync.</p>
+ */
+public class Translog implements Closeable {
+    public static final String FILE_PREFIX = "translog-";
+    public static final String FILE_EXTENSION = ".tlog";
+    // Suffix of a generation being rewritten without its torn tail.
+    private static final String REPAIR_SUFFIX = ".repair";
+
+    private static final int MAGIC_NUMBER = 0x46544C47; // "FTLG"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 4 + 8;
+
+    public enum OpType {
+        ADD((byte) 1), UPDATE((byte) 2), DELETE_ID((byte) 3), DELETE_TERM((byte) 4);
+
+        private final byte code;
+
+        OpType(byte code) {
+            this.code = code;
+        }
+
+        static OpType fromCode(byte code) throws IOException {
+            for (OpType type : values()) {
+                if (type.code == code) {
+                    return type;
+                }
+            }
+            throw new IOException("Unknown translog operation: " + code);
+        }
+    }
+
+    /**
+     * A logged operation. Only the fields its type needs are set.
+     */
+    public record Operation(OpType type, int docId, Document document, String field, String text) {
+        public static Operation add(Document doc) {
+            return new Operation(OpType.ADD, doc.getId(), doc, null, null);
+        }
+
+        public static Operation update(Document doc) {
+            return new Operation(OpType.UPDATE, doc.getId(), doc, null, null);
+        }
+
+        public static Operation deleteById(int docId) {
+            return new Operation(OpType.DELETE_ID, docId, null, null, null);
+        }
+
+        public static Operation deleteTerm(String field, String text) {
+            return new Operation(OpType.DELETE_TERM, -1, null, field, text);
+        }
+    }
+
+    private final Storage storage;
+    private final int syncEveryOps;
+    private final List<Operation> recovered;
+    private final Object writeLock = new Object();
+    private final Object syncLock = new Object();
+    private final ScheduledExecutorService syncTimer;
+
+    // Guarded by writeLock.
+    private FileChannel channel;
+    private long generation;
+    private long writtenOps;
+    private int opsSinceSync;
+    // Written under syncLock.
+    private volatile long syncedOps;
+    private volatile boolean closed;
+
+    private Translog(Storage storage, long generation, List<Operation> recovered,
+                     int syncEveryOps, long syncIntervalMillis) throws IOException {
+        this.storage = storage;
+        this.syncEveryOps = syncEveryOps;
+        this.recovered = recovered;
+        this.generation = generation;
+        this.channel = createGeneration(storage, generation);
+        if (syncIntervalMillis > 0) {
+            syncTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "feather-translog-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            syncTimer.scheduleWithFixedDelay(this::syncQuietly, syncIntervalMillis, syncIntervalMillis,
+                    TimeUnit.MILLISECONDS);
+        } else {
+            syncTimer = null;
+        }
+    }
+
+    /**
+     * Opens the translog in {@code storage}, reading back the operations of all generations
+     * from {@code minGeneration} on and deleting older ones.
+     *
+     * @param syncEveryOps       sync after this many operations; 1 makes every operation
+     *                           durable before it returns
+     * @param syncIntervalMillis sync unsynced operations this often; 0 disables the timer
+     */
+    public static Translog open(Storage storage, long minGeneration, int syncEveryOps, long syncIntervalMillis)
+            throws IOException {
+        if (syncEveryOps <= 0) {
+            throw new IllegalArgumentException("syncEveryOps must be greater than 0");
+        }
+        finishRepairs(storage);
+        List<Long> generations = listGenerations(storage);
+        List<Operation> recovered = new ArrayList<>();
+        long maxGeneration = minGeneration;
+        for (int i = 0; i < generations.size(); i++) {
+            long gen = generations.get(i);
+            if (gen < minGeneration) {
+                storage.deleteFile(fileName(gen));
+                continue;
+            }
+            boolean newest = i == generations.size() - 1;
+            long validLength = readGeneration(storage, fileName(gen), gen, newest, recovered);
+            if (validLength < storage.fileLength(fileName(gen))) {
+                repairGeneration(storage, gen, validLength);
+            }
+            maxGeneration = Math.max(maxGeneration, gen);
+        }
+        return new Translog(storage, maxGeneration + 1, recovered, syncEveryOps, syncIntervalMillis);
+    }
+
+    /**
+     * Returns the operations found on open, oldest first, to be replayed by the writer.
+     */
+    public List<Operation> getRecoveredOperations() {
+        return recovered;
+    }
+
+    public long getGeneration() {
+        synchronized (writeLock) {
+            return generation;
+        }
+    }
+
+    /**
+     * Appends an operation, syncing if {@code syncEveryOps} operations are now unsynced.
+     */
+    public void add(Operation op) throws IOException {
+        ByteBuffer record = encode(op);
+        long seqNo;
+        boolean syncNow;
+        synchronized (writeLock) {
+            ensureOpen();
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+            seqNo = ++writtenOps;
+            syncNow = ++opsSinceSync >= syncEveryOps;
+        }
+        if (syncNow) {
+            ensureSynced(seqNo);
+        }
+    }
+
+    /**
+     * Makes every operation appended so far durable.
+     */
+    public void sync() throws IOException {
+        long seqNo;
+        synchronized (writeLock) {
+            seqNo = writtenOps;
+        }
+        ensureSynced(seqNo);
+    }
+
+    private void ensureSynced(long seqNo) throws IOException {
+        if (syncedOps >= seqNo) {
+            return;
+        }
+        synchronized (syncLock) {
+            // Another caller's sync may have covered this operation while we waited.
+            if (syncedOps >= seqNo) {
+                return;
+            }
+            FileChannel toSync;
+            long target;
+            synchronized (writeLock) {
+                ensureOpen();
+                toSync = channel;
+                target = writtenOps;
+                opsSinceSync = 0;
+            }
+            // Appends may continue while the file is forced; they are synced next time.
+            toSync.force(false);
+            syncedOps = target;
+        }
+    }
+
+    private void syncQuietly() {
+        try {
+            if (!closed) {
+                sync();
+            }
+        } catch (IOException | IllegalStateException e) {
+            System.err.println("Translog sync failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Syncs the current generation and starts a new one. Operations appended afterwards go to
+     * the new generation.
+     *
+     * @return the new generation
+     */
+    public long rollGeneration() throws IOException {
+        synchronized (syncLock) {
+            synchronized (writeLock) {
+                ensureOpen();
+                channel.force(false);
+                syncedOps = writtenOps;
+                opsSinceSync = 0;
+                FileChannel next = createGeneration(storage, generation + 1);
+                channel.close();
+                channel = next;
+                return ++generation;
+            }
+        }
+    }
+
+    /**
+     * Deletes all generations older than {@code minGeneration}, once a commit covers them.
+     */
+    public void trimBelow(long minGeneration) throws IOException {
+        for (long gen : listGenerations(storage)) {
+            if (gen < minGeneration) {
+                storage.deleteFile(fileName(gen));
+            }
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Translog is closed");
+        }
+    }
+
+    /**
+     * Syncs outstanding operations and closes the current generation. Its file is kept; it
+     * is replayed on the next open unless a commit has covered it.
+     */
+    @Override
+    public void close() throws IOException {
+        if (syncTimer != null) {
+            // Not shutdownNow(): interrupting a sync in progress would close the channel.
+            syncTimer.shutdown();
+        }
+        synchronized (syncLock) {
+            synchronized (writeLock) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                try {
+                    channel.force(false);
+                    syncedOps = writtenOps;
+                } finally {
+                    channel.close();
+                }
+            }
+        }
+    }
+
+    private static String fileName(long generation) {
+        return FILE_PREFIX + generation + FILE_EXTENSION;
+    }
+
+    private static List<Long> listGenerations(Storage storage) throws IOException {
+        return Arrays.stream(storage.listFiles())
+                .filter(name -> name.startsWith(FILE_PREFIX) && name.endsWith(FILE_EXTENSION))
+                .map(name -> name.substring(FILE_PREFIX.length(), name.length() - FILE_EXTENSION.length()))
+                .filter(gen -> !gen.isEmpty() && gen.chars().allMatch(Character::isDigit))
+                .map(Long::parseLong)
+                .sorted()
+                .toList();
+    }
+
+    private static FileChannel createGeneration(Storage storage, long generation) throws IOException {
+        FileChannel channel = storage.createChannel(fileName(generation));
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC_NUMBER).putInt(VERSION).putLong(generation).flip();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            // Make the new file's directory entry durable too: syncing the channel alone would
+            // leave synced operations in a file a crash can unlink.
+            channel.force(false);
+            storage.syncMetaData();
+            return channel;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Record layout: [body length (4)][body][CRC32 of body (4)], body = [type (1)][payload].
+    private static ByteBuffer encode(Operation op) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream body = new DataOutputStream(bytes);
+        body.writeByte(op.type().code);
+        switch (op.type()) {
+            case ADD, UPDATE -> {
+                body.writeInt(op.document().getId());
+                ByteBuffer content = DocumentFileWriter.serializeDocument(op.document());
+                body.writeInt(content.remaining());
+                body.write(content.array(), content.arrayOffset() + content.position(), content.remaining());
+            }
+            case DELETE_ID -> body.writeInt(op.docId());
+            case DELETE_TERM -> {
+                writeString(body, op.field());
+                writeString(body, op.text());
+            }
+        }
+        body.flush();
+
+        byte[] bodyBytes = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(bodyBytes);
+        ByteBuffer record = ByteBuffer.allocate(4 + bodyBytes.length + 4);
+        record.putInt(bodyBytes.length).put(bodyBytes).putInt((int) crc.getValue()).flip();
+        return record;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Rewrites a generation with only its first {@code validLength} bytes, or deletes it if not
+     * even its header is complete. The prefix is written to a repair file that replaces the
+     * generation; {@link #finishRepairs(Storage)} completes a replacement interrupted by a crash.
+     */
+    private static void repairGeneration(Storage storage, long generation, long validLength) throws IOException {
+        String file = fileName(generation);
+        if (validLength < HEADER_SIZE) {
+            storage.deleteFile(file);
+            storage.syncMetaData();
+            return;
+        }
+        String repair = file + REPAIR_SUFFIX;
+        if (storage.fileExists(repair)) {
+            storage.deleteFile(repair);
+        }
+        try (FileChannel in = storage.openChannel(file); FileChannel out = storage.createChannel(repair)) {
+            long copied = 0;
+            while (copied < validLength) {
+                copied += in.transferTo(copied, validLength - copied, out);
+            }
+            out.force(false);
+        }
+        storage.deleteFile(file);
+        storage.rename(repair, file);
+        storage.syncMetaData();
+    }
+
+    /**
+     * Completes repairs interrupted by a crash: a repair file whose generation is gone replaces
+     * it, while one next to its generation may be incomplete and is dropped, to be redone.
+     */
+    private static void finishRepairs(Storage storage) throws IOException {
+        for (String name : storage.listFiles()) {
+            if (!name.startsWith(FILE_PREFIX) || !name.endsWith(FILE_EXTENSION + REPAIR_SUFFIX)) {
+                continue;
+            }
+            String file = name.substring(0, name.length() - REPAIR_SUFFIX.length());
+            if (storage.fileExists(file)) {
+                storage.deleteFile(name);
+            } else {
+                storage.rename(name, file);
+                storage.syncMetaData();
+            }
+        }
+    }
+
+    /**
+     * Reads the operations of a generation.
+     *
+     * @return the number of bytes holding the header and intact records, less than the file
+     *         length only if the newest generation ends in a torn record or header
+     */
+    private static long readGeneration(Storage storage, String file, long generation, boolean newest,
+                                       List<Operation> into) throws IOException {
+        ByteBuffer data;
+        try (FileChannel channel = storage.openChannel(file)) {
+            data = ByteBuffer.allocate((int) channel.size());
+            while (data.hasRemaining() && channel.read(data) >= 0) {
+                // Keep reading until the buffer is full
+            }
+            data.flip();
+        }
+        if (data.remaining() < HEADER_SIZE) {
+            if (newest) {
+                return 0; // Crashed while creating the generation.
+            }
+            throw new IOException("Truncated translog header in " + file);
+        }
+        int magic = data.getInt();
+        int version = data.getInt();
+        long fileGeneration = data.getLong();
+        if (magic != MAGIC_NUMBER || version != VERSION || fileGeneration != generation) {
+            throw new IOException("Invalid translog header in " + file);
+        }
+
+        while (data.hasRemaining()) {
+            int start = data.position();
+            Operation op = readRecord(data);
+            if (op == null) {
+                if (newest) {
+                    // A record torn by a crash is never followed by another one.
+                    System.err.println("Dropping torn translog record at " + start + " in " + file);
+                    return start;
+                }
+                throw new IOException("Corrupt translog record at " + start + " in " + file);
+            }
+            into.add(op);
+        }
+        return data.limit();
+    }
+
+    /**
+     * Reads one record, or returns null if it is incomplete or fails its checksum.
+     */
+    private static Operation readRecord(ByteBuffer data) throws IOException {
+        if (data.remaining() < 4) {
+            return null;
+        }
+        int length = data.getInt();
+        if (length <= 0 || length > data.remaining() - 4) {
+            return null;
+        }
+        byte[] bodyBytes = new byte[length];
+        data.get(bodyBytes);
+        CRC32 crc = new CRC32();
+        crc.update(bodyBytes);
+        if (data.getInt() != (int) crc.getValue()) {
+            return null;
+        }
+
+        ByteBuffer body = ByteBuffer.wrap(bodyBytes);
+        OpType type = OpType.fromCode(body.get());
+        return switch (type) {
+            case ADD, UPDATE -> {
+                int id = body.getInt();
+                int contentLength = body.getInt();
+                ByteBuffer content = body.slice(body.position(), contentLength);
+                Document doc = DocumentFile.deserializeDocument(id, content);
+                yield type == OpType.ADD ? Operation.add(doc) : Operation.update(doc);
+            }
+            case DELETE_ID -> Operation.deleteById(body.getInt());
+            case DELETE_TERM -> Operation.deleteTerm(readString(body), readString(body));
+        };
+    }
+
+    private static String readString(ByteBuffer body) {
+        byte[] bytes = new byte[body.getInt()];
+        body.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,46 @@
+package core.search;
+
+import core.index.SegmentReader;
+import core.utils.automaton.Automaton;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * Matches documents containing any term of the field accepted by an automaton.
+ */
+public class AutomatonQuery extends MultiTermQuery {
+    protected final Automaton automaton;
+
+    public AutomatonQuery(String field, Automaton automaton) {
+        super(field);
+        this.automaton = Objects.requireNonNull(automaton, "automaton must not be null");
+    }
+
+    public Automaton getAutomaton() {
+        return automaton;
+    }
+
+    @Override
+    protected TermIterator getTermIterator(SegmentReader reader) throws IOException {
+        return new AutomatonTermsEnum(reader.getDictionary().iterator(), field, automaton);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        AutomatonQuery that = (AutomatonQuery) o;
+        return field.equals(that.field) && automaton.equals(that.automaton);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getClass(), field, automaton);
+    }
+
+    @Override
+    public String toString() {
+        return field + ":" + automaton;
+    }
+}
@@ -0,0 +1,83 @@
+package core.search;
+
+import core.utils.automaton.Automaton;
+import storage.file.Term;
+import storage.file.TermsEnum;
+
+import java.io.IOException;
+
+/**
+ * Enumerates the terms of a field accepted by an {@link Automaton}.
+ *
+ * <p>Instead of testing every term, whenever a term is rejected the enum computes the
+ * smallest string greater than it that the automaton could still accept and seeks there,
+ * so whole ranges of non-matching terms are skipped through the dictionary's block index.</p>
+ */
+class AutomatonTermsEnum implements TermIterator {
+    private final TermsEnum terms;
+    private final String field;
+    private final Automaton automaton;
+    private String seekTarget;
+
+    AutomatonTermsEnum(TermsEnum terms, String field, Automaton automaton) {
+        this.terms = terms;
+        this.field = field;
+        this.automaton = automaton;
+        this.seekTarget = automaton.getCommonPrefix();
+    }
+
+    @Override
+    public Term next() throws IOException {
+        while (true) {
+            Term term;
+            if (seekTarget != null) {
+                term = terms.seekCeil(field, seekTarget) == TermsEnum.SeekStatus.END ? null : terms.term();
+                seekTarget = null;
+            } else {
+                term = terms.next();
+            }
+            if (term == null || !term.getField().equals(field)) {
+                return null;
+            }
+
+            String text = term.getText();
+            if (automaton.run(text)) {
+                return term;
+            }
+            seekTarget = nextCandidate(text);
+            if (seekTarget == null) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Returns the smallest string greater than {@code text} that is a prefix of an accepted
+     * string, or null if there is none. Every accepted string greater than {@code text} is
+     * greater than or equal to the result, so seeking to it skips no matches.
+     */
+    String nextCandidate(String text) {
+        int[] states = new int[text.length() + 1];
+        int viable = 0;
+        while (viable < text.length()) {
+            int state = automaton.step(states[viable], text.charAt(viable));
+            if (state < 0) {
+                break;
+            }
+            states[++viable] = state;
+        }
+
+        for (int i = viable; i >= 0; i--) {
+            // At the end of the text any label extends it; elsewhere the label must exceed the text's char.
+            int minLabel = i == text.length() ? 0 : text.charAt(i) + 1;
+            if (minLabel > Character.MAX_VALUE) {
+                continue;
+            }
+            int label = automaton.nextLabel(states[i], minLabel);
+            if (label >= 0) {
+                return text.substring(0, i) + (char) label;
+            }
+        }
+        return null;
+    }
+}
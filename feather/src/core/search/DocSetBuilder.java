@@ -0,0 +1,142 @@
+package core.search;
+
+import core.utils.FixedBitSet;
+import storage.SegmentInfo;
+import storage.file.PostingsEnum;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Accumulates the union of several posting lists of one segment, keeping the best score
+ * seen for each document.
+ *
+ * <p>Document IDs are assigned by users and never remapped, so a segment's ID range may be
+ * far larger than its document count. When the segment uses a good share of its range the
+ * documents are collected in a bit set over it; otherwise they are appended to a buffer
+ * sized by the matches and sorted once they are all added.</p>
+ */
+class DocSetBuilder {
+    // The dense form is used while the ID range is at most this many times the document count.
+    private static final int MAX_DENSE_RANGE_PER_DOC = 4;
+
+    private final int minDocId;
+    private final boolean scored;
+    private final FixedBitSet docs;
+    private final float[] scores;
+    // The sparse form: (doc ID, score bits) pairs packed into longs, in arrival order.
+    private long[] buffer;
+    private int bufferSize;
+
+    DocSetBuilder(SegmentInfo info, boolean scored) {
+        this.minDocId = info.getMinDocId();
+        this.scored = scored;
+        long range = (long) info.getMaxDocId() - info.getMinDocId() + 1;
+        if (range <= (long) MAX_DENSE_RANGE_PER_DOC * Math.max(1, info.getDocumentCount())) {
+            this.docs = new FixedBitSet((int) range);
+            this.scores = scored ? new float[(int) range] : null;
+        } else {
+            this.docs = null;
+            this.scores = null;
+            this.buffer = new long[16];
+        }
+    }
+
+    void add(int doc) {
+        add(doc, 0f);
+    }
+
+    void add(PostingsEnum postings, float score) throws IOException {
+        for (int doc = postings.nextDoc(); doc != PostingsEnum.NO_MORE_DOCS; doc = postings.nextDoc()) {
+            add(doc, score);
+        }
+    }
+
+    private void add(int doc, float score) {
+        if (docs == null) {
+            if (bufferSize == buffer.length) {
+                buffer = Arrays.copyOf(buffer, bufferSize * 2);
+            }
+            buffer[bufferSize++] = pack(doc, scored ? score : 0f);
+            return;
+        }
+        int index = doc - minDocId;
+        docs.set(index);
+        if (scores != null && score > scores[index]) {
+            scores[index] = score;
+        }
+    }
+
+    /**
+     * @param constantScore the score of every document when scores are not tracked
+     */
+    Scorer build(float constantScore) {
+        return docs == null ? buildSparse(constantScore) : buildDense(constantScore);
+    }
+
+    private Scorer buildDense(float constantScore) {
+        return new Scorer() {
+            private int index = -1;
+            private int docId = -1;
+
+            @Override
+            public int docID() {
+                return docId;
+            }
+
+            @Override
+            public int nextDoc() {
+                index = docs.nextSetBit(index + 1);
+                return docId = index < 0 ? NO_MORE_DOCS : minDocId + index;
+            }
+
+            @Override
+            public float score() {
+                return scores == null ? constantScore : scores[index];
+            }
+        };
+    }
+
+    private Scorer buildSparse(float constantScore) {
+        // Scores are never negative, so their bits sort like their values: after sorting,
+        // the last entry of each document holds its best score.
+        long[] entries = Arrays.copyOf(buffer, bufferSize);
+        Arrays.sort(entries);
+        int count = 0;
+        for (int i = 0; i < entries.length; i++) {
+            if (i + 1 == entries.length || docOf(entries[i + 1]) != docOf(entries[i])) {
+                entries[count++] = entries[i];
+            }
+        }
+        int size = count;
+        buffer = null;
+
+        return new Scorer() {
+            private int index = -1;
+            private int docId = -1;
+
+            @Override
+            public int docID() {
+                return docId;
+            }
+
+            @Override
+            public int nextDoc() {
+                return docId = ++index < size ? docOf(entries[index]) : NO_MORE_DOCS;
+            }
+
+            @Override
+            public float score() {
+                return scored ? Float.intBitsToFloat((int) entries[index]) : constantScore;
+            }
+        };
+    }
+
+    private static long pack(int doc, float score) {
+        return ((long) doc << 32) | (Float.floatToIntBits(score) & 0xFFFFFFFFL);
+    }
+
+    private static int docOf(long entry) {
+        return (int) (entry >> 32);
+    }
+}
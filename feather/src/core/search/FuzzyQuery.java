@@ -0,0 +1,200 @@
+package core.search;
+
+import core.index.SegmentReader;
+import core.utils.automaton.Automata;
+import storage.file.Term;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+
+/**
+ * Matches documents containing terms within a small edit distance of the given text.
+ *
+ * <p>The text is compiled into a Levenshtein automaton which is intersected with the sorted
+ * term dictionary of each segment, so only the dictionary regions that can still match are
+ * visited. Of the accepted terms, at most {@code maxExpansions} are kept, preferring the
+ * highest document frequency and, among equally frequent ones, the closest terms: a frequent
+ * term two edits away is a likelier intent than a rare one a single edit away, and the
+ * similarity weight below still ranks the kept terms by closeness. A segment's expansion is
+ * cached on its {@link SegmentReader}.</p>
+ *
+ * <p>Each matching document scores by its best matching term, weighted by how similar that
+ * term is to the query text. All expanded terms share the idf of the most frequent one, so a
+ * rare misspelling does not outrank the common spelling the user most likely meant.</p>
+ */
+public class FuzzyQuery extends AutomatonQuery {
+    public static final int MAX_SUPPORTED_EDITS = 2;
+    public static final int DEFAULT_MAX_EDITS = MAX_SUPPORTED_EDITS;
+    public static final int DEFAULT_PREFIX_LENGTH = 0;
+    public static final int DEFAULT_MAX_EXPANSIONS = 50;
+
+    private final String text;
+    private final int maxEdits;
+    private final int prefixLength;
+    private final int maxExpansions;
+    private final boolean transpositions;
+
+    public FuzzyQuery(String field, String text) {
+        this(field, text, DEFAULT_MAX_EDITS);
+    }
+
+    public FuzzyQuery(String field, String text, int maxEdits) {
+        this(field, text, maxEdits, DEFAULT_PREFIX_LENGTH, DEFAULT_MAX_EXPANSIONS, true);
+    }
+
+    /**
+     * @param maxEdits       maximum edit distance, between 0 and {@link #MAX_SUPPORTED_EDITS}
+     * @param prefixLength   number of leading characters that must match exactly
+     * @param maxExpansions  maximum number of terms the query expands to per segment
+     * @param transpositions whether swapping two adjacent characters counts as one edit
+     */
+    public FuzzyQuery(String field, String text, int maxEdits, int prefixLength,
+                      int maxExpansions, boolean transpositions) {
+        super(field, Automata.makeLevenshtein(validateText(text), validateMaxEdits(maxEdits),
+                prefixLength, transpositions));
+        if (prefixLength < 0) {
+            throw new IllegalArgumentException("prefixLength cannot be negative");
+        }
+        if (maxExpansions <= 0) {
+            throw new IllegalArgumentException("maxExpansions must be positive");
+        }
+        this.text = text;
+        this.maxEdits = maxEdits;
+        this.prefixLength = prefixLength;
+        this.maxExpansions = maxExpansions;
+        this.transpositions = transpositions;
+    }
+
+    private static String validateText(String text) {
+        return Objects.requireNonNull(text, "text must not be null");
+    }
+
+    private static int validateMaxEdits(int maxEdits) {
+        if (maxEdits < 0 || maxEdits > MAX_SUPPORTED_EDITS) {
+            throw new IllegalArgumentException(
+                    "maxEdits must be between 0 and " + MAX_SUPPORTED_EDITS + " but was " + maxEdits);
+        }
+        return maxEdits;
+    }
+
+    public String getText() { return text; }
+    public int getMaxEdits() { return maxEdits; }
+    public int getPrefixLength() { return prefixLength; }
+    public int getMaxExpansions() { return maxExpansions; }
+    public boolean isTranspositions() { return transpositions; }
+
+    @Override
+    protected TermIterator getTermIterator(SegmentReader reader) throws IOException {
+        Iterator<Term> terms = expand(reader).iterator();
+        return () -> terms.hasNext() ? terms.next() : null;
+    }
+
+    @Override
+    public Scorer scorer(SegmentReader reader) throws IOException {
+        List<Term> terms = expand(reader);
+        if (terms.isEmpty()) {
+            return null;
+        }
+        int maxDocFreq = 0;
+        for (Term term : terms) {
+            maxDocFreq = Math.max(maxDocFreq, term.getDocumentFrequency());
+        }
+        float idf = Similarity.idf(maxDocFreq, reader.getDocumentCount());
+
+        DocSetBuilder builder = new DocSetBuilder(reader.getSegmentInfo(), true);
+        for (Term term : terms) {
+            builder.add(reader.postings(term), similarity(term.getText()) * idf);
+        }
+        return builder.build(0f);
+    }
+
+    private List<Term> expand(SegmentReader reader) throws IOException {
+        return reader.getTermExpansion(this, () -> collectTerms(reader));
+    }
+
+    /**
+     * Collects the most frequent accepted terms, ranked by descending document frequency and
+     * then by edit distance, and returns them in dictionary order.
+     */
+    private List<Term> collectTerms(SegmentReader reader) throws IOException {
+        // The head of the queue is the worst of the kept terms.
+        Comparator<Candidate> best = Comparator.comparingInt((Candidate c) -> c.term().getDocumentFrequency()).reversed()
+                .thenComparingInt(Candidate::edits)
+                .thenComparing(c -> c.term().getText());
+        PriorityQueue<Candidate> queue = new PriorityQueue<>(best.reversed());
+
+        TermIterator terms = super.getTermIterator(reader);
+        for (Term term = terms.next(); term != null; term = terms.next()) {
+            queue.add(new Candidate(term, editDistance(text, term.getText(), transpositions)));
+            if (queue.size() > maxExpansions) {
+                queue.poll();
+            }
+        }
+
+        List<Term> result = new ArrayList<>(queue.size());
+        for (Candidate candidate : queue) {
+            result.add(candidate.term());
+        }
+        result.sort(Comparator.comparing(Term::getText));
+        return result;
+    }
+
+    private float similarity(String term) {
+        int edits = editDistance(text, term, transpositions);
+        int length = Math.min(text.length(), term.length());
+        return length == 0 ? 0f : Math.max(0f, 1f - (float) edits / length);
+    }
+
+    /**
+     * Computes the edit distance between two strings, counting a transposition of adjacent
+     * characters as one edit if enabled (optimal string alignment distance).
+     */
+    static int editDistance(String a, String b, boolean transpositions) {
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            d[i][0] = i;
+        }
+        for (int j = 0; j <= b.length(); j++) {
+            d[0][j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+                if (transpositions && i > 1 && j > 1
+                        && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+                }
+            }
+        }
+        return d[a.length()][b.length()];
+    }
+
+    private record Candidate(Term term, int edits) {
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        FuzzyQuery that = (FuzzyQuery) o;
+        return maxEdits == that.maxEdits && prefixLength == that.prefixLength
+                && maxExpansions == that.maxExpansions && transpositions == that.transpositions
+                && field.equals(that.field) && text.equals(that.text);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(field, text, maxEdits, prefixLength, maxExpansions, transpositions);
+    }
+
+    @Override
+    public String toString() {
+        return field + ":" + text + "~" + maxEdits;
+    }
+}
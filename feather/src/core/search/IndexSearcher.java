@@ -0,0 +1,275 @@
+package core.search;
+
+import core.index.IndexReader;
+import core.index.SegmentReader;
+import storage.file.LiveDocs;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Executes queries against the segments of an {@link IndexReader}.
+ *
+ * <p>When created with an {@link Executor}, the segments are grouped into slices and each
+ * slice is searched as a separate task with its own collector. Large segments get a slice
+ * of their own while small segments are grouped together, so that tasks are of similar
+ * cost. The per-slice results are merged at the end. The calling thread searches the last
+ * slice itself instead of idling.</p>
+ *
+ * <p>Segment files are read through per-query cursors, so a reader may be searched by several
+ * queries at once. Searches on a reader from {@link core.index.IndexWriter#getReader()} are
+ * reported to the writer's merge scheduler, which throttles merges while they run.</p>
+ *
+ * <p>With a {@link QueryCache} set, results are computed and cached per segment: the top hits
+ * for {@link #search(Query, int)} and the number of matching documents for
+ * {@link #count(Query)}.</p>
+ */
+public class IndexSearcher {
+    static final int MAX_DOCS_PER_SLICE = 250_000;
+    static final int MAX_SEGMENTS_PER_SLICE = 5;
+
+    private final IndexReader reader;
+    private final Executor executor;
+    private final List<LeafSlice> slices;
+    private volatile QueryCache queryCache;
+
+    public IndexSearcher(IndexReader reader) {
+        this(reader, null);
+    }
+
+    /**
+     * @param executor the executor searching slices concurrently, or null to search them on the calling thread
+     */
+    public IndexSearcher(IndexReader reader, Executor executor) {
+        this.reader = reader;
+        this.executor = executor;
+        this.slices = executor == null
+                ? List.of(new LeafSlice(reader.leaves()))
+                : slices(reader.leaves(), MAX_DOCS_PER_SLICE, MAX_SEGMENTS_PER_SLICE);
+    }
+
+    public IndexReader getIndexReader() {
+        return reader;
+    }
+
+    public List<LeafSlice> getSlices() {
+        return slices;
+    }
+
+    public QueryCache getQueryCache() {
+        return queryCache;
+    }
+
+    /**
+     * @param queryCache the cache of per-segment results, which may be shared with other
+     *                   searchers, or null to not cache
+     */
+    public void setQueryCache(QueryCache queryCache) {
+        this.queryCache = queryCache;
+    }
+
+    /**
+     * Finds the top {@code k} documents matching the query.
+     */
+    public TopDocs search(Query query, int k) throws IOException {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be greater than 0");
+        }
+        QueryCache cache = queryCache;
+        if (cache != null) {
+            List<TopDocs> results = searchSlices(slice -> {
+                List<TopDocs> segmentResults = new ArrayList<>(slice.leaves().size());
+                for (SegmentReader segment : slice.leaves()) {
+                    segmentResults.add(cachedSearch(cache, segment, query, k));
+                }
+                return TopDocs.merge(k, segmentResults);
+            });
+            return TopDocs.merge(k, results);
+        }
+        List<TopDocs> results = searchSlices(slice -> {
+            TopScoreDocCollector collector = new TopScoreDocCollector(k);
+            for (SegmentReader segment : slice.leaves()) {
+                searchSegment(segment, query, collector);
+            }
+            return collector.topDocs();
+        });
+        return results.size() == 1 ? results.get(0) : TopDocs.merge(k, results);
+    }
+
+    /**
+     * Counts the documents matching the query.
+     */
+    public int count(Query query) throws IOException {
+        QueryCache cache = queryCache;
+        List<Integer> counts = searchSlices(slice -> {
+            int count = 0;
+            for (SegmentReader segment : slice.leaves()) {
+                count += cache != null ? cachedCount(cache, segment, query) : countSegment(segment, query);
+            }
+            return count;
+        });
+        return counts.stream().mapToInt(Integer::intValue).sum();
+    }
+
+    private TopDocs cachedSearch(QueryCache cache, SegmentReader segment, Query query, int k) throws IOException {
+        TopDocs topDocs = cache.getTopDocs(query, k, segment);
+        if (topDocs == null) {
+            TopScoreDocCollector collector = new TopScoreDocCollector(k);
+            searchSegment(segment, query, collector);
+            topDocs = collector.topDocs();
+            cache.putTopDocs(query, k, segment, topDocs);
+        }
+        return topDocs;
+    }
+
+    private int cachedCount(QueryCache cache, SegmentReader segment, Query query) throws IOException {
+        int count = cache.getCount(query, segment);
+        if (count < 0) {
+            count = countSegment(segment, query);
+            cache.putCount(query, segment, count);
+        }
+        return count;
+    }
+
+    private int countSegment(SegmentReader segment, Query query) throws IOException {
+        Scorer scorer = query.scorer(segment);
+        if (scorer == null) {
+            return 0;
+        }
+        int count = 0;
+        LiveDocs liveDocs = segment.getLiveDocs();
+        for (int doc = scorer.nextDoc(); doc != Scorer.NO_MORE_DOCS; doc = scorer.nextDoc()) {
+            if (liveDocs == null || liveDocs.isLive(doc)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void searchSegment(SegmentReader segment, Query query, TopScoreDocCollector collector) throws IOException {
+        Scorer scorer = query.scorer(segment);
+        if (scorer == null) {
+            return;
+        }
+        // Deleted documents are skipped before they are scored.
+        LiveDocs liveDocs = segment.getLiveDocs();
+        for (int doc = scorer.nextDoc(); doc != Scorer.NO_MORE_DOCS; doc = scorer.nextDoc()) {
+            if (liveDocs == null || liveDocs.isLive(doc)) {
+                collector.collect(doc, scorer.score());
+            }
+        }
+    }
+
+    private <T> List<T> searchSlices(SliceSearch<T> slicedSearch) throws IOException {
+        // Reported per slice, so merges stay throttled for as long as a long search runs.
+        SliceSearch<T> search = slice -> {
+            reader.noteSearchActivity();
+            return slicedSearch.search(slice);
+        };
+        if (executor == null || slices.size() <= 1) {
+            List<T> results = new ArrayList<>(slices.size());
+            for (LeafSlice slice : slices) {
+                results.add(search.search(slice));
+            }
+            return results;
+        }
+
+        List<FutureTask<T>> tasks = new ArrayList<>(slices.size());
+        for (LeafSlice slice : slices) {
+            tasks.add(new FutureTask<>(() -> search.search(slice)));
+        }
+        for (int i = 0; i < tasks.size() - 1; i++) {
+            executor.execute(tasks.get(i));
+        }
+        tasks.get(tasks.size() - 1).run();
+
+        List<T> results = new ArrayList<>(tasks.size());
+        for (FutureTask<T> task : tasks) {
+            results.add(awaitResult(task));
+        }
+        return results;
+    }
+
+    private static <T> T awaitResult(FutureTask<T> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a search task", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof UncheckedIOException uncheckedIOException) {
+                throw uncheckedIOException.getCause();
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IOException("Search task failed", cause);
+        }
+    }
+
+    /**
+     * Groups segments into slices. Segments are visited from largest to smallest; a segment
+     * holding more than {@code maxDocsPerSlice} documents is a slice on its own, and the rest
+     * are packed into slices of at most {@code maxDocsPerSlice} documents and
+     * {@code maxSegmentsPerSlice} segments: a slice is closed before a segment that would
+     * overflow it is added.
+     */
+    public static List<LeafSlice> slices(List<SegmentReader> leaves, int maxDocsPerSlice, int maxSegmentsPerSlice) {
+        List<SegmentReader> sorted = new ArrayList<>(leaves);
+        sorted.sort(Comparator.comparingInt(SegmentReader::getDocumentCount).reversed());
+
+        List<LeafSlice> slices = new ArrayList<>();
+        List<SegmentReader> group = new ArrayList<>();
+        long groupDocs = 0;
+        for (SegmentReader segment : sorted) {
+            if (segment.getDocumentCount() > maxDocsPerSlice) {
+                slices.add(new LeafSlice(List.of(segment)));
+                continue;
+            }
+            if (!group.isEmpty() && groupDocs + segment.getDocumentCount() > maxDocsPerSlice) {
+                slices.add(new LeafSlice(group));
+                group = new ArrayList<>();
+                groupDocs = 0;
+            }
+            group.add(segment);
+            groupDocs += segment.getDocumentCount();
+            if (group.size() >= maxSegmentsPerSlice) {
+                slices.add(new LeafSlice(group));
+                group = new ArrayList<>();
+                groupDocs = 0;
+            }
+        }
+        if (!group.isEmpty()) {
+            slices.add(new LeafSlice(group));
+        }
+        return slices;
+    }
+
+    /**
+     * A group of segments searched together by one task.
+     */
+    public record LeafSlice(List<SegmentReader> leaves) {
+
+        public LeafSlice {
+            leaves = List.copyOf(leaves);
+        }
+    }
+
+    @FunctionalInterface
+    private interface SliceSearch<T> {
+        T search(LeafSlice slice) throws IOException;
+    }
+}
@@ -0,0 +1,41 @@
+package core.search;
+
+import core.index.SegmentReader;
+import storage.file.Term;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * A query matching documents that contain any of the terms of a field selected by a rule,
+ * e.g. all terms with a given prefix. Matching documents get a constant score.
+ */
+public abstract class MultiTermQuery extends Query {
+    protected final String field;
+
+    protected MultiTermQuery(String field) {
+        this.field = Objects.requireNonNull(field, "field must not be null");
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    /**
+     * Returns the terms of the segment this query expands to, in sorted order.
+     */
+    protected abstract TermIterator getTermIterator(SegmentReader reader) throws IOException;
+
+    @Override
+    public Scorer scorer(SegmentReader reader) throws IOException {
+        TermIterator terms = getTermIterator(reader);
+        DocSetBuilder builder = null;
+        for (Term term = terms.next(); term != null; term = terms.next()) {
+            if (builder == null) {
+                builder = new DocSetBuilder(reader.getSegmentInfo(), false);
+            }
+            builder.add(reader.postings(term), 1f);
+        }
+        return builder == null ? null : builder.build(1f);
+    }
+}
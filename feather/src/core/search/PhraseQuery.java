@@ -0,0 +1,81 @@
+package core.search;
+
+import core.index.SegmentReader;
+import storage.file.PostingsEnum;
+import storage.file.Term;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Matches documents containing the terms in the given order, allowing them to be
+ * spread out by at most {@code slop} positions. A slop of 0 matches the exact phrase.
+ *
+ * <p>The terms are expected to be analyzed already, e.g. by the same
+ * {@link core.analysis.FeatherAnalyzer} used at index time.</p>
+ */
+public class PhraseQuery extends Query {
+    private final String field;
+    private final List<String> terms;
+    private final int slop;
+
+    public PhraseQuery(String field, String... terms) {
+        this(field, 0, terms);
+    }
+
+    public PhraseQuery(String field, int slop, String... terms) {
+        this.field = Objects.requireNonNull(field, "field must not be null");
+        if (terms == null || terms.length == 0) {
+            throw new IllegalArgumentException("PhraseQuery requires at least one term");
+        }
+        if (slop < 0) {
+            throw new IllegalArgumentException("slop must be >= 0");
+        }
+        this.terms = List.of(terms);
+        this.slop = slop;
+    }
+
+    public String getField() { return field; }
+    public List<String> getTerms() { return terms; }
+    public int getSlop() { return slop; }
+
+    @Override
+    public Scorer scorer(SegmentReader reader) throws IOException {
+        return createProximityScorer(reader, field, terms, slop, true);
+    }
+
+    static Scorer createProximityScorer(SegmentReader reader, String field, List<String> texts,
+                                        int slop, boolean inOrder) throws IOException {
+        PostingsEnum[] postings = new PostingsEnum[texts.size()];
+        float weight = 0;
+        for (int i = 0; i < postings.length; i++) {
+            Term term = reader.getTerm(field, texts.get(i));
+            if (term == null) {
+                // A missing term means no document of this segment can match.
+                return null;
+            }
+            postings[i] = reader.postings(term);
+            weight += Similarity.idf(term.getDocumentFrequency(), reader.getDocumentCount());
+        }
+        return new ProximityScorer(postings, slop, inOrder, weight);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        PhraseQuery that = (PhraseQuery) o;
+        return slop == that.slop && field.equals(that.field) && terms.equals(that.terms);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(field, terms, slop);
+    }
+
+    @Override
+    public String toString() {
+        return field + ":\"" + String.join(" ", terms) + "\"" + (slop > 0 ? "~" + slop : "");
+    }
+}
@@ -0,0 +1,24 @@
+package core.search;
+
+import core.utils.automaton.Automata;
+
+/**
+ * Matches documents containing a term that starts with the given prefix.
+ */
+public class PrefixQuery extends AutomatonQuery {
+    private final String prefix;
+
+    public PrefixQuery(String field, String prefix) {
+        super(field, Automata.makePrefix(prefix));
+        this.prefix = prefix;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    @Override
+    public String toString() {
+        return field + ":" + prefix + "*";
+    }
+}
@@ -0,0 +1,163 @@
+package core.search;
+
+import storage.file.PostingsEnum;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Scores documents in which a list of terms occur within a maximum distance of each other.
+ *
+ * <p>Matching runs in two phases. The posting lists are first intersected on document
+ * IDs only, leap-frogging from the rarest term. Positions are decoded and verified
+ * only for documents that contain every term.</p>
+ *
+ * <p>The slop of a match is the number of positions by which the matched terms are
+ * spread out beyond being adjacent: {@code lastPosition - firstPosition - (termCount - 1)}.
+ * A slop of 0 with ordered matching is an exact phrase.</p>
+ */
+class ProximityScorer extends Scorer {
+    private final PostingsEnum[] postings;  // in query order, used for position checks
+    private final PostingsEnum[] byCost;    // rarest first, used for the doc-level intersection
+    private final int slop;
+    private final boolean inOrder;
+    private final float weight;
+
+    private int docId = -1;
+    private float matchFreq;
+
+    ProximityScorer(PostingsEnum[] postings, int slop, boolean inOrder, float weight) {
+        this.postings = postings;
+        this.byCost = postings.clone();
+        Arrays.sort(byCost, Comparator.comparingInt(PostingsEnum::cost));
+        this.slop = slop;
+        this.inOrder = inOrder;
+        this.weight = weight;
+    }
+
+    @Override
+    public int docID() {
+        return docId;
+    }
+
+    @Override
+    public int nextDoc() throws IOException {
+        PostingsEnum lead = byCost[0];
+        int doc = lead.nextDoc();
+
+        advanceHead:
+        while (doc != NO_MORE_DOCS) {
+            for (int i = 1; i < byCost.length; i++) {
+                PostingsEnum other = byCost[i];
+                if (other.docID() < doc) {
+                    int next = other.advance(doc);
+                    if (next > doc) {
+                        doc = lead.advance(next);
+                        continue advanceHead;
+                    }
+                }
+            }
+
+            // Every term occurs in this document, so positions are worth decoding now.
+            matchFreq = inOrder ? orderedMatchFreq() : unorderedMatchFreq();
+            if (matchFreq > 0) {
+                return docId = doc;
+            }
+            doc = lead.nextDoc();
+        }
+        return docId = NO_MORE_DOCS;
+    }
+
+    @Override
+    public float score() {
+        return Similarity.tf(matchFreq) * weight;
+    }
+
+    /**
+     * Counts matches whose terms appear in query order, weighting sloppy matches down.
+     * For each start position the earliest following position of every next term is
+     * taken, which yields the tightest match for that start.
+     */
+    private float orderedMatchFreq() throws IOException {
+        int[][] positions = readPositions();
+        int[] cursors = new int[positions.length];
+        float freq = 0;
+
+        for (int start : positions[0]) {
+            int previous = start;
+            for (int i = 1; i < positions.length; i++) {
+                int[] termPositions = positions[i];
+                int cursor = cursors[i];
+                while (cursor < termPositions.length && termPositions[cursor] <= previous) {
+                    cursor++;
+                }
+                if (cursor == termPositions.length) {
+                    // Later starts cannot find a following position either.
+                    return freq;
+                }
+                cursors[i] = cursor;
+                previous = termPositions[cursor];
+            }
+
+            int matchSlop = previous - start - (positions.length - 1);
+            if (matchSlop <= slop) {
+                freq += 1.0f / (matchSlop + 1);
+            }
+        }
+        return freq;
+    }
+
+    /**
+     * Counts windows holding one position of every term in any order, sliding the
+     * window forward by its smallest position. A term repeated in the query must match
+     * distinct positions, so windows reusing a position are skipped.
+     */
+    private float unorderedMatchFreq() throws IOException {
+        int[][] positions = readPositions();
+        int[] cursors = new int[positions.length];
+        float freq = 0;
+
+        while (true) {
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            int minTerm = 0;
+            for (int i = 0; i < positions.length; i++) {
+                int position = positions[i][cursors[i]];
+                if (position < min) {
+                    min = position;
+                    minTerm = i;
+                }
+                max = Math.max(max, position);
+            }
+
+            int matchSlop = max - min - (positions.length - 1);
+            if (matchSlop <= slop && distinctPositions(positions, cursors)) {
+                freq += 1.0f / (matchSlop + 1);
+            }
+
+            if (++cursors[minTerm] == positions[minTerm].length) {
+                return freq;
+            }
+        }
+    }
+
+    private static boolean distinctPositions(int[][] positions, int[] cursors) {
+        for (int i = 1; i < positions.length; i++) {
+            for (int j = 0; j < i; j++) {
+                if (positions[i][cursors[i]] == positions[j][cursors[j]]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private int[][] readPositions() throws IOException {
+        int[][] positions = new int[postings.length][];
+        for (int i = 0; i < postings.length; i++) {
+            positions[i] = postings[i].positions();
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,27 @@
+package core.search;
+
+import core.index.SegmentReader;
+
+import java.io.IOException;
+
+/**
+ * Base class of all queries. A query is executed segment by segment.
+ *
+ * <p>Queries are immutable values: implementations must override {@code equals}
+ * and {@code hashCode}.</p>
+ */
+public abstract class Query {
+
+    /**
+     * Creates a scorer over the matches of this query in the given segment.
+     *
+     * @return the scorer, or null if nothing in the segment can match
+     */
+    public abstract Scorer scorer(SegmentReader reader) throws IOException;
+
+    @Override
+    public abstract boolean equals(Object o);
+
+    @Override
+    public abstract int hashCode();
+}
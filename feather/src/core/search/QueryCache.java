@@ -0,0 +1,186 @@
+package core.search;
+
+import core.index.SegmentReader;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A size-bounded cache of per-segment query results, shared by the {@link IndexSearcher}s it
+ * is set on. It holds the top hits of a query in a segment, and the number of live documents
+ * a query matches in a segment, which {@link IndexSearcher#count(Query)} reads back.
+ *
+ * <p>Entries are keyed by the query, compared by value, and the {@link SegmentReader#getId() ID}
+ * of the segment reader. Segments are immutable, scores only depend on the segment searched
+ * and a reader's live docs never change, so an entry stays exact for as long as the reader is
+ * used. Near-real-time readers share the reader of a segment until documents are deleted
+ * from it or it is merged away; either way searchers of newer readers look up different keys.
+ * A reader's entries are purged once its last reference is released, so results of closed
+ * readers do not hold on to memory until they are evicted. Entries are evicted least recently
+ * used first once the cache holds more than its maximum number of entries or bytes.</p>
+ */
+public final class QueryCache {
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+    public static final long DEFAULT_MAX_RAM_BYTES = 32L * 1024 * 1024;
+
+    // Rough per-entry overhead of the key, the map node and the value's object header.
+    private static final long ENTRY_OVERHEAD = 128;
+    private static final long SCORE_DOC_BYTES = 32;
+    // Marks entries holding the number of matching documents rather than top hits.
+    private static final int COUNT = 0;
+
+    private final int maxEntries;
+    private final long maxRamBytes;
+    private final Map<CacheKey, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // IDs of the readers whose close listener purges their entries from this cache.
+    private final Set<Long> watchedReaders = new HashSet<>();
+    private long ramBytesUsed;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    public QueryCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_RAM_BYTES);
+    }
+
+    /**
+     * @param maxEntries  the maximum number of cached results
+     * @param maxRamBytes the maximum estimated memory held by cached results
+     */
+    public QueryCache(int maxEntries, long maxRamBytes) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be greater than 0");
+        }
+        if (maxRamBytes <= 0) {
+            throw new IllegalArgumentException("maxRamBytes must be greater than 0");
+        }
+        this.maxEntries = maxEntries;
+        this.maxRamBytes = maxRamBytes;
+    }
+
+    /**
+     * Returns the cached top {@code k} hits of the query in the segment, or null.
+     */
+    TopDocs getTopDocs(Query query, int k, SegmentReader segment) {
+        Entry entry = get(new CacheKey(query, k, segment));
+        return entry == null ? null : (TopDocs) entry.value();
+    }
+
+    void putTopDocs(Query query, int k, SegmentReader segment, TopDocs topDocs) {
+        long ramBytes = ENTRY_OVERHEAD + SCORE_DOC_BYTES * topDocs.scoreDocs().size();
+        put(new CacheKey(query, k, segment), new Entry(topDocs, ramBytes));
+        watch(segment);
+    }
+
+    /**
+     * Returns the cached number of live documents of the segment matching the query, or -1.
+     */
+    int getCount(Query query, SegmentReader segment) {
+        Entry entry = get(new CacheKey(query, COUNT, segment));
+        return entry == null ? -1 : (Integer) entry.value();
+    }
+
+    void putCount(Query query, SegmentReader segment, int count) {
+        put(new CacheKey(query, COUNT, segment), new Entry(count, ENTRY_OVERHEAD));
+        watch(segment);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        ramBytesUsed = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the estimated memory held by cached results.
+     */
+    public synchronized long ramBytesUsed() {
+        return ramBytesUsed;
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    private synchronized Entry get(CacheKey key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            missCount++;
+        } else {
+            hitCount++;
+        }
+        return entry;
+    }
+
+    private synchronized void put(CacheKey key, Entry entry) {
+        if (entry.ramBytes() > maxRamBytes) {
+            return;
+        }
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            ramBytesUsed -= previous.ramBytes();
+        }
+        ramBytesUsed += entry.ramBytes();
+        Iterator<Entry> it = entries.values().iterator();
+        while (entries.size() > maxEntries || ramBytesUsed > maxRamBytes) {
+            Entry eldest = it.next();
+            ramBytesUsed -= eldest.ramBytes();
+            it.remove();
+            evictionCount++;
+        }
+    }
+
+    /**
+     * Purges the segment's entries once its reader is closed. Called after an entry is added,
+     * so that an entry added as the reader closes is purged too: the listener then runs at once.
+     */
+    private void watch(SegmentReader segment) {
+        long id = segment.getId();
+        boolean added;
+        synchronized (this) {
+            added = watchedReaders.add(id);
+        }
+        if (added) {
+            segment.addCloseListener(() -> purge(id));
+        }
+    }
+
+    private synchronized void purge(long segment) {
+        watchedReaders.remove(segment);
+        Iterator<Map.Entry<CacheKey, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<CacheKey, Entry> entry = it.next();
+            if (entry.getKey().segment() == segment) {
+                ramBytesUsed -= entry.getValue().ramBytes();
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * @param k the number of top hits cached, or {@link #COUNT} for the number of matching documents
+     */
+    private record CacheKey(Query query, int k, long segment) {
+
+        CacheKey(Query query, int k, SegmentReader segment) {
+            this(query, k, segment.getId());
+        }
+    }
+
+    private record Entry(Object value, long ramBytes) {
+    }
+}
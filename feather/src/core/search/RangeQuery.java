@@ -0,0 +1,71 @@
+package core.search;
+
+import core.index.SegmentReader;
+import storage.file.PointsFile;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * Matches documents whose numeric field value lies in an inclusive range.
+ *
+ * <p>Uses the segment's points index, so only the blocks of values overlapping the range are
+ * read. Numeric values are indexed as longs, the same representation the document file stores.
+ * Matching documents get a constant score.</p>
+ */
+public class RangeQuery extends Query {
+    private final String field;
+    private final long lowerValue;
+    private final long upperValue;
+
+    /**
+     * @param lowerValue the smallest matching value, inclusive
+     * @param upperValue the largest matching value, inclusive
+     */
+    public RangeQuery(String field, long lowerValue, long upperValue) {
+        this.field = Objects.requireNonNull(field, "field must not be null");
+        this.lowerValue = lowerValue;
+        this.upperValue = upperValue;
+    }
+
+    public static RangeQuery atLeast(String field, long lowerValue) {
+        return new RangeQuery(field, lowerValue, Long.MAX_VALUE);
+    }
+
+    public static RangeQuery atMost(String field, long upperValue) {
+        return new RangeQuery(field, Long.MIN_VALUE, upperValue);
+    }
+
+    public String getField() { return field; }
+    public long getLowerValue() { return lowerValue; }
+    public long getUpperValue() { return upperValue; }
+
+    @Override
+    public Scorer scorer(SegmentReader reader) throws IOException {
+        PointsFile points = reader.getPoints();
+        if (points == null || !points.hasField(field)) {
+            return null;
+        }
+        DocSetBuilder builder = new DocSetBuilder(reader.getSegmentInfo(), false);
+        int count = points.intersect(field, lowerValue, upperValue, builder::add);
+        return count == 0 ? null : builder.build(1f);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        RangeQuery that = (RangeQuery) o;
+        return lowerValue == that.lowerValue && upperValue == that.upperValue && field.equals(that.field);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(field, lowerValue, upperValue);
+    }
+
+    @Override
+    public String toString() {
+        return field + ":[" + lowerValue + " TO " + upperValue + "]";
+    }
+}
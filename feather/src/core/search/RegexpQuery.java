@@ -0,0 +1,26 @@
+package core.search;
+
+import core.utils.automaton.RegExp;
+
+/**
+ * Matches documents containing a term matching a regular expression in full.
+ *
+ * @see RegExp for the supported syntax
+ */
+public class RegexpQuery extends AutomatonQuery {
+    private final String regexp;
+
+    public RegexpQuery(String field, String regexp) {
+        super(field, new RegExp(regexp).toAutomaton());
+        this.regexp = regexp;
+    }
+
+    public String getRegexp() {
+        return regexp;
+    }
+
+    @Override
+    public String toString() {
+        return field + ":/" + regexp + "/";
+    }
+}
@@ -0,0 +1,7 @@
+package core.search;
+
+/**
+ * A matching document and its score.
+ */
+public record ScoreDoc(int docId, float score) {
+}
@@ -0,0 +1,22 @@
+package core.search;
+
+import java.io.IOException;
+
+/**
+ * Iterates over the matching documents of a query within one segment, in increasing
+ * document ID order, and scores the current document.
+ */
+public abstract class Scorer {
+    public static final int NO_MORE_DOCS = Integer.MAX_VALUE;
+
+    public abstract int docID();
+
+    /**
+     * Advances to the next matching document.
+     *
+     * @return the next document ID, or {@link #NO_MORE_DOCS} when exhausted
+     */
+    public abstract int nextDoc() throws IOException;
+
+    public abstract float score() throws IOException;
+}
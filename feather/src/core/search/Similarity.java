@@ -0,0 +1,18 @@
+package core.search;
+
+/**
+ * TF-IDF scoring helpers shared by the built-in scorers.
+ */
+final class Similarity {
+
+    private Similarity() {
+    }
+
+    static float idf(int docFreq, int docCount) {
+        return (float) (1 + Math.log((docCount + 1.0) / (docFreq + 1.0)));
+    }
+
+    static float tf(float freq) {
+        return (float) Math.sqrt(freq);
+    }
+}
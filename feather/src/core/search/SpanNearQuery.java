@@ -0,0 +1,60 @@
+package core.search;
+
+import core.index.SegmentReader;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Matches documents in which all terms occur within {@code slop} positions of each
+ * other. Unlike {@link PhraseQuery}, the terms may optionally appear in any order.
+ */
+public class SpanNearQuery extends Query {
+    private final String field;
+    private final List<String> terms;
+    private final int slop;
+    private final boolean inOrder;
+
+    public SpanNearQuery(String field, int slop, boolean inOrder, String... terms) {
+        this.field = Objects.requireNonNull(field, "field must not be null");
+        if (terms == null || terms.length == 0) {
+            throw new IllegalArgumentException("SpanNearQuery requires at least one term");
+        }
+        if (slop < 0) {
+            throw new IllegalArgumentException("slop must be >= 0");
+        }
+        this.terms = List.of(terms);
+        this.slop = slop;
+        this.inOrder = inOrder;
+    }
+
+    public String getField() { return field; }
+    public List<String> getTerms() { return terms; }
+    public int getSlop() { return slop; }
+    public boolean isInOrder() { return inOrder; }
+
+    @Override
+    public Scorer scorer(SegmentReader reader) throws IOException {
+        return PhraseQuery.createProximityScorer(reader, field, terms, slop, inOrder);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SpanNearQuery that = (SpanNearQuery) o;
+        return slop == that.slop && inOrder == that.inOrder
+                && field.equals(that.field) && terms.equals(that.terms);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(field, terms, slop, inOrder);
+    }
+
+    @Override
+    public String toString() {
+        return "spanNear(" + field + ":" + terms + ", slop=" + slop + ", inOrder=" + inOrder + ")";
+    }
+}
@@ -0,0 +1,16 @@
+package core.search;
+
+import storage.file.Term;
+
+import java.io.IOException;
+
+/**
+ * Iterates over the terms a {@link MultiTermQuery} expands to within one segment.
+ */
+public interface TermIterator {
+
+    /**
+     * @return the next matching term, or null when there are no more
+     */
+    Term next() throws IOException;
+}
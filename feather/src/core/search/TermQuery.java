@@ -0,0 +1,77 @@
+package core.search;
+
+import core.index.SegmentReader;
+import storage.file.PostingsEnum;
+import storage.file.Term;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * Matches documents containing a single term.
+ */
+public class TermQuery extends Query {
+    private final String field;
+    private final String text;
+
+    public TermQuery(String field, String text) {
+        this.field = Objects.requireNonNull(field, "field must not be null");
+        this.text = Objects.requireNonNull(text, "text must not be null");
+    }
+
+    public String getField() { return field; }
+    public String getText() { return text; }
+
+    @Override
+    public Scorer scorer(SegmentReader reader) throws IOException {
+        Term term = reader.getTerm(field, text);
+        if (term == null) {
+            return null;
+        }
+        float idf = Similarity.idf(term.getDocumentFrequency(), reader.getDocumentCount());
+        return new TermScorer(reader.postings(term), idf);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TermQuery that = (TermQuery) o;
+        return field.equals(that.field) && text.equals(that.text);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(field, text);
+    }
+
+    @Override
+    public String toString() {
+        return field + ":" + text;
+    }
+
+    private static class TermScorer extends Scorer {
+        private final PostingsEnum postings;
+        private final float idf;
+
+        TermScorer(PostingsEnum postings, float idf) {
+            this.postings = postings;
+            this.idf = idf;
+        }
+
+        @Override
+        public int docID() {
+            return postings.docID();
+        }
+
+        @Override
+        public int nextDoc() throws IOException {
+            return postings.nextDoc();
+        }
+
+        @Override
+        public float score() {
+            return Similarity.tf(postings.freq()) * idf;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package core.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The top hits of a search, best first.
+ *
+ * @param totalHits the number of documents that matched, which may exceed the number of hits returned
+ * @param scoreDocs the top hits
+ */
+public record TopDocs(int totalHits, List<ScoreDoc> scoreDocs) {
+
+    public TopDocs {
+        scoreDocs = List.copyOf(scoreDocs);
+    }
+
+    /**
+     * Merges the results of independently searched shards or slices into the top {@code k} overall.
+     */
+    public static TopDocs merge(int k, List<TopDocs> shards) {
+        int totalHits = 0;
+        List<ScoreDoc> hits = new ArrayList<>();
+        for (TopDocs shard : shards) {
+            totalHits += shard.totalHits();
+            hits.addAll(shard.scoreDocs());
+        }
+        hits.sort(TopScoreDocCollector.BEST_FIRST);
+        return new TopDocs(totalHits, hits.size() > k ? hits.subList(0, k) : hits);
+    }
+}
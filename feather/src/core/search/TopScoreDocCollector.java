@@ -0,0 +1,50 @@
+package core.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Collects the {@code k} highest scoring documents. Ties are broken in favour of the
+ * smaller document ID so results are deterministic.
+ */
+public class TopScoreDocCollector {
+    static final Comparator<ScoreDoc> BEST_FIRST = Comparator
+            .comparingDouble(ScoreDoc::score).reversed()
+            .thenComparingInt(ScoreDoc::docId);
+
+    private final int numHits;
+    // Min-heap on the collected hits: the head is the worst hit kept so far.
+    private final PriorityQueue<ScoreDoc> queue;
+    private int totalHits;
+
+    public TopScoreDocCollector(int numHits) {
+        if (numHits <= 0) {
+            throw new IllegalArgumentException("numHits must be greater than 0");
+        }
+        this.numHits = numHits;
+        this.queue = new PriorityQueue<>(numHits, BEST_FIRST.reversed());
+    }
+
+    public void collect(int docId, float score) {
+        totalHits++;
+        ScoreDoc hit = new ScoreDoc(docId, score);
+        if (queue.size() < numHits) {
+            queue.add(hit);
+        } else if (BEST_FIRST.compare(hit, queue.peek()) < 0) {
+            queue.poll();
+            queue.add(hit);
+        }
+    }
+
+    public int getTotalHits() {
+        return totalHits;
+    }
+
+    public TopDocs topDocs() {
+        List<ScoreDoc> hits = new ArrayList<>(queue);
+        hits.sort(BEST_FIRST);
+        return new TopDocs(totalHits, hits);
+    }
+}
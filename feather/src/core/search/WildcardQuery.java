@@ -0,0 +1,25 @@
+package core.search;
+
+import core.utils.automaton.Automata;
+
+/**
+ * Matches documents containing a term matching a wildcard pattern, where {@code *} matches
+ * any sequence of characters and {@code ?} any single character.
+ */
+public class WildcardQuery extends AutomatonQuery {
+    private final String pattern;
+
+    public WildcardQuery(String field, String pattern) {
+        super(field, Automata.makeWildcard(pattern));
+        this.pattern = pattern;
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    @Override
+    public String toString() {
+        return field + ":" + pattern;
+    }
+}
@@ -0,0 +1,61 @@
+package core.utils;
+
+/**
+ * A bit set of fixed length backed by a {@code long[]}.
+ */
+public final class FixedBitSet {
+    private final long[] words;
+    private final int numBits;
+
+    public FixedBitSet(int numBits) {
+        if (numBits < 0) {
+            throw new IllegalArgumentException("numBits cannot be negative");
+        }
+        this.numBits = numBits;
+        this.words = new long[(numBits + 63) >>> 6];
+    }
+
+    public int length() {
+        return numBits;
+    }
+
+    public boolean get(int index) {
+        return (words[index >>> 6] & (1L << index)) != 0;
+    }
+
+    public void set(int index) {
+        words[index >>> 6] |= 1L << index;
+    }
+
+    public void clear(int index) {
+        words[index >>> 6] &= ~(1L << index);
+    }
+
+    /**
+     * Returns the index of the first set bit at or after {@code from}, or -1 if there is none.
+     */
+    public int nextSetBit(int from) {
+        if (from >= numBits) {
+            return -1;
+        }
+        int wordIndex = from >>> 6;
+        long word = words[wordIndex] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++wordIndex == words.length) {
+                return -1;
+            }
+            word = words[wordIndex];
+        }
+    }
+
+    public int cardinality() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+}
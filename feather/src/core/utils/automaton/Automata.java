@@ -0,0 +1,113 @@
+package core.utils.automaton;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Factory methods for common automata.
+ */
+public final class Automata {
+    public static final int DEFAULT_MAX_STATES = 10_000;
+
+    private Automata() {
+    }
+
+    /**
+     * Accepts exactly the given string.
+     */
+    public static Automaton makeString(String s) {
+        return compile(Node.literal(s), DEFAULT_MAX_STATES);
+    }
+
+    /**
+     * Accepts every string starting with the given prefix.
+     */
+    public static Automaton makePrefix(String prefix) {
+        return compile(Node.concat(List.of(Node.literal(prefix), Node.repeat(Node.anyChar(), 0, -1))),
+                DEFAULT_MAX_STATES);
+    }
+
+    /**
+     * Accepts strings matching a wildcard pattern, where {@code *} matches any sequence of
+     * characters, {@code ?} matches a single character and {@code \} escapes the next character.
+     */
+    public static Automaton makeWildcard(String pattern) {
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            switch (c) {
+                case '*' -> nodes.add(Node.repeat(Node.anyChar(), 0, -1));
+                case '?' -> nodes.add(Node.anyChar());
+                case '\\' -> {
+                    if (i + 1 == pattern.length()) {
+                        throw new IllegalArgumentException("Dangling escape at the end of wildcard pattern: " + pattern);
+                    }
+                    char escaped = pattern.charAt(++i);
+                    nodes.add(Node.ranges(escaped, escaped));
+                }
+                default -> nodes.add(Node.ranges(c, c));
+            }
+        }
+        return compile(Node.concat(nodes), DEFAULT_MAX_STATES);
+    }
+
+    /**
+     * Accepts every string within {@code maxEdits} insertions, deletions or substitutions
+     * of {@code term}, optionally also counting the transposition of two adjacent characters
+     * as a single edit. The first {@code prefixLength} characters must match exactly.
+     */
+    public static Automaton makeLevenshtein(String term, int maxEdits, int prefixLength, boolean transpositions) {
+        if (maxEdits < 0) {
+            throw new IllegalArgumentException("maxEdits cannot be negative");
+        }
+        int length = term.length();
+        int exact = Math.min(Math.max(prefixLength, 0), length);
+
+        // State (i, e): the first i characters of the term were consumed using e edits.
+        Nfa nfa = new Nfa();
+        int[][] states = new int[length + 1][maxEdits + 1];
+        for (int i = 0; i <= length; i++) {
+            for (int e = 0; e <= maxEdits; e++) {
+                states[i][e] = nfa.newState();
+            }
+        }
+
+        BitSet accepts = new BitSet();
+        for (int i = 0; i <= length; i++) {
+            for (int e = 0; e <= maxEdits; e++) {
+                int state = states[i][e];
+                if (i < length) {
+                    nfa.addTransition(state, term.charAt(i), term.charAt(i), states[i + 1][e]);
+                }
+                if (i < exact || e == maxEdits) {
+                    continue;
+                }
+                // Insertion of any character.
+                nfa.addTransition(state, 0, Nfa.MAX_LABEL, states[i][e + 1]);
+                if (i < length) {
+                    // Substitution and deletion.
+                    nfa.addTransition(state, 0, Nfa.MAX_LABEL, states[i + 1][e + 1]);
+                    nfa.addEpsilon(state, states[i + 1][e + 1]);
+                }
+                if (transpositions && i + 1 < length && term.charAt(i) != term.charAt(i + 1)) {
+                    int swapped = nfa.newState();
+                    nfa.addTransition(state, term.charAt(i + 1), term.charAt(i + 1), swapped);
+                    nfa.addTransition(swapped, term.charAt(i), term.charAt(i), states[i + 2][e + 1]);
+                }
+            }
+        }
+        for (int e = 0; e <= maxEdits; e++) {
+            accepts.set(states[length][e]);
+        }
+        return nfa.determinize(states[0][0], accepts, DEFAULT_MAX_STATES);
+    }
+
+    static Automaton compile(Node node, int maxStates) {
+        Nfa nfa = new Nfa();
+        int[] fragment = node.compile(nfa);
+        BitSet accepts = new BitSet();
+        accepts.set(fragment[1]);
+        return nfa.determinize(fragment[0], accepts, maxStates);
+    }
+}
@@ -0,0 +1,108 @@
+package core.utils.automaton;
+
+import java.util.Arrays;
+
+/**
+ * An immutable deterministic finite automaton over UTF-16 code units, the same unit
+ * term texts are sorted by. State 0 is the initial state.
+ *
+ * <p>Automata built by {@link Automata} and {@link RegExp} contain only live states, i.e.
+ * every state can reach an accept state. Any string driving the automaton through existing
+ * transitions is therefore a prefix of some accepted string, which lets term enumeration
+ * skip directly to the next candidate.</p>
+ */
+public final class Automaton {
+    private final boolean[] accept;
+    // Per state: (min, max, dest) triples sorted by min, with disjoint [min, max] ranges.
+    private final int[][] transitions;
+
+    Automaton(boolean[] accept, int[][] transitions) {
+        this.accept = accept;
+        this.transitions = transitions;
+    }
+
+    public int getNumStates() {
+        return accept.length;
+    }
+
+    public boolean isAccept(int state) {
+        return accept[state];
+    }
+
+    /**
+     * Returns the state reached from {@code state} on label {@code c}, or -1 if there is no transition.
+     */
+    public int step(int state, int c) {
+        int[] t = transitions[state];
+        int low = 0;
+        int high = t.length / 3 - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (c < t[mid * 3]) {
+                high = mid - 1;
+            } else if (c > t[mid * 3 + 1]) {
+                low = mid + 1;
+            } else {
+                return t[mid * 3 + 2];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns true if the automaton accepts the given string.
+     */
+    public boolean run(CharSequence s) {
+        int state = 0;
+        for (int i = 0; i < s.length() && state >= 0; i++) {
+            state = step(state, s.charAt(i));
+        }
+        return state >= 0 && accept[state];
+    }
+
+    /**
+     * Returns the smallest label greater than or equal to {@code c} that has a transition
+     * out of {@code state}, or -1 if there is none.
+     */
+    public int nextLabel(int state, int c) {
+        int[] t = transitions[state];
+        for (int i = 0; i < t.length; i += 3) {
+            if (t[i + 1] >= c) {
+                return Math.max(t[i], c);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the literal prefix every accepted string starts with.
+     */
+    public String getCommonPrefix() {
+        StringBuilder prefix = new StringBuilder();
+        int state = 0;
+        while (prefix.length() < accept.length && !accept[state]
+                && transitions[state].length == 3 && transitions[state][0] == transitions[state][1]) {
+            prefix.append((char) transitions[state][0]);
+            state = transitions[state][2];
+        }
+        return prefix.toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Automaton that = (Automaton) o;
+        return Arrays.equals(accept, that.accept) && Arrays.deepEquals(transitions, that.transitions);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(accept) + Arrays.deepHashCode(transitions);
+    }
+
+    @Override
+    public String toString() {
+        return "Automaton{states=" + accept.length + "}";
+    }
+}
@@ -0,0 +1,192 @@
+package core.utils.automaton;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * A mutable nondeterministic automaton with epsilon transitions, used as the intermediate
+ * form when building an {@link Automaton}.
+ */
+final class Nfa {
+    static final int MAX_LABEL = Character.MAX_VALUE;
+    // Bounds the memory of the intermediate automaton, which repetition grows multiplicatively:
+    // (a{1000}){1000} would need two million states before determinization could reject it.
+    static final int MAX_STATES = 100_000;
+
+    private final List<List<int[]>> transitions = new ArrayList<>();
+    private final List<List<Integer>> epsilons = new ArrayList<>();
+
+    int newState() {
+        transitions.add(new ArrayList<>());
+        epsilons.add(new ArrayList<>());
+        return transitions.size() - 1;
+    }
+
+    void addTransition(int from, int min, int max, int to) {
+        transitions.get(from).add(new int[]{min, max, to});
+    }
+
+    void addEpsilon(int from, int to) {
+        epsilons.get(from).add(to);
+    }
+
+    /**
+     * Converts this automaton to a deterministic {@link Automaton} without dead states,
+     * using the subset construction.
+     *
+     * @throws IllegalArgumentException if more than {@code maxStates} states would be created
+     */
+    Automaton determinize(int start, BitSet accepts, int maxStates) {
+        Map<BitSet, Integer> ids = new HashMap<>();
+        List<BitSet> sets = new ArrayList<>();
+        List<List<int[]>> dfaTransitions = new ArrayList<>();
+
+        BitSet initial = new BitSet();
+        initial.set(start);
+        closure(initial);
+        ids.put(initial, 0);
+        sets.add(initial);
+
+        for (int current = 0; current < sets.size(); current++) {
+            BitSet set = sets.get(current);
+            List<int[]> edges = new ArrayList<>();
+            TreeSet<Integer> points = new TreeSet<>();
+            for (int s = set.nextSetBit(0); s >= 0; s = set.nextSetBit(s + 1)) {
+                for (int[] t : transitions.get(s)) {
+                    edges.add(t);
+                    points.add(t[0]);
+                    points.add(t[1] + 1);
+                }
+            }
+
+            List<int[]> out = new ArrayList<>();
+            Integer[] bounds = points.toArray(new Integer[0]);
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                int lo = bounds[i];
+                int hi = bounds[i + 1] - 1;
+                BitSet dest = new BitSet();
+                for (int[] edge : edges) {
+                    if (edge[0] <= lo && edge[1] >= hi) {
+                        dest.set(edge[2]);
+                    }
+                }
+                if (dest.isEmpty()) {
+                    continue;
+                }
+                closure(dest);
+
+                Integer id = ids.get(dest);
+                if (id == null) {
+                    if (sets.size() >= maxStates) {
+                        throw new IllegalArgumentException(
+                                "Automaton is too complex: more than " + maxStates + " states");
+                    }
+                    id = sets.size();
+                    ids.put(dest, id);
+                    sets.add(dest);
+                }
+
+                int[] last = out.isEmpty() ? null : out.get(out.size() - 1);
+                if (last != null && last[2] == id && last[1] + 1 == lo) {
+                    last[1] = hi;
+                } else {
+                    out.add(new int[]{lo, hi, id});
+                }
+            }
+            dfaTransitions.add(out);
+        }
+
+        boolean[] accept = new boolean[sets.size()];
+        for (int i = 0; i < accept.length; i++) {
+            accept[i] = sets.get(i).intersects(accepts);
+        }
+        return removeDeadStates(accept, dfaTransitions);
+    }
+
+    private void closure(BitSet set) {
+        Deque<Integer> stack = new ArrayDeque<>();
+        for (int s = set.nextSetBit(0); s >= 0; s = set.nextSetBit(s + 1)) {
+            stack.push(s);
+        }
+        while (!stack.isEmpty()) {
+            for (int next : epsilons.get(stack.pop())) {
+                if (!set.get(next)) {
+                    set.set(next);
+                    stack.push(next);
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops states that cannot reach an accept state, renumbering the rest.
+     */
+    private static Automaton removeDeadStates(boolean[] accept, List<List<int[]>> transitions) {
+        int numStates = accept.length;
+        List<List<Integer>> reverse = new ArrayList<>(numStates);
+        for (int i = 0; i < numStates; i++) {
+            reverse.add(new ArrayList<>());
+        }
+        for (int from = 0; from < numStates; from++) {
+            for (int[] t : transitions.get(from)) {
+                reverse.get(t[2]).add(from);
+            }
+        }
+
+        boolean[] live = new boolean[numStates];
+        Deque<Integer> stack = new ArrayDeque<>();
+        for (int i = 0; i < numStates; i++) {
+            if (accept[i]) {
+                live[i] = true;
+                stack.push(i);
+            }
+        }
+        while (!stack.isEmpty()) {
+            for (int from : reverse.get(stack.pop())) {
+                if (!live[from]) {
+                    live[from] = true;
+                    stack.push(from);
+                }
+            }
+        }
+
+        if (!live[0]) {
+            return new Automaton(new boolean[1], new int[][]{new int[0]});
+        }
+
+        int[] newIds = new int[numStates];
+        int count = 0;
+        for (int i = 0; i < numStates; i++) {
+            newIds[i] = live[i] ? count++ : -1;
+        }
+
+        boolean[] newAccept = new boolean[count];
+        int[][] newTransitions = new int[count][];
+        for (int i = 0; i < numStates; i++) {
+            if (!live[i]) {
+                continue;
+            }
+            List<int[]> kept = new ArrayList<>();
+            for (int[] t : transitions.get(i)) {
+                if (live[t[2]]) {
+                    kept.add(t);
+                }
+            }
+            int[] packed = new int[kept.size() * 3];
+            for (int j = 0; j < kept.size(); j++) {
+                packed[j * 3] = kept.get(j)[0];
+                packed[j * 3 + 1] = kept.get(j)[1];
+                packed[j * 3 + 2] = newIds[kept.get(j)[2]];
+            }
+            newAccept[newIds[i]] = accept[i];
+            newTransitions[newIds[i]] = packed;
+        }
+        return new Automaton(newAccept, newTransitions);
+    }
+}
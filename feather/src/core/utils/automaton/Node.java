@@ -0,0 +1,182 @@
+package core.utils.automaton;
+
+import java.util.List;
+
+/**
+ * A parsed pattern, compiled into an {@link Nfa} with Thompson's construction.
+ */
+abstract class Node {
+
+    /**
+     * Adds this node to the automaton.
+     *
+     * @return the start and end state of the added fragment
+     */
+    abstract int[] compile(Nfa nfa);
+
+    /**
+     * Returns the number of states {@link #compile(Nfa)} adds, so that oversized patterns can
+     * be rejected before any state is allocated.
+     */
+    abstract long stateCount();
+
+    static Node ranges(int... bounds) {
+        return new Ranges(bounds);
+    }
+
+    static Node anyChar() {
+        return new Ranges(0, Nfa.MAX_LABEL);
+    }
+
+    static Node literal(String s) {
+        Node[] chars = new Node[s.length()];
+        for (int i = 0; i < s.length(); i++) {
+            chars[i] = new Ranges(s.charAt(i), s.charAt(i));
+        }
+        return new Concat(List.of(chars));
+    }
+
+    static Node concat(List<Node> nodes) {
+        return nodes.size() == 1 ? nodes.get(0) : new Concat(nodes);
+    }
+
+    static Node union(List<Node> nodes) {
+        return nodes.size() == 1 ? nodes.get(0) : new Union(nodes);
+    }
+
+    /**
+     * @param max the maximum number of repetitions, or -1 for unbounded
+     */
+    static Node repeat(Node node, int min, int max) {
+        return new Repeat(node, min, max);
+    }
+
+    private static final class Ranges extends Node {
+        // (min, max) pairs
+        private final int[] bounds;
+
+        Ranges(int... bounds) {
+            this.bounds = bounds;
+        }
+
+        @Override
+        long stateCount() {
+            return 2;
+        }
+
+        @Override
+        int[] compile(Nfa nfa) {
+            int start = nfa.newState();
+            int end = nfa.newState();
+            for (int i = 0; i < bounds.length; i += 2) {
+                nfa.addTransition(start, bounds[i], bounds[i + 1], end);
+            }
+            return new int[]{start, end};
+        }
+    }
+
+    private static final class Concat extends Node {
+        private final List<Node> nodes;
+        private final long stateCount;
+
+        Concat(List<Node> nodes) {
+            this.nodes = nodes;
+            this.stateCount = 1 + nodes.stream().mapToLong(Node::stateCount).sum();
+        }
+
+        @Override
+        long stateCount() {
+            return stateCount;
+        }
+
+        @Override
+        int[] compile(Nfa nfa) {
+            int start = nfa.newState();
+            int end = start;
+            for (Node node : nodes) {
+                int[] fragment = node.compile(nfa);
+                nfa.addEpsilon(end, fragment[0]);
+                end = fragment[1];
+            }
+            return new int[]{start, end};
+        }
+    }
+
+    private static final class Union extends Node {
+        private final List<Node> nodes;
+        private final long stateCount;
+
+        Union(List<Node> nodes) {
+            this.nodes = nodes;
+            this.stateCount = 2 + nodes.stream().mapToLong(Node::stateCount).sum();
+        }
+
+        @Override
+        long stateCount() {
+            return stateCount;
+        }
+
+        @Override
+        int[] compile(Nfa nfa) {
+            int start = nfa.newState();
+            int end = nfa.newState();
+            for (Node node : nodes) {
+                int[] fragment = node.compile(nfa);
+                nfa.addEpsilon(start, fragment[0]);
+                nfa.addEpsilon(fragment[1], end);
+            }
+            return new int[]{start, end};
+        }
+    }
+
+    private static final class Repeat extends Node {
+        private final Node node;
+        private final int min;
+        private final int max;
+        private final long stateCount;
+
+        Repeat(Node node, int min, int max) {
+            this.node = node;
+            this.min = min;
+            this.max = max;
+            // A start and an end state around min copies, plus one looped or max - min optional ones.
+            this.stateCount = 2 + (max < 0 ? min + 1L : max) * node.stateCount();
+        }
+
+        @Override
+        long stateCount() {
+            return stateCount;
+        }
+
+        @Override
+        int[] compile(Nfa nfa) {
+            int start = nfa.newState();
+            int end = start;
+            for (int i = 0; i < min; i++) {
+                int[] fragment = node.compile(nfa);
+                nfa.addEpsilon(end, fragment[0]);
+                end = fragment[1];
+            }
+
+            if (max < 0) {
+                int[] fragment = node.compile(nfa);
+                int loopEnd = nfa.newState();
+                nfa.addEpsilon(end, fragment[0]);
+                nfa.addEpsilon(end, loopEnd);
+                nfa.addEpsilon(fragment[1], fragment[0]);
+                nfa.addEpsilon(fragment[1], loopEnd);
+                return new int[]{start, loopEnd};
+            }
+
+            int optionalEnd = nfa.newState();
+            for (int i = min; i < max; i++) {
+                int[] fragment = node.compile(nfa);
+                nfa.addEpsilon(end, fragment[0]);
+                nfa.addEpsilon(end, optionalEnd);
+                end = fragment[1];
+            }
+            nfa.addEpsilon(end, optionalEnd);
+            return new int[]{start, optionalEnd};
+        }
+    }
+}
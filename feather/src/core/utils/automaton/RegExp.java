@@ -0,0 +1,251 @@
+package core.utils.automaton;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses a regular expression into an {@link Automaton}. The expression must match the whole
+ * term. Supported syntax:
+ *
+ * <ul>
+ *   <li>literal characters, and {@code \} to escape operators</li>
+ *   <li>{@code .} for any character</li>
+ *   <li>character classes such as {@code [abc]}, {@code [a-z0-9]} and negated {@code [^a-z]}</li>
+ *   <li>{@code \d}, {@code \w} and {@code \s} shorthand classes</li>
+ *   <li>{@code *}, {@code +}, {@code ?}, {@code {n}}, {@code {n,}} and {@code {n,m}} repetition</li>
+ *   <li>{@code |} alternation and {@code ( )} grouping</li>
+ * </ul>
+ */
+public class RegExp {
+    private final String pattern;
+    private int pos;
+
+    public RegExp(String pattern) {
+        if (pattern == null) {
+            throw new IllegalArgumentException("Pattern cannot be null");
+        }
+        this.pattern = pattern;
+    }
+
+    public Automaton toAutomaton() {
+        return toAutomaton(Automata.DEFAULT_MAX_STATES);
+    }
+
+    /**
+     * @param maxStates the maximum number of states of the determinized automaton
+     * @throws IllegalArgumentException if the pattern is malformed, or too complex before or after
+     *                                  determinization
+     */
+    public Automaton toAutomaton(int maxStates) {
+        pos = 0;
+        Node node = parseUnion();
+        if (pos < pattern.length()) {
+            throw error("Unexpected '" + pattern.charAt(pos) + "'");
+        }
+        checkSize(node);
+        return Automata.compile(node, maxStates);
+    }
+
+    private Node parseUnion() {
+        List<Node> alternatives = new ArrayList<>();
+        alternatives.add(parseConcat());
+        while (match('|')) {
+            alternatives.add(parseConcat());
+        }
+        return Node.union(alternatives);
+    }
+
+    private Node parseConcat() {
+        List<Node> nodes = new ArrayList<>();
+        while (pos < pattern.length() && peek() != '|' && peek() != ')') {
+            nodes.add(parseRepeat());
+        }
+        return Node.concat(nodes);
+    }
+
+    private Node parseRepeat() {
+        Node node = parseAtom();
+        while (pos < pattern.length()) {
+            if (match('*')) {
+                node = Node.repeat(node, 0, -1);
+            } else if (match('+')) {
+                node = Node.repeat(node, 1, -1);
+            } else if (match('?')) {
+                node = Node.repeat(node, 0, 1);
+            } else if (match('{')) {
+                int min = parseNumber();
+                int max = min;
+                if (match(',')) {
+                    max = peek() == '}' ? -1 : parseNumber();
+                }
+                expect('}');
+                if (max >= 0 && max < min) {
+                    throw error("Invalid repetition range {" + min + "," + max + "}");
+                }
+                node = Node.repeat(node, min, max);
+                checkSize(node);
+            } else {
+                break;
+            }
+        }
+        return node;
+    }
+
+    private Node parseAtom() {
+        char c = next();
+        switch (c) {
+            case '(':
+                Node group = parseUnion();
+                expect(')');
+                return group;
+            case '[':
+                return parseCharClass();
+            case '.':
+                return Node.anyChar();
+            case '\\':
+                return parseEscape();
+            case '*':
+            case '+':
+            case '?':
+            case '{':
+                throw error("Nothing to repeat before '" + c + "'");
+            default:
+                return Node.ranges(c, c);
+        }
+    }
+
+    private Node parseEscape() {
+        char c = next();
+        return switch (c) {
+            case 'd' -> Node.ranges('0', '9');
+            case 'w' -> Node.ranges('0', '9', 'A', 'Z', '_', '_', 'a', 'z');
+            case 's' -> Node.ranges('\t', '\n', '\r', '\r', ' ', ' ');
+            default -> Node.ranges(c, c);
+        };
+    }
+
+    private Node parseCharClass() {
+        boolean negated = match('^');
+        List<int[]> ranges = new ArrayList<>();
+        while (peek() != ']') {
+            char from = next();
+            if (from == '\\') {
+                from = next();
+            }
+            char to = from;
+            if (peek() == '-' && pos + 1 < pattern.length() && pattern.charAt(pos + 1) != ']') {
+                pos++;
+                to = next();
+                if (to == '\\') {
+                    to = next();
+                }
+                if (to < from) {
+                    throw error("Invalid character range " + from + "-" + to);
+                }
+            }
+            ranges.add(new int[]{from, to});
+        }
+        expect(']');
+        if (ranges.isEmpty()) {
+            throw error("Empty character class");
+        }
+
+        ranges.sort((a, b) -> Integer.compare(a[0], b[0]));
+        List<int[]> merged = new ArrayList<>();
+        for (int[] range : ranges) {
+            int[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && range[0] <= last[1] + 1) {
+                last[1] = Math.max(last[1], range[1]);
+            } else {
+                merged.add(range.clone());
+            }
+        }
+        if (negated) {
+            merged = complement(merged);
+        }
+
+        int[] bounds = new int[merged.size() * 2];
+        for (int i = 0; i < merged.size(); i++) {
+            bounds[i * 2] = merged.get(i)[0];
+            bounds[i * 2 + 1] = merged.get(i)[1];
+        }
+        return Node.ranges(bounds);
+    }
+
+    private static List<int[]> complement(List<int[]> sortedRanges) {
+        List<int[]> result = new ArrayList<>();
+        int next = 0;
+        for (int[] range : sortedRanges) {
+            if (range[0] > next) {
+                result.add(new int[]{next, range[0] - 1});
+            }
+            next = range[1] + 1;
+        }
+        if (next <= Nfa.MAX_LABEL) {
+            result.add(new int[]{next, Nfa.MAX_LABEL});
+        }
+        return result;
+    }
+
+    private int parseNumber() {
+        int start = pos;
+        while (pos < pattern.length() && Character.isDigit(peek())) {
+            pos++;
+        }
+        if (start == pos) {
+            throw error("Expected a number");
+        }
+        long value = pos - start > 9 ? Long.MAX_VALUE : Long.parseLong(pattern.substring(start, pos));
+        if (value > Nfa.MAX_STATES) {
+            throw error("Repetition count " + pattern.substring(start, pos) + " is too large");
+        }
+        return (int) value;
+    }
+
+    /**
+     * Rejects a pattern whose nondeterministic automaton would exceed {@link Nfa#MAX_STATES}.
+     * Checked at every repetition, the only construct that multiplies the size, so that nested
+     * ones are rejected before their counts multiply out.
+     */
+    private void checkSize(Node node) {
+        if (node.stateCount() > Nfa.MAX_STATES) {
+            throw error("Pattern is too complex, it would need more than " + Nfa.MAX_STATES + " states");
+        }
+    }
+
+    private char peek() {
+        if (pos >= pattern.length()) {
+            throw error("Unexpected end of pattern");
+        }
+        return pattern.charAt(pos);
+    }
+
+    private char next() {
+        char c = peek();
+        pos++;
+        return c;
+    }
+
+    private boolean match(char c) {
+        if (pos < pattern.length() && pattern.charAt(pos) == c) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(char c) {
+        if (!match(c)) {
+            throw error("Expected '" + c + "'");
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at position " + pos + " in regular expression: " + pattern);
+    }
+
+    @Override
+    public String toString() {
+        return pattern;
+    }
+}
@@ -0,0 +1,231 @@
+package storage;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A size-bounded cache of file blocks, stored off the heap, that can be shared by several
+ * storages. It keeps hot dictionary blocks and posting list heads resident whatever the OS page
+ * cache evicts under pressure from other processes, for deployments where memory mapping is
+ * not an option. Storages read through it with {@link BlockCacheStorage}.
+ *
+ * <p>Blocks are keyed by (file ID, block index). The cache is split into lock stripes, each
+ * owning a fixed arena of block slots in one direct buffer, a map from keys to slots and a CLOCK
+ * hand: a hit sets the slot's reference bit, and the hand evicts the first slot it finds without
+ * one, clearing bits as it passes. Misses are read from the file outside the stripe lock.</p>
+ */
+public final class BlockCache {
+    public static final int DEFAULT_BLOCK_SIZE = 16 * 1024;
+    public static final int MIN_BLOCK_SIZE = 4 * 1024;
+    public static final int MAX_BLOCK_SIZE = 64 * 1024;
+    private static final int STRIPES = 16;
+
+    private final int blockSize;
+    private final int blockShift;
+    private final Stripe[] stripes;
+    private final AtomicLong nextFileId = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final ThreadLocal<ByteBuffer> loadBuffers;
+
+    /**
+     * Creates a cache of {@value #DEFAULT_BLOCK_SIZE}-byte blocks.
+     */
+    public BlockCache(long maxBytes) {
+        this(maxBytes, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * @param maxBytes  the memory reserved for blocks, allocated up front
+     * @param blockSize the size of a block, a power of two between {@value #MIN_BLOCK_SIZE} and
+     *                  {@value #MAX_BLOCK_SIZE}
+     */
+    public BlockCache(long maxBytes, int blockSize) {
+        if (blockSize < MIN_BLOCK_SIZE || blockSize > MAX_BLOCK_SIZE || Integer.bitCount(blockSize) != 1) {
+            throw new IllegalArgumentException("Block size must be a power of two between "
+                    + MIN_BLOCK_SIZE + " and " + MAX_BLOCK_SIZE + ": " + blockSize);
+        }
+        long slotsPerStripe = Math.max(1, maxBytes / blockSize / STRIPES);
+        if (slotsPerStripe * blockSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Cache size too large: " + maxBytes);
+        }
+        this.blockSize = blockSize;
+        this.blockShift = Integer.numberOfTrailingZeros(blockSize);
+        this.stripes = new Stripe[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe((int) slotsPerStripe, blockSize);
+        }
+        this.loadBuffers = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(blockSize));
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Returns a new file ID, unique within this cache. A file's blocks are cached under the ID
+     * its storage assigned it, so files of different storages never share blocks.
+     */
+    long newFileId() {
+        return nextFileId.incrementAndGet();
+    }
+
+    /**
+     * Reads {@code channel} at {@code position} into {@code dst}, serving whole blocks from the
+     * cache and loading missing ones.
+     *
+     * @param fileSize the size of the file, which must not change while its blocks are cached
+     * @return the number of bytes read, or -1 if {@code position} is at or past the end
+     */
+    int read(long fileId, FileChannel channel, long fileSize, ByteBuffer dst, long position) throws IOException {
+        if (position >= fileSize) {
+            return -1;
+        }
+        int total = 0;
+        while (dst.hasRemaining() && position < fileSize) {
+            long block = position >>> blockShift;
+            int offset = (int) (position & (blockSize - 1));
+            Stripe stripe = stripe(fileId, block);
+            int read = stripe.copy(fileId, block, dst, offset);
+            if (read >= 0) {
+                hits.incrementAndGet();
+            } else {
+                misses.incrementAndGet();
+                ByteBuffer loaded = load(channel, block, fileSize);
+                if (stripe.put(fileId, block, loaded)) {
+                    evictions.incrementAndGet();
+                }
+                read = Math.min(dst.remaining(), loaded.limit() - offset);
+                dst.put(loaded.slice(offset, read));
+            }
+            position += read;
+            total += read;
+        }
+        return total;
+    }
+
+    /**
+     * Drops the cached blocks of a file, e.g. once it is deleted.
+     */
+    void invalidate(long fileId) {
+        for (Stripe stripe : stripes) {
+            stripe.invalidate(fileId);
+        }
+    }
+
+    /**
+     * Returns the number of blocks cached.
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    /**
+     * Returns the off-heap memory reserved for blocks.
+     */
+    public long ramBytesUsed() {
+        return (long) stripes.length * stripes[0].capacity() * blockSize;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    private ByteBuffer load(FileChannel channel, long block, long fileSize) throws IOException {
+        long start = block << blockShift;
+        ByteBuffer buffer = loadBuffers.get();
+        buffer.clear().limit((int) Math.min(blockSize, fileSize - start));
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, start + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of file at " + (start + buffer.position()));
+            }
+        }
+        return buffer.flip();
+    }
+
+    private Stripe stripe(long fileId, long block) {
+        long hash = (fileId * 0x9E3779B97F4A7C15L) ^ block;
+        hash ^= hash >>> 29;
+        return stripes[(int) (hash & (STRIPES - 1))];
+    }
+
+    private record BlockKey(long fileId, long block) {
+    }
+
+    /**
+     * One lock stripe: a fixed number of block slots evicted in CLOCK order.
+     */
+    private static final class Stripe {
+        private final ByteBuffer arena;
+        private final int blockSize;
+        private final int[] lengths;
+        private final ClockSlots<BlockKey> slots;
+
+        Stripe(int capacity, int blockSize) {
+            this.arena = ByteBuffer.allocateDirect(capacity * blockSize);
+            this.blockSize = blockSize;
+            this.lengths = new int[capacity];
+            this.slots = new ClockSlots<>(capacity);
+        }
+
+        int capacity() {
+            return slots.capacity();
+        }
+
+        synchronized int size() {
+            return slots.size();
+        }
+
+        /**
+         * Copies the cached block's bytes from {@code offset} into {@code dst}.
+         *
+         * @return the number of bytes copied, or -1 if the block is not cached
+         */
+        synchronized int copy(long fileId, long block, ByteBuffer dst, int offset) {
+            int slot = slots.get(new BlockKey(fileId, block));
+            if (slot < 0) {
+                return -1;
+            }
+            int count = Math.min(dst.remaining(), lengths[slot] - offset);
+            dst.put(arena.slice(slot * blockSize + offset, count));
+            return count;
+        }
+
+        /**
+         * Caches a loaded block, unless another thread cached it meanwhile.
+         *
+         * @return true if a block was evicted to make room
+         */
+        synchronized boolean put(long fileId, long block, ByteBuffer data) {
+            BlockKey key = new BlockKey(fileId, block);
+            if (slots.contains(key)) {
+                return false;
+            }
+            boolean evicted = slots.size() == slots.capacity();
+            int slot = slots.add(key);
+            arena.put(slot * blockSize, data, 0, data.limit());
+            lengths[slot] = data.limit();
+            return evicted;
+        }
+
+        synchronized void invalidate(long fileId) {
+            slots.removeIf(key -> key.fileId() == fileId);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package storage;
+
+import storage.file.*;
+import storage.writer.*;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A storage wrapper reading segment files through a {@link BlockCache}, which may be shared
+ * with other storages.
+ *
+ * <p>Only {@link #openFile(String, IOContext)} is cached: segment files are immutable once
+ * written, while channels opened directly, e.g. for translogs, may be read as they grow. Files
+ * opened for {@link IOContext#READ_ONCE}, such as merge inputs, bypass the cache so they do not
+ * evict hot blocks. Each file name gets a cache file ID on first open; deleting, renaming onto
+ * or recreating a name drops its blocks. To cache compound files as well, wrap the
+ * {@link CompoundFileStorage} in this storage.</p>
+ */
+public class BlockCacheStorage extends Storage {
+    private final Storage delegate;
+    private final BlockCache cache;
+    private final ConcurrentMap<String, Long> fileIds = new ConcurrentHashMap<>();
+
+    public BlockCacheStorage(Storage delegate, BlockCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public long fileLength(String name) throws IOException {
+        return delegate.fileLength(name);
+    }
+
+    @Override
+    public boolean fileExists(String name) throws IOException {
+        return delegate.fileExists(name);
+    }
+
+    @Deprecated
+    @Override
+    public SegmentFile createFile(String name, FileType type) throws IOException {
+        return delegate.createFile(name, type);
+    }
+
+    @Override
+    public SegmentFileWriter createFileWriter(String name, FileType type, IOContext context) throws IOException {
+        invalidate(name + type.getExtension());
+        return delegate.createFileWriter(name, type, context);
+    }
+
+    @Override
+    public MetaFileWriter createMetaFileWriter(String name, SegmentMetadata metadata) throws IOException {
+        invalidate(name + FileType.META.getExtension());
+        return delegate.createMetaFileWriter(name, metadata);
+    }
+
+    @Override
+    public SegmentFile openFile(String name, IOContext context) throws IOException {
+        ensureOpen();
+        if (!context.cacheBlocks()) {
+            return delegate.openFile(name, context);
+        }
+        FileChannel channel = delegate.openChannel(name);
+        try {
+            long fileId = fileIds.computeIfAbsent(name, k -> cache.newFileId());
+            channel = new CachedFileChannel(channel, fileId, cache);
+            FeatherFileHeader header = FeatherFileHeader.readFrom(channel);
+            return newSegmentFile(channel, header.getFileType(), context.getReadBufferSize());
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public FileChannel createChannel(String name) throws IOException {
+        invalidate(name);
+        return delegate.createChannel(name);
+    }
+
+    @Override
+    public FileChannel openChannel(String name) throws IOException {
+        return delegate.openChannel(name);
+    }
+
+    @Override
+    public void deleteFile(String name) throws IOException {
+        delegate.deleteFile(name);
+        invalidate(name);
+    }
+
+    @Override
+    public String[] listFiles() throws IOException {
+        return delegate.listFiles();
+    }
+
+    @Override
+    public void rename(String source, String dest) throws IOException {
+        delegate.rename(source, dest);
+        invalidate(dest);
+        Long fileId = fileIds.remove(source);
+        if (fileId != null) {
+            fileIds.put(dest, fileId);
+        }
+    }
+
+    @Override
+    public void sync(Collection<String> names) throws IOException {
+        delegate.sync(names);
+    }
+
+    @Override
+    public void syncMetaData() throws IOException {
+        delegate.syncMetaData();
+    }
+
+    @Override
+    public long checksum(String name) throws IOException {
+        return delegate.checksum(name);
+    }
+
+    public Storage getDelegate() {
+        return delegate;
+    }
+
+    public BlockCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Drops this storage's blocks from the shared cache and closes the wrapped storage.
+     */
+    @Override
+    protected void closeInternal() throws IOException {
+        try {
+            for (Long fileId : fileIds.values()) {
+                cache.invalidate(fileId);
+            }
+            fileIds.clear();
+        } finally {
+            delegate.close();
+        }
+    }
+
+    private void invalidate(String name) {
+        Long fileId = fileIds.remove(name);
+        if (fileId != null) {
+            cache.invalidate(fileId);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package storage;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * The contents of an in-memory file: a list of pages taken from a {@link PagePool}.
+ *
+ * <p>Like a file on disk, a deleted file stays readable through channels opened before; its
+ * pages go back to the pool once the last of them is closed.</p>
+ */
+final class ByteBuffersFile {
+    private final PagePool pool;
+    private final int pageShift;
+    private final int pageMask;
+    private final List<ByteBuffer> pages = new ArrayList<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private long length;
+
+    // Guarded by this.
+    private int openChannels;
+    private boolean deleted;
+
+    ByteBuffersFile(PagePool pool) {
+        this.pool = pool;
+        this.pageShift = Integer.numberOfTrailingZeros(pool.pageSize());
+        this.pageMask = pool.pageSize() - 1;
+    }
+
+    long length() {
+        lock.readLock().lock();
+        try {
+            return length;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reads bytes at {@code position} into {@code dst}.
+     *
+     * @return the number of bytes read, or -1 if {@code position} is at or past the end
+     */
+    int read(ByteBuffer dst, long position) {
+        lock.readLock().lock();
+        try {
+            if (position >= length) {
+                return -1;
+            }
+            int total = (int) Math.min(dst.remaining(), length - position);
+            int remaining = total;
+            while (remaining > 0) {
+                ByteBuffer page = pages.get((int) (position >>> pageShift));
+                int offset = (int) (position & pageMask);
+                int chunk = Math.min(remaining, page.capacity() - offset);
+                dst.put(dst.position(), page, offset, chunk);
+                dst.position(dst.position() + chunk);
+                position += chunk;
+                remaining -= chunk;
+            }
+            return total;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the remaining bytes of {@code src} at {@code position}, growing the file as needed.
+     * A gap left before {@code position} reads as zeros.
+     *
+     * @return the number of bytes written
+     */
+    int write(ByteBuffer src, long position) {
+        lock.writeLock().lock();
+        try {
+            int total = src.remaining();
+            long end = position + total;
+            while (((long) pages.size() << pageShift) < end) {
+                pages.add(pool.acquire());
+            }
+            while (src.hasRemaining()) {
+                ByteBuffer page = pages.get((int) (position >>> pageShift));
+                int offset = (int) (position & pageMask);
+                int chunk = Math.min(src.remaining(), page.capacity() - offset);
+                page.put(offset, src, src.position(), chunk);
+                src.position(src.position() + chunk);
+                position += chunk;
+            }
+            length = Math.max(length, end);
+            return total;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Shortens the file to {@code size} bytes; a larger size leaves it unchanged.
+     */
+    void truncate(long size) {
+        lock.writeLock().lock();
+        try {
+            if (size >= length) {
+                return;
+            }
+            length = size;
+            int keep = (int) ((size + pageMask) >>> pageShift);
+            List<ByteBuffer> dropped = new ArrayList<>(pages.subList(keep, pages.size()));
+            pages.subList(keep, pages.size()).clear();
+            pool.release(dropped);
+            // Bytes past the end of the last page must read as zeros if the file grows again.
+            int tail = (int) (size & pageMask);
+            if (tail != 0) {
+                ByteBuffer last = pages.get(pages.size() - 1);
+                for (int i = tail; i < last.capacity(); i++) {
+                    last.put(i, (byte) 0);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    long checksum() {
+        lock.readLock().lock();
+        try {
+            CRC32 crc = new CRC32();
+            long remaining = length;
+            for (ByteBuffer page : pages) {
+                int chunk = (int) Math.min(remaining, page.capacity());
+                crc.update(page.duplicate().clear().limit(chunk));
+                remaining -= chunk;
+                if (remaining == 0) {
+                    break;
+                }
+            }
+            return crc.getValue();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    synchronized void retain() {
+        openChannels++;
+    }
+
+    synchronized void release() {
+        openChannels--;
+        freeIfUnused();
+    }
+
+    /**
+     * Marks the file deleted, freeing its pages now or when its last channel is closed.
+     */
+    synchronized void delete() {
+        deleted = true;
+        freeIfUnused();
+    }
+
+    private void freeIfUnused() {
+        if (!deleted || openChannels > 0) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            pool.release(pages);
+            pages.clear();
+            length = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
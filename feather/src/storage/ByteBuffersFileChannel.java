@@ -0,0 +1,199 @@
+package storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A {@link FileChannel} over a {@link ByteBuffersFile}, so the segment file readers and
+ * writers work unchanged on an in-memory storage. Memory mapping and locking are not supported.
+ */
+final class ByteBuffersFileChannel extends FileChannel {
+    private static final int TRANSFER_CHUNK_SIZE = 8192;
+
+    private final ByteBuffersFile file;
+    private final boolean writable;
+    private long position;
+
+    ByteBuffersFileChannel(ByteBuffersFile file, boolean writable) {
+        this.file = file;
+        this.writable = writable;
+        file.retain();
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        int read = read(dst, position);
+        if (read > 0) {
+            position += read;
+        }
+        return read;
+    }
+
+    @Override
+    public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+        long total = 0;
+        for (int i = offset; i < offset + length; i++) {
+            int read = read(dsts[i]);
+            if (read < 0) {
+                return total == 0 ? -1 : total;
+            }
+            total += read;
+            if (dsts[i].hasRemaining()) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    @Override
+    public int read(ByteBuffer dst, long position) throws IOException {
+        ensureOpen();
+        if (position < 0) {
+            throw new IllegalArgumentException("Negative position");
+        }
+        if (!dst.hasRemaining()) {
+            return 0;
+        }
+        return file.read(dst, position);
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        int written = write(src, position);
+        position += written;
+        return written;
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+        long total = 0;
+        for (int i = offset; i < offset + length; i++) {
+            total += write(srcs[i]);
+        }
+        return total;
+    }
+
+    @Override
+    public int write(ByteBuffer src, long position) throws IOException {
+        ensureOpen();
+        if (!writable) {
+            throw new NonWritableChannelException();
+        }
+        if (position < 0) {
+            throw new IllegalArgumentException("Negative position");
+        }
+        return file.write(src, position);
+    }
+
+    @Override
+    public long position() throws IOException {
+        ensureOpen();
+        return position;
+    }
+
+    @Override
+    public FileChannel position(long newPosition) throws IOException {
+        ensureOpen();
+        if (newPosition < 0) {
+            throw new IllegalArgumentException("Negative position");
+        }
+        position = newPosition;
+        return this;
+    }
+
+    @Override
+    public long size() throws IOException {
+        ensureOpen();
+        return file.length();
+    }
+
+    @Override
+    public FileChannel truncate(long size) throws IOException {
+        ensureOpen();
+        if (!writable) {
+            throw new NonWritableChannelException();
+        }
+        file.truncate(size);
+        position = Math.min(position, size);
+        return this;
+    }
+
+    /**
+     * Does nothing; the contents live in memory only.
+     */
+    @Override
+    public void force(boolean metaData) throws IOException {
+        ensureOpen();
+    }
+
+    @Override
+    public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+        ensureOpen();
+        ByteBuffer chunk = ByteBuffer.allocate((int) Math.min(count, TRANSFER_CHUNK_SIZE));
+        long transferred = 0;
+        while (transferred < count) {
+            chunk.clear().limit((int) Math.min(chunk.capacity(), count - transferred));
+            int read = file.read(chunk, position + transferred);
+            if (read <= 0) {
+                break;
+            }
+            chunk.flip();
+            while (chunk.hasRemaining()) {
+                target.write(chunk);
+            }
+            transferred += read;
+        }
+        return transferred;
+    }
+
+    @Override
+    public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+        ensureOpen();
+        ByteBuffer chunk = ByteBuffer.allocate((int) Math.min(count, TRANSFER_CHUNK_SIZE));
+        long transferred = 0;
+        while (transferred < count) {
+            chunk.clear().limit((int) Math.min(chunk.capacity(), count - transferred));
+            int read = src.read(chunk);
+            if (read <= 0) {
+                break;
+            }
+            chunk.flip();
+            write(chunk, position + transferred);
+            transferred += read;
+        }
+        return transferred;
+    }
+
+    @Override
+    public MappedByteBuffer map(MapMode mode, long position, long size) {
+        throw new UnsupportedOperationException("In-memory files cannot be mapped");
+    }
+
+    @Override
+    public FileLock lock(long position, long size, boolean shared) {
+        throw new UnsupportedOperationException("In-memory files cannot be locked");
+    }
+
+    @Override
+    public FileLock tryLock(long position, long size, boolean shared) {
+        throw new UnsupportedOperationException("In-memory files cannot be locked");
+    }
+
+    @Override
+    protected void implCloseChannel() {
+        file.release();
+    }
+
+    private void ensureOpen() throws ClosedChannelException {
+        if (!isOpen()) {
+            throw new ClosedChannelException();
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package storage;
+
+import storage.file.*;
+import storage.writer.*;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Storage keeping all files in memory as lists of pooled {@link java.nio.ByteBuffer} pages,
+ * on the heap or off it.
+ *
+ * <p>Meant for ephemeral indexes, tests and hot data that fits in memory, and for measuring
+ * the engine's CPU cost without disk I/O. Nothing survives closing the storage; sync
+ * operations only check their arguments.</p>
+ */
+public class ByteBuffersStorage extends Storage {
+    public static final int DEFAULT_PAGE_SIZE = 16 * 1024;
+    private static final int BUFFER_SIZE = 8192;
+    private static final int MAX_FREE_PAGES = 1024;
+
+    private final ConcurrentMap<String, ByteBuffersFile> files = new ConcurrentHashMap<>();
+    private final PagePool pool;
+
+    /**
+     * Creates a storage on heap pages of {@value #DEFAULT_PAGE_SIZE} bytes.
+     */
+    public ByteBuffersStorage() {
+        this(DEFAULT_PAGE_SIZE, false);
+    }
+
+    /**
+     * @param pageSize the size of a page, a power of two
+     * @param direct   whether pages are allocated off the heap
+     */
+    public ByteBuffersStorage(int pageSize, boolean direct) {
+        this.pool = new PagePool(pageSize, direct, MAX_FREE_PAGES);
+    }
+
+    @Override
+    public long fileLength(String name) throws IOException {
+        return file(name).length();
+    }
+
+    @Override
+    public boolean fileExists(String name) throws IOException {
+        ensureOpen();
+        validateFileName(name);
+        return files.containsKey(name);
+    }
+
+    @Deprecated
+    @Override
+    public SegmentFile createFile(String name, FileType type) throws IOException {
+        throw new UnsupportedOperationException(
+                "Direct file creation is no longer supported. Use createSegmentFileWriter() instead.");
+    }
+
+    @Override
+    public SegmentFileWriter createFileWriter(String name, FileType type, IOContext context) throws IOException {
+        checkFileWriterType(type);
+        ByteBuffersFile file = newFile(name + type.getExtension());
+        FileChannel channel = new ByteBuffersFileChannel(file, true);
+        try {
+            return newSegmentFileWriter(channel, () -> new ByteBuffersFileChannel(file, false), type,
+                    context.getWriteBufferSize());
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            deleteFile(name + type.getExtension());
+            throw e;
+        }
+    }
+
+    @Override
+    public MetaFileWriter createMetaFileWriter(String name, SegmentMetadata metadata) throws IOException {
+        ByteBuffersFile file = newFile(name + FileType.META.getExtension());
+        FileChannel channel = new ByteBuffersFileChannel(file, true);
+        try {
+            return new MetaFileWriter(channel, () -> new ByteBuffersFileChannel(file, false), BUFFER_SIZE, metadata);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            deleteFile(name + FileType.META.getExtension());
+            throw e;
+        }
+    }
+
+    @Override
+    public SegmentFile openFile(String name, IOContext context) throws IOException {
+        FileChannel channel = new ByteBuffersFileChannel(file(name), false);
+        try {
+            FeatherFileHeader header = FeatherFileHeader.readFrom(channel);
+            return newSegmentFile(channel, header.getFileType(), context.getReadBufferSize());
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public FileChannel createChannel(String name) throws IOException {
+        return new ByteBuffersFileChannel(newFile(name), true);
+    }
+
+    @Override
+    public FileChannel openChannel(String name) throws IOException {
+        return new ByteBuffersFileChannel(file(name), false);
+    }
+
+    @Override
+    public void deleteFile(String name) throws IOException {
+        ensureOpen();
+        validateFileName(name);
+        ByteBuffersFile file = files.remove(name);
+        if (file != null) {
+            file.delete();
+        }
+    }
+
+    @Override
+    public String[] listFiles() throws IOException {
+        ensureOpen();
+        return files.keySet().toArray(String[]::new);
+    }
+
+    @Override
+    public synchronized void rename(String source, String dest) throws IOException {
+        ensureOpen();
+        validateFileName(source);
+        validateFileName(dest);
+        if (source.equals(dest)) {
+            return;
+        }
+        ByteBuffersFile file = files.get(source);
+        if (file == null) {
+            throw new IOException("Source file does not exist: " + source);
+        }
+        if (files.putIfAbsent(dest, file) != null) {
+            throw new IOException("Destination file already exists: " + dest);
+        }
+        files.remove(source);
+    }
+
+    @Override
+    public void sync(Collection<String> names) throws IOException {
+        ensureOpen();
+        for (String name : names) {
+            file(name);
+        }
+    }
+
+    @Override
+    public void syncMetaData() throws IOException {
+        ensureOpen();
+    }
+
+    @Override
+    public long checksum(String name) throws IOException {
+        return file(name).checksum();
+    }
+
+    /**
+     * Returns the memory held by this storage's pages, including pooled free pages.
+     */
+    public long ramBytesUsed() {
+        return pool.allocatedBytes();
+    }
+
+    @Override
+    protected void closeInternal() throws IOException {
+        for (String name : files.keySet()) {
+            ByteBuffersFile file = files.remove(name);
+            if (file != null) {
+                file.delete();
+            }
+        }
+    }
+
+    private ByteBuffersFile file(String name) throws IOException {
+        ensureOpen();
+        validateFileName(name);
+        ByteBuffersFile file = files.get(name);
+        if (file == null) {
+            throw new IOException("File does not exist: " + name);
+        }
+        return file;
+    }
+
+    private ByteBuffersFile newFile(String name) throws IOException {
+        ensureOpen();
+        validateFileName(name);
+        ByteBuffersFile file = new ByteBuffersFile(pool);
+        if (files.putIfAbsent(name, file) != null) {
+            throw new FileAlreadyExistsException(name);
+        }
+        return file;
+    }
+}
@@ -0,0 +1,94 @@
+package storage;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Assigns keys to a fixed number of cache slots, evicting with the CLOCK policy: a lookup marks
+ * its slot referenced, and the hand sweeping for a slot clears the marks it passes and takes the
+ * first unreferenced one. New keys start unreferenced, so a stream of one-off keys cycles through
+ * the slots rather than evicting keys that are looked up again.
+ *
+ * <p>Only the slots are managed here; the cache holds the values in its own arrays indexed by
+ * slot. Not thread-safe: the cache guards it with its own lock.</p>
+ */
+public final class ClockSlots<K> {
+    private final Object[] keys;
+    private final boolean[] referenced;
+    private final Map<K, Integer> slots;
+    private int hand;
+
+    public ClockSlots(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.keys = new Object[capacity];
+        this.referenced = new boolean[capacity];
+        this.slots = new HashMap<>(capacity * 2);
+    }
+
+    public int capacity() {
+        return keys.length;
+    }
+
+    public int size() {
+        return slots.size();
+    }
+
+    public boolean contains(K key) {
+        return slots.containsKey(key);
+    }
+
+    /**
+     * Returns the slot of a key and marks it referenced.
+     *
+     * @return the slot, or -1 if the key has none
+     */
+    public int get(K key) {
+        Integer slot = slots.get(key);
+        if (slot == null) {
+            return -1;
+        }
+        referenced[slot] = true;
+        return slot;
+    }
+
+    /**
+     * Assigns a slot to a key that has none, evicting the key in it if every slot is taken.
+     *
+     * @return the slot, whose previous value the caller overwrites
+     */
+    public int add(K key) {
+        while (keys[hand] != null && referenced[hand]) {
+            referenced[hand] = false;
+            hand = (hand + 1) % keys.length;
+        }
+        int slot = hand;
+        if (keys[slot] != null) {
+            slots.remove(keys[slot]);
+        }
+        keys[slot] = key;
+        referenced[slot] = false;
+        slots.put(key, slot);
+        hand = (hand + 1) % keys.length;
+        return slot;
+    }
+
+    /**
+     * Frees the slots of the keys matching the filter.
+     */
+    public void removeIf(Predicate<K> filter) {
+        Iterator<Map.Entry<K, Integer>> it = slots.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<K, Integer> entry = it.next();
+            if (filter.test(entry.getKey())) {
+                int slot = entry.getValue();
+                keys[slot] = null;
+                referenced[slot] = false;
+                it.remove();
+            }
+        }
+    }
+}
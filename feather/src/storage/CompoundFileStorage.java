@@ -0,0 +1,481 @@
+package storage;
+
+import storage.file.*;
+import storage.writer.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.CRC32;
+
+/**
+ * A storage wrapper that packs the data files of small segments into one compound file,
+ * {@code <segment>.cfs}, so that an open segment holds one file handle instead of five.
+ *
+ * <p>Packing is transparent. Files are written individually as usual; when a segment's files
+ * are first synced, i.e. when a commit or merge makes the segment durable, and they add up to at
+ * most {@code maxSegmentBytes}, they are copied into a compound file. The individual files are
+ * deleted after the next {@link #syncMetaData()} has made the compound file's name durable.
+ * Callers keep using the individual names: reads are served from slices of one channel shared
+ * per compound file, and the compound file is deleted with the last of its entries. Live docs
+ * are never packed, since every deletion generation writes a new file.</p>
+ *
+ * <p>Compound file layout: magic (4), version (4), the packed files back to back, then the entry
+ * table: count (4), per entry name (2-byte length and UTF-8), offset (8) and length (8), and a
+ * trailer: table position (8), magic (4).</p>
+ */
+public class CompoundFileStorage extends Storage {
+    public static final String EXTENSION = ".cfs";
+    public static final long DEFAULT_MAX_SEGMENT_BYTES = 16L * 1024 * 1024;
+    private static final int MAGIC = 0x46434653; // "FCFS"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int TRAILER_SIZE = 12;
+    private static final Set<FileType> PACKED_TYPES =
+            Set.of(FileType.DOC, FileType.DIC, FileType.POST, FileType.POINTS, FileType.META);
+
+    private final Storage delegate;
+    private final long maxSegmentBytes;
+    private final ConcurrentMap<String, CompoundFile> compoundFiles = new ConcurrentHashMap<>();
+    // Guarded by this: packable files written through this storage and not synced yet, by
+    // segment, and packed files whose deletion waits for the next syncMetaData().
+    private final Map<String, Set<String>> unsynced = new HashMap<>();
+    private final List<String> packedOriginals = new ArrayList<>();
+
+    public CompoundFileStorage(Storage delegate) throws IOException {
+        this(delegate, DEFAULT_MAX_SEGMENT_BYTES);
+    }
+
+    /**
+     * @param maxSegmentBytes the largest total size of a segment's files that is packed
+     */
+    public CompoundFileStorage(Storage delegate, long maxSegmentBytes) throws IOException {
+        this.delegate = delegate;
+        this.maxSegmentBytes = maxSegmentBytes;
+        for (String name : delegate.listFiles()) {
+            if (name.endsWith(EXTENSION)) {
+                CompoundFile compoundFile = CompoundFile.read(delegate, name);
+                if (compoundFile != null) {
+                    compoundFiles.put(name, compoundFile);
+                }
+            }
+        }
+    }
+
+    @Override
+    public long fileLength(String name) throws IOException {
+        Entry entry = entry(name);
+        return entry != null ? entry.length() : delegate.fileLength(name);
+    }
+
+    @Override
+    public boolean fileExists(String name) throws IOException {
+        return entry(name) != null || delegate.fileExists(name);
+    }
+
+    @Deprecated
+    @Override
+    public SegmentFile createFile(String name, FileType type) throws IOException {
+        return delegate.createFile(name, type);
+    }
+
+    @Override
+    public SegmentFileWriter createFileWriter(String name, FileType type, IOContext context) throws IOException {
+        SegmentFileWriter writer = delegate.createFileWriter(name, type, context);
+        if (PACKED_TYPES.contains(type)) {
+            recordWritten(name, name + type.getExtension());
+        }
+        return writer;
+    }
+
+    @Override
+    public MetaFileWriter createMetaFileWriter(String name, SegmentMetadata metadata) throws IOException {
+        MetaFileWriter writer = delegate.createMetaFileWriter(name, metadata);
+        recordWritten(name, name + FileType.META.getExtension());
+        return writer;
+    }
+
+    @Override
+    public SegmentFile openFile(String name, IOContext context) throws IOException {
+        Entry entry = entry(name);
+        if (entry == null) {
+            return delegate.openFile(name, context);
+        }
+        FileChannel channel = openSlice(name, entry);
+        try {
+            FeatherFileHeader header = FeatherFileHeader.readFrom(channel);
+            return newSegmentFile(channel, header.getFileType(), context.getReadBufferSize());
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public FileChannel createChannel(String name) throws IOException {
+        return delegate.createChannel(name);
+    }
+
+    @Override
+    public FileChannel openChannel(String name) throws IOException {
+        Entry entry = entry(name);
+        return entry != null ? openSlice(name, entry) : delegate.openChannel(name);
+    }
+
+    @Override
+    public void deleteFile(String name) throws IOException {
+        delegate.deleteFile(name);
+        synchronized (this) {
+            Set<String> pending = unsynced.get(segmentOf(name));
+            if (pending != null && pending.remove(name) && pending.isEmpty()) {
+                unsynced.remove(segmentOf(name));
+            }
+            packedOriginals.remove(name);
+        }
+        String compoundName = segmentOf(name) + EXTENSION;
+        CompoundFile compoundFile = compoundFiles.get(compoundName);
+        if (compoundFile != null && compoundFile.delete(name)) {
+            compoundFiles.remove(compoundName);
+            delegate.deleteFile(compoundName);
+            System.out.println("Deleted compound file " + compoundName);
+        }
+    }
+
+    /**
+     * Lists the files of the wrapped storage, with each compound file replaced by the files it
+     * contains. Compound files that cannot be read are listed as they are.
+     */
+    @Override
+    public String[] listFiles() throws IOException {
+        Set<String> names = new LinkedHashSet<>();
+        for (String name : delegate.listFiles()) {
+            CompoundFile compoundFile = name.endsWith(EXTENSION) ? compoundFiles.get(name) : null;
+            if (compoundFile != null) {
+                names.addAll(compoundFile.liveEntries());
+            } else {
+                names.add(name);
+            }
+        }
+        return names.toArray(String[]::new);
+    }
+
+    @Override
+    public void rename(String source, String dest) throws IOException {
+        if (entry(source) != null && !delegate.fileExists(source)) {
+            throw new IOException("Cannot rename " + source + ", it is packed in a compound file");
+        }
+        delegate.rename(source, dest);
+    }
+
+    /**
+     * Syncs the named files. A segment whose packable files are all named and small enough is
+     * packed into a compound file instead, which is synced in their place.
+     */
+    @Override
+    public synchronized void sync(Collection<String> names) throws IOException {
+        ensureOpen();
+        Map<String, List<String>> bySegment = new HashMap<>();
+        List<String> direct = new ArrayList<>(names.size());
+        for (String name : names) {
+            validateFileName(name);
+            Set<String> pending = unsynced.get(segmentOf(name));
+            if (pending != null && pending.contains(name)) {
+                bySegment.computeIfAbsent(segmentOf(name), k -> new ArrayList<>()).add(name);
+            } else if (entry(name) == null || delegate.fileExists(name)) {
+                direct.add(name);
+            }
+            // Otherwise the file is packed and its compound file was synced when written.
+        }
+
+        for (Map.Entry<String, List<String>> group : bySegment.entrySet()) {
+            String segment = group.getKey();
+            Set<String> pending = unsynced.get(segment);
+            List<String> files = group.getValue();
+            if (files.size() == pending.size() && totalLength(files) <= maxSegmentBytes && pack(segment, files)) {
+                unsynced.remove(segment);
+                continue;
+            }
+            direct.addAll(files);
+            files.forEach(pending::remove);
+            if (pending.isEmpty()) {
+                unsynced.remove(segment);
+            }
+        }
+        delegate.sync(direct);
+    }
+
+    /**
+     * Syncs the wrapped storage's metadata, then deletes the individual files of segments packed
+     * since, as their compound files are now durable.
+     */
+    @Override
+    public void syncMetaData() throws IOException {
+        ensureOpen();
+        delegate.syncMetaData();
+        List<String> originals;
+        synchronized (this) {
+            originals = new ArrayList<>(packedOriginals);
+            packedOriginals.clear();
+        }
+        for (String name : originals) {
+            try {
+                delegate.deleteFile(name);
+            } catch (IOException e) {
+                System.err.println("Failed to delete packed file " + name + ": " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public long checksum(String name) throws IOException {
+        Entry entry = entry(name);
+        if (entry == null) {
+            return delegate.checksum(name);
+        }
+        CRC32 crc = new CRC32();
+        ByteBuffer chunk = ByteBuffer.allocate(64 * 1024);
+        try (FileChannel channel = openSlice(name, entry)) {
+            while (channel.read(chunk) >= 0) {
+                chunk.flip();
+                crc.update(chunk);
+                chunk.clear();
+            }
+        }
+        return crc.getValue();
+    }
+
+    public Storage getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    protected void closeInternal() throws IOException {
+        try {
+            for (CompoundFile compoundFile : compoundFiles.values()) {
+                compoundFile.close();
+            }
+        } finally {
+            delegate.close();
+        }
+    }
+
+    private synchronized void recordWritten(String segment, String fileName) {
+        unsynced.computeIfAbsent(segment, k -> new TreeSet<>()).add(fileName);
+    }
+
+    private long totalLength(List<String> files) throws IOException {
+        long total = 0;
+        for (String file : files) {
+            total += delegate.fileLength(file);
+        }
+        return total;
+    }
+
+    /**
+     * Copies a segment's files into a new, synced compound file.
+     *
+     * @return false if packing failed and the files stay as they are
+     */
+    private boolean pack(String segment, List<String> files) throws IOException {
+        String compoundName = segment + EXTENSION;
+        Map<String, Entry> entries = new HashMap<>();
+        try {
+            // Left over by a crash while packing; its segment was never committed packed.
+            delegate.deleteFile(compoundName);
+            try (FileChannel out = delegate.createChannel(compoundName)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).flip();
+                writeFully(out, header, 0);
+                long position = HEADER_SIZE;
+                for (String file : new TreeSet<>(files)) {
+                    try (FileChannel in = delegate.openChannel(file)) {
+                        long length = in.size();
+                        long copied = 0;
+                        while (copied < length) {
+                            copied += in.transferTo(copied, length - copied, out.position(position + copied));
+                        }
+                        entries.put(file, new Entry(position, length));
+                        position += length;
+                    }
+                }
+                writeFully(out, encodeTable(entries, position), position);
+                out.force(false);
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to pack " + segment + ", keeping its files: " + e.getMessage());
+            delegate.deleteFile(compoundName);
+            return false;
+        }
+        compoundFiles.put(compoundName, new CompoundFile(delegate, compoundName, entries));
+        packedOriginals.addAll(files);
+        System.out.println("Packed " + files.size() + " files of " + segment + " into " + compoundName);
+        return true;
+    }
+
+    private static ByteBuffer encodeTable(Map<String, Entry> entries, long tablePosition) {
+        int size = 4 + TRAILER_SIZE;
+        for (String name : entries.keySet()) {
+            size += 2 + name.getBytes(StandardCharsets.UTF_8).length + 16;
+        }
+        ByteBuffer table = ByteBuffer.allocate(size);
+        table.putInt(entries.size());
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            byte[] name = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            table.putShort((short) name.length).put(name);
+            table.putLong(entry.getValue().offset()).putLong(entry.getValue().length());
+        }
+        table.putLong(tablePosition).putInt(MAGIC);
+        return table.flip();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer data, long position) throws IOException {
+        while (data.hasRemaining()) {
+            position += channel.write(data, position);
+        }
+    }
+
+    private Entry entry(String name) throws IOException {
+        ensureOpen();
+        validateFileName(name);
+        CompoundFile compoundFile = compoundFiles.get(segmentOf(name) + EXTENSION);
+        return compoundFile != null ? compoundFile.entry(name) : null;
+    }
+
+    private FileChannel openSlice(String name, Entry entry) throws IOException {
+        CompoundFile compoundFile = compoundFiles.get(segmentOf(name) + EXTENSION);
+        if (compoundFile == null) {
+            throw new IOException("File does not exist: " + name);
+        }
+        return new SliceFileChannel(compoundFile.acquire(), entry.offset(), entry.length(), compoundFile::release);
+    }
+
+    private static String segmentOf(String fileName) {
+        int dot = fileName.indexOf('.');
+        return dot < 0 ? fileName : fileName.substring(0, dot);
+    }
+
+    private record Entry(long offset, long length) {
+    }
+
+    /**
+     * A compound file's entry table and the channel its slices share, which is open while any
+     * slice is.
+     */
+    private static final class CompoundFile {
+        private final Storage storage;
+        private final String name;
+        private final Map<String, Entry> entries;
+        private final Set<String> deleted = ConcurrentHashMap.newKeySet();
+        private FileChannel channel;
+        private int openSlices;
+
+        CompoundFile(Storage storage, String name, Map<String, Entry> entries) {
+            this.storage = storage;
+            this.name = name;
+            this.entries = Map.copyOf(entries);
+        }
+
+        /**
+         * Reads the entry table of a compound file.
+         *
+         * @return the compound file, or null if it is incomplete or not a compound file
+         */
+        static CompoundFile read(Storage storage, String name) throws IOException {
+            try (FileChannel channel = storage.openChannel(name)) {
+                long size = channel.size();
+                if (size < HEADER_SIZE + 4 + TRAILER_SIZE) {
+                    return null;
+                }
+                ByteBuffer trailer = ByteBuffer.allocate(TRAILER_SIZE);
+                channel.read(trailer, size - TRAILER_SIZE);
+                trailer.flip();
+                long tablePosition = trailer.getLong();
+                if (trailer.getInt() != MAGIC || tablePosition < HEADER_SIZE || tablePosition > size - TRAILER_SIZE - 4) {
+                    return null;
+                }
+                ByteBuffer table = ByteBuffer.allocate((int) (size - TRAILER_SIZE - tablePosition));
+                channel.read(table, tablePosition);
+                table.flip();
+                int count = table.getInt();
+                Map<String, Entry> entries = new HashMap<>(count * 2);
+                for (int i = 0; i < count; i++) {
+                    byte[] entryName = new byte[table.getShort()];
+                    table.get(entryName);
+                    entries.put(new String(entryName, StandardCharsets.UTF_8), new Entry(table.getLong(), table.getLong()));
+                }
+                return new CompoundFile(storage, name, entries);
+            } catch (RuntimeException e) {
+                System.err.println("Ignoring unreadable compound file " + name + ": " + e.getMessage());
+                return null;
+            }
+        }
+
+        Entry entry(String fileName) {
+            return deleted.contains(fileName) ? null : entries.get(fileName);
+        }
+
+        List<String> liveEntries() {
+            List<String> live = new ArrayList<>(entries.size());
+            for (String fileName : entries.keySet()) {
+                if (!deleted.contains(fileName)) {
+                    live.add(fileName);
+                }
+            }
+            return live;
+        }
+
+        /**
+         * Marks an entry deleted.
+         *
+         * @return true if no entry is left, so the compound file itself can be deleted
+         */
+        boolean delete(String fileName) {
+            if (!entries.containsKey(fileName)) {
+                return false;
+            }
+            deleted.add(fileName);
+            return deleted.size() == entries.size();
+        }
+
+        synchronized FileChannel acquire() throws IOException {
+            if (channel == null) {
+                channel = storage.openChannel(name);
+            }
+            openSlices++;
+            return channel;
+        }
+
+        synchronized void release() {
+            if (--openSlices == 0) {
+                closeQuietly();
+            }
+        }
+
+        synchronized void close() {
+            openSlices = 0;
+            closeQuietly();
+        }
+
+        private void closeQuietly() {
+            if (channel == null) {
+                return;
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Failed to close compound file " + name + ": " + e.getMessage());
+            }
+            channel = null;
+        }
+    }
+}
@@ -4,12 +4,23 @@ import storage.file.*;
 import storage.writer.*;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Stream;
+import java.util.zip.CRC32;
 
 /**
  * FileSystemStorage provides file system based implementation of the Storage interface.
@@ -18,6 +29,11 @@ import java.util.stream.Stream;
 public class FileSystemStorage extends Storage {
     private final Path rootPath;
     private static final int BUFFER_SIZE = 8192;
+    private static final int SYNC_THREADS = 4;
+
+    // Files written through this storage and not synced since; sync() skips all others.
+    private final Set<String> pendingSyncs = ConcurrentHashMap.newKeySet();
+    private ExecutorService syncExecutor;
 
     public FileSystemStorage(Path rootPath) {
         this.rootPath = rootPath;
@@ -51,11 +67,12 @@ public class FileSystemStorage extends Storage {
      * Opens a segment file for reading.
      * 
      * @param name The name of the file to open
+     * @param context How the file is going to be read
      * @return A read-only SegmentFile instance
      * @throws IOException If an I/O error occurs
      */
     @Override
-    public SegmentFile openFile(String name) throws IOException {
+    public SegmentFile openFile(String name, IOContext context) throws IOException {
         ensureOpen();
         validateFileName(name);
 
@@ -69,7 +86,7 @@ public class FileSystemStorage extends Storage {
         try {
             channel = FileChannel.open(filePath, StandardOpenOption.READ);
             FeatherFileHeader header = FeatherFileHeader.readFrom(channel);
-            return createSegmentFile(channel, header.getFileType());
+            return newSegmentFile(channel, header.getFileType(), context.getReadBufferSize());
         } catch (IOException e) {
             if (channel != null) {
                 try {
@@ -88,16 +105,48 @@ public class FileSystemStorage extends Storage {
      * 
      * @param name The name of the file to create
      * @param type The type of file to create
+     * @param context How the file is going to be written
      * @return A SegmentFileWriter instance for writing to the file
      * @throws IOException If an I/O error occurs
      */
     @Override
-    public SegmentFileWriter createFileWriter(String name, FileType type) throws IOException {
+    public SegmentFileWriter createFileWriter(String name, FileType type, IOContext context) throws IOException {
         ensureOpen();
         validateFileName(name);
         Path filePath = rootPath.resolve(name + type.getExtension());
-        
-        return createSegmentFileWriter(filePath, type);
+
+        checkFileWriterType(type);
+        FileChannel channel = FileChannel.open(filePath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        SegmentFileWriter writer;
+        try {
+            writer = newSegmentFileWriter(channel, () -> FileChannel.open(filePath, StandardOpenOption.READ),
+                    type, context.getWriteBufferSize());
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            Files.deleteIfExists(filePath);
+            throw e;
+        }
+        pendingSyncs.add(name + type.getExtension());
+        return writer;
+    }
+
+    @Override
+    public FileChannel createChannel(String name) throws IOException {
+        ensureOpen();
+        validateFileName(name);
+        return FileChannel.open(rootPath.resolve(name), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    @Override
+    public FileChannel openChannel(String name) throws IOException {
+        ensureOpen();
+        validateFileName(name);
+        Path filePath = rootPath.resolve(name);
+        if (!Files.exists(filePath)) {
+            throw new IOException("File does not exist: " + name);
+        }
+        return FileChannel.open(filePath, StandardOpenOption.READ);
     }
 
     @Override
@@ -105,6 +154,7 @@ public class FileSystemStorage extends Storage {
         ensureOpen();
         validateFileName(name);
         Files.deleteIfExists(rootPath.resolve(name));
+        pendingSyncs.remove(name);
     }
 
     @Override
@@ -141,25 +191,87 @@ public class FileSystemStorage extends Storage {
 
         // Atomically moves file
         Files.move(sourcePath, destPath);
+        if (pendingSyncs.remove(source)) {
+            pendingSyncs.add(dest);
+        }
     }
 
+    /**
+     * Forces the named files to disk. Only files written through this storage since they were
+     * last synced need it; the others are skipped. Several files are forced in parallel, so a
+     * commit waits for about one fsync rather than one per file. File sizes are part of the
+     * data that {@code force(false)} writes; new directory entries are made durable by
+     * {@link #syncMetaData()}.
+     */
     @Override
     public void sync(Collection<String> names) throws IOException {
         ensureOpen();
+        List<String> toSync = new ArrayList<>(names.size());
         for (String name : names) {
             validateFileName(name);
-            Path filePath = rootPath.resolve(name);
-
-            if (!Files.exists(filePath)) {
+            if (!Files.exists(rootPath.resolve(name))) {
                 throw new IOException("File does not exist: " + name);
             }
+            if (pendingSyncs.contains(name)) {
+                toSync.add(name);
+            }
+        }
+        if (toSync.isEmpty()) {
+            return;
+        }
 
-            try (FileChannel channel = FileChannel.open(filePath,
-                    StandardOpenOption.READ,
-                    StandardOpenOption.WRITE)) {
-                channel.force(true);
+        // The calling thread forces the last file itself instead of idling.
+        List<Future<?>> futures = new ArrayList<>(toSync.size() - 1);
+        for (String name : toSync.subList(0, toSync.size() - 1)) {
+            futures.add(syncExecutor().submit(() -> {
+                force(name);
+                return null;
+            }));
+        }
+        IOException failure = null;
+        try {
+            force(toSync.get(toSync.size() - 1));
+        } catch (IOException e) {
+            failure = e;
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                IOException cause = e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+                if (failure == null) {
+                    failure = cause;
+                } else {
+                    failure.addSuppressed(cause);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while syncing files");
             }
         }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void force(String name) throws IOException {
+        try (FileChannel channel = FileChannel.open(rootPath.resolve(name),
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            channel.force(false);
+        }
+        pendingSyncs.remove(name);
+    }
+
+    private synchronized ExecutorService syncExecutor() {
+        if (syncExecutor == null) {
+            syncExecutor = Executors.newFixedThreadPool(SYNC_THREADS, r -> {
+                Thread thread = new Thread(r, "feather-fsync");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return syncExecutor;
     }
 
     @Override
@@ -170,6 +282,22 @@ public class FileSystemStorage extends Storage {
         }
     }
 
+    @Override
+    public long checksum(String name) throws IOException {
+        ensureOpen();
+        validateFileName(name);
+        CRC32 crc = new CRC32();
+        ByteBuffer chunk = ByteBuffer.allocate(64 * 1024);
+        try (FileChannel channel = FileChannel.open(rootPath.resolve(name), StandardOpenOption.READ)) {
+            while (channel.read(chunk) >= 0) {
+                chunk.flip();
+                crc.update(chunk);
+                chunk.clear();
+            }
+        }
+        return crc.getValue();
+    }
+
     /**
      * Lists all files of a specific type in the storage directory.
      * 
@@ -189,54 +317,12 @@ public class FileSystemStorage extends Storage {
     }
 
     @Override
-    protected void closeInternal() throws IOException {
-        // Reserved for future resource cleanup (caches, buffer pools, etc.)
-    }
-
-    /**
-     * Validates file name format.
-     * 
-     * @param name The file name to validate
-     * @throws IllegalArgumentException If the file name is invalid
-     */
-    private void validateFileName(String name) {
-        if (name == null || name.trim().isEmpty()) {
-            throw new IllegalArgumentException("File name cannot be null or empty");
-        }
-        if (name.contains("..") || name.contains("/") || name.contains("\\")) {
-            throw new IllegalArgumentException("File name contains invalid characters");
+    protected synchronized void closeInternal() throws IOException {
+        if (syncExecutor != null) {
+            syncExecutor.shutdown();
         }
     }
 
-    /**
-     * Creates the appropriate SegmentFile instance based on file type.
-     */
-    private SegmentFile createSegmentFile(FileChannel channel, FileType type) throws IOException {
-        return switch (type) {
-            case DOC -> new DocumentFile(channel, BUFFER_SIZE);
-            case DIC -> new DictionaryFile(channel, BUFFER_SIZE);
-            case POST -> new PostingFile(channel, BUFFER_SIZE);
-            case META -> new MetaFile(channel, BUFFER_SIZE);
-        };
-    }
-
-    /**
-     * Creates the appropriate SegmentFileWriter instance based on file type.
-     */
-    private SegmentFileWriter createSegmentFileWriter(Path path, FileType type) throws IOException {
-        return switch (type) {
-            case DOC -> new DocumentFileWriter(path, BUFFER_SIZE);
-            case DIC -> new DictionaryFileWriter(path, BUFFER_SIZE);
-            case POST -> new PostingFileWriter(path, BUFFER_SIZE);
-            case META -> {
-                // MetaFileWriter requires a SegmentMetadata instance
-                // This is a placeholder - actual usage would require passing metadata
-                throw new IllegalArgumentException(
-                        "MetaFileWriter requires SegmentMetadata. Use createMetaFileWriter() instead.");
-            }
-        };
-    }
-
     /**
      * Creates a MetaFileWriter with the provided metadata.
      */
@@ -245,7 +331,9 @@ public class FileSystemStorage extends Storage {
         ensureOpen();
         validateFileName(name);
         Path filePath = rootPath.resolve(name + FileType.META.getExtension());
-        return new MetaFileWriter(filePath, BUFFER_SIZE, metadata);
+        MetaFileWriter writer = new MetaFileWriter(filePath, BUFFER_SIZE, metadata);
+        pendingSyncs.add(name + FileType.META.getExtension());
+        return writer;
     }
 
     /**
@@ -0,0 +1,52 @@
+package storage;
+
+/**
+ * How a file is going to be accessed, passed to {@link Storage#openFile(String, IOContext)}
+ * and {@link Storage#createFileWriter(String, storage.file.FileType, IOContext)} to size
+ * buffers for it.
+ *
+ * <p>Java NIO offers no {@code madvise}/{@code fadvise} access hints, so contexts cannot tell
+ * the OS page cache what to keep; they choose read-ahead and write buffer sizes, and whether a
+ * {@link BlockCacheStorage} caches the file's blocks.</p>
+ */
+public enum IOContext {
+    /** No known access pattern. */
+    DEFAULT(8 * 1024, 8 * 1024, true),
+    /** Lookups at scattered offsets, e.g. dictionaries and posting lists at query time. */
+    RANDOM(4 * 1024, 8 * 1024, true),
+    /** Files read or written front to back, e.g. segments written by a flush. */
+    SEQUENTIAL(64 * 1024, 64 * 1024, true),
+    /** Files read front to back once and not again soon, e.g. the inputs of a merge. */
+    READ_ONCE(64 * 1024, 64 * 1024, false);
+
+    private final int readBufferSize;
+    private final int writeBufferSize;
+    private final boolean cacheBlocks;
+
+    IOContext(int readBufferSize, int writeBufferSize, boolean cacheBlocks) {
+        this.readBufferSize = readBufferSize;
+        this.writeBufferSize = writeBufferSize;
+        this.cacheBlocks = cacheBlocks;
+    }
+
+    /**
+     * Returns the number of bytes a reader reads ahead.
+     */
+    public int getReadBufferSize() {
+        return readBufferSize;
+    }
+
+    /**
+     * Returns the number of bytes a writer collects before writing them.
+     */
+    public int getWriteBufferSize() {
+        return writeBufferSize;
+    }
+
+    /**
+     * Returns whether the file's blocks are worth keeping in a block cache.
+     */
+    public boolean cacheBlocks() {
+        return cacheBlocks;
+    }
+}
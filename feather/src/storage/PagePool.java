@@ -0,0 +1,74 @@
+package storage;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Collection;
+
+/**
+ * Fixed-size byte pages, heap or direct, recycled through a bounded free list so that
+ * short-lived files do not allocate a fresh page for every write.
+ */
+final class PagePool {
+    private final int pageSize;
+    private final boolean direct;
+    private final int maxFreePages;
+    private final ArrayDeque<ByteBuffer> freePages = new ArrayDeque<>();
+    private long allocatedPages;
+
+    PagePool(int pageSize, boolean direct, int maxFreePages) {
+        if (pageSize <= 0 || Integer.bitCount(pageSize) != 1) {
+            throw new IllegalArgumentException("Page size must be a power of two: " + pageSize);
+        }
+        this.pageSize = pageSize;
+        this.direct = direct;
+        this.maxFreePages = maxFreePages;
+    }
+
+    int pageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Returns a zeroed page.
+     */
+    synchronized ByteBuffer acquire() {
+        ByteBuffer page = freePages.poll();
+        if (page != null) {
+            return page;
+        }
+        allocatedPages++;
+        return direct ? ByteBuffer.allocateDirect(pageSize) : ByteBuffer.allocate(pageSize);
+    }
+
+    /**
+     * Returns pages to the pool. Pages beyond the free list's capacity are left to the GC.
+     */
+    synchronized void release(Collection<ByteBuffer> pages) {
+        for (ByteBuffer page : pages) {
+            if (freePages.size() >= maxFreePages) {
+                allocatedPages--;
+                continue;
+            }
+            zero(page);
+            freePages.push(page);
+        }
+    }
+
+    /**
+     * Returns the bytes held by pages in use or on the free list.
+     */
+    synchronized long allocatedBytes() {
+        return allocatedPages * pageSize;
+    }
+
+    private static void zero(ByteBuffer page) {
+        page.clear();
+        while (page.remaining() >= Long.BYTES) {
+            page.putLong(0L);
+        }
+        while (page.hasRemaining()) {
+            page.put((byte) 0);
+        }
+        page.clear();
+    }
+}
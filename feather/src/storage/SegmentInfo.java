@@ -1,6 +1,14 @@
 package storage;
 
+import storage.file.FileType;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 public class SegmentInfo implements Serializable {
@@ -16,6 +24,14 @@ public class SegmentInfo implements Serializable {
     private boolean deleted;
     
     private long sizeInBytes = -1;
+
+    private int delCount;
+
+    // Generation of the live docs file; 0 while the segment has no deletions.
+    private long delGen;
+
+    // CRC32 of each file of the segment by file name, recorded when the file was written.
+    private Map<String, Long> fileChecksums = Map.of();
     
     public SegmentInfo(String name, long creationTime, int documentCount, 
                       int minDocId, int maxDocId) {
@@ -81,6 +97,111 @@ public class SegmentInfo implements Serializable {
         this.sizeInBytes = sizeInBytes;
     }
     
+    /**
+     * Returns the number of documents of this segment that have been deleted.
+     */
+    public int getDelCount() {
+        return delCount;
+    }
+
+    public void setDelCount(int delCount) {
+        if (delCount < 0 || delCount > documentCount) {
+            throw new IllegalArgumentException(
+                    "Deleted document count must be between 0 and " + documentCount + " but was " + delCount);
+        }
+        this.delCount = delCount;
+    }
+
+    public long getDelGen() {
+        return delGen;
+    }
+
+    /**
+     * Restores the deletion state of an info read back from a segments file.
+     */
+    public void setDeletes(long delGen, int delCount) {
+        if (delGen < 0) {
+            throw new IllegalArgumentException("Deletion generation cannot be negative");
+        }
+        setDelCount(delCount);
+        this.delGen = delGen;
+    }
+
+    /**
+     * Returns the CRC32 checksums of the segment's files by file name, including the live docs
+     * file of the current generation. Empty for segments committed before checksums were kept.
+     */
+    public Map<String, Long> getFileChecksums() {
+        return fileChecksums;
+    }
+
+    public void setFileChecksums(Map<String, Long> fileChecksums) {
+        this.fileChecksums = Map.copyOf(fileChecksums);
+    }
+
+    /**
+     * Returns the name of the live docs file of the current deletion generation, or null if
+     * no document of this segment has been deleted.
+     */
+    public String getLiveDocsFileName() {
+        return delGen == 0 ? null : liveDocsName(name, delGen) + FileType.LIVE.getExtension();
+    }
+
+    /**
+     * Returns the names of the files making up this segment as described by this info: its data
+     * files and the live docs file of its current generation. The points file is listed even
+     * for segments written before it existed.
+     */
+    public List<String> files() {
+        List<String> files = new ArrayList<>(6);
+        for (FileType type : new FileType[]{FileType.DOC, FileType.DIC, FileType.POST, FileType.POINTS, FileType.META}) {
+            files.add(name + type.getExtension());
+        }
+        String liveDocs = getLiveDocsFileName();
+        if (liveDocs != null) {
+            files.add(liveDocs);
+        }
+        return files;
+    }
+
+    /**
+     * Returns the name, without extension, of a segment's live docs file of a generation.
+     */
+    public static String liveDocsName(String segmentName, long delGen) {
+        return segmentName + "_" + delGen;
+    }
+
+    /**
+     * Returns a copy of this info using the given deletion generation, whose live docs file has
+     * the given checksum. Infos are shared with running merges and committed segment lists, so
+     * deletions never modify them in place.
+     */
+    public SegmentInfo withDeletes(long delGen, int delCount, long liveDocsChecksum) {
+        if (delGen <= this.delGen) {
+            throw new IllegalArgumentException("Deletion generation must increase beyond " + this.delGen);
+        }
+        SegmentInfo copy = new SegmentInfo(name, creationTime, documentCount, minDocId, maxDocId, deleted);
+        copy.setSizeInBytes(sizeInBytes);
+        copy.setDelCount(delCount);
+        copy.delGen = delGen;
+        Map<String, Long> checksums = new HashMap<>(fileChecksums);
+        if (getLiveDocsFileName() != null) {
+            checksums.remove(getLiveDocsFileName());
+        }
+        checksums.put(copy.getLiveDocsFileName(), liveDocsChecksum);
+        copy.fileChecksums = Map.copyOf(checksums);
+        return copy;
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        // Infos serialized before checksums were kept have no such field, and deserialization
+        // does not run field initializers.
+        if (fileChecksums == null) {
+            fileChecksums = Map.of();
+        }
+    }
+
     public boolean containsDocId(int docId) {
         return docId >= minDocId && docId <= maxDocId;
     }
@@ -99,6 +220,7 @@ public class SegmentInfo implements Serializable {
                 "name='" + name + '\'' +
                 ", docs=" + documentCount +
                 ", docIds=[" + minDocId + "-" + maxDocId + "]" +
+                (delCount > 0 ? ", dels=" + delCount + "@" + delGen : "") +
                 (deleted ? ", DELETED" : "") +
                 (sizeInBytes != -1 ? ", size=" + sizeInBytes + "B" : "") +
                 '}';
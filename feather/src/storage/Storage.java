@@ -1,16 +1,19 @@
 package storage;
 
-import storage.file.FileType;
-import storage.file.SegmentFile;
-import storage.file.SegmentMetadata;
-import storage.writer.MetaFileWriter;
-import storage.writer.SegmentFileWriter;
+import storage.file.*;
+import storage.writer.*;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 
 public abstract class Storage implements Closeable {
+    private static final FileType[] SEGMENT_DATA_FILES =
+            {FileType.DOC, FileType.DIC, FileType.POST, FileType.POINTS, FileType.META};
+
     private volatile boolean closed = false;
 
     protected final void ensureOpen() {
@@ -23,15 +26,133 @@ public abstract class Storage implements Closeable {
     public abstract long fileLength(String name) throws IOException;
     public abstract boolean fileExists(String name) throws IOException;
     public abstract SegmentFile createFile(String name, FileType type) throws IOException;
-    public abstract SegmentFileWriter createFileWriter(String name, FileType type) throws IOException;
     public abstract MetaFileWriter createMetaFileWriter(String name, SegmentMetadata metadata) throws IOException;
-    public abstract SegmentFile openFile(String name) throws IOException;
     public abstract void deleteFile(String name) throws IOException;
     public abstract String[] listFiles() throws IOException;
     public abstract void rename(String source, String dest) throws IOException;
+
+    /**
+     * Creates a writer for a new segment file, buffered for the given access pattern.
+     */
+    public abstract SegmentFileWriter createFileWriter(String name, FileType type, IOContext context) throws IOException;
+
+    public SegmentFileWriter createFileWriter(String name, FileType type) throws IOException {
+        return createFileWriter(name, type, IOContext.DEFAULT);
+    }
+
+    /**
+     * Opens a segment file for reading, buffered for the given access pattern.
+     */
+    public abstract SegmentFile openFile(String name, IOContext context) throws IOException;
+
+    public SegmentFile openFile(String name) throws IOException {
+        return openFile(name, IOContext.DEFAULT);
+    }
+
+    /**
+     * Creates a new file outside the segment file formats, such as a segments file or a
+     * translog generation, and returns a channel to write it. The file is not synced by
+     * {@link #sync}; the caller forces the channel itself.
+     *
+     * @throws java.nio.file.FileAlreadyExistsException if the file exists
+     */
+    public abstract FileChannel createChannel(String name) throws IOException;
+
+    /**
+     * Opens an existing file as a read-only channel.
+     */
+    public abstract FileChannel openChannel(String name) throws IOException;
+
+    /**
+     * Makes the contents of the named files durable. Files already synced since they were last
+     * written may be skipped.
+     */
     public abstract void sync(Collection<String> names) throws IOException;
+
+    /**
+     * Makes created, renamed and deleted file names durable.
+     */
     public abstract void syncMetaData() throws IOException;
-    
+
+    /**
+     * Computes the CRC32 checksum of a file's contents.
+     */
+    public abstract long checksum(String name) throws IOException;
+
+    /**
+     * Computes the checksums of a segment's data files, all existing files of the segment but
+     * its live docs, by file name.
+     */
+    public Map<String, Long> checksumSegmentFiles(String segmentName) throws IOException {
+        Map<String, Long> checksums = new HashMap<>();
+        for (FileType type : SEGMENT_DATA_FILES) {
+            String name = segmentName + type.getExtension();
+            if (fileExists(name)) {
+                checksums.put(name, checksum(name));
+            }
+        }
+        return checksums;
+    }
+
+    /**
+     * Validates file name format.
+     * 
+     * @param name The file name to validate
+     * @throws IllegalArgumentException If the file name is invalid
+     */
+    protected static void validateFileName(String name) {
+        if (name == null || name.trim().isEmpty()) {
+            throw new IllegalArgumentException("File name cannot be null or empty");
+        }
+        if (name.contains("..") || name.contains("/") || name.contains("\\")) {
+            throw new IllegalArgumentException("File name contains invalid characters");
+        }
+    }
+
+    /**
+     * Creates the SegmentFile reading a file of the given type from {@code channel}.
+     */
+    protected static SegmentFile newSegmentFile(FileChannel channel, FileType type, int bufferSize) throws IOException {
+        return switch (type) {
+            case DOC -> new DocumentFile(channel, bufferSize);
+            case DIC -> new DictionaryFile(channel, bufferSize);
+            case POST -> new PostingFile(channel, bufferSize);
+            case META -> new MetaFile(channel, bufferSize);
+            case POINTS -> new PointsFile(channel, bufferSize);
+            case LIVE -> new LiveDocsFile(channel, bufferSize);
+            case SEGMENTS -> throw new IllegalArgumentException("Segments files are read by Segments.readLatest()");
+        };
+    }
+
+    /**
+     * Rejects file types that {@link #createFileWriter} does not write, before a file is created.
+     */
+    protected static void checkFileWriterType(FileType type) {
+        if (type == FileType.META) {
+            throw new IllegalArgumentException(
+                    "MetaFileWriter requires SegmentMetadata. Use createMetaFileWriter() instead.");
+        }
+        if (type == FileType.SEGMENTS) {
+            throw new IllegalArgumentException("Segments files are written by Segments.write()");
+        }
+    }
+
+    /**
+     * Creates the SegmentFileWriter writing a file of the given type to {@code channel}.
+     */
+    protected static SegmentFileWriter newSegmentFileWriter(FileChannel channel,
+                                                            SegmentFileWriter.ReadChannelOpener readChannelOpener,
+                                                            FileType type, int bufferSize) throws IOException {
+        checkFileWriterType(type);
+        return switch (type) {
+            case DOC -> new DocumentFileWriter(channel, readChannelOpener, bufferSize);
+            case DIC -> new DictionaryFileWriter(channel, readChannelOpener, bufferSize);
+            case POST -> new PostingFileWriter(channel, readChannelOpener, bufferSize);
+            case POINTS -> new PointsFileWriter(channel, readChannelOpener, bufferSize);
+            case LIVE -> new LiveDocsFileWriter(channel, readChannelOpener, bufferSize);
+            default -> throw new IllegalArgumentException("Unsupported file type: " + type);
+        };
+    }
 
     @Override
     public void close() throws IOException {
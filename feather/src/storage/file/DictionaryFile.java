@@ -1,23 +1,29 @@
 package storage.file;
 
+import storage.ClockSlots;
+
 import java.io.IOException;
-import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
-import java.util.*;
 
 /*
     TODO: separate the term indexing logic field by field (String, Numeric)
-    TODO: add a exact keyword match feature
  */
 public class DictionaryFile extends SegmentFile {
     private static final int INDEX_BLOCK_SIZE = 128;
     private static final int PREFIX_LENGTH = 8;
+    static final int MAX_CACHED_TERMS = 1024;
+    // Cached in place of a term the dictionary does not contain.
+    private static final Term MISSING = new Term("", "", 0, -1);
     private long termIndexPosition;
     private long termRecordsPosition;
     private long blockDataPosition;
     private int blockCount;
     private long[] blockOffsets;
+    // The block index is small (one entry per INDEX_BLOCK_SIZE terms), so it is kept in memory.
+    private TermIndexEntry[] indexEntries;
+    // Recent exact lookups, shared with clones.
+    private final TermCache termCache = new TermCache(MAX_CACHED_TERMS);
 
     public DictionaryFile(FileChannel channel, int bufferSize) throws IOException {
         super(channel, bufferSize);
@@ -30,43 +36,74 @@ public class DictionaryFile extends SegmentFile {
         return FileType.DIC;
     }
 
+    /**
+     * Finds the term exactly matching the given field and text. Recent lookups, including
+     * those of missing terms, are answered from a small cache without reading the file.
+     *
+     * @return the term, or null if the dictionary does not contain it
+     */
     public Term findTerm(String field, String text) throws IOException {
-        System.out.println("Finding term: field=" + field + ", text=" + text);
-        System.out.println("blockCount: " + blockCount);
-        System.out.println("termIndexPosition: " + termIndexPosition);
+        TermKey key = new TermKey(field, text);
+        Term cached = termCache.get(key);
+        if (cached != null) {
+            return cached == MISSING ? null : cached;
+        }
 
-        int low = 0;
-        int high = blockCount - 1;
-        System.out.println("high: " + high);
-        TermIndexEntry currentEntry, nextEntry;
-        while (low <= high) {
-            int mid = (low + high) >>> 1;
+        TermsEnum termsEnum = iterator();
+        Term term = termsEnum.seekCeil(field, text) == TermsEnum.SeekStatus.FOUND ? termsEnum.term() : null;
+        termCache.put(key, term == null ? MISSING : term);
+        return term;
+    }
 
-            seek(termIndexPosition + blockOffsets[mid]);
-            System.out.println("blockOffsets: " + Arrays.toString(blockOffsets));
-            currentEntry = readTermIndexEntry();
+    /**
+     * Returns an enum over the term records in sorted (field, text) order. Each enum reads
+     * through its own clone of this file, so enums may be used from different threads.
+     */
+    public TermsEnum iterator() {
+        return new TermsEnum(clone());
+    }
 
-            int cmp = compareTerms(field, text, currentEntry);
-            System.out.println("mid: " + mid + " cmp: " + cmp);
-            if (cmp < 0) {
-                high = mid - 1;
-            } else {
-                if (mid == blockCount - 1) {
-                    System.out.println("mid == blockCount - 1");
-                    return scanBlock(field, text, mid);
-                }
+    @Override
+    public DictionaryFile clone() {
+        return (DictionaryFile) super.clone();
+    }
 
-                seek(termIndexPosition + blockOffsets[mid + 1]);
-                nextEntry = readTermIndexEntry();
+    public int getTermCount() {
+        return header.getRecordCount();
+    }
 
-                if (compareTerms(field, text, nextEntry) < 0) {
-                    return scanBlock(field, text, mid);
-                }
+    long getTermRecordsPosition() {
+        return termRecordsPosition;
+    }
+
+    long getTermRecordsEnd() {
+        return termIndexPosition;
+    }
+
+    /**
+     * Finds the record position from which a forward scan is guaranteed to reach the first
+     * term greater than or equal to (field, text).
+     *
+     * <p>Index entries only hold the first {@value #PREFIX_LENGTH} characters of a block's first
+     * term, so a block whose entry equals the target's prefix may still start after the target.
+     * The scan therefore starts at the last block whose entry is strictly smaller.</p>
+     */
+    long findScanStart(String field, String text) {
+        if (blockCount == 0) {
+            return termRecordsPosition;
+        }
+
+        int low = 0;
+        int high = blockCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareTerms(field, text, indexEntries[mid]) > 0) {
                 low = mid + 1;
+            } else {
+                high = mid;
             }
         }
-
-        return null;
+        return indexEntries[Math.max(0, low - 1)].recordPosition;
     }
 
     private void readTermIndex() throws IOException {
@@ -78,19 +115,21 @@ public class DictionaryFile extends SegmentFile {
         for (int i = 0; i < blockCount; i++) {
             blockOffsets[i] = readLong();
         }
-        blockDataPosition = position;
+        blockDataPosition = getPosition();
+
+        indexEntries = new TermIndexEntry[blockCount];
+        for (int i = 0; i < blockCount; i++) {
+            seek(termIndexPosition + blockOffsets[i]);
+            indexEntries[i] = readTermIndexEntry();
+        }
     }
 
     private TermIndexEntry readTermIndexEntry() throws IOException {
-        System.out.println("Current position before reading: " + position);
-
         short fieldLength = readShort();
         String field = StandardCharsets.UTF_8.decode(readBytes(fieldLength)).toString();
-        System.out.println("TIE field: " + field);
 
         short prefixLength = readShort();
         String prefix = StandardCharsets.UTF_8.decode(readBytes(prefixLength)).toString();
-        System.out.println("TIE prefix: " + prefix);
 
         long recordPosition = readLong();
 
@@ -98,11 +137,10 @@ public class DictionaryFile extends SegmentFile {
         entry.field = field;
         entry.text = prefix;
         entry.recordPosition = recordPosition;
-        System.out.println("after readTIE position: " + position);
         return entry;
     }
 
-    private Term readTermRecord() throws IOException {
+    Term readTermRecord() throws IOException {
         short fieldLength = readShort();
         String field = StandardCharsets.UTF_8.decode(readBytes(fieldLength)).toString();
 
@@ -116,58 +154,82 @@ public class DictionaryFile extends SegmentFile {
     }
 
     private void readDictMetadata() throws IOException {
-        position = FeatherFileHeader.HEADER_SIZE;
+        seek(FeatherFileHeader.HEADER_SIZE);
         termRecordsPosition = readLong();
         termIndexPosition = readLong();
         blockCount = readInt();
     }
 
-    private Term scanBlock(String field, String text, int blockIndex) throws IOException {
-        seek(termIndexPosition + blockOffsets[blockIndex]);
-        TermIndexEntry entry = readTermIndexEntry();
-        seek(entry.recordPosition);
-        int termsScanned = 0;
+    private int compareTerms(String field, String text, TermIndexEntry indexEntry) {
+        int cmp = field.compareTo(indexEntry.field);
+        if (cmp != 0) return cmp;
 
-        System.out.println("termIndexPosition while scanning block: " + termIndexPosition);
+        String prefix = getPrefixString(text);
+        return prefix.compareTo(indexEntry.text);
+    }
+
+    private String getPrefixString(String text) {
+        return text.length() <= PREFIX_LENGTH ? text : text.substring(0, PREFIX_LENGTH);
+    }
 
-        while (termsScanned < INDEX_BLOCK_SIZE && position < termIndexPosition) {
-            System.out.println("termsScanned: " + termsScanned + " position: " + position);
-            Term term = readTermRecord();
-            System.out.println("Term in the scanned block: text=" + term.getText() + " field=" + term.getField());
-            int cmp = compareTerms(field, text, term);
+    private record TermKey(String field, String text) {
+    }
 
-            if (cmp == 0) {
-                System.out.println("found the right term: " + term.getField() + " " + term.getText() );
-                return term;
-            }
-            if (cmp < 0) {
-                return null;
+    /**
+     * Recent exact lookups, split into lock stripes like {@link storage.BlockCache} so that
+     * concurrent searches on different terms rarely contend. Each stripe holds a fixed number of
+     * terms evicted in CLOCK order, so a stream of one-off lookups, misses included, cycles
+     * through the new entries rather than evicting terms that are looked up again.
+     *
+     * <p>The cache is bounded by entry count, not bytes. An entry holds the term's field and
+     * text, which are short for analyzed text, but a record allows up to 32K bytes each, so a
+     * dictionary of very long terms can keep up to {@value #MAX_CACHED_TERMS} times that
+     * resident per open segment.</p>
+     */
+    private static final class TermCache {
+        private static final int STRIPES = 16;
+        private final Stripe[] stripes = new Stripe[STRIPES];
+
+        TermCache(int capacity) {
+            for (int i = 0; i < STRIPES; i++) {
+                stripes[i] = new Stripe(Math.max(1, capacity / STRIPES));
             }
+        }
 
-            termsScanned++;
+        Term get(TermKey key) {
+            return stripe(key).get(key);
         }
 
-        return null;
-    }
+        void put(TermKey key, Term term) {
+            stripe(key).put(key, term);
+        }
 
-    private int compareTerms(String field, String text, TermIndexEntry indexEntry) {
-        int cmp = field.compareTo(indexEntry.field);
-        if (cmp != 0) return cmp;
+        private Stripe stripe(TermKey key) {
+            int hash = key.hashCode();
+            hash ^= hash >>> 16;
+            return stripes[hash & (STRIPES - 1)];
+        }
 
-        String prefix = getPrefixString(text);
-        return prefix.compareTo(indexEntry.text);
-    }
+        private static final class Stripe {
+            private final Term[] terms;
+            private final ClockSlots<TermKey> slots;
 
-    private int compareTerms(String field, String text, Term term) {
-        int cmp = field.compareTo(term.getField());
-        if (cmp != 0) return cmp;
+            Stripe(int capacity) {
+                this.terms = new Term[capacity];
+                this.slots = new ClockSlots<>(capacity);
+            }
 
-        String prefix = getPrefixString(text);
-        return prefix.compareTo(getPrefixString(term.getText()));
-    }
-    
-    private String getPrefixString(String text) {
-        return text.length() <= PREFIX_LENGTH ? text : text.substring(0, PREFIX_LENGTH);
+            synchronized Term get(TermKey key) {
+                int slot = slots.get(key);
+                return slot < 0 ? null : terms[slot];
+            }
+
+            synchronized void put(TermKey key, Term term) {
+                if (!slots.contains(key)) {
+                    terms[slots.add(key)] = term;
+                }
+            }
+        }
     }
 
     private static class TermIndexEntry {
@@ -4,8 +4,10 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Map;
 
 public class DocumentFile extends SegmentFile {
@@ -27,12 +29,76 @@ public class DocumentFile extends SegmentFile {
         int id = readInt();
         int length = readInt();
         ByteBuffer content = readBytes(length);
-        Document document = deserializeDocument(id, content);
-        System.out.println(document);
-        return document;
+        return deserializeDocument(id, content);
+    }
+
+    /**
+     * Reads the document at the given record offset, e.g. one from a {@link DocumentIdIndex}.
+     */
+    public Document readDocumentAt(long offset) throws IOException {
+        seek(offset);
+        return readDocument();
+    }
+
+    /**
+     * Builds the ID index of this file by reading only the record headers.
+     */
+    public DocumentIdIndex readIdIndex() throws IOException {
+        int[] ids = new int[getHeaderRecordCount()];
+        long[] offsets = new long[ids.length];
+        seekToContent();
+        for (int i = 0; i < ids.length; i++) {
+            offsets[i] = getPosition();
+            ids[i] = readInt();
+            int length = readInt();
+            seek(getPosition() + length);
+        }
+        return DocumentIdIndex.of(ids, offsets);
+    }
+
+    /**
+     * Reads the IDs of this file's documents, sorted ascending, from the record headers. Unlike
+     * {@link #readIdIndex()}, no record offsets are kept.
+     */
+    public int[] readSortedIds() throws IOException {
+        int[] ids = new int[getHeaderRecordCount()];
+        seekToContent();
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = readInt();
+            int length = readInt();
+            seek(getPosition() + length);
+        }
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    /**
+     * Returns the length in bytes of the document records following the header.
+     */
+    public long getRecordsLength() throws IOException {
+        return channel.size() - FeatherFileHeader.HEADER_SIZE;
+    }
+
+    /**
+     * Transfers raw document records to {@code target} without decoding them, using
+     * {@link FileChannel#transferTo} so the bytes need not pass through the Java heap.
+     *
+     * @param offset the offset relative to the first record
+     * @return the number of bytes transferred, possibly fewer than {@code count}
+     */
+    public long transferRecords(long offset, long count, WritableByteChannel target) throws IOException {
+        return channel.transferTo(FeatherFileHeader.HEADER_SIZE + offset, count, target);
+    }
+
+    @Override
+    public DocumentFile clone() {
+        return (DocumentFile) super.clone();
     }
 
-    private Document deserializeDocument(int id, ByteBuffer buffer) {
+    /**
+     * Decodes fields encoded by {@code DocumentFileWriter.serializeDocument}.
+     */
+    public static Document deserializeDocument(int id, ByteBuffer buffer) {
         Document document = new Document(id);
 
         int fieldCount = buffer.getInt();
@@ -44,7 +110,7 @@ public class DocumentFile extends SegmentFile {
         return document;
     }
 
-    private void readField(ByteBuffer buffer, Document document) {
+    private static void readField(ByteBuffer buffer, Document document) {
         short nameLength = buffer.getShort();
         byte[] nameBytes = new byte[nameLength];
         buffer.get(nameBytes);
@@ -55,7 +121,7 @@ public class DocumentFile extends SegmentFile {
         document.addField(name, value);
     }
 
-    private Object readFieldValue(ByteBuffer buffer, byte type) {
+    private static Object readFieldValue(ByteBuffer buffer, byte type) {
         switch (type) {
             case TYPE_STRING:
                 int strLength = buffer.getInt();
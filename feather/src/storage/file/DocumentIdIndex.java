@@ -0,0 +1,63 @@
+package storage.file;
+
+import java.util.Arrays;
+
+/**
+ * The document IDs of a document file sorted ascending, each with the file offset of its
+ * record, so a document is located by ID with a binary search instead of a scan.
+ */
+public final class DocumentIdIndex {
+    private final int[] ids;
+    private final long[] offsets;
+
+    private DocumentIdIndex(int[] ids, long[] offsets) {
+        this.ids = ids;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Builds an index from record IDs and offsets given in any order.
+     */
+    public static DocumentIdIndex of(int[] ids, long[] offsets) {
+        if (ids.length != offsets.length) {
+            throw new IllegalArgumentException("Got " + ids.length + " IDs but " + offsets.length + " offsets");
+        }
+        // Sort (id, offset) pairs by id, packing both into one long to avoid boxing.
+        long[] pairs = new long[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            pairs[i] = ((long) ids[i] << 32) | i;
+        }
+        Arrays.sort(pairs);
+        int[] sortedIds = new int[ids.length];
+        long[] sortedOffsets = new long[ids.length];
+        for (int i = 0; i < pairs.length; i++) {
+            int index = (int) pairs[i];
+            sortedIds[i] = ids[index];
+            sortedOffsets[i] = offsets[index];
+        }
+        return new DocumentIdIndex(sortedIds, sortedOffsets);
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Returns the sorted IDs. The array is shared and must not be modified.
+     */
+    public int[] ids() {
+        return ids;
+    }
+
+    public boolean contains(int docId) {
+        return Arrays.binarySearch(ids, docId) >= 0;
+    }
+
+    /**
+     * Returns the offset of the document's record, or -1 if the file does not contain it.
+     */
+    public long offsetOf(int docId) {
+        int index = Arrays.binarySearch(ids, docId);
+        return index >= 0 ? offsets[index] : -1;
+    }
+}
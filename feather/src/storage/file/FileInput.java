@@ -0,0 +1,142 @@
+package storage.file;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A read cursor over a range of a {@link FileChannel}, with its own position and read-ahead
+ * buffer.
+ *
+ * <p>Only positional reads are issued on the channel, so any number of cursors created with
+ * {@link #clone()} or {@link #slice(long, long)} can read one channel from different threads
+ * without locking. A single cursor must not be used from multiple threads at once.</p>
+ */
+public final class FileInput implements Cloneable {
+    private final FileChannel channel;
+    private final long offset;
+    private final long length;
+    private final int bufferSize;
+    // Allocated on first read, so clones that are never read from cost no buffer.
+    private ByteBuffer buffer;
+    private long bufferStart;
+    private long position;
+
+    public FileInput(FileChannel channel, int bufferSize) throws IOException {
+        this(channel, 0, channel.size(), bufferSize);
+    }
+
+    private FileInput(FileChannel channel, long offset, long length, int bufferSize) {
+        if (bufferSize < 8) {
+            throw new IllegalArgumentException("Buffer size must be at least 8 bytes");
+        }
+        this.channel = channel;
+        this.offset = offset;
+        this.length = length;
+        this.bufferSize = bufferSize;
+    }
+
+    public long length() {
+        return length;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    public void seek(long newPosition) {
+        if (newPosition < 0) {
+            throw new IllegalArgumentException("Negative position: " + newPosition);
+        }
+        position = newPosition;
+    }
+
+    public short readShort() throws IOException {
+        short value = fill(2).getShort((int) (position - bufferStart));
+        position += 2;
+        return value;
+    }
+
+    public int readInt() throws IOException {
+        int value = fill(4).getInt((int) (position - bufferStart));
+        position += 4;
+        return value;
+    }
+
+    public long readLong() throws IOException {
+        long value = fill(8).getLong((int) (position - bufferStart));
+        position += 8;
+        return value;
+    }
+
+    /**
+     * Reads the next {@code count} bytes into a new buffer, flipped for reading.
+     */
+    public ByteBuffer readBytes(int count) throws IOException {
+        ByteBuffer data = ByteBuffer.allocate(count);
+        if (count <= bufferSize) {
+            data.put(fill(count).slice((int) (position - bufferStart), count));
+        } else {
+            readFully(data, position);
+        }
+        position += count;
+        return data.flip();
+    }
+
+    /**
+     * Returns a cursor over the same range at the same position, with a buffer of its own.
+     */
+    @Override
+    public FileInput clone() {
+        FileInput clone = new FileInput(channel, offset, length, bufferSize);
+        clone.position = position;
+        return clone;
+    }
+
+    /**
+     * Returns a cursor over {@code sliceLength} bytes starting at {@code sliceOffset}, whose
+     * positions are relative to the start of the slice.
+     */
+    public FileInput slice(long sliceOffset, long sliceLength) {
+        if (sliceOffset < 0 || sliceLength < 0 || sliceOffset + sliceLength > length) {
+            throw new IllegalArgumentException("Slice [" + sliceOffset + ", " + (sliceOffset + sliceLength)
+                    + ") is out of bounds of an input of length " + length);
+        }
+        return new FileInput(channel, offset + sliceOffset, sliceLength, bufferSize);
+    }
+
+    /**
+     * Ensures the buffer holds {@code count} bytes from the current position, reading ahead up
+     * to a full buffer when it does not.
+     */
+    private ByteBuffer fill(int count) throws IOException {
+        if (buffer != null && position >= bufferStart && position + count <= bufferStart + buffer.limit()) {
+            return buffer;
+        }
+        if (position + count > length) {
+            throw new EOFException("Read past the end of the input: position " + position + ", length " + length);
+        }
+        if (buffer == null) {
+            buffer = ByteBuffer.allocate(bufferSize);
+        }
+        buffer.clear().limit((int) Math.min(bufferSize, length - position));
+        readFully(buffer, position);
+        bufferStart = position;
+        return buffer;
+    }
+
+    private void readFully(ByteBuffer dst, long from) throws IOException {
+        if (from + dst.remaining() > length) {
+            throw new EOFException("Read past the end of the input: position " + from + ", length " + length);
+        }
+        long filePosition = offset + from;
+        while (dst.hasRemaining()) {
+            int read = channel.read(dst, filePosition);
+            if (read < 0) {
+                throw new EOFException("Unexpected end of file at " + filePosition);
+            }
+            filePosition += read;
+        }
+    }
+}
@@ -9,6 +9,10 @@ package storage.file;
  *   <li>{@code DIC} (.dic) - Dictionary files storing term information and posting list references</li>
  *   <li>{@code POST} (.post) - Posting list files containing term occurrence information</li>
  *   <li>{@code META} (.meta) - Metadata files storing segment-level information</li>
+ *   <li>{@code POINTS} (.pnt) - Points files indexing numeric field values for range queries</li>
+ *   <li>{@code LIVE} (.liv) - Live documents bitsets, one file per generation of deletions</li>
+ *   <li>{@code SEGMENTS} - Commit points listing the segments of the index, named
+ *       {@code segments_<generation>} without an extension</li>
  * </ul>
  *
  * <p>Each file type is identified by a unique single-byte code to ensure efficient
@@ -21,7 +25,10 @@ public enum FileType {
     DOC((byte) 0x01, ".doc"),
     DIC((byte) 0x02, ".dic"),
     POST((byte) 0x03, ".post"),
-    META((byte) 0x04, ".meta");
+    META((byte) 0x04, ".meta"),
+    POINTS((byte) 0x05, ".pnt"),
+    LIVE((byte) 0x06, ".liv"),
+    SEGMENTS((byte) 0x07, "");
 
     private final byte code;
     private final String extension;
@@ -0,0 +1,167 @@
+package storage.file;
+
+import java.util.Arrays;
+
+/**
+ * The documents of a segment that have not been deleted.
+ *
+ * <p>Document IDs are global and assigned by users, so a segment's ID range
+ * [{@code minDocId}, {@code maxDocId}] may be far larger than its document count. When the
+ * segment uses a good share of its range, the bitset covers the range with one bit per ID; a
+ * set bit means the ID belongs to the segment and is live. Otherwise the segment's sorted IDs
+ * are kept alongside a bitset with one bit per document, indexed by the ID's ordinal, which
+ * costs a binary search per lookup. Either way, IDs outside the segment are never live.</p>
+ *
+ * <p>Instances read from a file are shared by searches and must not be modified; the writer
+ * applies deletions to a {@link #copy()}.</p>
+ */
+public class LiveDocs {
+    // The dense form is used while the ID range is at most this many times the document count.
+    private static final int MAX_DENSE_RANGE_PER_DOC = 4;
+
+    private final int minDocId;
+    private final int length;
+    private final long[] words;
+    // The sorted IDs of the segment in the sparse form, null in the dense form
+    private final int[] docIds;
+
+    public LiveDocs(int minDocId, int length) {
+        this(minDocId, length, new long[(length + 63) >>> 6]);
+    }
+
+    LiveDocs(int minDocId, int length, long[] words) {
+        this(minDocId, length, words, null);
+    }
+
+    LiveDocs(int minDocId, int length, long[] words, int[] docIds) {
+        if (length < 0) {
+            throw new IllegalArgumentException("Length cannot be negative: " + length);
+        }
+        if (words.length != (length + 63) >>> 6) {
+            throw new IllegalArgumentException("Expected " + ((length + 63) >>> 6) + " words but got " + words.length);
+        }
+        if (docIds != null && docIds.length != length) {
+            throw new IllegalArgumentException("Expected " + length + " IDs but got " + docIds.length);
+        }
+        this.minDocId = minDocId;
+        this.length = length;
+        this.words = words;
+        this.docIds = docIds;
+    }
+
+    /**
+     * Creates live docs in which exactly the given documents are live.
+     */
+    public static LiveDocs of(int minDocId, int maxDocId, int[] docIds) {
+        long range = (long) maxDocId - minDocId + 1;
+        if (range > (long) MAX_DENSE_RANGE_PER_DOC * Math.max(1, docIds.length)) {
+            int[] sorted = docIds.clone();
+            Arrays.sort(sorted);
+            long[] words = new long[(sorted.length + 63) >>> 6];
+            Arrays.fill(words, -1L);
+            if ((sorted.length & 63) != 0) {
+                words[words.length - 1] = (1L << sorted.length) - 1;
+            }
+            return new LiveDocs(minDocId, sorted.length, words, sorted);
+        }
+        LiveDocs liveDocs = new LiveDocs(minDocId, (int) range);
+        for (int docId : docIds) {
+            liveDocs.set(docId);
+        }
+        return liveDocs;
+    }
+
+    public boolean isLive(int docId) {
+        long index = indexOf(docId);
+        if (index < 0 || index >= length) {
+            return false;
+        }
+        return (words[(int) (index >>> 6)] & (1L << index)) != 0;
+    }
+
+    private void set(int docId) {
+        int index = checkIndex(docId);
+        words[index >>> 6] |= 1L << index;
+    }
+
+    /**
+     * Marks the document as deleted.
+     *
+     * @return true if the document was live before
+     */
+    public boolean delete(int docId) {
+        if (!isLive(docId)) {
+            return false;
+        }
+        int index = (int) indexOf(docId);
+        words[index >>> 6] &= ~(1L << index);
+        return true;
+    }
+
+    /**
+     * Returns the bit index of the ID, or a negative value if the segment cannot contain it.
+     */
+    private long indexOf(int docId) {
+        if (docIds == null) {
+            return (long) docId - minDocId;
+        }
+        return Arrays.binarySearch(docIds, docId);
+    }
+
+    private int checkIndex(int docId) {
+        long index = (long) docId - minDocId;
+        if (index < 0 || index >= length) {
+            throw new IllegalArgumentException(
+                    "Document " + docId + " is outside [" + minDocId + ", " + (minDocId + length - 1) + "]");
+        }
+        return (int) index;
+    }
+
+    /**
+     * Returns the number of live documents.
+     */
+    public int cardinality() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    public LiveDocs copy() {
+        // The IDs are never modified, so the copy shares them.
+        return new LiveDocs(minDocId, length, words.clone(), docIds);
+    }
+
+    public int getMinDocId() {
+        return minDocId;
+    }
+
+    /**
+     * Returns the number of bits: the number of document IDs covered in the dense form, the
+     * number of documents of the segment in the sparse form.
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Returns the sorted IDs of the segment's documents in the sparse form, or null in the
+     * dense form. The array is shared and must not be modified.
+     */
+    public int[] getDocIds() {
+        return docIds;
+    }
+
+    /**
+     * Returns the packed bits, 64 per word, starting at {@link #getMinDocId()} in the dense
+     * form and at the first of {@link #getDocIds()} in the sparse form.
+     */
+    public long getWord(int index) {
+        return words[index];
+    }
+
+    public int getWordCount() {
+        return words.length;
+    }
+}
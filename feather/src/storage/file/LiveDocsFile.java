@@ -0,0 +1,53 @@
+package storage.file;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+/**
+ * A generation of a segment's live documents, see {@link LiveDocs}.
+ *
+ * <p>Segment files are immutable, so deletions never touch them: each time deletions are
+ * applied to a segment a new live docs file with the next generation is written, and the
+ * segment's {@code SegmentInfo} records the generation in use.</p>
+ */
+public class LiveDocsFile extends SegmentFile {
+
+    public LiveDocsFile(FileChannel channel, int bufferSize) throws IOException {
+        super(channel, bufferSize);
+    }
+
+    @Override
+    protected FileType getFileType() {
+        return FileType.LIVE;
+    }
+
+    /**
+     * Returns the number of deleted documents, as recorded in the header.
+     */
+    public int getDelCount() {
+        return header.getRecordCount();
+    }
+
+    /**
+     * Reads the live docs: the minimum ID, the number of bits, whether the form is sparse, in
+     * which case the segment's sorted IDs follow, and then the bitset.
+     */
+    public LiveDocs readLiveDocs() throws IOException {
+        seekToContent();
+        int minDocId = readInt();
+        int length = readInt();
+        boolean sparse = readInt() != 0;
+        int[] docIds = null;
+        if (sparse) {
+            docIds = new int[length];
+            for (int i = 0; i < length; i++) {
+                docIds[i] = readInt();
+            }
+        }
+        long[] words = new long[(length + 63) >>> 6];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = readLong();
+        }
+        return new LiveDocs(minDocId, length, words, docIds);
+    }
+}
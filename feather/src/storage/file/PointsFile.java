@@ -0,0 +1,183 @@
+package storage.file;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+/**
+ * The numeric points of a segment: for each numeric field, the (value, docId) pairs of all
+ * documents sorted by value and grouped into blocks.
+ *
+ * <p>The min/max value of every block is kept in memory, so a range lookup binary-searches
+ * the first block that can overlap the range and then reads only overlapping blocks. Blocks
+ * lying entirely inside the range are reported without comparing their values.</p>
+ *
+ * <p>Blocks are read with positional reads into freshly allocated buffers, so lookups do not
+ * touch the shared file position and may run concurrently.</p>
+ */
+public class PointsFile extends SegmentFile {
+    public static final int POINT_BYTES = 8 + 4; // value + docId
+
+    private final Map<String, FieldIndex> fields;
+
+    public PointsFile(FileChannel channel, int bufferSize) throws IOException {
+        super(channel, bufferSize);
+        this.fields = readFieldIndex();
+    }
+
+    @Override
+    protected FileType getFileType() {
+        return FileType.POINTS;
+    }
+
+    private Map<String, FieldIndex> readFieldIndex() throws IOException {
+        seekToContent();
+        seek(readLong());
+
+        int fieldCount = readInt();
+        Map<String, FieldIndex> result = new HashMap<>(fieldCount * 2);
+        for (int i = 0; i < fieldCount; i++) {
+            short nameLength = readShort();
+            String name = StandardCharsets.UTF_8.decode(readBytes(nameLength)).toString();
+            int pointCount = readInt();
+            int blockCount = readInt();
+
+            long[] mins = new long[blockCount];
+            long[] maxs = new long[blockCount];
+            long[] offsets = new long[blockCount];
+            int[] counts = new int[blockCount];
+            for (int b = 0; b < blockCount; b++) {
+                mins[b] = readLong();
+                maxs[b] = readLong();
+                offsets[b] = readLong();
+                counts[b] = readInt();
+            }
+            result.put(name, new FieldIndex(pointCount, mins, maxs, offsets, counts));
+        }
+        return result;
+    }
+
+    public Set<String> getFields() {
+        return Collections.unmodifiableSet(fields.keySet());
+    }
+
+    public boolean hasField(String field) {
+        return fields.containsKey(field);
+    }
+
+    public int getPointCount(String field) {
+        FieldIndex index = fields.get(field);
+        return index == null ? 0 : index.pointCount;
+    }
+
+    /**
+     * Reports the ID of every document whose value of {@code field} lies in
+     * [{@code lowerValue}, {@code upperValue}].
+     *
+     * @return the number of documents reported
+     */
+    public int intersect(String field, long lowerValue, long upperValue, IntConsumer visitor) throws IOException {
+        FieldIndex index = fields.get(field);
+        if (index == null || lowerValue > upperValue) {
+            return 0;
+        }
+
+        // Block maxima are non-decreasing, so find the first block that can reach lowerValue.
+        int low = 0;
+        int high = index.maxs.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (index.maxs[mid] < lowerValue) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        int visited = 0;
+        for (int b = low; b < index.mins.length && index.mins[b] <= upperValue; b++) {
+            ByteBuffer block = readBlock(index.offsets[b], index.counts[b]);
+            boolean inside = index.mins[b] >= lowerValue && index.maxs[b] <= upperValue;
+            for (int i = 0; i < index.counts[b]; i++) {
+                long value = block.getLong();
+                int docId = block.getInt();
+                if (inside || (value >= lowerValue && value <= upperValue)) {
+                    visitor.accept(docId);
+                    visited++;
+                }
+            }
+        }
+        return visited;
+    }
+
+    /**
+     * Returns an iterator over all points of a field in (value, docId) order, reading one
+     * block at a time.
+     */
+    public PointIterator iterator(String field) {
+        return new PointIterator(fields.get(field));
+    }
+
+    public final class PointIterator {
+        private final FieldIndex index;
+        private int block = -1;
+        private ByteBuffer current;
+        private int remaining;
+        private long value;
+        private int docId;
+
+        private PointIterator(FieldIndex index) {
+            this.index = index;
+        }
+
+        /**
+         * Advances to the next point.
+         *
+         * @return false when the field has no more points
+         */
+        public boolean next() throws IOException {
+            if (index == null) {
+                return false;
+            }
+            while (remaining == 0) {
+                if (++block >= index.counts.length) {
+                    return false;
+                }
+                current = readBlock(index.offsets[block], index.counts[block]);
+                remaining = index.counts[block];
+            }
+            value = current.getLong();
+            docId = current.getInt();
+            remaining--;
+            return true;
+        }
+
+        public long value() {
+            return value;
+        }
+
+        public int docId() {
+            return docId;
+        }
+    }
+
+    private ByteBuffer readBlock(long offset, int count) throws IOException {
+        ByteBuffer block = ByteBuffer.allocate(count * POINT_BYTES);
+        while (block.hasRemaining()) {
+            if (channel.read(block, offset + block.position()) < 0) {
+                throw new EOFException("Reached end of file while reading points block at " + offset);
+            }
+        }
+        return block.flip();
+    }
+
+    private record FieldIndex(int pointCount, long[] mins, long[] maxs, long[] offsets, int[] counts) {
+    }
+}
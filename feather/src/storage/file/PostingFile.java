@@ -74,7 +74,27 @@ public class PostingFile extends SegmentFile {
         seek(position);
     }
 
+    /**
+     * Opens an enum over the posting list starting at the given position.
+     * Unlike {@link #readPostingList()}, positions are decoded lazily per document. The enum
+     * reads through its own clone of this file, so enums may be used from different threads.
+     */
+    public PostingsEnum postings(long position) throws IOException {
+        if (position < FeatherFileHeader.HEADER_SIZE) {
+            throw new IllegalArgumentException(
+                    "Invalid position: " + position +
+                            ". Position must be >= " + FeatherFileHeader.HEADER_SIZE);
+        }
+
+        return new PostingsEnum(clone(), position);
+    }
+
+    @Override
+    public PostingFile clone() {
+        return (PostingFile) super.clone();
+    }
+
     public long getCurrentPosition() throws IOException {
-        return channel.position();
+        return getPosition();
     }
 }
\ No newline at end of file
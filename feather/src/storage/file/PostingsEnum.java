@@ -0,0 +1,92 @@
+package storage.file;
+
+import java.io.IOException;
+
+/**
+ * Iterates over a single posting list of a {@link PostingFile} one document at a time.
+ *
+ * <p>Document IDs and frequencies are decoded eagerly while positions are only decoded
+ * when {@link #positions()} is called, so callers that only need document IDs
+ * (e.g. the doc-level intersection of a phrase query) skip position data entirely.</p>
+ *
+ * <p>An enum reads through its own clone of the file, so several enums over the same file can
+ * be advanced alternately or from different threads. A single enum must not be used from
+ * multiple threads at once.</p>
+ */
+public class PostingsEnum {
+    public static final int NO_MORE_DOCS = Integer.MAX_VALUE;
+
+    private final PostingFile file;
+    private final int docCount;
+
+    private int docsRead;
+    private int docId = -1;
+    private int frequency;
+    private int positionCount;
+    private long positionsPointer;
+    private long nextEntryPointer;
+
+    PostingsEnum(PostingFile file, long postingPosition) throws IOException {
+        this.file = file;
+        file.seek(postingPosition);
+        this.docCount = file.readInt();
+        this.nextEntryPointer = file.getPosition();
+    }
+
+    public int docID() {
+        return docId;
+    }
+
+    public int nextDoc() throws IOException {
+        if (docsRead == docCount) {
+            return docId = NO_MORE_DOCS;
+        }
+
+        file.seek(nextEntryPointer);
+        int deltaDocId = file.readInt();
+        frequency = file.readInt();
+        positionCount = file.readInt();
+        positionsPointer = file.getPosition();
+        nextEntryPointer = positionsPointer + 4L * positionCount;
+
+        docsRead++;
+        return docId = (docId < 0 ? 0 : docId) + deltaDocId;
+    }
+
+    /**
+     * Advances to the first document whose ID is greater than or equal to the target.
+     */
+    public int advance(int target) throws IOException {
+        int doc = docId;
+        while (doc < target) {
+            doc = nextDoc();
+        }
+        return doc;
+    }
+
+    public int freq() {
+        return frequency;
+    }
+
+    /**
+     * Decodes the positions of the current document.
+     */
+    public int[] positions() throws IOException {
+        int[] positions = new int[positionCount];
+        file.seek(positionsPointer);
+
+        int prevPosition = 0;
+        for (int i = 0; i < positionCount; i++) {
+            positions[i] = prevPosition + file.readInt();
+            prevPosition = positions[i];
+        }
+        return positions;
+    }
+
+    /**
+     * Returns the number of documents in this posting list.
+     */
+    public int cost() {
+        return docCount;
+    }
+}
@@ -8,22 +8,31 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.channels.FileChannel;
 
-public abstract class SegmentFile implements Closeable {
+/**
+ * Base class of the segment file readers.
+ *
+ * <p>Reads go through a {@link FileInput} holding the reader's position and buffer. A reader
+ * must not be used from multiple threads at once, but {@link #clone()} returns a cheap reader
+ * over the same channel and everything read at open time, so each thread or iterator can read
+ * one open file concurrently.</p>
+ */
+public abstract class SegmentFile implements Closeable, Cloneable {
 
     private volatile boolean closed = false;
+    private boolean isClone = false;
 
     protected final FileChannel channel;
     protected final FeatherFileHeader header;
-    protected final ByteBuffer buffer;
-    protected long position;
+    private FileInput input;
 
-    /*
-        TODO: get the buffer size from Lucene-like IOContext class when created
+    /**
+     * @param bufferSize the read-ahead of this reader, chosen by the storage from the
+     *                   {@code IOContext} the file is opened with
      */
     protected SegmentFile(FileChannel channel, int bufferSize)
             throws IOException {
         this.channel = channel;
-        this.buffer = ByteBuffer.allocate(bufferSize);
+        this.input = new FileInput(channel, bufferSize);
         this.header = readHeader();
         validateFileType();
     }
@@ -58,48 +67,31 @@ public abstract class SegmentFile implements Closeable {
     }
 
     protected int readInt() throws IOException {
-        buffer.clear().limit(4);
-        channel.read(buffer, position);
-        buffer.flip();
-        position += 4;
-        return buffer.getInt();
+        return input.readInt();
     }
 
     protected long readLong() throws IOException {
-        buffer.clear().limit(8);
-        channel.read(buffer, position);
-        buffer.flip();
-        position += 8;
-        return buffer.getLong();
+        return input.readLong();
     }
 
     protected short readShort() throws IOException {
-        buffer.clear().limit(2);
-        channel.read(buffer, position);
-        buffer.flip();
-        position += 2;
-        return buffer.getShort();
+        return input.readShort();
     }
 
     protected ByteBuffer readBytes(int length) throws IOException {
-        ByteBuffer data = ByteBuffer.allocate(length);
-        channel.read(data, position);
-        position += length;
-        data.flip();
-        return data;
+        return input.readBytes(length);
     }
 
     protected void seek(long newPosition) throws IOException {
-        this.position = newPosition;
+        input.seek(newPosition);
     }
 
-
     public void seekToContent() throws IOException {
         seek(FeatherFileHeader.HEADER_SIZE);
     }
 
     public long getPosition() {
-        return position;
+        return input.getPosition();
     }
 
     public FileType getHeaderFileType() {
@@ -110,11 +102,36 @@ public abstract class SegmentFile implements Closeable {
         return header.getRecordCount();
     }
 
+    /**
+     * Returns a cursor over {@code length} bytes of this file starting at {@code offset},
+     * independent of this reader's position.
+     */
+    public FileInput slice(long offset, long length) {
+        return input.slice(offset, length);
+    }
+
+    /**
+     * Returns a reader over the same file with its own position and buffer. It shares the
+     * channel and the state read at open time, so cloning costs no I/O. Clones need not be
+     * closed; closing one has no effect, and they must not be used once the original is closed.
+     */
+    @Override
+    public SegmentFile clone() {
+        try {
+            SegmentFile clone = (SegmentFile) super.clone();
+            clone.input = input.clone();
+            clone.isClone = true;
+            return clone;
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
     // TODO: need a protected method for segment merge
 
     @Override
     public void close() throws IOException {
-        if (!closed) {
+        if (!closed && !isClone) {
             try {
                 channel.close();
             } finally {
@@ -0,0 +1,84 @@
+package storage.file;
+
+import java.io.IOException;
+
+/**
+ * Iterates over the term records of a {@link DictionaryFile} in sorted (field, text) order.
+ *
+ * <p>{@link #seekCeil(String, String)} positions the enum on the first term greater than
+ * or equal to a target using the in-memory block index, so ranges of terms such as all
+ * terms sharing a prefix are visited without scanning the dictionary from the start.</p>
+ *
+ * <p>An enum reads through its own clone of the dictionary, so enums over the same dictionary
+ * may be used from different threads. A single enum must not be used from multiple threads at
+ * once.</p>
+ */
+public class TermsEnum {
+
+    public enum SeekStatus {
+        /** The exact term was found. */
+        FOUND,
+        /** The enum is positioned on the next greater term. */
+        NOT_FOUND,
+        /** No term is greater than or equal to the target. */
+        END
+    }
+
+    private final DictionaryFile dictionary;
+    private long pointer;
+    private Term current;
+
+    TermsEnum(DictionaryFile dictionary) {
+        this.dictionary = dictionary;
+        this.pointer = dictionary.getTermRecordsPosition();
+    }
+
+    /**
+     * Advances to the next term.
+     *
+     * @return the next term, or null when the dictionary is exhausted
+     */
+    public Term next() throws IOException {
+        if (pointer >= dictionary.getTermRecordsEnd()) {
+            return current = null;
+        }
+        dictionary.seek(pointer);
+        current = dictionary.readTermRecord();
+        pointer = dictionary.getPosition();
+        return current;
+    }
+
+    /**
+     * Positions the enum on the first term greater than or equal to (field, text).
+     */
+    public SeekStatus seekCeil(String field, String text) throws IOException {
+        pointer = dictionary.findScanStart(field, text);
+        while (next() != null) {
+            int cmp = compare(current, field, text);
+            if (cmp == 0) {
+                return SeekStatus.FOUND;
+            }
+            if (cmp > 0) {
+                return SeekStatus.NOT_FOUND;
+            }
+        }
+        return SeekStatus.END;
+    }
+
+    public boolean seekExact(String field, String text) throws IOException {
+        return seekCeil(field, text) == SeekStatus.FOUND;
+    }
+
+    /**
+     * Returns the term the enum is positioned on, or null if unpositioned or exhausted.
+     */
+    public Term term() {
+        return current;
+    }
+
+    private static int compare(Term term, String field, String text) {
+        int cmp = term.getField().compareTo(field);
+        if (cmp != 0) return cmp;
+        return term.getText().compareTo(text);
+    }
+}
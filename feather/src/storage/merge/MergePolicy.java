@@ -1,6 +1,7 @@
 package storage.merge;
 
-import storage.file.SegmentMetadata;
+import storage.SegmentInfo;
+
 import java.util.List;
 
 public abstract class MergePolicy {
@@ -34,11 +35,16 @@ public abstract class MergePolicy {
         }
     }
 
-    public abstract MergeSpec findMerges(List<SegmentMetadata> segments);
+    /**
+     * Selects merges among the given segments, none of which may be part of a running merge.
+     *
+     * @return the merges to run, in order of preference; empty if no merge is needed
+     */
+    public abstract List<MergeSpec> findMerges(List<SegmentInfo> segments);
 
-    protected boolean exceedsMaxDocs(List<SegmentMetadata> segments) {
+    protected boolean exceedsMaxDocs(List<SegmentInfo> segments) {
         return segments.stream()
-                .mapToInt(SegmentMetadata::getDocumentCount)
+                .mapToInt(SegmentInfo::getDocumentCount)
                 .sum() > maxSegmentDocs;
     }
 
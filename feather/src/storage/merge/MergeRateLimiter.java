@@ -0,0 +1,80 @@
+package storage.merge;
+
+import storage.writer.RateLimiter;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Caps the combined write rate of merges, adapting to foreground load.
+ *
+ * <p>While {@code foregroundActive} reports indexing or search activity, merges are held to
+ * {@code minMbPerSec} so they leave disk bandwidth to the foreground; otherwise they may
+ * write at up to {@code maxMbPerSec}. One limiter is shared by all merge threads, so the
+ * limit applies to their total rate.</p>
+ *
+ * <p>Bytes are accumulated and the limiter only checks the clock every
+ * {@value #MIN_PAUSE_CHECK_BYTES} bytes, keeping the cost of small writes negligible. Time
+ * not used while merges were idle is not banked, so a burst after a pause is still limited.</p>
+ */
+public class MergeRateLimiter implements RateLimiter {
+    private static final long MIN_PAUSE_CHECK_BYTES = 64 * 1024;
+
+    private final double maxMbPerSec;
+    private final double minMbPerSec;
+    private final BooleanSupplier foregroundActive;
+
+    private long pendingBytes;
+    private long lastNanos = System.nanoTime();
+
+    public MergeRateLimiter(double maxMbPerSec, double minMbPerSec, BooleanSupplier foregroundActive) {
+        if (!(minMbPerSec > 0) || maxMbPerSec < minMbPerSec) {
+            throw new IllegalArgumentException(
+                    "Rates must satisfy 0 < minMbPerSec <= maxMbPerSec but were " + minMbPerSec + " and " + maxMbPerSec);
+        }
+        this.maxMbPerSec = maxMbPerSec;
+        this.minMbPerSec = minMbPerSec;
+        this.foregroundActive = foregroundActive;
+    }
+
+    /**
+     * Returns the rate currently applied, in MB per second.
+     */
+    public double getMbPerSec() {
+        return foregroundActive.getAsBoolean() ? minMbPerSec : maxMbPerSec;
+    }
+
+    @Override
+    public void pause(long bytes) throws IOException {
+        long sleepNanos;
+        synchronized (this) {
+            pendingBytes += bytes;
+            if (pendingBytes < MIN_PAUSE_CHECK_BYTES) {
+                return;
+            }
+            double mbPerSec = getMbPerSec();
+            if (Double.isInfinite(mbPerSec)) {
+                pendingBytes = 0;
+                return;
+            }
+
+            long now = System.nanoTime();
+            long costNanos = (long) (pendingBytes / (mbPerSec * 1024 * 1024) * TimeUnit.SECONDS.toNanos(1));
+            pendingBytes = 0;
+            long target = Math.max(lastNanos, now) + costNanos;
+            lastNanos = target;
+            sleepNanos = target - now;
+        }
+
+        if (sleepNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(sleepNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while throttling merge writes");
+            }
+        }
+    }
+}
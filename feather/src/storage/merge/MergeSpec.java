@@ -1,33 +1,42 @@
 package storage.merge;
 
-import storage.file.SegmentMetadata;
+import storage.SegmentInfo;
+
 import java.util.List;
-import java.util.Collections;
 
 public class MergeSpec {
-    private final List<SegmentMetadata> segments;
+    private final List<SegmentInfo> segments;
     private final String mergedName;
 
-    public MergeSpec(List<SegmentMetadata> segments) {
+    public MergeSpec(List<SegmentInfo> segments) {
         if (segments == null || segments.size() < 2) {
             throw new IllegalArgumentException("Must provide at least 2 segments to merge");
         }
 
-        this.segments = List.of(segments.toArray(SegmentMetadata[]::new));
+        this.segments = List.copyOf(segments);
         this.mergedName = generateMergedName(segments);
     }
 
-    private String generateMergedName(List<SegmentMetadata> segments) {
+    private String generateMergedName(List<SegmentInfo> segments) {
         return String.format("m_%d_%d",
                 segments.size(),
                 System.currentTimeMillis());
     }
 
-    public List<SegmentMetadata> getSegments() {
+    public List<SegmentInfo> getSegments() {
         return segments;
     }
 
     public String getMergedName() {
         return mergedName;
     }
+
+    public int getTotalDocumentCount() {
+        return segments.stream().mapToInt(SegmentInfo::getDocumentCount).sum();
+    }
+
+    @Override
+    public String toString() {
+        return "MergeSpec{" + segments.stream().map(SegmentInfo::getName).toList() + "}";
+    }
 }
@@ -0,0 +1,557 @@
+package storage.merge;
+
+import storage.IOContext;
+import storage.SegmentInfo;
+import storage.Storage;
+import storage.file.*;
+import storage.writer.DictionaryFileWriter;
+import storage.writer.DocumentFileWriter;
+import storage.writer.MetaFileWriter;
+import storage.writer.PointsFileWriter;
+import storage.writer.PostingFileWriter;
+import storage.writer.RateLimiter;
+import storage.writer.SegmentFileWriter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+
+/**
+ * Merges the segments of a {@link MergeSpec} into a new segment.
+ *
+ * <p>Every part of the merge streams: term records are combined with a k-way merge over the
+ * sorted dictionaries of the sources, each term's posting lists are merged by document ID
+ * straight into the new posting file, numeric points are k-way merged by value, and stored
+ * documents are bulk-copied with {@code transferTo} from sources without deletions (otherwise
+ * decoded and rewritten one at a time). Deleted documents are dropped from every part of the
+ * merge, which is how their space is reclaimed. What is held in memory does grow with the
+ * segments, though: the term index of the new dictionary (one entry per 128 terms), the live
+ * docs of sources with deletions, and the sorted IDs (four bytes per document) of every source
+ * whose ID range overlaps a newer segment of the index, and of that newer segment. Stored
+ * documents are not sorted by ID, so the IDs cannot be streamed.</p>
+ *
+ * <p>If a {@link RateLimiter} is given, all writes of the new segment are throttled by it.</p>
+ *
+ * <p>Document IDs are global, so they are kept as they are. Adding a document does not
+ * replace copies with the same ID in flushed segments, so segments may share IDs, and the
+ * copy in the newest segment of the index wins. A source's copy is therefore dropped when any
+ * segment after it in the index holds a live copy, whether that segment is merged too or not,
+ * so every copy kept is the newest one and the merged segment may take the place of the
+ * newest source. ID indexes are only read for segments whose ID ranges overlap a newer one.
+ * The source segments are left untouched; replacing them with the merged segment is up to
+ * the caller.</p>
+ */
+public class SegmentMerger {
+    private static final Comparator<Term> TERM_ORDER = Term::compareTo;
+
+    private final Storage storage;
+    private final MergeSpec spec;
+    private final String segmentName;
+    private final RateLimiter rateLimiter;
+    private final List<SegmentInfo> indexSegments;
+
+    public SegmentMerger(Storage storage, MergeSpec spec, String segmentName) {
+        this(storage, spec, segmentName, null);
+    }
+
+    /**
+     * Merges segments whose spec lists them in the order of the index, oldest first, and that
+     * share no IDs with other segments of the index.
+     */
+    public SegmentMerger(Storage storage, MergeSpec spec, String segmentName, RateLimiter rateLimiter) {
+        this(storage, spec, segmentName, rateLimiter, spec.getSegments());
+    }
+
+    /**
+     * @param indexSegments all segments of the index, oldest first, including the sources;
+     *                      their files must stay available until the merge is done
+     */
+    public SegmentMerger(Storage storage, MergeSpec spec, String segmentName, RateLimiter rateLimiter,
+                         List<SegmentInfo> indexSegments) {
+        this.storage = storage;
+        this.spec = spec;
+        this.segmentName = segmentName;
+        this.rateLimiter = rateLimiter;
+        this.indexSegments = List.copyOf(indexSegments);
+    }
+
+    /**
+     * Writes the merged segment.
+     *
+     * @return the info of the new segment
+     * @throws IOException if the merge fails; files of the partially written segment are removed
+     */
+    public SegmentInfo merge() throws IOException {
+        List<Source> sources = new ArrayList<>();
+        try {
+            for (SegmentInfo info : spec.getSegments()) {
+                sources.add(Source.open(storage, info));
+            }
+            linkNewerCopies(sources);
+            return writeSegment(sources);
+        } catch (IOException | RuntimeException e) {
+            deleteSegmentFiles(e);
+            throw e;
+        } finally {
+            closeAll(sources);
+        }
+    }
+
+    /**
+     * Finds, for each source, the newer segments of the index holding live copies of some of
+     * its documents, which then shadow its own copies.
+     */
+    private void linkNewerCopies(List<Source> sources) throws IOException {
+        List<String> order = indexSegments.stream().map(SegmentInfo::getName).toList();
+        Map<String, Source> sourcesByName = new HashMap<>();
+        for (Source source : sources) {
+            sourcesByName.put(source.info.getName(), source);
+        }
+        Map<String, LiveIds> others = new HashMap<>();
+        for (Source source : sources) {
+            int position = order.indexOf(source.info.getName());
+            if (position < 0) {
+                throw new IllegalArgumentException("Segment " + source.info.getName() + " is not part of the index");
+            }
+            for (SegmentInfo newer : indexSegments.subList(position + 1, indexSegments.size())) {
+                if (newer.getMinDocId() > source.info.getMaxDocId() || source.info.getMinDocId() > newer.getMaxDocId()) {
+                    continue;
+                }
+                LiveIds newerIds = liveIds(newer, sourcesByName, others);
+                if (newerIds.sharesLiveIdWith(source.liveIds())) {
+                    source.newerCopies.add(newerIds);
+                }
+            }
+        }
+    }
+
+    private LiveIds liveIds(SegmentInfo segment, Map<String, Source> sources, Map<String, LiveIds> others)
+            throws IOException {
+        Source source = sources.get(segment.getName());
+        if (source != null) {
+            return source.liveIds();
+        }
+        LiveIds ids = others.get(segment.getName());
+        if (ids == null) {
+            ids = LiveIds.read(storage, segment);
+            others.put(segment.getName(), ids);
+        }
+        return ids;
+    }
+
+    private SegmentInfo writeSegment(List<Source> sources) throws IOException {
+        List<Closeable> completed = new ArrayList<>();
+        DocumentFileWriter docWriter = null;
+        PostingFileWriter postWriter = null;
+        DictionaryFileWriter dicWriter = null;
+        PointsFileWriter pointsWriter = null;
+        MetaFileWriter metaWriter = null;
+        try {
+            docWriter = (DocumentFileWriter) createWriter(FileType.DOC);
+            DocStats stats = mergeDocuments(sources, docWriter);
+            DocumentFile docFile = docWriter.complete();
+            completed.add(docFile);
+
+            postWriter = (PostingFileWriter) createWriter(FileType.POST);
+            dicWriter = (DictionaryFileWriter) createWriter(FileType.DIC);
+            mergeTerms(sources, postWriter, dicWriter);
+            PostingFile postFile = postWriter.complete();
+            completed.add(postFile);
+            DictionaryFile dicFile = dicWriter.complete();
+            completed.add(dicFile);
+
+            pointsWriter = (PointsFileWriter) createWriter(FileType.POINTS);
+            mergePoints(sources, pointsWriter);
+            PointsFile pointsFile = pointsWriter.complete();
+            completed.add(pointsFile);
+
+            SegmentMetadata metadata = new SegmentMetadata(stats.count, stats.minDocId, stats.maxDocId);
+            metaWriter = storage.createMetaFileWriter(segmentName, metadata);
+            metaWriter.setRateLimiter(rateLimiter);
+            MetaFile metaFile = metaWriter.complete();
+            completed.add(metaFile);
+
+            SegmentInfo merged = new SegmentInfo(segmentName, System.currentTimeMillis(),
+                    stats.count, stats.minDocId, stats.maxDocId);
+            merged.setSizeInBytes(docFile.size() + postFile.size() + dicFile.size()
+                    + pointsFile.size() + metaFile.size());
+            merged.setFileChecksums(storage.checksumSegmentFiles(segmentName));
+            return merged;
+        } finally {
+            List<Closeable> resources = new ArrayList<>(completed);
+            resources.add(docWriter);
+            resources.add(postWriter);
+            resources.add(dicWriter);
+            resources.add(pointsWriter);
+            resources.add(metaWriter);
+            closeAll(resources);
+        }
+    }
+
+    private SegmentFileWriter createWriter(FileType type) throws IOException {
+        SegmentFileWriter writer = storage.createFileWriter(segmentName, type, IOContext.SEQUENTIAL);
+        writer.setRateLimiter(rateLimiter);
+        return writer;
+    }
+
+    private DocStats mergeDocuments(List<Source> sources, DocumentFileWriter docWriter) throws IOException {
+        DocStats stats = new DocStats();
+        for (Source source : sources) {
+            DocumentFile documents = source.documents;
+            // Without deletions every record survives unchanged, so the records are copied raw.
+            if (source.liveDocs == null && source.newerCopies.isEmpty()) {
+                docWriter.copyDocuments(documents);
+                if (documents.getHeaderRecordCount() > 0) {
+                    stats.add(documents.getHeaderRecordCount(), source.info.getMinDocId(), source.info.getMaxDocId());
+                }
+                continue;
+            }
+            documents.seekToContent();
+            for (int i = 0; i < documents.getHeaderRecordCount(); i++) {
+                Document document = documents.readDocument();
+                if (!source.isLive(document.getId())) {
+                    continue;
+                }
+                docWriter.writeDocument(document);
+                stats.add(document.getId());
+            }
+        }
+        if (stats.count == 0) {
+            throw new IOException("Merged segment " + segmentName + " would contain no documents");
+        }
+        return stats;
+    }
+
+    private void mergeTerms(List<Source> sources, PostingFileWriter postWriter,
+                            DictionaryFileWriter dicWriter) throws IOException {
+        PriorityQueue<TermCursor> queue = new PriorityQueue<>(
+                Math.max(1, sources.size()), Comparator.comparing(TermCursor::term, TERM_ORDER));
+        for (Source source : sources) {
+            TermCursor cursor = new TermCursor(source, source.dictionary.iterator());
+            if (cursor.advance()) {
+                queue.add(cursor);
+            }
+        }
+
+        List<TermCursor> matching = new ArrayList<>(sources.size());
+        while (!queue.isEmpty()) {
+            matching.clear();
+            Term term = queue.peek().term;
+            while (!queue.isEmpty() && queue.peek().term.compareTo(term) == 0) {
+                matching.add(queue.poll());
+            }
+
+            long postingPosition = postWriter.startPostingList();
+            mergePostings(matching, postWriter);
+            int docFreq = postWriter.finishPostingList();
+            if (docFreq > 0) {
+                dicWriter.appendTermRecord(new Term(term.getField(), term.getText(), docFreq, postingPosition));
+            }
+
+            for (TermCursor cursor : matching) {
+                if (cursor.advance()) {
+                    queue.add(cursor);
+                }
+            }
+        }
+    }
+
+    /**
+     * Merges the posting lists of one term from several sources by document ID.
+     */
+    private void mergePostings(List<TermCursor> cursors, PostingFileWriter postWriter) throws IOException {
+        PriorityQueue<PostingsEnum> queue = new PriorityQueue<>(
+                cursors.size(), Comparator.comparingInt(PostingsEnum::docID));
+        Map<PostingsEnum, Source> owners = new IdentityHashMap<>(cursors.size());
+        for (TermCursor cursor : cursors) {
+            PostingsEnum postings = cursor.source.postings.postings(cursor.term.getPostingPosition());
+            owners.put(postings, cursor.source);
+            if (nextLiveDoc(postings, cursor.source) != PostingsEnum.NO_MORE_DOCS) {
+                queue.add(postings);
+            }
+        }
+
+        while (!queue.isEmpty()) {
+            PostingsEnum postings = queue.poll();
+            postWriter.addPosting(postings.docID(), postings.freq(), postings.positions());
+            if (nextLiveDoc(postings, owners.get(postings)) != PostingsEnum.NO_MORE_DOCS) {
+                queue.add(postings);
+            }
+        }
+    }
+
+    private static int nextLiveDoc(PostingsEnum postings, Source source) throws IOException {
+        int doc = postings.nextDoc();
+        while (doc != PostingsEnum.NO_MORE_DOCS && !source.isLive(doc)) {
+            doc = postings.nextDoc();
+        }
+        return doc;
+    }
+
+    private void mergePoints(List<Source> sources, PointsFileWriter pointsWriter) throws IOException {
+        TreeSet<String> fields = new TreeSet<>();
+        for (Source source : sources) {
+            if (source.points != null) {
+                fields.addAll(source.points.getFields());
+            }
+        }
+
+        Comparator<PointsFile.PointIterator> pointOrder = Comparator
+                .comparingLong(PointsFile.PointIterator::value)
+                .thenComparingInt(PointsFile.PointIterator::docId);
+        Map<PointsFile.PointIterator, Source> owners = new IdentityHashMap<>();
+        for (String field : fields) {
+            PriorityQueue<PointsFile.PointIterator> queue = new PriorityQueue<>(sources.size(), pointOrder);
+            for (Source source : sources) {
+                if (source.points != null) {
+                    PointsFile.PointIterator points = source.points.iterator(field);
+                    owners.put(points, source);
+                    if (nextLivePoint(points, source)) {
+                        queue.add(points);
+                    }
+                }
+            }
+
+            pointsWriter.startField(field);
+            while (!queue.isEmpty()) {
+                PointsFile.PointIterator points = queue.poll();
+                pointsWriter.addPoint(points.value(), points.docId());
+                if (nextLivePoint(points, owners.get(points))) {
+                    queue.add(points);
+                }
+            }
+            pointsWriter.finishField();
+        }
+    }
+
+    private static boolean nextLivePoint(PointsFile.PointIterator points, Source source) throws IOException {
+        while (points.next()) {
+            if (source.isLive(points.docId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void deleteSegmentFiles(Exception cause) {
+        for (FileType type : FileType.values()) {
+            try {
+                storage.deleteFile(segmentName + type.getExtension());
+            } catch (IOException e) {
+                cause.addSuppressed(e);
+            }
+        }
+    }
+
+    private static void closeAll(List<? extends Closeable> resources) throws IOException {
+        IOException failure = null;
+        for (Closeable resource : resources) {
+            if (resource == null) {
+                continue;
+            }
+            try {
+                resource.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static final class DocStats {
+        private int count;
+        private int minDocId = Integer.MAX_VALUE;
+        private int maxDocId = Integer.MIN_VALUE;
+
+        private void add(int docId) {
+            add(1, docId, docId);
+        }
+
+        private void add(int docCount, int min, int max) {
+            count += docCount;
+            minDocId = Math.min(minDocId, min);
+            maxDocId = Math.max(maxDocId, max);
+        }
+    }
+
+    private static final class TermCursor {
+        private final Source source;
+        private final TermsEnum terms;
+        private Term term;
+
+        private TermCursor(Source source, TermsEnum terms) {
+            this.source = source;
+            this.terms = terms;
+        }
+
+        private Term term() {
+            return term;
+        }
+
+        private boolean advance() throws IOException {
+            term = terms.next();
+            return term != null;
+        }
+    }
+
+    /**
+     * The open files of one source segment.
+     */
+    private static final class Source implements Closeable {
+        private final SegmentInfo info;
+        private final DocumentFile documents;
+        private final DictionaryFile dictionary;
+        private final PostingFile postings;
+        private final PointsFile points;
+        private final LiveDocs liveDocs;
+        // Newer segments of the index holding live copies of some of this source's documents.
+        private final List<LiveIds> newerCopies = new ArrayList<>();
+        private LiveIds liveIds;
+
+        private Source(SegmentInfo info, DocumentFile documents, DictionaryFile dictionary, PostingFile postings,
+                       PointsFile points, LiveDocs liveDocs) {
+            this.info = info;
+            this.liveDocs = liveDocs;
+            this.documents = documents;
+            this.dictionary = dictionary;
+            this.postings = postings;
+            this.points = points;
+        }
+
+        static Source open(Storage storage, SegmentInfo info) throws IOException {
+            String name = info.getName();
+            List<Closeable> opened = new ArrayList<>();
+            try {
+                DocumentFile documents = open(storage, name + FileType.DOC.getExtension(), opened);
+                DictionaryFile dictionary = open(storage, name + FileType.DIC.getExtension(), opened);
+                PostingFile postings = open(storage, name + FileType.POST.getExtension(), opened);
+                String pointsName = name + FileType.POINTS.getExtension();
+                PointsFile points = storage.fileExists(pointsName) ? open(storage, pointsName, opened) : null;
+                return new Source(info, documents, dictionary, postings, points, readLiveDocs(storage, info));
+            } catch (IOException | RuntimeException e) {
+                try {
+                    closeAll(opened);
+                } catch (IOException closeException) {
+                    e.addSuppressed(closeException);
+                }
+                throw e;
+            }
+        }
+
+        /**
+         * Returns whether this source's copy of the document goes into the merged segment.
+         */
+        boolean isLive(int docId) {
+            if (liveDocs != null && !liveDocs.isLive(docId)) {
+                return false;
+            }
+            for (LiveIds newer : newerCopies) {
+                if (newer.contains(docId)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        LiveIds liveIds() throws IOException {
+            if (liveIds == null) {
+                liveIds = new LiveIds(info, documents.readSortedIds(), liveDocs);
+            }
+            return liveIds;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T extends SegmentFile> T open(Storage storage, String name, List<Closeable> opened)
+                throws IOException {
+            T file = (T) storage.openFile(name, IOContext.READ_ONCE);
+            opened.add(file);
+            return file;
+        }
+
+        @Override
+        public void close() throws IOException {
+            closeAll(Arrays.asList(documents, dictionary, postings, points));
+        }
+    }
+
+    /**
+     * The IDs of the live documents of a segment, read only when an older source shares part of
+     * its ID range.
+     */
+    private static final class LiveIds {
+        private final SegmentInfo info;
+        // Sorted ascending
+        private final int[] ids;
+        private final LiveDocs liveDocs;
+
+        private LiveIds(SegmentInfo info, int[] ids, LiveDocs liveDocs) {
+            this.info = info;
+            this.ids = ids;
+            this.liveDocs = liveDocs;
+        }
+
+        static LiveIds read(Storage storage, SegmentInfo info) throws IOException {
+            int[] ids;
+            try (DocumentFile documents = (DocumentFile) storage.openFile(
+                    info.getName() + FileType.DOC.getExtension(), IOContext.READ_ONCE)) {
+                ids = documents.readSortedIds();
+            }
+            return new LiveIds(info, ids, readLiveDocs(storage, info));
+        }
+
+        boolean contains(int docId) {
+            return info.containsDocId(docId) && Arrays.binarySearch(ids, docId) >= 0
+                    && (liveDocs == null || liveDocs.isLive(docId));
+        }
+
+        /**
+         * Returns whether this segment holds a live copy of a live document of {@code older},
+         * walking the sorted IDs of both together.
+         */
+        boolean sharesLiveIdWith(LiveIds older) {
+            int[] mine = ids;
+            int[] theirs = older.ids;
+            int i = 0;
+            int j = 0;
+            while (i < mine.length && j < theirs.length) {
+                if (mine[i] < theirs[j]) {
+                    i++;
+                } else if (mine[i] > theirs[j]) {
+                    j++;
+                } else {
+                    int docId = mine[i];
+                    if ((liveDocs == null || liveDocs.isLive(docId))
+                            && (older.liveDocs == null || older.liveDocs.isLive(docId))) {
+                        return true;
+                    }
+                    i++;
+                    j++;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static LiveDocs readLiveDocs(Storage storage, SegmentInfo info) throws IOException {
+        if (info.getLiveDocsFileName() == null) {
+            return null;
+        }
+        try (LiveDocsFile file = (LiveDocsFile) storage.openFile(info.getLiveDocsFileName(), IOContext.READ_ONCE)) {
+            return file.readLiveDocs();
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package storage.merge;
+
+import storage.SegmentInfo;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Merges segments of roughly equal size, allowing a bounded number of segments per size tier.
+ *
+ * <p>Segment sizes are their live byte size, i.e. {@link SegmentInfo#getSizeInBytes()} scaled
+ * by the fraction of documents not deleted, and sizes below {@code floorSegmentBytes} are
+ * rounded up so that many tiny flushed segments are treated alike. The index may hold
+ * {@code segmentsPerTier} segments per tier, each tier {@code maxMergeAtOnce} times larger
+ * than the previous. While there are more segments than that budget, the policy picks the
+ * best run of up to {@code maxMergeAtOnce} size-adjacent segments and schedules it.</p>
+ *
+ * <p>Candidates are scored so that lower is better: the skew (largest segment relative to the
+ * whole merge) dominates, favouring merges of equally sized segments; larger merges are
+ * slightly penalized; and reclaimable deletes reduce the score, favouring merges that free
+ * the most space. Segments whose live size already exceeds half of
+ * {@code maxMergedSegmentBytes} are only merged when more than {@code deletesPctAllowed}
+ * percent of their documents are deleted.</p>
+ */
+public class TieredMergePolicy extends MergePolicy {
+    public static final int DEFAULT_SEGMENTS_PER_TIER = 10;
+    public static final long DEFAULT_FLOOR_SEGMENT_BYTES = 2L * 1024 * 1024;
+    public static final long DEFAULT_MAX_MERGED_SEGMENT_BYTES = 5L * 1024 * 1024 * 1024;
+    public static final double DEFAULT_DELETES_PCT_ALLOWED = 33.0;
+
+    private final int segmentsPerTier;
+    private final long floorSegmentBytes;
+    private final long maxMergedSegmentBytes;
+    private final double deletesPctAllowed;
+
+    public TieredMergePolicy() {
+        this(DEFAULT_MAX_MERGE_AT_ONCE, MAX_SEGMENT_DOCS, DEFAULT_SEGMENTS_PER_TIER,
+                DEFAULT_FLOOR_SEGMENT_BYTES, DEFAULT_MAX_MERGED_SEGMENT_BYTES, DEFAULT_DELETES_PCT_ALLOWED);
+    }
+
+    public TieredMergePolicy(int maxMergeAtOnce, int maxSegmentDocs, int segmentsPerTier,
+                             long floorSegmentBytes, long maxMergedSegmentBytes, double deletesPctAllowed) {
+        super(maxMergeAtOnce, maxSegmentDocs);
+        if (segmentsPerTier < 2) {
+            throw new IllegalArgumentException("segmentsPerTier must be >= 2");
+        }
+        if (floorSegmentBytes <= 0) {
+            throw new IllegalArgumentException("floorSegmentBytes must be > 0");
+        }
+        if (maxMergedSegmentBytes < floorSegmentBytes) {
+            throw new IllegalArgumentException("maxMergedSegmentBytes must be >= floorSegmentBytes");
+        }
+        if (deletesPctAllowed < 0 || deletesPctAllowed > 100) {
+            throw new IllegalArgumentException("deletesPctAllowed must be between 0 and 100");
+        }
+        this.segmentsPerTier = segmentsPerTier;
+        this.floorSegmentBytes = floorSegmentBytes;
+        this.maxMergedSegmentBytes = maxMergedSegmentBytes;
+        this.deletesPctAllowed = deletesPctAllowed;
+    }
+
+    @Override
+    public List<MergeSpec> findMerges(List<SegmentInfo> segments) {
+        List<SegmentInfo> eligible = new ArrayList<>();
+        long totalBytes = 0;
+        long minSegmentBytes = Long.MAX_VALUE;
+        for (SegmentInfo segment : segments) {
+            if (segment.isDeleted()) {
+                continue;
+            }
+            long size = liveBytes(segment);
+            boolean tooLarge = size > maxMergedSegmentBytes / 2 && deletesPct(segment) <= deletesPctAllowed;
+            if (!tooLarge) {
+                eligible.add(segment);
+            }
+            totalBytes += size;
+            minSegmentBytes = Math.min(minSegmentBytes, floorSize(size));
+        }
+        eligible.sort(Comparator.comparingLong(this::liveBytes).reversed());
+
+        int allowedSegmentCount = allowedSegmentCount(totalBytes, minSegmentBytes);
+        List<MergeSpec> merges = new ArrayList<>();
+        while (eligible.size() > allowedSegmentCount) {
+            List<SegmentInfo> best = findBestMerge(eligible);
+            if (best == null) {
+                break;
+            }
+            merges.add(new MergeSpec(best));
+            eligible.removeAll(best);
+            // The merged segment replaces its sources in the count.
+            allowedSegmentCount++;
+        }
+        return merges;
+    }
+
+    /**
+     * Computes how many segments an index of {@code totalBytes} may hold: up to
+     * {@code segmentsPerTier} segments per tier, starting with a tier of the smallest segment size.
+     */
+    private int allowedSegmentCount(long totalBytes, long minSegmentBytes) {
+        if (totalBytes == 0) {
+            return Integer.MAX_VALUE;
+        }
+        double levelSize = Math.max(minSegmentBytes, floorSegmentBytes);
+        double bytesLeft = totalBytes;
+        double allowed = 0;
+        while (true) {
+            double segmentCountLevel = bytesLeft / levelSize;
+            if (segmentCountLevel < segmentsPerTier || levelSize >= maxMergedSegmentBytes) {
+                allowed += Math.ceil(segmentCountLevel);
+                break;
+            }
+            allowed += segmentsPerTier;
+            bytesLeft -= segmentsPerTier * levelSize;
+            levelSize = Math.min(maxMergedSegmentBytes, levelSize * getMaxMergeAtOnce());
+        }
+        return (int) Math.max(allowed, segmentsPerTier);
+    }
+
+    /**
+     * Returns the best-scoring run of size-adjacent segments, or null if no run of at least
+     * two segments fits the size and document limits.
+     */
+    private List<SegmentInfo> findBestMerge(List<SegmentInfo> sortedBySize) {
+        List<SegmentInfo> best = null;
+        double bestScore = Double.MAX_VALUE;
+
+        for (int start = 0; start < sortedBySize.size() - 1; start++) {
+            List<SegmentInfo> candidate = new ArrayList<>();
+            long mergedBytes = 0;
+            int mergedDocs = 0;
+            for (int i = start; i < sortedBySize.size() && candidate.size() < getMaxMergeAtOnce(); i++) {
+                SegmentInfo segment = sortedBySize.get(i);
+                long size = liveBytes(segment);
+                int docs = segment.getDocumentCount() - segment.getDelCount();
+                if (mergedBytes + size > maxMergedSegmentBytes || mergedDocs + docs > getMaxSegmentDocs()) {
+                    // Smaller segments further down may still fit.
+                    continue;
+                }
+                candidate.add(segment);
+                mergedBytes += size;
+                mergedDocs += docs;
+            }
+            if (candidate.size() < 2) {
+                continue;
+            }
+
+            double score = score(candidate);
+            if (score < bestScore) {
+                bestScore = score;
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    private double score(List<SegmentInfo> candidate) {
+        long totalBefore = 0;
+        long totalAfter = 0;
+        long totalFloored = 0;
+        long largestFloored = 0;
+        for (SegmentInfo segment : candidate) {
+            long live = liveBytes(segment);
+            totalBefore += Math.max(segment.getSizeInBytes(), 0);
+            totalAfter += live;
+            long floored = floorSize(live);
+            totalFloored += floored;
+            largestFloored = Math.max(largestFloored, floored);
+        }
+
+        double skew = (double) largestFloored / totalFloored;
+        double sizeFactor = Math.pow(Math.max(totalAfter, 1), 0.05);
+        double liveRatio = totalBefore == 0 ? 1.0 : (double) totalAfter / totalBefore;
+        return skew * sizeFactor * liveRatio * liveRatio;
+    }
+
+    private long liveBytes(SegmentInfo segment) {
+        long size = Math.max(segment.getSizeInBytes(), 0);
+        if (segment.getDocumentCount() == 0) {
+            return size;
+        }
+        double liveRatio = 1.0 - (double) segment.getDelCount() / segment.getDocumentCount();
+        return (long) (size * liveRatio);
+    }
+
+    private long floorSize(long bytes) {
+        return Math.max(bytes, floorSegmentBytes);
+    }
+
+    private static double deletesPct(SegmentInfo segment) {
+        return segment.getDocumentCount() == 0 ? 0 : 100.0 * segment.getDelCount() / segment.getDocumentCount();
+    }
+
+    public int getSegmentsPerTier() { return segmentsPerTier; }
+    public long getFloorSegmentBytes() { return floorSegmentBytes; }
+    public long getMaxMergedSegmentBytes() { return maxMergedSegmentBytes; }
+    public double getDeletesPctAllowed() { return deletesPctAllowed; }
+}
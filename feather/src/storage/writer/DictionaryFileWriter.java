@@ -7,32 +7,75 @@ import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
 import java.util.*;
 
+/**
+ * Writes a term dictionary.
+ *
+ * <p>Terms are either buffered with {@link #addTermRecord(Term)} and sorted on
+ * {@link #complete()}, or, when the caller already produces them in sorted order (e.g. a
+ * segment merge), written straight through with {@link #appendTermRecord(Term)}. Either
+ * way only every {@value #INDEX_BLOCK_SIZE}th term is kept in memory for the term index.</p>
+ */
 public class DictionaryFileWriter extends SegmentFileWriter {
     private static final int INDEX_BLOCK_SIZE = 128;
     private static final int PREFIX_LENGTH = 8;
-    private final long metadataPosition = FeatherFileHeader.HEADER_SIZE;
+    private static final long TERM_RECORDS_POSITION = FeatherFileHeader.HEADER_SIZE + 8 + 8 + 4;
+    private final List<Term> termsCache;
+    private final List<Term> indexTerms;
+    private final List<Long> indexRecordPositions;
     private long termIndexPosition;
-    private long termRecordsPosition;
     private int blockCount;
-    private final Map<Term, Long> termPositions;
-    private final List<Term> termsCache;
+    private int termCount;
+    private Term lastTerm;
+    private boolean appending;
 
     public DictionaryFileWriter(Path path, int bufferSize) throws IOException {
-        super(path, bufferSize);
-        this.termRecordsPosition = FeatherFileHeader.HEADER_SIZE + 8 + 8 + 4;
-        this.termPositions = new TreeMap<>(); // TreeMap to maintain the order of keys
+        this(createChannel(path), readOpener(path), bufferSize);
+    }
+
+    public DictionaryFileWriter(FileChannel channel, ReadChannelOpener readChannelOpener, int bufferSize) throws IOException {
+        super(channel, readChannelOpener, bufferSize);
         this.termsCache = new ArrayList<>();
+        this.indexTerms = new ArrayList<>();
+        this.indexRecordPositions = new ArrayList<>();
+
+        // Write initial header
+        FeatherFileHeader header = new FeatherFileHeader(FileType.DIC, 0);
+        writeHeader(header);
+        position = TERM_RECORDS_POSITION;
     }
 
+    /**
+     * Buffers a term record. Terms may be added in any order.
+     */
     public void addTermRecord(Term term) {
+        if (appending) {
+            throw new IllegalStateException("Cannot buffer terms after appending term records");
+        }
         termsCache.add(term);
     }
 
+    /**
+     * Writes a term record immediately. Terms must be appended in strictly increasing
+     * (field, text) order, and this cannot be combined with {@link #addTermRecord(Term)}.
+     */
+    public void appendTermRecord(Term term) throws IOException {
+        if (!termsCache.isEmpty()) {
+            throw new IllegalStateException("Cannot append term records after buffering terms");
+        }
+        appending = true;
+        writeTermRecord(term);
+    }
+
     private void writeTermRecord(Term term) throws IOException {
-        long recordPosition = termRecordsPosition;
+        if (lastTerm != null && term.compareTo(lastTerm) <= 0) {
+            throw new IllegalArgumentException("Terms out of order: " + term + " after " + lastTerm);
+        }
+        if (termCount % INDEX_BLOCK_SIZE == 0) {
+            indexTerms.add(term);
+            indexRecordPositions.add(position);
+        }
 
         byte[] fieldBytes = term.getField().getBytes(StandardCharsets.UTF_8);
         writeShort((short) fieldBytes.length);
@@ -45,26 +88,14 @@ public class DictionaryFileWriter extends SegmentFileWriter {
         writeInt(term.getDocumentFrequency());
         writeLong(term.getPostingPosition());
 
-        termPositions.put(term, recordPosition);
-        termRecordsPosition = position;
-    }
-
-    private void writeTermRecords() throws IOException {
-        position = termRecordsPosition;
-
-        for (Term term : termsCache) {
-            System.out.println(term);
-            writeTermRecord(term);
-        }
-
-        termIndexPosition = position;
+        termCount++;
+        lastTerm = term;
     }
 
     private void writeTermIndex() throws IOException {
         position = termIndexPosition;
 
-        List<Map.Entry<Term, Long>> entries = new ArrayList<>(termPositions.entrySet());
-        blockCount = (entries.size() + INDEX_BLOCK_SIZE - 1) / INDEX_BLOCK_SIZE;
+        blockCount = indexTerms.size();
         writeInt(blockCount);
 
         long blockOffsetsPosition = position;
@@ -73,13 +104,9 @@ public class DictionaryFileWriter extends SegmentFileWriter {
         }
 
         long[] blockOffsets = new long[blockCount];
-        int blockIndex = 0;
-
-        for (int i = 0; i < entries.size(); i += INDEX_BLOCK_SIZE) {
-            Map.Entry<Term, Long> blockEntry = entries.get(i);
-            blockOffsets[blockIndex] = position - termIndexPosition;
-            writeTermIndexEntry(blockEntry.getKey(), blockEntry.getValue());
-            blockIndex++;
+        for (int i = 0; i < blockCount; i++) {
+            blockOffsets[i] = position - termIndexPosition;
+            writeTermIndexEntry(indexTerms.get(i), indexRecordPositions.get(i));
         }
 
         long endPosition = position;
@@ -111,7 +138,7 @@ public class DictionaryFileWriter extends SegmentFileWriter {
 
     private void writeMetadata() throws IOException {
         position = FeatherFileHeader.HEADER_SIZE;
-        writeLong(termRecordsPosition);
+        writeLong(TERM_RECORDS_POSITION);
         writeLong(termIndexPosition);
         writeInt(blockCount);
     }
@@ -122,31 +149,26 @@ public class DictionaryFileWriter extends SegmentFileWriter {
 
     @Override
     public DictionaryFile complete() throws IOException {
-        Collections.sort(termsCache);
-
-        // Update header with term count
-        FeatherFileHeader header = new FeatherFileHeader(FileType.DIC, termsCache.size());
-        writeHeader(header);
-
-        long metadataStart = position;
-        position += (8 + 8 + 4);  // termRecordsStart + indexStart + blockCount
-
-        long termRecordsStart = position;
-        writeTermRecords();
-        long indexStart = position;
+        if (!appending) {
+            Collections.sort(termsCache);
+            for (Term term : termsCache) {
+                writeTermRecord(term);
+            }
+            termsCache.clear();
+        }
 
+        termIndexPosition = position;
         writeTermIndex();
 
-        position = metadataStart;
-        writeLong(termRecordsStart);
-        writeLong(indexStart);
-        writeInt(blockCount);
+        // Update header with term count
+        FeatherFileHeader header = new FeatherFileHeader(FileType.DIC, termCount);
+        writeHeader(header);
+        writeMetadata();
 
-        flush();
-        channel.close();
+        close();
 
         // Create and return the read-only file
-        FileChannel readChannel = FileChannel.open(path, StandardOpenOption.READ);
+        FileChannel readChannel = openForRead();
         return new DictionaryFile(readChannel, bufferSize);
     }
-} 
\ No newline at end of file
+}
@@ -9,7 +9,6 @@ import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
 import java.util.Map;
 
 public class DocumentFileWriter extends SegmentFileWriter {
@@ -17,23 +16,57 @@ public class DocumentFileWriter extends SegmentFileWriter {
     private static final byte TYPE_STRING = 1;
     private static final byte TYPE_NUMERIC = 2;
     private static final byte TYPE_BINARY = 3;
+    private static final long COPY_CHUNK_SIZE = 1024 * 1024;
     private int documentCount = 0;
 
     public DocumentFileWriter(Path path, int bufferSize) throws IOException {
-        super(path, bufferSize);
+        this(createChannel(path), readOpener(path), bufferSize);
+    }
+
+    public DocumentFileWriter(FileChannel channel, ReadChannelOpener readChannelOpener, int bufferSize) throws IOException {
+        super(channel, readChannelOpener, bufferSize);
         
         // Write initial header
         FeatherFileHeader header = new FeatherFileHeader(FileType.DOC, 0);
         writeHeader(header);
     }
 
-    public void writeDocument(Document document) throws IOException {
+    /**
+     * Appends a document.
+     *
+     * @return the offset of the document's record
+     */
+    public long writeDocument(Document document) throws IOException {
         validateDocument(document);
+        long offset = position;
         writeInt(document.getId());
         ByteBuffer content = serializeDocument(document);
         writeInt(content.remaining());
         writeBytes(content);
         documentCount++;
+        return offset;
+    }
+
+    /**
+     * Appends all documents of {@code source} by copying its records byte for byte. The record
+     * format carries no positions, so only the document count in the header changes.
+     */
+    public void copyDocuments(DocumentFile source) throws IOException {
+        long length = source.getRecordsLength();
+        long copied = 0;
+        while (copied < length) {
+            // transferTo writes at the target channel's own position.
+            flushBuffer();
+            channel.position(position);
+            long transferred = source.transferRecords(copied, Math.min(COPY_CHUNK_SIZE, length - copied), channel);
+            if (transferred <= 0) {
+                throw new IOException("Document records ended after " + copied + " of " + length + " bytes");
+            }
+            copied += transferred;
+            position += transferred;
+            throttle(transferred);
+        }
+        documentCount += source.getHeaderRecordCount();
     }
 
     private void validateDocument(Document document) {
@@ -42,7 +75,10 @@ public class DocumentFileWriter extends SegmentFileWriter {
         }
     }
 
-    private ByteBuffer serializeDocument(Document document) throws IOException {
+    /**
+     * Encodes the fields of a document the way its record stores them, without the ID.
+     */
+    public static ByteBuffer serializeDocument(Document document) throws IOException {
         ByteBuffer buffer = ByteBuffer.allocate(calculateBufferSize(document));
         Map<String, Object> fields = document.getFields();
 
@@ -56,7 +92,7 @@ public class DocumentFileWriter extends SegmentFileWriter {
         return buffer;
     }
 
-    private void writeField(ByteBuffer buffer, String name, Object value) throws IOException {
+    private static void writeField(ByteBuffer buffer, String name, Object value) throws IOException {
         byte[] nameBytes = name.getBytes(CHARSET);
         buffer.putShort((short) nameBytes.length);
         buffer.put(nameBytes);
@@ -78,7 +114,7 @@ public class DocumentFileWriter extends SegmentFileWriter {
         }
     }
 
-    private int calculateBufferSize(Document document) {
+    private static int calculateBufferSize(Document document) {
         int size = 4;
         for (Map.Entry<String, Object> entry : document.getFields().entrySet()) {
             size += 2 + entry.getKey().getBytes(CHARSET).length;
@@ -102,14 +138,11 @@ public class DocumentFileWriter extends SegmentFileWriter {
         FeatherFileHeader header = new FeatherFileHeader(FileType.DOC, documentCount);
         writeHeader(header);
 
-        // Ensure all data is written to disk
-        flush();
-
         // Close current write channel
-        channel.close();
+        close();
 
         // Create and return the read-only file
-        FileChannel readChannel = FileChannel.open(path, StandardOpenOption.READ);
+        FileChannel readChannel = openForRead();
         return new DocumentFile(readChannel, bufferSize);
     }
 } 
\ No newline at end of file
@@ -0,0 +1,72 @@
+package storage.writer;
+
+import storage.file.FeatherFileHeader;
+import storage.file.FileType;
+import storage.file.LiveDocs;
+import storage.file.LiveDocsFile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+/**
+ * Writes one generation of a segment's live documents.
+ */
+public class LiveDocsFileWriter extends SegmentFileWriter {
+    private int delCount;
+
+    public LiveDocsFileWriter(Path path, int bufferSize) throws IOException {
+        this(createChannel(path), readOpener(path), bufferSize);
+    }
+
+    public LiveDocsFileWriter(FileChannel channel, ReadChannelOpener readChannelOpener, int bufferSize) throws IOException {
+        super(channel, readChannelOpener, bufferSize);
+
+        // Write initial header
+        FeatherFileHeader header = new FeatherFileHeader(FileType.LIVE, 0);
+        writeHeader(header);
+    }
+
+    /**
+     * Writes the bitset, preceded by the segment's IDs in the sparse form.
+     *
+     * @param delCount the number of deleted documents of the segment, recorded in the header
+     */
+    public void writeLiveDocs(LiveDocs liveDocs, int delCount) throws IOException {
+        if (position != FeatherFileHeader.HEADER_SIZE) {
+            throw new IllegalStateException("Live docs have already been written");
+        }
+        this.delCount = delCount;
+        writeInt(liveDocs.getMinDocId());
+        writeInt(liveDocs.length());
+        int[] docIds = liveDocs.getDocIds();
+        writeInt(docIds == null ? 0 : 1);
+        if (docIds != null) {
+            ByteBuffer ids = ByteBuffer.allocate(docIds.length * Integer.BYTES);
+            ids.asIntBuffer().put(docIds);
+            writeBytes(ids);
+        }
+
+        ByteBuffer words = ByteBuffer.allocate(liveDocs.getWordCount() * Long.BYTES);
+        for (int i = 0; i < liveDocs.getWordCount(); i++) {
+            words.putLong(liveDocs.getWord(i));
+        }
+        words.flip();
+        writeBytes(words);
+    }
+
+    @Override
+    public LiveDocsFile complete() throws IOException {
+        // Update header with the deleted document count
+        position = 0;
+        FeatherFileHeader header = new FeatherFileHeader(FileType.LIVE, delCount);
+        writeHeader(header);
+
+        close();
+
+        // Create and return the read-only file
+        FileChannel readChannel = openForRead();
+        return new LiveDocsFile(readChannel, bufferSize);
+    }
+}
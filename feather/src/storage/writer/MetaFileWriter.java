@@ -5,13 +5,16 @@ import storage.file.*;
 import java.io.IOException;
 import java.nio.channels.FileChannel;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
 
 public class MetaFileWriter extends SegmentFileWriter {
     private final SegmentMetadata metadata;
 
     public MetaFileWriter(Path path, int bufferSize, SegmentMetadata metadata) throws IOException {
-        super(path, bufferSize);
+        this(createChannel(path), readOpener(path), bufferSize, metadata);
+    }
+
+    public MetaFileWriter(FileChannel channel, ReadChannelOpener readChannelOpener, int bufferSize, SegmentMetadata metadata) throws IOException {
+        super(channel, readChannelOpener, bufferSize);
         this.metadata = metadata;
         
         if (metadata == null) {
@@ -52,6 +55,7 @@ public class MetaFileWriter extends SegmentFileWriter {
     }
 
     private void writeMetadata() throws IOException {
+        flushBuffer();
         position = FeatherFileHeader.HEADER_SIZE;
         metadata.writeTo(channel, position);
     }
@@ -61,7 +65,7 @@ public class MetaFileWriter extends SegmentFileWriter {
         // Create and return the read-only file
         close();
 
-        FileChannel readChannel = FileChannel.open(path, StandardOpenOption.READ);
+        FileChannel readChannel = openForRead();
         return new MetaFile(readChannel, bufferSize);
     }
 } 
\ No newline at end of file
@@ -0,0 +1,187 @@
+package storage.writer;
+
+import storage.file.FeatherFileHeader;
+import storage.file.FileType;
+import storage.file.PointsFile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes the numeric points of a segment, one field after another.
+ *
+ * <p>Points of a field must be added in (value, docId) order. They are written in fixed-size
+ * blocks, and the min/max value and offset of each block are collected into an index that is
+ * appended to the file by {@link #complete()}.</p>
+ */
+public class PointsFileWriter extends SegmentFileWriter {
+    public static final int BLOCK_SIZE = 512;
+
+    private final List<FieldEntry> fields = new ArrayList<>();
+    private final ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE * PointsFile.POINT_BYTES);
+
+    private FieldEntry currentField;
+    private long lastValue;
+    private int lastDocId;
+    private int blockCount;
+    private long blockMin;
+
+    public PointsFileWriter(Path path, int bufferSize) throws IOException {
+        this(createChannel(path), readOpener(path), bufferSize);
+    }
+
+    public PointsFileWriter(FileChannel channel, ReadChannelOpener readChannelOpener, int bufferSize) throws IOException {
+        super(channel, readChannelOpener, bufferSize);
+
+        FeatherFileHeader header = new FeatherFileHeader(FileType.POINTS, 0);
+        writeHeader(header);
+        writeLong(0L); // field index position, patched by complete()
+    }
+
+    /**
+     * Writes all points of a field, sorting them first.
+     *
+     * @param values the value of each point
+     * @param docIds the document ID of each point, parallel to {@code values}
+     */
+    public void writeField(String field, long[] values, int[] docIds) throws IOException {
+        if (values.length != docIds.length) {
+            throw new IllegalArgumentException("values and docIds must have the same length");
+        }
+        Integer[] order = new Integer[values.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> {
+            int cmp = Long.compare(values[a], values[b]);
+            return cmp != 0 ? cmp : Integer.compare(docIds[a], docIds[b]);
+        });
+
+        startField(field);
+        for (int i : order) {
+            addPoint(values[i], docIds[i]);
+        }
+        finishField();
+    }
+
+    public void startField(String field) {
+        if (currentField != null) {
+            throw new IllegalStateException("Field " + currentField.name + " is not finished");
+        }
+        for (FieldEntry entry : fields) {
+            if (entry.name.equals(field)) {
+                throw new IllegalArgumentException("Field already written: " + field);
+            }
+        }
+        currentField = new FieldEntry(field);
+    }
+
+    /**
+     * Adds a point to the current field. Points must arrive in (value, docId) order.
+     */
+    public void addPoint(long value, int docId) throws IOException {
+        if (currentField == null) {
+            throw new IllegalStateException("No field started");
+        }
+        if (currentField.pointCount > 0
+                && (value < lastValue || (value == lastValue && docId <= lastDocId))) {
+            throw new IllegalArgumentException(String.format(
+                    "Points out of order in field %s: (%d, %d) after (%d, %d)",
+                    currentField.name, value, docId, lastValue, lastDocId));
+        }
+        if (blockCount == 0) {
+            blockMin = value;
+        }
+        block.putLong(value);
+        block.putInt(docId);
+        blockCount++;
+        currentField.pointCount++;
+        lastValue = value;
+        lastDocId = docId;
+
+        if (blockCount == BLOCK_SIZE) {
+            writeBlock();
+        }
+    }
+
+    public void finishField() throws IOException {
+        if (currentField == null) {
+            throw new IllegalStateException("No field started");
+        }
+        if (blockCount > 0) {
+            writeBlock();
+        }
+        if (currentField.pointCount > 0) {
+            fields.add(currentField);
+        }
+        currentField = null;
+    }
+
+    private void writeBlock() throws IOException {
+        currentField.blocks.add(new long[]{blockMin, lastValue, position, blockCount});
+        block.flip();
+        flushBuffer();
+        writeFully(block, position);
+        position += (long) blockCount * PointsFile.POINT_BYTES;
+        block.clear();
+        blockCount = 0;
+    }
+
+    private void writeFieldIndex() throws IOException {
+        writeInt(fields.size());
+        for (FieldEntry field : fields) {
+            byte[] nameBytes = field.name.getBytes(StandardCharsets.UTF_8);
+            if (nameBytes.length > Short.MAX_VALUE) {
+                throw new IllegalArgumentException("Field name too long: " + field.name);
+            }
+            writeShort((short) nameBytes.length);
+            writeBytes(ByteBuffer.wrap(nameBytes));
+            writeInt(field.pointCount);
+            writeInt(field.blocks.size());
+            for (long[] entry : field.blocks) {
+                writeLong(entry[0]);
+                writeLong(entry[1]);
+                writeLong(entry[2]);
+                writeInt((int) entry[3]);
+            }
+        }
+    }
+
+    @Override
+    public PointsFile complete() throws IOException {
+        if (currentField != null) {
+            finishField();
+        }
+
+        long indexPosition = position;
+        writeFieldIndex();
+
+        // Update header with field count, then patch the index position.
+        FeatherFileHeader header = new FeatherFileHeader(FileType.POINTS, fields.size());
+        writeHeader(header);
+        writeLong(indexPosition);
+
+        close();
+
+        // Create and return the read-only file
+        FileChannel readChannel = openForRead();
+        return new PointsFile(readChannel, bufferSize);
+    }
+
+    private static final class FieldEntry {
+        private final String name;
+        // Per block: min value, max value, file offset, point count.
+        private final List<long[]> blocks = new ArrayList<>();
+        private int pointCount;
+
+        private FieldEntry(String name) {
+            this.name = name;
+        }
+    }
+}
@@ -5,15 +5,23 @@ import storage.file.*;
 import java.io.IOException;
 import java.nio.channels.FileChannel;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
 import java.util.List;
 
 public class PostingFileWriter extends SegmentFileWriter {
     private static final int MIN_BUFFER_SIZE = 4096; // 4KB
     private int postingListCount = 0;
 
+    // State of the posting list being streamed, see startPostingList().
+    private long listStart = -1;
+    private int listDocCount;
+    private int listPrevDocId;
+
     public PostingFileWriter(Path path, int bufferSize) throws IOException {
-        super(path, validateBufferSize(bufferSize));
+        this(createChannel(path), readOpener(path), validateBufferSize(bufferSize));
+    }
+
+    public PostingFileWriter(FileChannel channel, ReadChannelOpener readChannelOpener, int bufferSize) throws IOException {
+        super(channel, readChannelOpener, validateBufferSize(bufferSize));
         
         // Write initial header
         FeatherFileHeader header = new FeatherFileHeader(FileType.POST, 0);
@@ -33,38 +41,83 @@ public class PostingFileWriter extends SegmentFileWriter {
             throw new IllegalArgumentException("Postings list cannot be null");
         }
 
-        long startPosition = position;
         postings.sort(Posting::compareTo);
 
-        writeInt(postings.size());
-
-        // Delta encoding for document IDs
-        int prevDocId = 0;
+        long startPosition = startPostingList();
         for (Posting posting : postings) {
-            // Write delta-encoded document ID
-            int deltaDocId = posting.getDocumentId() - prevDocId;
-            writeInt(deltaDocId);
-            prevDocId = posting.getDocumentId();
-
-            // Write frequency
-            writeInt(posting.getFrequency());
-
-            // Write positions with delta encoding
-            int[] positions = posting.getPositions();
-            writeInt(positions.length);
-
-            int prevPosition = 0;
-            for (int position : positions) {
-                int deltaPosition = position - prevPosition;
-                writeInt(deltaPosition);
-                prevPosition = position;
-            }
+            addPosting(posting.getDocumentId(), posting.getFrequency(), posting.getPositions());
         }
-        
-        postingListCount++;
+        finishPostingList();
         return startPosition;
     }
 
+    /**
+     * Starts a posting list whose postings are then streamed with
+     * {@link #addPosting(int, int, int[])}; the document count is patched in by
+     * {@link #finishPostingList()}.
+     *
+     * @return the position of the posting list
+     */
+    public long startPostingList() throws IOException {
+        if (listStart >= 0) {
+            throw new IllegalStateException("Previous posting list is not finished");
+        }
+        listStart = position;
+        listDocCount = 0;
+        listPrevDocId = 0;
+        writeInt(0); // document count placeholder
+        return listStart;
+    }
+
+    /**
+     * Adds a posting to the current list. Postings must arrive in increasing document order.
+     */
+    public void addPosting(int docId, int frequency, int[] positions) throws IOException {
+        if (listStart < 0) {
+            throw new IllegalStateException("No posting list started");
+        }
+        if (listDocCount > 0 && docId <= listPrevDocId) {
+            throw new IllegalArgumentException(
+                    "Postings out of order: document " + docId + " after " + listPrevDocId);
+        }
+
+        // Delta encoding for document IDs
+        writeInt(docId - listPrevDocId);
+        listPrevDocId = docId;
+
+        // Write frequency
+        writeInt(frequency);
+
+        // Write positions with delta encoding
+        writeInt(positions.length);
+        int prevPosition = 0;
+        for (int position : positions) {
+            writeInt(position - prevPosition);
+            prevPosition = position;
+        }
+        listDocCount++;
+    }
+
+    /**
+     * Finishes the current posting list. An empty list is discarded and its space reused.
+     *
+     * @return the number of documents in the list
+     */
+    public int finishPostingList() throws IOException {
+        if (listStart < 0) {
+            throw new IllegalStateException("No posting list started");
+        }
+        long endPosition = position;
+        position = listStart;
+        if (listDocCount > 0) {
+            writeInt(listDocCount);
+            position = endPosition;
+            postingListCount++;
+        }
+        listStart = -1;
+        return listDocCount;
+    }
+
     @Override
     public PostingFile complete() throws IOException {
         // Update header with posting list count
@@ -75,7 +128,7 @@ public class PostingFileWriter extends SegmentFileWriter {
         close();
         
         // Create and return the read-only file
-        FileChannel readChannel = FileChannel.open(path, StandardOpenOption.READ);
+        FileChannel readChannel = openForRead();
         return new PostingFile(readChannel, bufferSize);
     }
 } 
\ No newline at end of file
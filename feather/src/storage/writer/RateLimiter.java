@@ -0,0 +1,17 @@
+package storage.writer;
+
+import java.io.IOException;
+
+/**
+ * Throttles the bytes written by a {@link SegmentFileWriter}.
+ */
+public interface RateLimiter {
+
+    /**
+     * Called after {@code bytes} have been written; blocks as long as needed to keep the
+     * write rate within the limit.
+     *
+     * @throws java.io.InterruptedIOException if interrupted while pausing
+     */
+    void pause(long bytes) throws IOException;
+}
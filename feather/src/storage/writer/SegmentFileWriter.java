@@ -11,67 +11,170 @@ import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 
+/**
+ * Base class of the segment file writers.
+ *
+ * <p>Primitive writes are collected in a buffer of the size given at construction and written
+ * with one positional write once the buffer is full or a write does not continue where the
+ * buffered bytes end, e.g. when a writer seeks back to patch a count. Subclasses writing to
+ * {@link #channel} directly call {@link #flushBuffer()} first. A rate limiter is paused once
+ * per write to the channel, not per primitive.</p>
+ */
 public abstract class SegmentFileWriter implements Closeable {
     protected final FileChannel channel;
-    protected final ByteBuffer buffer;
     protected long position;
-    protected int bufferSize = 8192;
-    protected final Path path;
+    protected final int bufferSize;
+    private final ReadChannelOpener readChannelOpener;
+    private final ByteBuffer buffer;
+    // File position of the first buffered byte
+    private long bufferStart;
+    private RateLimiter rateLimiter;
 
-    protected SegmentFileWriter(Path path, int bufferSize) throws IOException {
-        this.channel = FileChannel.open(path,
-                StandardOpenOption.CREATE_NEW,
-                StandardOpenOption.WRITE);
+    /**
+     * Opens a channel to read a completed file back.
+     */
+    @FunctionalInterface
+    public interface ReadChannelOpener {
+        FileChannel open() throws IOException;
+    }
+
+    /**
+     * Writes to a channel of any storage, reading the completed file back through
+     * {@code readChannelOpener}.
+     */
+    protected SegmentFileWriter(FileChannel channel, ReadChannelOpener readChannelOpener, int bufferSize) {
+        if (bufferSize < 8) {
+            throw new IllegalArgumentException("Buffer size must be at least 8 bytes");
+        }
+        this.channel = channel;
+        this.bufferSize = bufferSize;
         this.buffer = ByteBuffer.allocate(bufferSize);
-        this.path = path;
+        this.readChannelOpener = readChannelOpener;
         this.position = 0;
     }
 
+    /**
+     * Creates a new file at {@code path} to write to.
+     */
+    protected static FileChannel createChannel(Path path) throws IOException {
+        return FileChannel.open(path,
+                StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE);
+    }
+
+    protected static ReadChannelOpener readOpener(Path path) {
+        return () -> FileChannel.open(path, StandardOpenOption.READ);
+    }
+
+    /**
+     * Opens the completed file for reading.
+     */
+    protected FileChannel openForRead() throws IOException {
+        return readChannelOpener.open();
+    }
+
+    /**
+     * Throttles all subsequent writes with the given limiter, e.g. for background merges.
+     */
+    public void setRateLimiter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * Reports written bytes to the rate limiter, if any.
+     */
+    protected void throttle(long bytes) throws IOException {
+        if (rateLimiter != null) {
+            rateLimiter.pause(bytes);
+        }
+    }
+
     protected void writeHeader(FeatherFileHeader header) throws IOException {
+        flushBuffer();
         header.writeTo(channel);
         position = FeatherFileHeader.HEADER_SIZE;
     }
 
     protected void writeInt(int value) throws IOException {
-        buffer.clear();
-        buffer.putInt(value);
-        buffer.flip();
-        channel.write(buffer, position);
+        reserve(4).putInt(value);
         position += 4;
     }
 
     protected void writeLong(long value) throws IOException {
-        buffer.clear();
-        buffer.putLong(value);
-        buffer.flip();
-        channel.write(buffer, position);
+        reserve(8).putLong(value);
         position += 8;
     }
 
     protected void writeShort(short value) throws IOException {
-        buffer.clear();
-        buffer.putShort(value);
-        buffer.flip();
-        channel.write(buffer, position);
+        reserve(2).putShort(value);
         position += 2;
     }
 
     protected void writeBytes(ByteBuffer data) throws IOException {
         data.position(0);
         int length = data.remaining();
-        channel.write(data, position);
+        if (length <= buffer.capacity()) {
+            reserve(length).put(data);
+        } else {
+            flushBuffer();
+            writeFully(data, position);
+        }
         position += length;
     }
 
-    public abstract SegmentFile complete() throws IOException;
+    /**
+     * Writes the buffered bytes to the channel.
+     */
+    protected void flushBuffer() throws IOException {
+        if (buffer.position() > 0) {
+            buffer.flip();
+            writeFully(buffer, bufferStart);
+            buffer.clear();
+        }
+    }
 
-    protected void flush() throws IOException {
-        channel.force(false);
+    /**
+     * Returns the buffer with room for {@code count} bytes at the current position, flushing
+     * it first if it is full or holds bytes that end elsewhere.
+     */
+    private ByteBuffer reserve(int count) throws IOException {
+        if (buffer.position() > 0
+                && (position != bufferStart + buffer.position() || buffer.remaining() < count)) {
+            flushBuffer();
+        }
+        if (buffer.position() == 0) {
+            bufferStart = position;
+        }
+        return buffer;
     }
 
+    /**
+     * Writes all remaining bytes of {@code data} at {@code at}, bypassing the buffer, and
+     * throttles once for them.
+     */
+    protected void writeFully(ByteBuffer data, long at) throws IOException {
+        int length = data.remaining();
+        while (data.hasRemaining()) {
+            at += channel.write(data, at);
+        }
+        throttle(length);
+    }
+
+    public abstract SegmentFile complete() throws IOException;
+
+    /**
+     * Writes buffered bytes and closes the channel. Writes are not forced to disk here; a commit syncs all new files
+     * together with {@link storage.Storage#sync}. Closing an already completed or closed
+     * writer has no effect.
+     */
     @Override
     public void close() throws IOException {
-        flush();
-        channel.close();
+        if (channel.isOpen()) {
+            try {
+                flushBuffer();
+            } finally {
+                channel.close();
+            }
+        }
     }
 }
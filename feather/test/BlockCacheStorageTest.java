@@ -0,0 +1,156 @@
+import core.analysis.LuceneAnalyzerAdapter;
+import core.index.IndexReader;
+import core.index.IndexWriter;
+import core.index.IndexWriterConfig;
+import core.search.IndexSearcher;
+import core.search.TermQuery;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import storage.BlockCache;
+import storage.BlockCacheStorage;
+import storage.FileSystemStorage;
+import storage.IOContext;
+import storage.Storage;
+import storage.file.Document;
+import storage.file.DocumentFile;
+import storage.file.FileType;
+import storage.merge.MergePolicy;
+import storage.writer.DocumentFileWriter;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BlockCacheStorageTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static void writeDocuments(Storage storage, String name, int count) throws IOException {
+        DocumentFileWriter writer = (DocumentFileWriter) storage.createFileWriter(name, FileType.DOC);
+        for (int i = 0; i < count; i++) {
+            Document doc = new Document(i);
+            doc.addField("content", "document number " + i + " with some padding to fill the blocks");
+            writer.writeDocument(doc);
+        }
+        writer.complete().close();
+    }
+
+    private static void readAll(Storage storage, String fileName, int count) throws IOException {
+        try (DocumentFile file = (DocumentFile) storage.openFile(fileName)) {
+            file.seekToContent();
+            for (int i = 0; i < count; i++) {
+                Document doc = file.readDocument();
+                assertEquals(i, doc.getId());
+                assertEquals("document number " + i + " with some padding to fill the blocks", doc.getField("content"));
+            }
+        }
+    }
+
+    @Test
+    void rereadingFile_IsServedFromCache() throws IOException {
+        // Given
+        BlockCache cache = new BlockCache(1024 * 1024, 4096);
+        BlockCacheStorage storage = new BlockCacheStorage(new FileSystemStorage(tempDir), cache);
+        writeDocuments(storage, "segment_0", 200);
+        readAll(storage, "segment_0.doc", 200);
+        long misses = cache.getMissCount();
+
+        // When
+        readAll(storage, "segment_0.doc", 200);
+
+        // Then
+        assertEquals(misses, cache.getMissCount());
+        assertTrue(cache.getHitCount() > 0);
+        assertEquals(0, cache.getEvictionCount());
+        storage.close();
+    }
+
+    @Test
+    void fileLargerThanCache_IsReadCorrectlyWhileEvicting() throws IOException {
+        // Given: a cache of one 4 KB block per stripe
+        BlockCache cache = new BlockCache(1, 4096);
+        BlockCacheStorage storage = new BlockCacheStorage(new FileSystemStorage(tempDir), cache);
+        writeDocuments(storage, "segment_0", 5000);
+
+        // When
+        readAll(storage, "segment_0.doc", 5000);
+
+        // Then
+        assertTrue(storage.fileLength("segment_0.doc") > cache.ramBytesUsed());
+        assertTrue(cache.getEvictionCount() > 0);
+        assertTrue(cache.size() <= cache.ramBytesUsed() / cache.getBlockSize());
+        storage.close();
+    }
+
+    @Test
+    void readOnceContext_BypassesCache() throws IOException {
+        // Given
+        BlockCache cache = new BlockCache(1024 * 1024, 4096);
+        BlockCacheStorage storage = new BlockCacheStorage(new FileSystemStorage(tempDir), cache);
+        writeDocuments(storage, "segment_0", 200);
+
+        // When
+        try (DocumentFile file = (DocumentFile) storage.openFile("segment_0.doc", IOContext.READ_ONCE)) {
+            file.seekToContent();
+            for (int i = 0; i < 200; i++) {
+                assertEquals(i, file.readDocument().getId());
+            }
+        }
+
+        // Then
+        assertEquals(0, cache.getMissCount());
+        assertEquals(0, cache.size());
+        storage.close();
+    }
+
+    @Test
+    void deletingFile_DropsItsBlocks() throws IOException {
+        // Given
+        BlockCache cache = new BlockCache(1024 * 1024, 4096);
+        BlockCacheStorage storage = new BlockCacheStorage(new FileSystemStorage(tempDir), cache);
+        writeDocuments(storage, "segment_0", 100);
+        readAll(storage, "segment_0.doc", 100);
+        assertTrue(cache.size() > 0);
+
+        // When
+        storage.deleteFile("segment_0.doc");
+
+        // Then
+        assertEquals(0, cache.size());
+        writeDocuments(storage, "segment_0", 50);
+        readAll(storage, "segment_0.doc", 50);
+        storage.close();
+    }
+
+    @Test
+    void indexWriter_SearchesThroughSharedCache() throws IOException {
+        // Given
+        BlockCache cache = new BlockCache(1024 * 1024);
+        BlockCacheStorage storage = new BlockCacheStorage(new FileSystemStorage(tempDir), cache);
+        MergePolicy mergePolicy = new NoMergePolicy();
+        IndexWriter writer = new IndexWriter(storage,
+                new IndexWriterConfig(new LuceneAnalyzerAdapter(new StandardAnalyzer()), mergePolicy, 10));
+        for (int i = 0; i < 30; i++) {
+            Document doc = new Document(i);
+            doc.addField("content", i % 3 == 0 ? "fizz" : "plain");
+            writer.addDocument(doc);
+        }
+        writer.commit();
+
+        // When
+        try (IndexReader reader = IndexReader.open(storage)) {
+            IndexSearcher searcher = new IndexSearcher(reader);
+            assertEquals(10, searcher.count(new TermQuery("content", "fizz")));
+            long misses = cache.getMissCount();
+            assertEquals(20, searcher.count(new TermQuery("content", "plain")));
+
+            // Then
+            assertEquals(misses, cache.getMissCount());
+        }
+        writer.close();
+        assertEquals(0, cache.size());
+    }
+}
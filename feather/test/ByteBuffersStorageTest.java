@@ -0,0 +1,146 @@
+import core.analysis.LuceneAnalyzerAdapter;
+import core.index.IndexReader;
+import core.index.IndexWriter;
+import core.index.IndexWriterConfig;
+import core.index.Segments;
+import core.search.IndexSearcher;
+import core.search.TermQuery;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import storage.ByteBuffersStorage;
+import storage.Storage;
+import storage.file.Document;
+import storage.file.DocumentFile;
+import storage.file.FileType;
+import storage.merge.MergePolicy;
+import storage.writer.DocumentFileWriter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ByteBuffersStorageTest {
+
+    private ByteBuffersStorage storage;
+
+    @BeforeEach
+    void setUp() {
+        // Small pages so that files span several of them
+        storage = new ByteBuffersStorage(256, false);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        storage.close();
+    }
+
+    private static void writeDocuments(Storage storage, String name) throws IOException {
+        DocumentFileWriter writer = (DocumentFileWriter) storage.createFileWriter(name, FileType.DOC);
+        for (int i = 0; i < 50; i++) {
+            writer.writeDocument(TestDocuments.createDocument(i, "document number " + i));
+        }
+        writer.complete().close();
+    }
+
+    @Test
+    void writtenSegmentFile_ReadsBackAcrossPages() throws IOException {
+        // Given
+        writeDocuments(storage, "segment_0");
+
+        // When
+        try (DocumentFile file = (DocumentFile) storage.openFile("segment_0.doc")) {
+            // Then
+            assertEquals(50, file.getHeaderRecordCount());
+            file.seekToContent();
+            for (int i = 0; i < 50; i++) {
+                Document doc = file.readDocument();
+                assertEquals(i, doc.getId());
+            }
+        }
+        assertTrue(storage.fileLength("segment_0.doc") > 256);
+    }
+
+    @Test
+    void checksum_IsCrc32OfContents() throws IOException {
+        // Given
+        writeDocuments(storage, "segment_0");
+        ByteBuffer contents = ByteBuffer.allocate((int) storage.fileLength("segment_0.doc"));
+        try (FileChannel in = storage.openChannel("segment_0.doc")) {
+            while (contents.hasRemaining() && in.read(contents) >= 0) {
+                // Keep reading until the buffer is full
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(contents.flip());
+
+        // When & Then
+        assertEquals(crc.getValue(), storage.checksum("segment_0.doc"));
+    }
+
+    @Test
+    void deletedFile_StaysReadableThroughOpenChannel() throws IOException {
+        // Given
+        try (FileChannel out = storage.createChannel("data.bin")) {
+            out.write(ByteBuffer.wrap(new byte[]{1, 2, 3, 4}));
+        }
+        FileChannel in = storage.openChannel("data.bin");
+
+        // When
+        storage.deleteFile("data.bin");
+
+        // Then
+        assertFalse(storage.fileExists("data.bin"));
+        ByteBuffer read = ByteBuffer.allocate(4);
+        assertEquals(4, in.read(read, 0));
+        assertEquals(3, read.get(2));
+        in.close();
+        assertThrows(IOException.class, () -> storage.openChannel("data.bin"));
+    }
+
+    @Test
+    void createAndRename_RejectExistingFiles() throws IOException {
+        // Given
+        storage.createChannel("a").close();
+        storage.createChannel("b").close();
+
+        // When & Then
+        assertThrows(FileAlreadyExistsException.class, () -> storage.createChannel("a"));
+        assertThrows(IOException.class, () -> storage.rename("a", "b"));
+        storage.rename("a", "c");
+        assertFalse(storage.fileExists("a"));
+        assertTrue(storage.fileExists("c"));
+    }
+
+    @Test
+    void indexWriter_IndexesCommitsAndSearchesInMemory() throws IOException {
+        // Given
+        MergePolicy mergePolicy = new NoMergePolicy();
+        IndexWriterConfig config = new IndexWriterConfig(new LuceneAnalyzerAdapter(new StandardAnalyzer()), mergePolicy, 10);
+        IndexWriter writer = new IndexWriter(storage, config);
+
+        // When
+        for (int i = 0; i < 25; i++) {
+            writer.addDocument(TestDocuments.createDocument(i, i % 2 == 0 ? "even" : "odd"));
+        }
+        writer.commit();
+        writer.deleteById(0);
+        writer.commit();
+
+        // Then
+        assertEquals(1, Segments.readLatest(storage).getGeneration());
+        Segments.readLatest(storage).checkIntegrity(storage);
+        try (IndexReader reader = IndexReader.open(storage)) {
+            IndexSearcher searcher = new IndexSearcher(reader);
+            assertEquals(12, searcher.count(new TermQuery("content", "even")));
+            assertEquals(12, searcher.count(new TermQuery("content", "odd")));
+        }
+        assertEquals("even", writer.get(2).getField("content"));
+        writer.close();
+    }
+}
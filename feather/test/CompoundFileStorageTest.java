@@ -0,0 +1,128 @@
+import core.analysis.LuceneAnalyzerAdapter;
+import core.index.IndexReader;
+import core.index.IndexWriter;
+import core.index.IndexWriterConfig;
+import core.index.Segments;
+import core.search.IndexSearcher;
+import core.search.TermQuery;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import storage.CompoundFileStorage;
+import storage.FileSystemStorage;
+import storage.Storage;
+import storage.file.Document;
+import storage.merge.MergePolicy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompoundFileStorageTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static IndexWriterConfig config() {
+        MergePolicy mergePolicy = new NoMergePolicy();
+        return new IndexWriterConfig(new LuceneAnalyzerAdapter(new StandardAnalyzer()), mergePolicy, 10);
+    }
+
+    private static void addDocuments(IndexWriter writer, int from, int to) throws IOException {
+        for (int i = from; i < to; i++) {
+            Document doc = new Document(i);
+            doc.addField("content", i % 2 == 0 ? "even" : "odd");
+            writer.addDocument(doc);
+        }
+    }
+
+    private static int count(Storage storage, String term) throws IOException {
+        try (IndexReader reader = IndexReader.open(storage)) {
+            return new IndexSearcher(reader).count(new TermQuery("content", term));
+        }
+    }
+
+    @Test
+    void commit_PacksSmallSegmentIntoCompoundFile() throws IOException {
+        // Given
+        CompoundFileStorage storage = new CompoundFileStorage(new FileSystemStorage(tempDir));
+        IndexWriter writer = new IndexWriter(storage, config());
+
+        // When
+        addDocuments(writer, 0, 10);
+        writer.commit();
+
+        // Then
+        assertTrue(Files.exists(tempDir.resolve("segment_0.cfs")));
+        assertFalse(Files.exists(tempDir.resolve("segment_0.doc")));
+        assertFalse(Files.exists(tempDir.resolve("segment_0.post")));
+        assertTrue(storage.fileExists("segment_0.doc"));
+        assertTrue(Arrays.asList(storage.listFiles()).contains("segment_0.dic"));
+        assertFalse(Arrays.asList(storage.listFiles()).contains("segment_0.cfs"));
+        Segments.readLatest(storage).checkIntegrity(storage);
+        assertEquals(5, count(storage, "even"));
+        assertEquals("odd", writer.get(3).getField("content"));
+        writer.close();
+    }
+
+    @Test
+    void commit_KeepsLargeSegmentAsIndividualFiles() throws IOException {
+        // Given
+        CompoundFileStorage storage = new CompoundFileStorage(new FileSystemStorage(tempDir), 1);
+        IndexWriter writer = new IndexWriter(storage, config());
+
+        // When
+        addDocuments(writer, 0, 10);
+        writer.commit();
+
+        // Then
+        assertFalse(Files.exists(tempDir.resolve("segment_0.cfs")));
+        assertTrue(Files.exists(tempDir.resolve("segment_0.doc")));
+        assertEquals(5, count(storage, "odd"));
+        writer.close();
+    }
+
+    @Test
+    void reopenedIndex_ReadsPackedSegmentsAndDeletesThemAfterMerge() throws IOException {
+        // Given
+        IndexWriter writer = new IndexWriter(new CompoundFileStorage(new FileSystemStorage(tempDir)), config());
+        addDocuments(writer, 0, 10);
+        writer.commit();
+        addDocuments(writer, 10, 20);
+        writer.commit();
+        writer.close();
+        assertTrue(Files.exists(tempDir.resolve("segment_1.cfs")));
+
+        // When
+        CompoundFileStorage storage = new CompoundFileStorage(new FileSystemStorage(tempDir));
+        assertEquals(10, count(storage, "even"));
+        writer = new IndexWriter(storage, config());
+        writer.deleteById(0);
+        writer.forceMerge(1);
+        writer.commit();
+
+        // Then
+        assertFalse(Files.exists(tempDir.resolve("segment_0.cfs")));
+        assertFalse(Files.exists(tempDir.resolve("segment_1.cfs")));
+        assertEquals(9, count(storage, "even"));
+        assertEquals(10, count(storage, "odd"));
+        writer.close();
+    }
+
+    @Test
+    void incompleteCompoundFile_IsDeletedWhenWriterOpens() throws IOException {
+        // Given: a compound file left over by a crash while packing
+        Files.write(tempDir.resolve("segment_7.cfs"), new byte[]{1, 2, 3});
+        CompoundFileStorage storage = new CompoundFileStorage(new FileSystemStorage(tempDir));
+
+        // When
+        IndexWriter writer = new IndexWriter(storage, config());
+
+        // Then
+        assertFalse(Files.exists(tempDir.resolve("segment_7.cfs")));
+        writer.close();
+    }
+}
@@ -0,0 +1,199 @@
+import core.analysis.LuceneAnalyzerAdapter;
+import core.index.ConcurrentMergeScheduler;
+import core.index.IndexReader;
+import core.index.IndexWriter;
+import core.index.IndexWriterConfig;
+import core.index.Segments;
+import core.search.IndexSearcher;
+import core.search.TermQuery;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import storage.FileSystemStorage;
+import storage.IOContext;
+import storage.SegmentInfo;
+import storage.Storage;
+import storage.file.SegmentFile;
+import storage.merge.MergePolicy;
+import storage.merge.MergeRateLimiter;
+import storage.merge.MergeSpec;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrentMergeSchedulerTest {
+
+    @TempDir
+    Path tempDir;
+
+    // Merges all segments once there are at least four of them.
+    private final MergePolicy mergeAllPolicy = new MergePolicy() {
+        @Override
+        public List<MergeSpec> findMerges(List<SegmentInfo> segments) {
+            return segments.size() >= 4 ? List.of(new MergeSpec(segments)) : List.of();
+        }
+    };
+
+    @Test
+    void commit_MergesSegmentsInBackground() throws IOException {
+        // Given
+        IndexWriterConfig config = new IndexWriterConfig(new LuceneAnalyzerAdapter(new StandardAnalyzer()), mergeAllPolicy, 1);
+        IndexWriter writer = new IndexWriter(new FileSystemStorage(tempDir), config);
+        for (int i = 0; i < 5; i++) {
+            writer.addDocument(TestDocuments.createDocument(i, "merged document " + i));
+        }
+
+        // When
+        writer.commit();
+        writer.close(); // waits for the scheduled merge
+
+        // Then
+        Storage storage = new FileSystemStorage(tempDir);
+        List<SegmentInfo> segments = Segments.readLatest(storage).getSegments();
+        assertEquals(1, segments.size());
+        assertEquals(5, segments.get(0).getDocumentCount());
+        assertFalse(tempDir.resolve("segment_0.doc").toFile().exists(), "Source segments should be deleted");
+        try (IndexReader reader = IndexReader.open(storage)) {
+            assertEquals(5, new IndexSearcher(reader).count(new TermQuery("content", "merged")));
+        } finally {
+            storage.close();
+        }
+    }
+
+    @Test
+    void failedMerge_IsNotRetriedAndIsReportedOnClose() throws IOException {
+        // Given: a storage failing to open merge inputs
+        AtomicInteger attempts = new AtomicInteger();
+        Storage failingStorage = new FileSystemStorage(tempDir) {
+            @Override
+            public SegmentFile openFile(String name, IOContext context) throws IOException {
+                if (context == IOContext.READ_ONCE) {
+                    attempts.incrementAndGet();
+                    throw new IOException("Simulated merge read failure");
+                }
+                return super.openFile(name, context);
+            }
+        };
+        IndexWriterConfig config = new IndexWriterConfig(new LuceneAnalyzerAdapter(new StandardAnalyzer()), mergeAllPolicy, 1);
+        IndexWriter writer = new IndexWriter(failingStorage, config);
+        for (int i = 0; i < 4; i++) {
+            writer.addDocument(TestDocuments.createDocument(i, "unmerged document " + i));
+        }
+
+        // When
+        IOException thrown = assertThrows(IOException.class, writer::close);
+
+        // Then
+        assertEquals("Background merge failed", thrown.getMessage());
+        assertEquals(1, attempts.get());
+        Storage storage = new FileSystemStorage(tempDir);
+        try {
+            assertEquals(4, Segments.readLatest(storage).getSegments().size());
+        } finally {
+            storage.close();
+        }
+    }
+
+    @Test
+    void scheduler_CanBeReusedAfterClose() throws IOException {
+        // Given
+        IndexWriterConfig config = new IndexWriterConfig(new LuceneAnalyzerAdapter(new StandardAnalyzer()), mergeAllPolicy, 1);
+        for (int round = 0; round < 2; round++) {
+            // When
+            IndexWriter writer = new IndexWriter(new FileSystemStorage(tempDir), config);
+            for (int i = 0; i < 4; i++) {
+                int id = round * 4 + i;
+                writer.addDocument(TestDocuments.createDocument(id, "round " + round));
+            }
+            writer.close();
+        }
+
+        // Then
+        Storage storage = new FileSystemStorage(tempDir);
+        try (IndexReader reader = IndexReader.open(storage)) {
+            assertEquals(1, reader.leaves().size());
+            assertEquals(8, reader.numDocs());
+        } finally {
+            storage.close();
+        }
+    }
+
+    @Test
+    void rateLimiter_ThrottlesToMaxRate() throws IOException {
+        // Given - 1 MB at 10 MB/s should take about 100 ms
+        MergeRateLimiter limiter = new MergeRateLimiter(10, 1, () -> false);
+
+        // When
+        long start = System.nanoTime();
+        for (int i = 0; i < 16; i++) {
+            limiter.pause(64 * 1024);
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        // Then
+        assertTrue(elapsedMillis >= 80, "Expected throttling but took " + elapsedMillis + " ms");
+    }
+
+    @Test
+    void rateLimiter_UsesMinRateWhileForegroundIsActive() {
+        // Given
+        AtomicBoolean foreground = new AtomicBoolean(false);
+        MergeRateLimiter limiter = new MergeRateLimiter(40, 5, foreground::get);
+
+        // When & Then
+        assertEquals(40, limiter.getMbPerSec());
+        foreground.set(true);
+        assertEquals(5, limiter.getMbPerSec());
+    }
+
+    @Test
+    void scheduler_NoteForegroundActivity_LowersMergeRate() {
+        // Given
+        ConcurrentMergeScheduler scheduler = new ConcurrentMergeScheduler(1, 40, 5);
+        assertEquals(40, scheduler.getRateLimiter().getMbPerSec());
+
+        // When
+        scheduler.noteForegroundActivity();
+
+        // Then
+        assertEquals(5, scheduler.getRateLimiter().getMbPerSec());
+    }
+
+    @Test
+    void searchOnWriterReader_LowersMergeRate() throws IOException {
+        // Given - An index written by an earlier writer, so the new writer's scheduler is idle
+        IndexWriterConfig config = new IndexWriterConfig(new LuceneAnalyzerAdapter(new StandardAnalyzer()), mergeAllPolicy, 10);
+        try (IndexWriter writer = new IndexWriter(new FileSystemStorage(tempDir), config)) {
+            for (int i = 0; i < 3; i++) {
+                writer.addDocument(TestDocuments.createDocument(i, "searched document " + i));
+            }
+            writer.commit();
+        }
+        ConcurrentMergeScheduler scheduler = new ConcurrentMergeScheduler(1, 40, 5);
+        IndexWriterConfig searchConfig = new IndexWriterConfig(new LuceneAnalyzerAdapter(new StandardAnalyzer()), mergeAllPolicy, 10)
+                .setMergeScheduler(scheduler);
+
+        try (IndexWriter writer = new IndexWriter(new FileSystemStorage(tempDir), searchConfig);
+             IndexReader reader = writer.getReader()) {
+            assertEquals(40, scheduler.getRateLimiter().getMbPerSec());
+
+            // When
+            int hits = new IndexSearcher(reader).count(new TermQuery("content", "searched"));
+
+            // Then
+            assertEquals(3, hits);
+            assertEquals(5, scheduler.getRateLimiter().getMbPerSec());
+        }
+    }
+
+    @Test
+    void rateLimiter_RejectsInvalidRates() {
+        assertThrows(IllegalArgumentException.class, () -> new MergeRateLimiter(1, 5, () -> false));
+        assertThrows(IllegalArgumentException.class, () -> new MergeRateLimiter(5, 0, () -> false));
+    }
+}
@@ -0,0 +1,253 @@
+import core.analysis.LuceneAnalyzerAdapter;
+import core.index.IndexReader;
+import core.index.IndexWriter;
+import core.index.IndexWriterConfig;
+import core.index.MergeScheduler;
+import core.index.Segments;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import storage.FileSystemStorage;
+import storage.SegmentInfo;
+import storage.Storage;
+import storage.file.Document;
+import storage.merge.MergePolicy;
+import storage.merge.MergeSpec;
+import storage.merge.SegmentMerger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DeleteDocumentsTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Storage storage;
+    private IndexWriter writer;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        storage = new FileSystemStorage(tempDir);
+        MergePolicy mergePolicy = new NoMergePolicy();
+        IndexWriterConfig config = new IndexWriterConfig(new LuceneAnalyzerAdapter(new StandardAnalyzer()), mergePolicy, 3);
+        writer = new IndexWriter(storage, config);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        writer.close();
+    }
+
+    private int numDocs() throws IOException {
+        try (IndexReader reader = IndexReader.open(storage)) {
+            return reader.numDocs();
+        }
+    }
+
+    @Test
+    void deleteById_HidesDocumentFromSearches() throws IOException {
+        // Given
+        for (int i = 0; i < 6; i++) {
+            writer.addDocument(TestDocuments.createDocument(i, "shared"));
+        }
+        writer.commit();
+
+        // When
+        writer.deleteById(1);
+        writer.deleteById(4);
+        writer.deleteById(99); // not in the index
+        writer.commit();
+
+        // Then
+        assertEquals(Set.of(0, 2, 3, 5), TestDocuments.search(storage, "shared"));
+        assertEquals(4, numDocs());
+        List<SegmentInfo> segments = Segments.readLatest(storage).getSegments();
+        assertEquals(2, segments.stream().mapToInt(SegmentInfo::getDelCount).sum());
+        for (SegmentInfo segment : segments) {
+            assertEquals(1, segment.getDelGen());
+            assertTrue(Files.exists(tempDir.resolve(segment.getLiveDocsFileName())));
+        }
+    }
+
+    @Test
+    void deleteById_InSegmentWithSparseIds() throws IOException {
+        // Given: segments whose IDs span billions
+        writer.addDocument(TestDocuments.createDocument(0, "sparse"));
+        writer.addDocument(TestDocuments.createDocument(2_000_000_000, "sparse"));
+        writer.commit();
+        writer.addDocument(TestDocuments.createDocument(1, "sparse"));
+        writer.addDocument(TestDocuments.createDocument(1_500_000_000, "sparse"));
+        writer.commit();
+
+        // When
+        writer.deleteById(0);
+        writer.deleteById(1_500_000_000);
+        writer.commit();
+        writer.forceMerge(1);
+
+        // Then
+        assertEquals(Set.of(1, 2_000_000_000), TestDocuments.search(storage, "sparse"));
+        assertEquals(2, numDocs());
+    }
+
+    @Test
+    void deleteDocuments_ByTermAcrossSegments() throws IOException {
+        // Given
+        writer.addDocument(TestDocuments.createDocument(1, "red apple"));
+        writer.addDocument(TestDocuments.createDocument(2, "green apple"));
+        writer.addDocument(TestDocuments.createDocument(3, "red cherry"));
+        writer.addDocument(TestDocuments.createDocument(4, "red pepper"));
+        writer.commit();
+
+        // When
+        writer.deleteDocuments("content", "red");
+        writer.commit();
+
+        // Then
+        assertEquals(Set.of(2), TestDocuments.search(storage, "apple"));
+        assertEquals(Set.of(), TestDocuments.search(storage, "red"));
+        assertEquals(1, numDocs());
+    }
+
+    @Test
+    void delete_AppliesOnlyToDocumentsAddedBefore() throws IOException {
+        // Given - Version 1 of document 7 is flushed, another document is still buffered
+        writer.addDocument(TestDocuments.createDocument(7, "version one"));
+        writer.commit();
+        writer.addDocument(TestDocuments.createDocument(8, "buffered one"));
+
+        // When - Both are deleted, then document 7 is added again
+        writer.deleteById(7);
+        writer.deleteDocuments("content", "buffered");
+        writer.addDocument(TestDocuments.createDocument(7, "version two"));
+        writer.commit();
+
+        // Then
+        assertEquals(Set.of(7), TestDocuments.search(storage, "version"));
+        assertEquals(Set.of(), TestDocuments.search(storage, "one"));
+        assertEquals(Set.of(7), TestDocuments.search(storage, "two"));
+        assertEquals(Set.of(), TestDocuments.search(storage, "buffered"));
+    }
+
+    @Test
+    void deleteAgain_WritesNextGenerationAndRemovesTheOldOne() throws IOException {
+        // Given
+        for (int i = 0; i < 3; i++) {
+            writer.addDocument(TestDocuments.createDocument(i, "generation"));
+        }
+        writer.commit();
+        writer.deleteById(0);
+        writer.commit();
+        SegmentInfo first = Segments.readLatest(storage).getSegments().get(0);
+
+        // When
+        writer.deleteById(1);
+        writer.commit();
+
+        // Then
+        SegmentInfo second = Segments.readLatest(storage).getSegments().get(0);
+        assertEquals(2, second.getDelGen());
+        assertEquals(2, second.getDelCount());
+        assertFalse(Files.exists(tempDir.resolve(first.getLiveDocsFileName())), "Superseded generation should be removed");
+        assertEquals(Set.of(2), TestDocuments.search(storage, "generation"));
+    }
+
+    @Test
+    void fullyDeletedSegment_IsDropped() throws IOException {
+        // Given - segment_0 holds documents 0-2, segment_1 holds document 3
+        for (int i = 0; i < 4; i++) {
+            writer.addDocument(TestDocuments.createDocument(i, "doomed"));
+        }
+        writer.commit();
+
+        // When
+        writer.deleteDocuments("content", "doomed");
+        writer.addDocument(TestDocuments.createDocument(10, "survivor"));
+        writer.commit();
+
+        // Then
+        List<SegmentInfo> segments = Segments.readLatest(storage).getSegments();
+        assertEquals(1, segments.size());
+        assertEquals(10, segments.get(0).getMinDocId());
+        assertFalse(Files.exists(tempDir.resolve("segment_0.doc")));
+        assertFalse(Files.exists(tempDir.resolve("segment_0_1.liv")));
+    }
+
+    @Test
+    void deleteDuringMerge_IsCarriedOverToMergedSegment() throws IOException {
+        // Given - A scheduler that holds merges until the test runs them
+        List<MergeScheduler.MergeTask> pending = new ArrayList<>();
+        MergeScheduler heldScheduler = new MergeScheduler() {
+            @Override
+            public void merge(MergeTask task) {
+                pending.add(task);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        MergePolicy mergeAll = new MergePolicy() {
+            @Override
+            public List<MergeSpec> findMerges(List<SegmentInfo> segments) {
+                return segments.size() > 1 ? List.of(new MergeSpec(segments)) : List.of();
+            }
+        };
+        writer.close();
+        storage = new FileSystemStorage(tempDir);
+        IndexWriterConfig config = new IndexWriterConfig(new LuceneAnalyzerAdapter(new StandardAnalyzer()), mergeAll, 2)
+                .setMergeScheduler(heldScheduler);
+        writer = new IndexWriter(storage, config);
+        for (int i = 0; i < 4; i++) {
+            writer.addDocument(TestDocuments.createDocument(i, "racing"));
+        }
+        writer.deleteById(0);
+        writer.commit(); // applies the first delete, then schedules the merge
+        assertEquals(1, pending.size());
+
+        // When - Another delete lands while the merge is pending
+        writer.deleteById(3);
+        writer.flush();
+        pending.remove(0).run(null);
+        writer.commit();
+
+        // Then
+        List<SegmentInfo> segments = Segments.readLatest(storage).getSegments();
+        assertEquals(1, segments.size());
+        assertEquals(3, segments.get(0).getDocumentCount(), "The merge dropped document 0");
+        assertEquals(1, segments.get(0).getDelCount(), "Document 3 was deleted during the merge");
+        assertEquals(Set.of(1, 2), TestDocuments.search(storage, "racing"));
+    }
+
+    @Test
+    void merge_ReclaimsDeletedDocuments() throws IOException {
+        // Given
+        for (int i = 0; i < 6; i++) {
+            writer.addDocument(TestDocuments.createDocument(i, "merge candidate " + i));
+        }
+        writer.commit();
+        writer.deleteById(0);
+        writer.deleteById(5);
+        writer.deleteDocuments("content", "2");
+        writer.commit();
+
+        // When
+        List<SegmentInfo> segments = Segments.readLatest(storage).getSegments();
+        SegmentInfo merged = new SegmentMerger(storage, new MergeSpec(segments), "segment_merged").merge();
+
+        // Then
+        assertEquals(3, merged.getDocumentCount());
+        assertEquals(1, merged.getMinDocId());
+        assertEquals(4, merged.getMaxDocId());
+        assertEquals(0, merged.getDelCount());
+    }
+}
@@ -6,12 +6,18 @@ import storage.file.DictionaryFile;
 import storage.file.FeatherFileHeader;
 import storage.file.FileType;
 import storage.file.Term;
+import storage.file.TermsEnum;
 import storage.writer.DictionaryFileWriter;
 
 import java.io.IOException;
 import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -188,6 +194,41 @@ public class DictionaryFileTest {
         assertEquals(2000L, found.getPostingPosition());
     }
     
+    @Test
+    void termsEnum_SeekCeilAndIterateInOrder() throws IOException {
+        // Given - Enough terms to span several index blocks
+        for (int i = 0; i < INDEX_BLOCK_SIZE * 3; i++) {
+            writer.addTermRecord(new Term("title", String.format("term%04d", i), 1, i * 1000L));
+        }
+        file = writer.complete();
+        TermsEnum terms = file.iterator();
+
+        // When & Then - Exact seek
+        assertEquals(TermsEnum.SeekStatus.FOUND, terms.seekCeil("title", "term0200"));
+        assertEquals("term0200", terms.term().getText());
+        assertEquals("term0201", terms.next().getText());
+
+        // When & Then - Seek between terms lands on the next greater term
+        assertEquals(TermsEnum.SeekStatus.NOT_FOUND, terms.seekCeil("title", "term01285"));
+        assertEquals("term0129", terms.term().getText());
+
+        // When & Then - Seek past the last term
+        assertEquals(TermsEnum.SeekStatus.END, terms.seekCeil("title", "zzz"));
+        assertNull(terms.term());
+        assertEquals(INDEX_BLOCK_SIZE * 3, file.getTermCount());
+    }
+
+    @Test
+    void findTerm_DoesNotMatchTermsSharingALongPrefix() throws IOException {
+        // Given
+        writer.addTermRecord(new Term("title", "internationalization", 1, 1000L));
+        file = writer.complete();
+
+        // When & Then
+        assertNull(file.findTerm("title", "internationalize"));
+        assertNotNull(file.findTerm("title", "internationalization"));
+    }
+    
     @Test
     void verifyFileAfterReopen() throws IOException {
         // Given
@@ -207,4 +248,132 @@ public class DictionaryFileTest {
             assertEquals(1000L, found.getPostingPosition());
         }
     }
+
+    @Test
+    void concurrentLookups_OnOneOpenFile_FindEveryTerm() throws Exception {
+        // Given
+        int termCount = INDEX_BLOCK_SIZE * 8;
+        for (int i = 0; i < termCount; i++) {
+            writer.addTermRecord(new Term("title", String.format("term%04d", i), i, i * 1000L));
+        }
+        file = writer.complete();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        // When
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int first = t;
+            results.add(executor.submit(() -> {
+                int found = 0;
+                for (int i = first; i < termCount; i += 8) {
+                    Term term = file.findTerm("title", String.format("term%04d", i));
+                    if (term != null && term.getPostingPosition() == i * 1000L) {
+                        found++;
+                    }
+                }
+                return found;
+            }));
+        }
+
+        // Then
+        int total = 0;
+        for (Future<Integer> result : results) {
+            total += result.get();
+        }
+        executor.shutdown();
+        assertEquals(termCount, total);
+        file.close();
+    }
+
+    @Test
+    void clone_ReadsIndependentlyOfOriginal() throws IOException {
+        // Given
+        for (int i = 0; i < 10; i++) {
+            writer.addTermRecord(new Term("title", "term" + i, i, i * 1000L));
+        }
+        file = writer.complete();
+        TermsEnum first = file.iterator();
+        first.next();
+
+        // When
+        DictionaryFile clone = file.clone();
+        TermsEnum second = clone.iterator();
+        clone.close();
+
+        // Then: closing a clone leaves the file open, and enums keep their own positions
+        assertEquals("term0", second.next().getText());
+        assertEquals("term1", first.next().getText());
+        assertEquals("term1", second.next().getText());
+        file.close();
+    }
+
+    @Test
+    void repeatedLookups_AreServedFromTermCache() throws IOException {
+        // Given
+        for (int i = 0; i < 10; i++) {
+            writer.addTermRecord(new Term("title", "term" + i, i, i * 1000L));
+        }
+        file = writer.complete();
+        Term first = file.findTerm("title", "term3");
+
+        // When
+        Term second = file.findTerm("title", "term3");
+        Term fromClone = file.clone().findTerm("title", "term3");
+
+        // Then: the cached term is returned, and misses stay misses
+        assertSame(first, second);
+        assertSame(first, fromClone);
+        assertNull(file.findTerm("title", "absent"));
+        assertNull(file.findTerm("title", "absent"));
+        file.close();
+    }
+
+    @Test
+    void repeatedlyUsedTerm_SurvivesStreamOfDistinctLookups() throws IOException {
+        // Given
+        int termCount = 3000;
+        for (int i = 0; i < termCount; i++) {
+            writer.addTermRecord(new Term("title", String.format("term%05d", i), i, i * 10L));
+        }
+        file = writer.complete();
+        Term hot = file.findTerm("title", "term00000");
+
+        // When - Thousands of one-off lookups, half of them misses, with the hot term used in between
+        for (int i = 1; i < termCount; i++) {
+            file.findTerm("title", String.format("term%05d", i));
+            file.findTerm("title", String.format("term%05dx", i));
+            if (i % 100 == 0) {
+                assertSame(hot, file.findTerm("title", "term00000"));
+            }
+        }
+
+        // Then
+        assertSame(hot, file.findTerm("title", "term00000"));
+        file.close();
+    }
+
+    @Test
+    void lookupsBeyondCacheCapacity_FindEveryTerm() throws IOException {
+        // Given
+        int termCount = 3000;
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < termCount; i++) {
+            texts.add(String.format("term%05d", i));
+        }
+        for (int i = 0; i < termCount; i++) {
+            writer.addTermRecord(new Term("title", texts.get(i), i, i * 10L));
+        }
+        file = writer.complete();
+
+        // When & Then: two passes, the second over a full cache
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < termCount; i++) {
+                Term found = file.findTerm("title", texts.get(i));
+                assertNotNull(found);
+                assertEquals(i * 10L, found.getPostingPosition());
+                assertNull(file.findTerm("title", texts.get(i) + "x"));
+            }
+        }
+        file.close();
+    }
 }
@@ -4,6 +4,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import storage.file.Document;
 import storage.file.DocumentFile;
+import storage.file.DocumentIdIndex;
 import storage.file.FeatherFileHeader;
 import storage.file.FileType;
 import storage.writer.DocumentFileWriter;
@@ -175,4 +176,30 @@ class DocumentFileTest {
             assertEquals("Second Document", readDoc2.getField("title"));
         }
     }
+
+    @Test
+    void readIdIndexLocatesDocumentsById() throws IOException {
+        // Given - Documents written out of ID order
+        int[] ids = {7, 3, 11};
+        long[] offsets = new long[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            Document doc = new Document(ids[i]);
+            doc.addField("title", "Document " + ids[i]);
+            offsets[i] = writer.writeDocument(doc);
+        }
+        file = writer.complete();
+
+        // When
+        DocumentIdIndex index = file.readIdIndex();
+
+        // Then
+        assertArrayEquals(new int[]{3, 7, 11}, index.ids());
+        assertFalse(index.contains(5));
+        assertEquals(-1, index.offsetOf(5));
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(offsets[i], index.offsetOf(ids[i]));
+            assertEquals("Document " + ids[i], file.readDocumentAt(index.offsetOf(ids[i])).getField("title"));
+        }
+        file.close();
+    }
 }
@@ -555,6 +555,22 @@ class FileSystemStorageTest {
         assertDoesNotThrow(() -> storage.sync(filesToSync));
     }
 
+    @Test
+    void shouldSyncManyFilesInParallelAndSkipSyncedOnes() throws IOException {
+        // Given
+        java.util.List<String> filesToSync = new java.util.ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            createTestFile("file" + i, FileType.DOC);
+            filesToSync.add("file" + i + ".doc");
+        }
+
+        // When & Then
+        assertDoesNotThrow(() -> storage.sync(filesToSync));
+        assertDoesNotThrow(() -> storage.sync(filesToSync));
+        storage.deleteFile("file0.doc");
+        assertThrows(IOException.class, () -> storage.sync(filesToSync));
+    }
+
     @Test
     void shouldThrowWhenSyncingNonExistentFile() {
         java.util.List<String> filesToSync = java.util.Collections.singletonList("nonexistent.doc");
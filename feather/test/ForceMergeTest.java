@@ -0,0 +1,179 @@
+import core.analysis.LuceneAnalyzerAdapter;
+import core.index.IndexReader;
+import core.index.IndexWriter;
+import core.index.IndexWriterConfig;
+import core.index.Segments;
+import core.search.IndexSearcher;
+import core.search.TermQuery;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import storage.FileSystemStorage;
+import storage.SegmentInfo;
+import storage.Storage;
+import storage.file.Document;
+import storage.merge.MergePolicy;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ForceMergeTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Storage storage;
+    private IndexWriter writer;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        storage = new FileSystemStorage(tempDir);
+        MergePolicy mergePolicy = new NoMergePolicy();
+        IndexWriterConfig config = new IndexWriterConfig(new LuceneAnalyzerAdapter(new StandardAnalyzer()), mergePolicy, 1);
+        writer = new IndexWriter(storage, config);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        writer.close();
+    }
+
+    private void addDocuments(int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            Document doc = new Document(i);
+            doc.addField("content", "catalogue entry " + i);
+            writer.addDocument(doc);
+        }
+    }
+
+    private int searchCount(String text) throws IOException {
+        try (IndexReader reader = IndexReader.open(storage)) {
+            return new IndexSearcher(reader).count(new TermQuery("content", text));
+        }
+    }
+
+    @Test
+    void forceMerge_ToSingleSegment() throws IOException {
+        // Given - One segment per document
+        addDocuments(7);
+        List<Integer> progress = new ArrayList<>();
+
+        // When
+        writer.forceMerge(1, 1, (merged, segmentCount) -> progress.add(segmentCount));
+
+        // Then
+        List<SegmentInfo> segments = Segments.readLatest(storage).getSegments();
+        assertEquals(1, segments.size());
+        assertEquals(7, segments.get(0).getDocumentCount());
+        assertEquals(List.of(1), progress);
+        assertEquals(7, searchCount("catalogue"));
+        assertEquals(1, searchCount("3"));
+    }
+
+    @Test
+    void forceMerge_InParallel_MergesIndependentGroups() throws IOException {
+        // Given
+        addDocuments(12);
+        List<Integer> progress = new ArrayList<>();
+
+        // When
+        writer.forceMerge(1, 4, (merged, segmentCount) -> progress.add(segmentCount));
+
+        // Then - A first round of four parallel merges, then one merging their results
+        assertEquals(1, Segments.readLatest(storage).size());
+        assertEquals(5, progress.size());
+        assertEquals(1, (int) progress.get(progress.size() - 1));
+        assertEquals(12, searchCount("catalogue"));
+    }
+
+    @Test
+    void forceMerge_ToSeveralSegments_MergesOnlyTheExcess() throws IOException {
+        // Given
+        addDocuments(6);
+
+        // When
+        writer.forceMerge(3);
+
+        // Then
+        List<SegmentInfo> segments = Segments.readLatest(storage).getSegments();
+        assertEquals(3, segments.size());
+        assertEquals(6, segments.stream().mapToInt(SegmentInfo::getDocumentCount).sum());
+    }
+
+    @Test
+    void forceMerge_KeepsNewestCopyOfRepeatedId() throws IOException {
+        // Given: two segments holding ID 1, the newer one smaller so it is merged first
+        Document first = new Document(1);
+        first.addField("content", "old copy with a much longer body than the other");
+        writer.addDocument(first);
+        Document second = new Document(1);
+        second.addField("content", "new copy");
+        writer.addDocument(second);
+        writer.commit();
+
+        // When
+        writer.forceMerge(1);
+
+        // Then
+        try (IndexReader reader = IndexReader.open(storage)) {
+            assertEquals(1, reader.leaves().size());
+            assertEquals(1, reader.numDocs());
+        }
+        assertEquals(0, searchCount("old"));
+        assertEquals(1, searchCount("new"));
+        assertEquals("new copy", writer.get(1).getField("content"));
+    }
+
+    @Test
+    void forceMerge_OfSegmentsAroundNewerCopy_KeepsNewestCopy() throws IOException {
+        // Given: ID 5 in three segments; the middle one is the largest, so the other two merge first
+        Document first = new Document(5);
+        first.addField("content", "vone");
+        writer.addDocument(first);
+        Document second = new Document(5);
+        second.addField("content", "vtwo " + "filler ".repeat(200));
+        writer.addDocument(second);
+        Document third = new Document(5);
+        third.addField("content", "vthree");
+        writer.addDocument(third);
+        writer.commit();
+
+        // When
+        writer.forceMerge(2);
+
+        // Then
+        assertEquals("vthree", writer.get(5).getField("content"));
+        writer.forceMerge(1);
+        assertEquals("vthree", writer.get(5).getField("content"));
+        assertEquals(0, searchCount("vone"));
+        assertEquals(0, searchCount("vtwo"));
+        assertEquals(1, searchCount("vthree"));
+    }
+
+    @Test
+    void forceMerge_WithinLimit_DoesNothing() throws IOException {
+        // Given
+        addDocuments(2);
+        writer.commit();
+        long generation = Segments.readLatest(storage).getGeneration();
+
+        // When
+        writer.forceMerge(5);
+
+        // Then - Only the commit of the (empty) buffer writes a generation
+        assertEquals(2, Segments.readLatest(storage).size());
+        assertEquals(generation + 1, Segments.readLatest(storage).getGeneration());
+    }
+
+    @Test
+    void forceMerge_RejectsInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> writer.forceMerge(0));
+        assertThrows(IllegalArgumentException.class, () -> writer.forceMerge(1, 0, null));
+    }
+}
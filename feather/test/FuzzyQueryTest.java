@@ -0,0 +1,141 @@
+import core.analysis.LuceneAnalyzerAdapter;
+import core.index.IndexReader;
+import core.index.IndexWriter;
+import core.index.IndexWriterConfig;
+import core.index.SegmentReader;
+import core.search.FuzzyQuery;
+import core.search.IndexSearcher;
+import core.search.TopDocs;
+import core.utils.automaton.Automata;
+import core.utils.automaton.Automaton;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import storage.FileSystemStorage;
+import storage.Storage;
+import storage.file.Term;
+import storage.merge.MergePolicy;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FuzzyQueryTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Storage storage;
+    private IndexWriter writer;
+    private IndexReader reader;
+    private IndexSearcher searcher;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        storage = new FileSystemStorage(tempDir);
+        MergePolicy mergePolicy = new NoMergePolicy();
+        IndexWriterConfig config = new IndexWriterConfig(new LuceneAnalyzerAdapter(new StandardAnalyzer()), mergePolicy, 100);
+        writer = new IndexWriter(storage, config);
+
+        writer.addDocument(TestDocuments.createDocument(1, "search engine"));
+        writer.addDocument(TestDocuments.createDocument(2, "research paper"));
+        writer.addDocument(TestDocuments.createDocument(3, "searches and searching"));
+        writer.addDocument(TestDocuments.createDocument(4, "starch rich food"));
+        writer.addDocument(TestDocuments.createDocument(5, "search again"));
+        writer.commit();
+
+        reader = IndexReader.open(storage);
+        searcher = new IndexSearcher(reader);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        reader.close();
+        writer.close();
+    }
+
+    @Test
+    void fuzzyQuery_MatchesTermsWithinEditDistance() throws IOException {
+        // When - "serach" is one transposition away from "search"
+        TopDocs oneEdit = searcher.search(new FuzzyQuery("content", "serach", 1), 10);
+        TopDocs twoEdits = searcher.search(new FuzzyQuery("content", "serach", 2), 10);
+
+        // Then
+        assertEquals(Set.of(1, 5), TestDocuments.docIds(oneEdit));
+        // Adds "starch" (two edits from "serach"); "searches" needs three.
+        assertEquals(Set.of(1, 4, 5), TestDocuments.docIds(twoEdits));
+    }
+
+    @Test
+    void fuzzyQuery_RanksCloserTermsHigher() throws IOException {
+        // When
+        TopDocs topDocs = searcher.search(new FuzzyQuery("content", "search"), 10);
+
+        // Then - "research" and "searches" are two insertions away, "starch" one substitution
+        assertEquals(Set.of(1, 2, 3, 4, 5), TestDocuments.docIds(topDocs));
+        Set<Integer> exact = Set.of(topDocs.scoreDocs().get(0).docId(), topDocs.scoreDocs().get(1).docId());
+        assertEquals(Set.of(1, 5), exact);
+    }
+
+    @Test
+    void fuzzyQuery_CapsExpansionsPreferringFrequentTerms() throws IOException {
+        // Given
+        FuzzyQuery query = new FuzzyQuery("content", "searc", 2, 0, 1, true);
+        SegmentReader segment = reader.leaves().get(0);
+
+        // When
+        TopDocs topDocs = searcher.search(query, 10);
+        List<Term> expansion = segment.getTermExpansion(query, () -> fail("expansion should be cached"));
+
+        // Then - "search" (1 edit, df 2) beats "starch" (2 edits), "searches" and "research"
+        assertEquals(Set.of(1, 5), TestDocuments.docIds(topDocs));
+        assertEquals(1, expansion.size());
+        assertEquals("search", expansion.get(0).getText());
+    }
+
+    @Test
+    void fuzzyQuery_CapKeepsFrequentTermOverCloserRareOne() throws IOException {
+        // Given
+        FuzzyQuery query = new FuzzyQuery("content", "starc", 2, 0, 1, true);
+
+        // When
+        TopDocs topDocs = searcher.search(query, 10);
+
+        // Then - "search" (2 edits, df 2) is kept over "starch" (1 edit, df 1)
+        assertEquals(Set.of(1, 5), TestDocuments.docIds(topDocs));
+    }
+
+    @Test
+    void fuzzyQuery_RespectsPrefixLength() throws IOException {
+        // When
+        TopDocs topDocs = searcher.search(new FuzzyQuery("content", "starch", 2, 2, 50, true), 10);
+
+        // Then - "search" is within 2 edits but does not share the prefix "st"
+        assertEquals(Set.of(4), TestDocuments.docIds(topDocs));
+    }
+
+    @Test
+    void levenshteinAutomaton_AcceptsOnlyStringsWithinDistance() {
+        // Given
+        Automaton automaton = Automata.makeLevenshtein("kitten", 2, 0, true);
+        Automaton noTranspositions = Automata.makeLevenshtein("ab", 1, 0, false);
+
+        // Then
+        assertTrue(automaton.run("kitten"));
+        assertTrue(automaton.run("sitten"));
+        assertTrue(automaton.run("sittin"));
+        assertTrue(automaton.run("iktten"));
+        assertTrue(automaton.run("kitt"));
+        assertFalse(automaton.run("kit"));
+        assertFalse(automaton.run("sitting"));
+        assertFalse(automaton.run("kt"));
+        assertFalse(noTranspositions.run("ba"));
+        assertTrue(noTranspositions.run("b"));
+        assertThrows(IllegalArgumentException.class, () -> new FuzzyQuery("content", "search", 3));
+    }
+}
@@ -0,0 +1,165 @@
+import core.analysis.LuceneAnalyzerAdapter;
+import core.index.IndexWriter;
+import core.index.IndexWriterConfig;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import storage.FileSystemStorage;
+import storage.Storage;
+import storage.file.Document;
+import storage.merge.MergePolicy;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GetDocumentTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Storage storage;
+    private IndexWriter writer;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        storage = new FileSystemStorage(tempDir);
+        MergePolicy mergePolicy = new NoMergePolicy();
+        IndexWriterConfig config = new IndexWriterConfig(new LuceneAnalyzerAdapter(new StandardAnalyzer()), mergePolicy, 4);
+        writer = new IndexWriter(storage, config);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        writer.close();
+    }
+
+    @Test
+    void get_ReturnsBufferedDocument() throws IOException {
+        // Given
+        writer.addDocument(TestDocuments.createDocument(1, "buffered"));
+
+        // When
+        Document doc = writer.get(1);
+
+        // Then
+        assertNotNull(doc);
+        assertEquals("buffered", doc.getField("content"));
+    }
+
+    @Test
+    void get_WithOverlappingIdRanges_ReturnsCopyFromNewestSegment() throws IOException {
+        // Given - An older segment holding only ID 5, and a newer one covering [1, 10]
+        writer.addDocument(TestDocuments.createDocument(5, "old"));
+        writer.flush();
+        writer.addDocument(TestDocuments.createDocument(1, "filler"));
+        writer.addDocument(TestDocuments.createDocument(5, "new"));
+        writer.addDocument(TestDocuments.createDocument(10, "filler"));
+        writer.flush();
+
+        // When
+        Document doc = writer.get(5);
+
+        // Then
+        assertEquals("new", doc.getField("content"));
+    }
+
+    @Test
+    void get_ReturnsFlushedAndCommittedDocuments() throws IOException {
+        // Given
+        for (int i = 0; i < 8; i++) {
+            writer.addDocument(TestDocuments.createDocument(i, "committed " + i));
+        }
+        writer.commit();
+        writer.addDocument(TestDocuments.createDocument(20, "flushed"));
+        writer.flush();
+
+        // When & Then
+        for (int i = 0; i < 8; i++) {
+            assertEquals("committed " + i, writer.get(i).getField("content"));
+        }
+        assertEquals("flushed", writer.get(20).getField("content"));
+    }
+
+    @Test
+    void get_OfMissingId_ReturnsNull() throws IOException {
+        // Given - Segments covering [0, 3] and [10, 13]
+        for (int i = 0; i < 4; i++) {
+            writer.addDocument(TestDocuments.createDocument(i, "low"));
+        }
+        for (int i = 10; i < 14; i++) {
+            writer.addDocument(TestDocuments.createDocument(i, "high"));
+        }
+        writer.commit();
+
+        // When & Then
+        assertNull(writer.get(5));
+        assertNull(writer.get(-1));
+        assertNull(writer.get(100));
+    }
+
+    @Test
+    void get_FindsDocumentsInOverlappingSegments() throws IOException {
+        // Given - Even and odd IDs are flushed into segments with overlapping ranges
+        for (int i = 0; i < 16; i += 2) {
+            writer.addDocument(TestDocuments.createDocument(i, "even"));
+        }
+        for (int i = 1; i < 16; i += 2) {
+            writer.addDocument(TestDocuments.createDocument(i, "odd"));
+        }
+        writer.commit();
+
+        // When & Then
+        for (int i = 0; i < 16; i++) {
+            assertEquals(i % 2 == 0 ? "even" : "odd", writer.get(i).getField("content"), "document " + i);
+        }
+    }
+
+    @Test
+    void get_AfterDelete_ReturnsNullBeforeAndAfterFlush() throws IOException {
+        // Given
+        for (int i = 0; i < 4; i++) {
+            writer.addDocument(TestDocuments.createDocument(i, "text"));
+        }
+        writer.commit();
+
+        // When
+        writer.deleteById(2);
+        writer.deleteDocuments("content", "text");
+        writer.addDocument(TestDocuments.createDocument(5, "other"));
+
+        // Then - Pending deletes already hide the documents
+        assertNull(writer.get(2));
+        assertNull(writer.get(1));
+        assertNotNull(writer.get(5));
+
+        // And after they are applied
+        writer.commit();
+        assertNull(writer.get(2));
+        assertNull(writer.get(1));
+        assertEquals("other", writer.get(5).getField("content"));
+    }
+
+    @Test
+    void get_AfterUpdate_ReturnsLatestVersion() throws IOException {
+        // Given
+        for (int i = 0; i < 4; i++) {
+            writer.addDocument(TestDocuments.createDocument(i, "original"));
+        }
+        writer.commit();
+
+        // When
+        writer.updateDocument(3, TestDocuments.createDocument(3, "revised"));
+
+        // Then
+        assertEquals("revised", writer.get(3).getField("content"));
+        writer.flush();
+        assertEquals("revised", writer.get(3).getField("content"));
+        writer.commit();
+        assertEquals("revised", writer.get(3).getField("content"));
+        assertEquals("original", writer.get(2).getField("content"));
+    }
+}
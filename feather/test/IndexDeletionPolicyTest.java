@@ -0,0 +1,177 @@
+import core.analysis.LuceneAnalyzerAdapter;
+import core.index.IndexCommit;
+import core.index.IndexDeletionPolicy;
+import core.index.IndexReader;
+import core.index.IndexWriter;
+import core.index.IndexWriterConfig;
+import core.index.KeepLastCommitsDeletionPolicy;
+import core.index.SnapshotDeletionPolicy;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import storage.FileSystemStorage;
+import storage.Storage;
+import storage.file.Document;
+import storage.merge.MergePolicy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IndexDeletionPolicyTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Storage storage;
+    private IndexWriter writer;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        storage = new FileSystemStorage(tempDir);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    private IndexWriter openWriter(IndexDeletionPolicy policy) throws IOException {
+        MergePolicy mergePolicy = new NoMergePolicy();
+        IndexWriterConfig config = new IndexWriterConfig(new LuceneAnalyzerAdapter(new StandardAnalyzer()), mergePolicy, 100)
+                .setIndexDeletionPolicy(policy);
+        return new IndexWriter(storage, config);
+    }
+
+    private void addAndCommit(int id) throws IOException {
+        Document doc = new Document(id);
+        doc.addField("content", "document " + id);
+        writer.addDocument(doc);
+        writer.commit();
+    }
+
+    private List<String> segmentsFiles() throws IOException {
+        return Arrays.stream(storage.listFiles())
+                .filter(name -> name.matches("segments_\\d+"))
+                .sorted()
+                .toList();
+    }
+
+    @Test
+    void defaultPolicy_KeepsOnlyLatestCommit() throws IOException {
+        // Given
+        writer = openWriter(new KeepLastCommitsDeletionPolicy());
+
+        // When
+        addAndCommit(1);
+        addAndCommit(2);
+        addAndCommit(3);
+
+        // Then
+        assertEquals(1, segmentsFiles().size());
+        try (IndexReader reader = IndexReader.open(storage)) {
+            assertEquals(3, reader.numDocs());
+        }
+    }
+
+    @Test
+    void keepLastCommits_KeepsRequestedNumberOfCommits() throws IOException {
+        // Given
+        writer = openWriter(new KeepLastCommitsDeletionPolicy(3));
+
+        // When
+        for (int i = 1; i <= 5; i++) {
+            addAndCommit(i);
+        }
+
+        // Then
+        assertEquals(3, segmentsFiles().size());
+    }
+
+    @Test
+    void snapshot_KeepsCommitReadableUntilReleased() throws IOException {
+        // Given
+        SnapshotDeletionPolicy policy = new SnapshotDeletionPolicy(new KeepLastCommitsDeletionPolicy());
+        writer = openWriter(policy);
+        addAndCommit(1);
+        IndexCommit snapshot = policy.snapshot();
+
+        // When
+        writer.deleteById(1);
+        addAndCommit(2);
+        addAndCommit(3);
+
+        // Then
+        assertEquals(1, policy.getSnapshotCount());
+        try (IndexReader reader = IndexReader.open(storage, snapshot)) {
+            assertEquals(1, reader.numDocs());
+        }
+        for (String file : snapshot.getFileNames()) {
+            assertTrue(storage.fileExists(file), file + " should be kept by the snapshot");
+        }
+
+        // When
+        policy.release(snapshot);
+        addAndCommit(4);
+
+        // Then
+        assertFalse(storage.fileExists(snapshot.getSegmentsFileName()));
+        assertEquals(1, segmentsFiles().size());
+    }
+
+    @Test
+    void open_DeletesUnreferencedIndexFiles() throws IOException {
+        // Given
+        writer = openWriter(new KeepLastCommitsDeletionPolicy());
+        addAndCommit(1);
+        writer.close();
+        Files.writeString(tempDir.resolve("segment_99.doc"), "orphan");
+        Files.writeString(tempDir.resolve("pending_segments_5.tmp"), "orphan");
+        Files.writeString(tempDir.resolve("notes.txt"), "not an index file");
+
+        // When
+        storage = new FileSystemStorage(tempDir);
+        writer = openWriter(new KeepLastCommitsDeletionPolicy());
+
+        // Then
+        assertFalse(Files.exists(tempDir.resolve("segment_99.doc")));
+        assertFalse(Files.exists(tempDir.resolve("pending_segments_5.tmp")));
+        assertTrue(Files.exists(tempDir.resolve("notes.txt")));
+        try (IndexReader reader = IndexReader.open(storage)) {
+            assertEquals(1, reader.numDocs());
+        }
+    }
+
+    @Test
+    void forceMerge_DeletesMergedAwaySegmentFiles() throws IOException {
+        // Given
+        writer = openWriter(new KeepLastCommitsDeletionPolicy());
+        addAndCommit(1);
+        addAndCommit(2);
+        addAndCommit(3);
+
+        // When
+        writer.forceMerge(1);
+        writer.commit();
+
+        // Then
+        try (IndexReader reader = IndexReader.open(storage)) {
+            assertEquals(1, reader.leaves().size());
+            String merged = reader.leaves().get(0).getSegmentInfo().getName();
+            for (String file : storage.listFiles()) {
+                if (file.startsWith("segment_")) {
+                    assertTrue(file.startsWith(merged + "."), file + " should have been deleted");
+                }
+            }
+            assertEquals(3, reader.numDocs());
+        }
+    }
+}
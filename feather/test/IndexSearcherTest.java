@@ -0,0 +1,127 @@
+import core.analysis.LuceneAnalyzerAdapter;
+import core.index.IndexReader;
+import core.index.IndexWriter;
+import core.index.IndexWriterConfig;
+import core.index.SegmentReader;
+import core.search.IndexSearcher;
+import core.search.PhraseQuery;
+import core.search.TermQuery;
+import core.search.TopDocs;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import storage.FileSystemStorage;
+import storage.Storage;
+import storage.file.Document;
+import storage.merge.MergePolicy;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IndexSearcherTest {
+    private static final String[] WORDS = {"alpha", "beta", "gamma", "delta", "epsilon"};
+
+    @TempDir
+    Path tempDir;
+
+    private Storage storage;
+    private IndexWriter writer;
+    private IndexReader reader;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        storage = new FileSystemStorage(tempDir);
+        MergePolicy mergePolicy = new NoMergePolicy();
+        // maxBufferedDocs = 5, so 40 documents end up in 8 segments
+        IndexWriterConfig config = new IndexWriterConfig(new LuceneAnalyzerAdapter(new StandardAnalyzer()), mergePolicy, 5);
+        writer = new IndexWriter(storage, config);
+
+        for (int id = 0; id < 40; id++) {
+            Document doc = new Document(id);
+            doc.addField("content", WORDS[id % WORDS.length] + " " + WORDS[(id * 3) % WORDS.length] + " common");
+            writer.addDocument(doc);
+        }
+        writer.commit();
+
+        reader = IndexReader.open(storage);
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        executor.shutdownNow();
+        reader.close();
+        writer.close();
+    }
+
+    @Test
+    void parallelSearch_ReturnsSameResultsAsSequentialSearch() throws IOException {
+        // Given
+        IndexSearcher sequential = new IndexSearcher(reader);
+        IndexSearcher parallel = new IndexSearcher(reader, executor);
+
+        // When
+        TopDocs expected = sequential.search(new TermQuery("content", "alpha"), 5);
+        TopDocs actual = parallel.search(new TermQuery("content", "alpha"), 5);
+
+        // Then
+        assertTrue(parallel.getSlices().size() > 1, "8 small segments should be split into several slices");
+        assertEquals(expected, actual);
+        assertEquals(40, parallel.count(new TermQuery("content", "common")));
+        assertEquals(sequential.count(new PhraseQuery("content", "alpha", "delta")),
+                parallel.count(new PhraseQuery("content", "alpha", "delta")));
+    }
+
+    @Test
+    void parallelSearch_MergesTopHitsAcrossSlices() throws IOException {
+        // Given
+        IndexSearcher parallel = new IndexSearcher(reader, executor);
+
+        // When
+        TopDocs topDocs = parallel.search(new TermQuery("content", "common"), 7);
+
+        // Then
+        assertEquals(40, topDocs.totalHits());
+        assertEquals(7, topDocs.scoreDocs().size());
+        for (int i = 1; i < topDocs.scoreDocs().size(); i++) {
+            assertTrue(topDocs.scoreDocs().get(i - 1).score() >= topDocs.scoreDocs().get(i).score());
+        }
+    }
+
+    @Test
+    void slices_GroupSmallSegmentsAndCoverEverySegment() {
+        // When
+        List<IndexSearcher.LeafSlice> slices = IndexSearcher.slices(reader.leaves(), 12, 3);
+
+        // Then
+        Set<SegmentReader> covered = new HashSet<>();
+        for (IndexSearcher.LeafSlice slice : slices) {
+            assertTrue(slice.leaves().size() <= 3);
+            assertTrue(slice.leaves().stream().mapToInt(SegmentReader::getDocumentCount).sum() <= 12);
+            covered.addAll(slice.leaves());
+        }
+        assertEquals(reader.leaves().size(), covered.size());
+        assertEquals(8, reader.leaves().size());
+        // A third 5-doc segment would take a slice past 12 docs, so slices hold two segments each
+        assertEquals(4, slices.size());
+    }
+
+    @Test
+    void slices_GiveLargeSegmentsTheirOwnSlice() {
+        // When
+        List<IndexSearcher.LeafSlice> slices = IndexSearcher.slices(reader.leaves(), 4, 5);
+
+        // Then
+        assertEquals(reader.leaves().size(), slices.size());
+    }
+}
@@ -1,5 +1,6 @@
 import core.analysis.FeatherAnalyzer;
 import core.analysis.LuceneAnalyzerAdapter;
+import core.index.IndexReader;
 import core.index.IndexWriter;
 import core.index.IndexWriterConfig;
 import core.index.Segments;
@@ -9,18 +10,16 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import storage.FileSystemStorage;
+import storage.IOContext;
 import storage.Storage;
 import storage.file.Document;
 import storage.file.FileType;
-import storage.file.SegmentMetadata;
 import storage.merge.MergePolicy;
-import storage.merge.MergeSpec;
 import storage.writer.SegmentFileWriter;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -39,13 +38,7 @@ public class IndexWriterTest {
     void setUp() throws IOException {
         storage = new FileSystemStorage(tempDir);
         analyzer = new LuceneAnalyzerAdapter(new StandardAnalyzer());
-        mergePolicy = new MergePolicy() {
-            // This anonymous MergePolicy stub is used only for unit testing
-            @Override
-            public MergeSpec findMerges(List<SegmentMetadata> segments) {
-                return null;
-            }
-        };
+        mergePolicy = new NoMergePolicy();
         config = new IndexWriterConfig(analyzer, mergePolicy, 10); // maxBufferedDocs = 10
         writer = new IndexWriter(storage, config);
     }
@@ -106,8 +99,10 @@ public class IndexWriterTest {
     }
 
     @Test
-    void shouldCleanupPartialSegmentFiles_WhenFlushFails() {
+    void shouldCleanupPartialSegmentFiles_WhenFlushFails() throws IOException {
         // Given
+        writer.close(); // Only one writer may use the directory
+        writer = null;
         Storage faultyStorage = new FaultyStorage(tempDir);
         Exception thrownException = null;
 
@@ -129,6 +124,32 @@ public class IndexWriterTest {
         assertFalse(Files.exists(tempDir.resolve("segment_0" + FileType.META.getExtension())), "Partial .meta file should be cleaned up.");
     }
 
+    @Test
+    void shouldKeepUpdatedDocument_WhenFlushAfterUpdateFails() throws IOException {
+        // Given: A committed document, updated just before a flush that fails
+        writer.close(); // Only one writer may use the directory
+        writer = null;
+        FaultyStorage faultyStorage = new FaultyStorage(tempDir);
+        try (IndexWriter faultyWriter = new IndexWriter(faultyStorage, config)) {
+            faultyStorage.failing = false;
+            faultyWriter.addDocument(createTestDocument(1, "first version"));
+            faultyWriter.commit();
+            faultyStorage.failing = true;
+            faultyWriter.updateDocument(1, createTestDocument(1, "second version"));
+            assertThrows(IOException.class, faultyWriter::flush);
+
+            // When: The storage recovers and the writer commits
+            faultyStorage.failing = false;
+            faultyWriter.commit();
+
+            // Then: The commit holds the new version, not just the delete of the old one
+            assertEquals("second version", faultyWriter.get(1).getField("content"));
+        }
+        try (IndexReader reader = IndexReader.open(new FileSystemStorage(tempDir))) {
+            assertEquals(1, reader.numDocs());
+        }
+    }
+
     @Test
     void shouldInitializeSegmentCounterCorrectly_WhenOpeningExistingIndex() throws IOException {
         // Given: An existing index with one segment committed
@@ -197,23 +218,24 @@ public class IndexWriterTest {
      */
     private static class FaultyStorage extends FileSystemStorage {
         private boolean firstDocWriterCreated = false;
+        private boolean failing = true;
 
         public FaultyStorage(Path rootPath) {
             super(rootPath);
         }
 
         @Override
-        public SegmentFileWriter createFileWriter(String name, FileType type) throws IOException {
+        public SegmentFileWriter createFileWriter(String name, FileType type, IOContext context) throws IOException {
             // Allow the .doc file to be created successfully
             if (type == FileType.DOC && !firstDocWriterCreated) {
                 firstDocWriterCreated = true;
-                return super.createFileWriter(name, type);
+                return super.createFileWriter(name, type, context);
             }
             // Fail on the next file type (.post)
-            if (type == FileType.POST) {
+            if (type == FileType.POST && failing) {
                 throw new IOException("Simulated I/O error on creating .post file");
             }
-            return super.createFileWriter(name, type);
+            return super.createFileWriter(name, type, context);
         }
     }
 }
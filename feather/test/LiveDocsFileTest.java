@@ -0,0 +1,106 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import storage.file.LiveDocs;
+import storage.file.LiveDocsFile;
+import storage.writer.LiveDocsFileWriter;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LiveDocsFileTest {
+    private static final int BUFFER_SIZE = 8192;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void liveDocs_OnlyDocumentsOfTheSegmentAreLive() {
+        // Given - A segment holding sparse IDs within [100, 200]
+        LiveDocs liveDocs = LiveDocs.of(100, 200, new int[]{100, 150, 163, 200});
+
+        // When & Then
+        assertTrue(liveDocs.isLive(150));
+        assertFalse(liveDocs.isLive(151), "IDs missing from the segment are not live");
+        assertFalse(liveDocs.isLive(99));
+        assertFalse(liveDocs.isLive(201));
+        assertEquals(4, liveDocs.cardinality());
+    }
+
+    @Test
+    void delete_CountsOnlyLiveDocuments() {
+        // Given
+        LiveDocs liveDocs = LiveDocs.of(0, 9, new int[]{1, 3, 5});
+
+        // When & Then
+        assertTrue(liveDocs.delete(3));
+        assertFalse(liveDocs.delete(3), "Deleting twice reports no change");
+        assertFalse(liveDocs.delete(4), "IDs missing from the segment cannot be deleted");
+        assertEquals(2, liveDocs.cardinality());
+    }
+
+    @Test
+    void copy_IsIndependent() {
+        // Given
+        LiveDocs liveDocs = LiveDocs.of(0, 3, new int[]{0, 1, 2, 3});
+
+        // When
+        LiveDocs copy = liveDocs.copy();
+        copy.delete(2);
+
+        // Then
+        assertTrue(liveDocs.isLive(2));
+        assertFalse(copy.isLive(2));
+    }
+
+    @Test
+    void writeAndRead_RoundTripsBitsAndDelCount() throws IOException {
+        // Given - More than one 64-bit word, starting at a non-zero ID
+        int[] docIds = new int[150];
+        for (int i = 0; i < docIds.length; i++) {
+            docIds[i] = 1000 + i;
+        }
+        LiveDocs liveDocs = LiveDocs.of(1000, 1149, docIds);
+        liveDocs.delete(1000);
+        liveDocs.delete(1064);
+        liveDocs.delete(1149);
+
+        // When
+        LiveDocsFileWriter writer = new LiveDocsFileWriter(tempDir.resolve("segment_0_1.liv"), BUFFER_SIZE);
+        writer.writeLiveDocs(liveDocs, 3);
+        try (LiveDocsFile file = writer.complete()) {
+            LiveDocs read = file.readLiveDocs();
+
+            // Then
+            assertEquals(3, file.getDelCount());
+            assertEquals(147, read.cardinality());
+            assertFalse(read.isLive(1064));
+            assertTrue(read.isLive(1065));
+            assertFalse(read.isLive(1149));
+            assertTrue(read.isLive(1148));
+        }
+    }
+
+    @Test
+    void sparseIds_AreTrackedByOrdinalAndRoundTrip() throws IOException {
+        // Given - Two documents spanning two billion IDs
+        LiveDocs liveDocs = LiveDocs.of(0, 2_000_000_000, new int[]{2_000_000_000, 0});
+        assertTrue(liveDocs.delete(0));
+        assertFalse(liveDocs.delete(1), "IDs missing from the segment cannot be deleted");
+        assertEquals(2, liveDocs.length());
+
+        // When
+        LiveDocsFileWriter writer = new LiveDocsFileWriter(tempDir.resolve("segment_0_1.liv"), BUFFER_SIZE);
+        writer.writeLiveDocs(liveDocs, 1);
+        try (LiveDocsFile file = writer.complete()) {
+            LiveDocs read = file.readLiveDocs();
+
+            // Then
+            assertEquals(1, read.cardinality());
+            assertFalse(read.isLive(0));
+            assertTrue(read.isLive(2_000_000_000));
+            assertFalse(read.isLive(1_000_000_000));
+        }
+    }
+}
@@ -1,6 +1,7 @@
 import core.analysis.FeatherAnalyzer;
 import core.analysis.FeatherToken;
 import core.analysis.LuceneAnalyzerAdapter;
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -32,8 +33,8 @@ public class LuceneAnalyzerAdapterTest {
         // Then
         assertNotNull(tokens);
         assertEquals(2, tokens.size());
-        assertEquals(new FeatherToken("hello", 0, 5), tokens.get(0));
-        assertEquals(new FeatherToken("world", 6, 11), tokens.get(1));
+        assertEquals(new FeatherToken("hello", 0, 0, 5), tokens.get(0));
+        assertEquals(new FeatherToken("world", 1, 6, 11), tokens.get(1));
     }
 
     @Test
@@ -47,9 +48,9 @@ public class LuceneAnalyzerAdapterTest {
         // Then
         assertNotNull(tokens);
         assertEquals(5, tokens.size());
-        assertEquals(new FeatherToken("this", 0, 4), tokens.get(0));
-        assertEquals(new FeatherToken("is", 5, 7), tokens.get(1));
-        assertEquals(new FeatherToken("sentence", 15, 23), tokens.get(4));
+        assertEquals(new FeatherToken("this", 0, 0, 4), tokens.get(0));
+        assertEquals(new FeatherToken("is", 1, 5, 7), tokens.get(1));
+        assertEquals(new FeatherToken("sentence", 4, 15, 23), tokens.get(4));
     }
 
     @Test
@@ -80,9 +81,9 @@ public class LuceneAnalyzerAdapterTest {
 
         // apple, pie, banana, cherry
         assertEquals(4, tokens.size());
-        assertEquals(new FeatherToken("apple", 0, 5), tokens.get(0));
-        assertEquals(new FeatherToken("banana", 11, 17), tokens.get(2));
-        assertEquals(new FeatherToken("cherry", 20, 26), tokens.get(3));
+        assertEquals(new FeatherToken("apple", 0, 0, 5), tokens.get(0));
+        assertEquals(new FeatherToken("banana", 2, 11, 17), tokens.get(2));
+        assertEquals(new FeatherToken("cherry", 3, 20, 26), tokens.get(3));
     }
 
     @Test
@@ -96,10 +97,10 @@ public class LuceneAnalyzerAdapterTest {
         // Then
         assertNotNull(tokens);
         assertEquals(4, tokens.size());
-        assertEquals(new FeatherToken("leading", 2, 9), tokens.get(0));
-        assertEquals(new FeatherToken("and", 10, 13), tokens.get(1));
-        assertEquals(new FeatherToken("trailing", 14, 22), tokens.get(2));
-        assertEquals(new FeatherToken("spaces", 23, 29), tokens.get(3));
+        assertEquals(new FeatherToken("leading", 0, 2, 9), tokens.get(0));
+        assertEquals(new FeatherToken("and", 1, 10, 13), tokens.get(1));
+        assertEquals(new FeatherToken("trailing", 2, 14, 22), tokens.get(2));
+        assertEquals(new FeatherToken("spaces", 3, 23, 29), tokens.get(3));
     }
 
     @Test
@@ -115,7 +116,24 @@ public class LuceneAnalyzerAdapterTest {
         // StandardAnalyzer treats Korean characters as a single token or breaks them by whitespace
         // It might not produce linguistically correct tokens for Korean, but we test its behavior.
         assertEquals(2, tokens.size());
-        assertEquals(new FeatherToken("안녕하세요", 0, 5), tokens.get(0));
-        assertEquals(new FeatherToken("환영합니다", 6, 11), tokens.get(1));
+        assertEquals(new FeatherToken("안녕하세요", 0, 0, 5), tokens.get(0));
+        assertEquals(new FeatherToken("환영합니다", 1, 6, 11), tokens.get(1));
     }
-}
\ No newline at end of file
+
+    @Test
+    void analyze_RemovedStopWords_LeavePositionGaps() {
+        // Given
+        FeatherAnalyzer stopWordAnalyzer = new LuceneAnalyzerAdapter(new StandardAnalyzer(EnglishAnalyzer.ENGLISH_STOP_WORDS_SET));
+        String text = "the quick fox and the dog";
+
+        // When
+        List<FeatherToken> tokens = stopWordAnalyzer.analyze(text).collect(Collectors.toList());
+
+        // Then
+        // "the" and "and" are removed, but positions still count them
+        assertEquals(3, tokens.size());
+        assertEquals(new FeatherToken("quick", 1, 4, 9), tokens.get(0));
+        assertEquals(new FeatherToken("fox", 2, 10, 13), tokens.get(1));
+        assertEquals(new FeatherToken("dog", 5, 22, 25), tokens.get(2));
+    }
+}
@@ -0,0 +1,162 @@
+import core.analysis.LuceneAnalyzerAdapter;
+import core.index.IndexReader;
+import core.index.IndexWriter;
+import core.index.IndexWriterConfig;
+import core.search.FuzzyQuery;
+import core.search.IndexSearcher;
+import core.search.PrefixQuery;
+import core.search.RegexpQuery;
+import core.search.TopDocs;
+import core.search.WildcardQuery;
+import core.utils.automaton.Automata;
+import core.utils.automaton.Automaton;
+import core.utils.automaton.RegExp;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import storage.FileSystemStorage;
+import storage.Storage;
+import storage.merge.MergePolicy;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MultiTermQueryTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Storage storage;
+    private IndexWriter writer;
+    private IndexReader reader;
+    private IndexSearcher searcher;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        storage = new FileSystemStorage(tempDir);
+        MergePolicy mergePolicy = new NoMergePolicy();
+        IndexWriterConfig config = new IndexWriterConfig(new LuceneAnalyzerAdapter(new StandardAnalyzer()), mergePolicy, 3);
+        writer = new IndexWriter(storage, config);
+
+        writer.addDocument(TestDocuments.createDocument(1, "searching the index"));
+        writer.addDocument(TestDocuments.createDocument(2, "a search engine"));
+        writer.addDocument(TestDocuments.createDocument(3, "researchers seek answers"));
+        writer.addDocument(TestDocuments.createDocument(4, "season tickets"));
+        writer.addDocument(TestDocuments.createDocument(5, "searched 2024 records"));
+        writer.commit();
+
+        reader = IndexReader.open(storage);
+        searcher = new IndexSearcher(reader);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        reader.close();
+        writer.close();
+    }
+
+    @Test
+    void prefixQuery_MatchesTermsStartingWithPrefixAcrossSegments() throws IOException {
+        // When
+        TopDocs topDocs = searcher.search(new PrefixQuery("content", "search"), 10);
+
+        // Then
+        assertEquals(Set.of(1, 2, 5), TestDocuments.docIds(topDocs));
+        assertEquals(2, reader.leaves().size());
+    }
+
+    @Test
+    void multiTermQueries_OnSegmentWithSparseIds() throws IOException {
+        // Given: a segment of two documents whose IDs span two billion
+        writer.addDocument(TestDocuments.createDocument(0, "sparse segment"));
+        writer.addDocument(TestDocuments.createDocument(2_000_000_000, "sparsely filled"));
+        writer.commit();
+
+        try (IndexReader sparseReader = IndexReader.open(storage)) {
+            IndexSearcher sparseSearcher = new IndexSearcher(sparseReader);
+
+            // When
+            TopDocs prefix = sparseSearcher.search(new PrefixQuery("content", "spars"), 10);
+            TopDocs fuzzy = sparseSearcher.search(new FuzzyQuery("content", "sparse"), 10);
+
+            // Then
+            assertEquals(Set.of(0, 2_000_000_000), TestDocuments.docIds(prefix));
+            assertEquals(Set.of(0, 2_000_000_000), TestDocuments.docIds(fuzzy));
+            // The exact term scores above the one edit away.
+            assertEquals(0, fuzzy.scoreDocs().get(0).docId());
+        }
+    }
+
+    @Test
+    void wildcardQuery_MatchesSingleAndMultiCharacterWildcards() throws IOException {
+        // When
+        TopDocs leading = searcher.search(new WildcardQuery("content", "*search*"), 10);
+        TopDocs single = searcher.search(new WildcardQuery("content", "se?k"), 10);
+
+        // Then
+        assertEquals(Set.of(1, 2, 3, 5), TestDocuments.docIds(leading));
+        assertEquals(Set.of(3), TestDocuments.docIds(single));
+    }
+
+    @Test
+    void regexpQuery_MatchesWholeTerm() throws IOException {
+        // When
+        TopDocs alternatives = searcher.search(new RegexpQuery("content", "search(ed|ing)"), 10);
+        TopDocs digits = searcher.search(new RegexpQuery("content", "\\d{4}"), 10);
+        TopDocs partial = searcher.search(new RegexpQuery("content", "sea"), 10);
+
+        // Then
+        assertEquals(Set.of(1, 5), TestDocuments.docIds(alternatives));
+        assertEquals(Set.of(5), TestDocuments.docIds(digits));
+        assertEquals(0, partial.totalHits());
+    }
+
+    @Test
+    void multiTermQuery_DoesNotMatchOtherFields() throws IOException {
+        // When
+        int count = searcher.count(new PrefixQuery("title", "search"));
+
+        // Then
+        assertEquals(0, count);
+    }
+
+    @Test
+    void regExp_SupportsClassesRepetitionAndAlternation() {
+        // Given
+        Automaton automaton = new RegExp("[a-c]+x{1,2}|[^a-z]?z").toAutomaton();
+
+        // Then
+        assertTrue(automaton.run("abcx"));
+        assertTrue(automaton.run("axx"));
+        assertTrue(automaton.run("z"));
+        assertTrue(automaton.run("9z"));
+        assertFalse(automaton.run("x"));
+        assertFalse(automaton.run("axxx"));
+        assertFalse(automaton.run("az"));
+        assertThrows(IllegalArgumentException.class, () -> new RegExp("(ab").toAutomaton());
+    }
+
+    @Test
+    void regExp_RejectsRepetitionsTooLargeToCompile() {
+        // Then - Nested counts are rejected while parsing, before they multiply out
+        assertThrows(IllegalArgumentException.class, () -> new RegExp("(a{1000}){1000}").toAutomaton());
+        assertThrows(IllegalArgumentException.class, () -> new RegExp("a{99999999999}").toAutomaton());
+        assertThrows(IllegalArgumentException.class, () -> new RegExp("((ab){400}c){400}").toAutomaton());
+        assertTrue(new RegExp("(a{10}){10}").toAutomaton().run("a".repeat(100)));
+    }
+
+    @Test
+    void automata_CommonPrefixAndEquality() {
+        // Then
+        assertEquals("abc", Automata.makePrefix("abc").getCommonPrefix());
+        assertEquals("ab", Automata.makeWildcard("ab?d*").getCommonPrefix());
+        assertEquals(Automata.makeWildcard("ab*"), Automata.makePrefix("ab"));
+        assertTrue(Automata.makeWildcard("a\\*b").run("a*b"));
+        assertFalse(Automata.makeWildcard("a\\*b").run("axb"));
+    }
+}
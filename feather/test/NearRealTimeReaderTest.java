@@ -0,0 +1,139 @@
+import core.analysis.LuceneAnalyzerAdapter;
+import core.index.IndexReader;
+import core.index.IndexWriter;
+import core.index.IndexWriterConfig;
+import core.index.Segments;
+import core.search.IndexSearcher;
+import core.search.TermQuery;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import storage.FileSystemStorage;
+import storage.Storage;
+import storage.file.Document;
+import storage.file.FileType;
+import storage.merge.MergePolicy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NearRealTimeReaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Storage storage;
+    private IndexWriter writer;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        storage = new FileSystemStorage(tempDir);
+        MergePolicy mergePolicy = new NoMergePolicy();
+        IndexWriterConfig config = new IndexWriterConfig(new LuceneAnalyzerAdapter(new StandardAnalyzer()), mergePolicy, 100);
+        writer = new IndexWriter(storage, config);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        writer.close();
+    }
+
+    private void addDocument(int id, String content) throws IOException {
+        Document doc = new Document(id);
+        doc.addField("content", content);
+        writer.addDocument(doc);
+    }
+
+    private int count(IndexReader reader, String text) throws IOException {
+        return new IndexSearcher(reader).count(new TermQuery("content", text));
+    }
+
+    @Test
+    void getReader_SeesUncommittedChangesWithoutWritingSegmentsFile() throws IOException {
+        // Given
+        addDocument(1, "fresh");
+        addDocument(2, "fresh");
+        long generation = Segments.readLatest(storage).getGeneration();
+
+        // When
+        try (IndexReader reader = writer.getReader()) {
+            // Then
+            assertEquals(2, count(reader, "fresh"));
+            assertEquals(generation, Segments.readLatest(storage).getGeneration());
+        }
+        try (IndexReader committed = IndexReader.open(storage)) {
+            assertEquals(0, committed.numDocs());
+        }
+    }
+
+    @Test
+    void refresh_ReturnsNullUntilSomethingChanges() throws IOException {
+        // Given
+        addDocument(1, "first");
+        try (IndexReader reader = writer.getReader()) {
+            assertNull(writer.refresh(reader));
+
+            // When
+            addDocument(2, "second");
+            writer.deleteById(1);
+
+            // Then - The new reader sees the changes, the old one keeps its snapshot
+            try (IndexReader refreshed = writer.refresh(reader)) {
+                assertNotNull(refreshed);
+                assertEquals(1, count(refreshed, "second"));
+                assertEquals(0, count(refreshed, "first"));
+                assertEquals(1, count(reader, "first"));
+                assertEquals(0, count(reader, "second"));
+                assertNull(writer.refresh(refreshed));
+            }
+        }
+    }
+
+    @Test
+    void getReader_SharesReadersOfUnchangedSegments() throws IOException {
+        // Given
+        addDocument(1, "shared");
+        try (IndexReader first = writer.getReader()) {
+            addDocument(2, "other");
+
+            // When
+            try (IndexReader second = writer.getReader()) {
+                // Then
+                assertEquals(1, first.leaves().size());
+                assertEquals(2, second.leaves().size());
+                assertSame(first.leaves().get(0), second.leaves().get(0));
+            }
+            assertEquals(1, count(first, "shared"));
+        }
+    }
+
+    @Test
+    void openReader_KeepsMergedAwaySegmentsAlive() throws IOException {
+        // Given - Two segments visible to an open reader
+        addDocument(1, "kept alive");
+        writer.flush();
+        addDocument(2, "kept alive");
+        IndexReader reader = writer.getReader();
+        String oldSegment = reader.leaves().get(0).getSegmentInfo().getName();
+
+        // When - The segments are merged away and the merge is committed
+        writer.forceMerge(1);
+        writer.commit();
+
+        // Then - The old reader still works and its files are kept until it is closed
+        assertEquals(2, count(reader, "alive"));
+        assertTrue(Files.exists(tempDir.resolve(oldSegment + FileType.DOC.getExtension())));
+        reader.close();
+        assertFalse(Files.exists(tempDir.resolve(oldSegment + FileType.DOC.getExtension())));
+
+        try (IndexReader merged = writer.getReader()) {
+            assertEquals(1, merged.leaves().size());
+            assertEquals(2, count(merged, "alive"));
+        }
+    }
+}
@@ -0,0 +1,16 @@
+import storage.SegmentInfo;
+import storage.merge.MergePolicy;
+import storage.merge.MergeSpec;
+
+import java.util.List;
+
+/**
+ * A merge policy that never merges, for tests that need segments to stay as they were flushed.
+ */
+final class NoMergePolicy extends MergePolicy {
+
+    @Override
+    public List<MergeSpec> findMerges(List<SegmentInfo> segments) {
+        return List.of();
+    }
+}
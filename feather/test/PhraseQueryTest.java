@@ -0,0 +1,129 @@
+import core.analysis.LuceneAnalyzerAdapter;
+import core.index.IndexReader;
+import core.index.IndexWriter;
+import core.index.IndexWriterConfig;
+import core.search.IndexSearcher;
+import core.search.PhraseQuery;
+import core.search.SpanNearQuery;
+import core.search.TermQuery;
+import core.search.TopDocs;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import storage.FileSystemStorage;
+import storage.Storage;
+import storage.merge.MergePolicy;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PhraseQueryTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Storage storage;
+    private IndexWriter writer;
+    private IndexReader reader;
+    private IndexSearcher searcher;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        storage = new FileSystemStorage(tempDir);
+        MergePolicy mergePolicy = new NoMergePolicy();
+        IndexWriterConfig config = new IndexWriterConfig(new LuceneAnalyzerAdapter(new StandardAnalyzer()), mergePolicy, 100);
+        writer = new IndexWriter(storage, config);
+
+        writer.addDocument(TestDocuments.createDocument(1, "the quick brown fox"));
+        writer.addDocument(TestDocuments.createDocument(2, "the brown quick fox"));
+        writer.addDocument(TestDocuments.createDocument(3, "a quick red brown fox"));
+        writer.addDocument(TestDocuments.createDocument(4, "brown dogs are quick to jump"));
+        writer.commit();
+
+        reader = IndexReader.open(storage);
+        searcher = new IndexSearcher(reader);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        reader.close();
+        writer.close();
+    }
+
+    @Test
+    void exactPhrase_MatchesOnlyAdjacentTermsInOrder() throws IOException {
+        // When
+        TopDocs topDocs = searcher.search(new PhraseQuery("content", "quick", "brown"), 10);
+
+        // Then
+        assertEquals(1, topDocs.totalHits());
+        assertEquals(Set.of(1), TestDocuments.docIds(topDocs));
+    }
+
+    @Test
+    void sloppyPhrase_AllowsGapsBetweenTerms() throws IOException {
+        // When
+        TopDocs topDocs = searcher.search(new PhraseQuery("content", 1, "quick", "brown"), 10);
+
+        // Then
+        assertEquals(Set.of(1, 3), TestDocuments.docIds(topDocs));
+        // The exact match is ranked above the sloppy one.
+        assertEquals(1, topDocs.scoreDocs().get(0).docId());
+    }
+
+    @Test
+    void spanNear_Unordered_MatchesTermsInAnyOrder() throws IOException {
+        // When
+        TopDocs ordered = searcher.search(new SpanNearQuery("content", 0, true, "brown", "quick"), 10);
+        TopDocs unordered = searcher.search(new SpanNearQuery("content", 0, false, "brown", "quick"), 10);
+
+        // Then
+        assertEquals(Set.of(2), TestDocuments.docIds(ordered));
+        assertEquals(Set.of(1, 2), TestDocuments.docIds(unordered));
+    }
+
+    @Test
+    void spanNear_Unordered_RepeatedTermNeedsTwoOccurrences() throws IOException {
+        // When
+        TopDocs topDocs = searcher.search(new SpanNearQuery("content", 5, false, "quick", "quick"), 10);
+
+        // Then: every document holds "quick" only once
+        assertEquals(0, topDocs.totalHits());
+    }
+
+    @Test
+    void phrase_WithMissingTerm_MatchesNothing() throws IOException {
+        // When
+        TopDocs topDocs = searcher.search(new PhraseQuery("content", "quick", "purple"), 10);
+
+        // Then
+        assertEquals(0, topDocs.totalHits());
+        assertTrue(topDocs.scoreDocs().isEmpty());
+    }
+
+    @Test
+    void phrase_SpanningThreeTerms() throws IOException {
+        // When
+        TopDocs topDocs = searcher.search(new PhraseQuery("content", "red", "brown", "fox"), 10);
+
+        // Then
+        assertEquals(Set.of(3), TestDocuments.docIds(topDocs));
+    }
+
+    @Test
+    void termQuery_MatchesAllDocumentsContainingTerm() throws IOException {
+        // When
+        int count = searcher.count(new TermQuery("content", "quick"));
+        TopDocs topDocs = searcher.search(new TermQuery("content", "fox"), 2);
+
+        // Then
+        assertEquals(4, count);
+        assertEquals(3, topDocs.totalHits());
+        assertEquals(2, topDocs.scoreDocs().size());
+    }
+}
@@ -0,0 +1,127 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import storage.file.FileType;
+import storage.file.PointsFile;
+import storage.writer.PointsFileWriter;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PointsFileTest {
+    private static final int BUFFER_SIZE = 8192;
+
+    @TempDir
+    Path tempDir;
+
+    private Path filePath;
+    private PointsFile file;
+    private PointsFileWriter writer;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        filePath = tempDir.resolve("test.pnt");
+        writer = new PointsFileWriter(filePath, BUFFER_SIZE);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (file != null) {
+            file.close();
+        }
+        writer = null;
+        file = null;
+    }
+
+    private Set<Integer> intersect(String field, long lower, long upper) throws IOException {
+        Set<Integer> docIds = new HashSet<>();
+        file.intersect(field, lower, upper, docIds::add);
+        return docIds;
+    }
+
+    @Test
+    void intersect_MatchesBruteForceAcrossManyBlocks() throws IOException {
+        // Given - Several blocks worth of random values, including duplicates and negatives
+        Random random = new Random(42);
+        int count = PointsFileWriter.BLOCK_SIZE * 5 + 17;
+        long[] values = new long[count];
+        int[] docIds = new int[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = random.nextInt(2000) - 1000;
+            docIds[i] = i;
+        }
+
+        // When
+        writer.writeField("price", values, docIds);
+        file = writer.complete();
+
+        // Then
+        long[][] ranges = {{-1000, 999}, {-5, 5}, {250, 250}, {998, 5000}, {-5000, -1001}, {10, 9}};
+        for (long[] range : ranges) {
+            Set<Integer> expected = new HashSet<>();
+            for (int i = 0; i < count; i++) {
+                if (values[i] >= range[0] && values[i] <= range[1]) {
+                    expected.add(docIds[i]);
+                }
+            }
+            assertEquals(expected, intersect("price", range[0], range[1]),
+                    "range [" + range[0] + ", " + range[1] + "]");
+        }
+        assertEquals(count, file.getPointCount("price"));
+    }
+
+    @Test
+    void multipleFields_AreIndexedIndependently() throws IOException {
+        // Given
+        writer.writeField("price", new long[]{30, 10, 20}, new int[]{1, 2, 3});
+        writer.writeField("timestamp", new long[]{1_700_000_000_000L, 1_600_000_000_000L}, new int[]{1, 2});
+
+        // When
+        file = writer.complete();
+
+        // Then
+        assertEquals(Set.of(2, 3), intersect("price", 10, 20));
+        assertEquals(Set.of(1), intersect("timestamp", 1_650_000_000_000L, Long.MAX_VALUE));
+        assertTrue(intersect("missing", Long.MIN_VALUE, Long.MAX_VALUE).isEmpty());
+        assertFalse(file.hasField("missing"));
+    }
+
+    @Test
+    void addPoint_OutOfOrder_Throws() throws IOException {
+        // Given
+        writer.startField("price");
+        writer.addPoint(10, 1);
+
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () -> writer.addPoint(5, 2));
+        writer.finishField();
+        file = writer.complete();
+    }
+
+    @Test
+    void verifyFileAfterReopen() throws IOException {
+        // Given
+        writer.writeField("price", new long[]{5, 15, 25}, new int[]{7, 8, 9});
+        writer.complete().close();
+
+        // When - Reopen the file
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ);
+             PointsFile reopenedFile = new PointsFile(channel, BUFFER_SIZE)) {
+
+            // Then
+            assertEquals(FileType.POINTS, reopenedFile.getHeaderFileType());
+            assertEquals(1, reopenedFile.getHeaderRecordCount());
+            Set<Integer> docIds = new HashSet<>();
+            reopenedFile.intersect("price", 10, 30, docIds::add);
+            assertEquals(Set.of(8, 9), docIds);
+        }
+    }
+}
@@ -0,0 +1,249 @@
+import core.analysis.LuceneAnalyzerAdapter;
+import core.index.IndexReader;
+import core.index.IndexWriter;
+import core.index.IndexWriterConfig;
+import core.index.Segments;
+import core.search.IndexSearcher;
+import core.search.QueryCache;
+import core.search.TermQuery;
+import core.search.TopDocs;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import storage.FileSystemStorage;
+import storage.SegmentInfo;
+import storage.Storage;
+import storage.file.Document;
+import storage.merge.MergePolicy;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QueryCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Storage storage;
+    private IndexWriterConfig config;
+    private IndexWriter writer;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        storage = new FileSystemStorage(tempDir);
+        MergePolicy mergePolicy = new NoMergePolicy();
+        config = new IndexWriterConfig(new LuceneAnalyzerAdapter(new StandardAnalyzer()), mergePolicy, 10);
+        writer = new IndexWriter(storage, config);
+        // Three segments of ten documents; every third document is red.
+        for (int i = 0; i < 30; i++) {
+            Document doc = new Document(i);
+            doc.addField("content", i % 3 == 0 ? "red apple" : "green apple");
+            writer.addDocument(doc);
+        }
+        writer.flush();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    private static IndexSearcher searcher(IndexReader reader, QueryCache cache) {
+        IndexSearcher searcher = new IndexSearcher(reader);
+        searcher.setQueryCache(cache);
+        return searcher;
+    }
+
+    @Test
+    void repeatedQuery_IsServedFromCache() throws IOException {
+        // Given
+        QueryCache cache = new QueryCache();
+        try (IndexReader reader = writer.getReader()) {
+            IndexSearcher searcher = searcher(reader, cache);
+            TopDocs first = searcher.search(new TermQuery("content", "red"), 5);
+            assertEquals(3, cache.getMissCount());
+
+            // When
+            TopDocs second = searcher.search(new TermQuery("content", "red"), 5);
+
+            // Then
+            assertEquals(first, second);
+            assertEquals(new IndexSearcher(reader).search(new TermQuery("content", "red"), 5), second);
+            assertEquals(3, cache.getHitCount());
+            assertEquals(3, cache.getMissCount());
+            assertEquals(3, cache.size());
+        }
+    }
+
+    @Test
+    void count_CachesCountPerSegment() throws IOException {
+        // Given
+        QueryCache cache = new QueryCache();
+        try (IndexReader reader = writer.getReader()) {
+            // When
+            int first = searcher(reader, cache).count(new TermQuery("content", "red"));
+            int second = searcher(reader, cache).count(new TermQuery("content", "red"));
+
+            // Then
+            assertEquals(10, first);
+            assertEquals(10, second);
+            assertEquals(3, cache.getHitCount());
+            assertTrue(cache.ramBytesUsed() > 0);
+        }
+    }
+
+    @Test
+    void count_OnSegmentWithSparseIds_IsCached() throws IOException {
+        // Given - A segment of two documents spanning two billion IDs
+        for (int id : new int[]{100, 2_000_000_000}) {
+            Document doc = new Document(id);
+            doc.addField("content", "red pear");
+            writer.addDocument(doc);
+        }
+        writer.flush();
+        QueryCache cache = new QueryCache();
+        try (IndexReader reader = writer.getReader()) {
+            IndexSearcher searcher = searcher(reader, cache);
+
+            // When
+            int first = searcher.count(new TermQuery("content", "pear"));
+            int second = searcher.count(new TermQuery("content", "pear"));
+
+            // Then
+            assertEquals(2, first);
+            assertEquals(2, second);
+            assertEquals(4, cache.getHitCount());
+            assertEquals(4, cache.size());
+        }
+    }
+
+    @Test
+    void deletes_InvalidateOnlyTheChangedSegment() throws IOException {
+        // Given
+        QueryCache cache = new QueryCache();
+        try (IndexReader reader = writer.getReader()) {
+            assertEquals(10, searcher(reader, cache).count(new TermQuery("content", "red")));
+        }
+
+        // When
+        writer.deleteById(0);
+        try (IndexReader reader = writer.getReader()) {
+            int count = searcher(reader, cache).count(new TermQuery("content", "red"));
+
+            // Then
+            assertEquals(9, count);
+            assertEquals(2, cache.getHitCount());
+            assertEquals(4, cache.getMissCount());
+        }
+    }
+
+    @Test
+    void closedSegmentReaders_ArePurgedFromCache() throws IOException {
+        // Given - Results cached for the three segments
+        QueryCache cache = new QueryCache();
+        try (IndexReader reader = writer.getReader()) {
+            searcher(reader, cache).count(new TermQuery("content", "red"));
+        }
+        long ramBytesPerEntry = cache.ramBytesUsed() / 3;
+
+        // When - The first segment's reader is replaced, and its last reference released
+        writer.deleteById(0);
+        writer.getReader().close();
+
+        // Then - Only that reader's entry is purged, and the rest go with the writer
+        assertEquals(2, cache.size());
+        assertEquals(2 * ramBytesPerEntry, cache.ramBytesUsed());
+        assertEquals(0, cache.getEvictionCount());
+        writer.close();
+        writer = null;
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.ramBytesUsed());
+    }
+
+    @Test
+    void merge_InvalidatesMergedSegments() throws IOException {
+        // Given
+        QueryCache cache = new QueryCache();
+        try (IndexReader reader = writer.getReader()) {
+            searcher(reader, cache).search(new TermQuery("content", "red"), 20);
+        }
+        writer.deleteById(3);
+
+        // When
+        writer.forceMerge(1);
+        try (IndexReader reader = writer.getReader()) {
+            TopDocs topDocs = searcher(reader, cache).search(new TermQuery("content", "red"), 20);
+
+            // Then
+            assertEquals(1, reader.leaves().size());
+            assertEquals(9, topDocs.totalHits());
+            assertEquals(new IndexSearcher(reader).search(new TermQuery("content", "red"), 20), topDocs);
+            assertEquals(0, cache.getHitCount());
+        }
+    }
+
+    @Test
+    void indexesWithSameSegmentNames_DoNotShareEntries() throws IOException {
+        // Given - Two indexes whose only segments have the same name and creation time
+        for (String color : List.of("red", "green")) {
+            try (IndexWriter indexWriter = new IndexWriter(new FileSystemStorage(tempDir.resolve(color)), config)) {
+                for (int i = 0; i < 5; i++) {
+                    Document doc = new Document(i);
+                    doc.addField("content", color + " apple");
+                    indexWriter.addDocument(doc);
+                }
+                indexWriter.commit();
+            }
+        }
+        Storage red = new FileSystemStorage(tempDir.resolve("red"));
+        Storage green = new FileSystemStorage(tempDir.resolve("green"));
+        SegmentInfo redInfo = Segments.readLatest(red).getSegments().get(0);
+        Segments greenSegments = Segments.readLatest(green);
+        SegmentInfo greenInfo = greenSegments.getSegments().get(0);
+        SegmentInfo aligned = new SegmentInfo(greenInfo.getName(), redInfo.getCreationTime(),
+                greenInfo.getDocumentCount(), greenInfo.getMinDocId(), greenInfo.getMaxDocId());
+        aligned.setFileChecksums(greenInfo.getFileChecksums());
+        greenSegments.updateSegment(aligned);
+        greenSegments.write(green);
+        assertEquals(redInfo.getName(), aligned.getName());
+
+        QueryCache cache = new QueryCache();
+        try (IndexReader redReader = IndexReader.open(red);
+             IndexReader greenReader = IndexReader.open(green)) {
+            // When
+            int redCount = searcher(redReader, cache).count(new TermQuery("content", "red"));
+            int greenCount = searcher(greenReader, cache).count(new TermQuery("content", "red"));
+
+            // Then
+            assertEquals(5, redCount);
+            assertEquals(0, greenCount);
+            assertEquals(0, cache.getHitCount());
+        }
+    }
+
+    @Test
+    void leastRecentlyUsedEntries_AreEvicted() throws IOException {
+        // Given
+        QueryCache cache = new QueryCache(3, QueryCache.DEFAULT_MAX_RAM_BYTES);
+        try (IndexReader reader = writer.getReader()) {
+            IndexSearcher searcher = searcher(reader, cache);
+            searcher.count(new TermQuery("content", "red"));
+
+            // When
+            searcher.count(new TermQuery("content", "green"));
+
+            // Then
+            assertEquals(3, cache.size());
+            assertEquals(3, cache.getEvictionCount());
+            assertEquals(20, searcher.count(new TermQuery("content", "green")));
+            assertEquals(3, cache.getHitCount());
+        }
+    }
+}
@@ -0,0 +1,96 @@
+import core.analysis.LuceneAnalyzerAdapter;
+import core.index.IndexReader;
+import core.index.IndexWriter;
+import core.index.IndexWriterConfig;
+import core.search.IndexSearcher;
+import core.search.RangeQuery;
+import core.search.TopDocs;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import storage.FileSystemStorage;
+import storage.Storage;
+import storage.file.Document;
+import storage.merge.MergePolicy;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RangeQueryTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Storage storage;
+    private IndexWriter writer;
+    private IndexReader reader;
+    private IndexSearcher searcher;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        storage = new FileSystemStorage(tempDir);
+        MergePolicy mergePolicy = new NoMergePolicy();
+        IndexWriterConfig config = new IndexWriterConfig(new LuceneAnalyzerAdapter(new StandardAnalyzer()), mergePolicy, 3);
+        writer = new IndexWriter(storage, config);
+
+        writer.addDocument(createDocument(1, "budget phone", 199));
+        writer.addDocument(createDocument(2, "flagship phone", 999));
+        writer.addDocument(createDocument(3, "mid range phone", 449));
+        writer.addDocument(createDocument(4, "refurbished phone", 149));
+        Document noPrice = new Document(5);
+        noPrice.addField("title", "phone case");
+        writer.addDocument(noPrice);
+        writer.commit();
+
+        reader = IndexReader.open(storage);
+        searcher = new IndexSearcher(reader);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        reader.close();
+        writer.close();
+    }
+
+    private Document createDocument(int id, String title, int price) {
+        Document doc = new Document(id);
+        doc.addField("title", title);
+        doc.addField("price", price);
+        return doc;
+    }
+
+    @Test
+    void rangeQuery_MatchesValuesWithinInclusiveBoundsAcrossSegments() throws IOException {
+        // When
+        TopDocs topDocs = searcher.search(new RangeQuery("price", 149, 449), 10);
+
+        // Then
+        assertEquals(Set.of(1, 3, 4), TestDocuments.docIds(topDocs));
+        assertEquals(2, reader.leaves().size());
+    }
+
+    @Test
+    void openEndedRanges() throws IOException {
+        // When
+        int atLeast = searcher.count(RangeQuery.atLeast("price", 450));
+        int atMost = searcher.count(RangeQuery.atMost("price", 199));
+
+        // Then
+        assertEquals(1, atLeast);
+        assertEquals(2, atMost);
+    }
+
+    @Test
+    void rangeQuery_OnFieldWithoutPoints_MatchesNothing() throws IOException {
+        // When
+        int count = searcher.count(new RangeQuery("title", Long.MIN_VALUE, Long.MAX_VALUE));
+
+        // Then
+        assertEquals(0, count);
+    }
+}
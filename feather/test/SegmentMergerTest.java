@@ -0,0 +1,211 @@
+import core.analysis.LuceneAnalyzerAdapter;
+import core.index.IndexWriter;
+import core.index.IndexWriterConfig;
+import core.index.SegmentReader;
+import core.index.Segments;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import storage.FileSystemStorage;
+import storage.SegmentInfo;
+import storage.Storage;
+import storage.file.Document;
+import storage.file.DocumentFile;
+import storage.file.FeatherFileHeader;
+import storage.file.FileType;
+import storage.file.PostingsEnum;
+import storage.file.Term;
+import storage.merge.MergePolicy;
+import storage.merge.MergeSpec;
+import storage.merge.SegmentMerger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SegmentMergerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Storage storage;
+    private IndexWriter writer;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        storage = new FileSystemStorage(tempDir);
+        MergePolicy mergePolicy = new NoMergePolicy();
+        IndexWriterConfig config = new IndexWriterConfig(new LuceneAnalyzerAdapter(new StandardAnalyzer()), mergePolicy, 2);
+        writer = new IndexWriter(storage, config);
+    }
+
+    private Document createDocument(int id, String content, long price) {
+        Document doc = new Document(id);
+        doc.addField("content", content);
+        doc.addField("price", price);
+        return doc;
+    }
+
+    private List<Integer> docIds(PostingsEnum postings) throws IOException {
+        List<Integer> docIds = new ArrayList<>();
+        for (int doc = postings.nextDoc(); doc != PostingsEnum.NO_MORE_DOCS; doc = postings.nextDoc()) {
+            docIds.add(doc);
+        }
+        return docIds;
+    }
+
+    private SegmentInfo mergeAll(String name) throws IOException {
+        List<SegmentInfo> segments = Segments.readLatest(storage).getSegments();
+        return new SegmentMerger(storage, new MergeSpec(segments), name).merge();
+    }
+
+    @Test
+    void merge_CombinesTermsPostingsAndPositionsInDocumentOrder() throws IOException {
+        // Given - Interleaved document IDs across three segments
+        writer.addDocument(createDocument(1, "apple banana", 10));
+        writer.addDocument(createDocument(5, "banana cherry banana", 50));
+        writer.addDocument(createDocument(3, "cherry apple", 30));
+        writer.addDocument(createDocument(2, "banana", 20));
+        writer.addDocument(createDocument(4, "date", 40));
+        writer.commit();
+        assertEquals(3, Segments.readLatest(storage).size());
+
+        // When
+        SegmentInfo merged = mergeAll("segment_merged");
+
+        // Then
+        assertEquals(5, merged.getDocumentCount());
+        assertEquals(1, merged.getMinDocId());
+        assertEquals(5, merged.getMaxDocId());
+        assertTrue(merged.getSizeInBytes() > 0);
+
+        try (SegmentReader reader = SegmentReader.open(storage, merged)) {
+            Term banana = reader.getTerm("content", "banana");
+            assertEquals(3, banana.getDocumentFrequency());
+            PostingsEnum postings = reader.postings(banana);
+            assertEquals(1, postings.nextDoc());
+            assertEquals(2, postings.nextDoc());
+            assertEquals(5, postings.nextDoc());
+            assertEquals(2, postings.freq());
+            assertArrayEquals(new int[]{0, 2}, postings.positions());
+
+            assertEquals(List.of(1, 3), docIds(reader.postings(reader.getTerm("content", "apple"))));
+            assertEquals(List.of(4), docIds(reader.postings(reader.getTerm("content", "date"))));
+            assertEquals(4, reader.getDictionary().getTermCount());
+
+            Set<Integer> cheap = new HashSet<>();
+            reader.getPoints().intersect("price", 0, 30, cheap::add);
+            assertEquals(Set.of(1, 2, 3), cheap);
+        }
+    }
+
+    @Test
+    void merge_CopiesStoredDocuments() throws IOException {
+        // Given
+        for (int i = 0; i < 6; i++) {
+            writer.addDocument(createDocument(i, "document number " + i, i * 100L));
+        }
+        writer.commit();
+
+        // When
+        SegmentInfo merged = mergeAll("segment_merged");
+
+        // Then
+        try (DocumentFile documents = (DocumentFile) storage.openFile("segment_merged" + FileType.DOC.getExtension())) {
+            assertEquals(6, documents.getHeaderRecordCount());
+            documents.seekToContent();
+            Set<Integer> ids = new HashSet<>();
+            for (int i = 0; i < 6; i++) {
+                Document doc = documents.readDocument();
+                ids.add(doc.getId());
+                assertEquals("document number " + doc.getId(), doc.getField("content"));
+                assertEquals(doc.getId() * 100L, doc.getField("price"));
+            }
+            assertEquals(Set.of(0, 1, 2, 3, 4, 5), ids);
+        }
+        assertEquals(6, merged.getDocumentCount());
+    }
+
+    @Test
+    void merge_WithoutDeletions_CopiesDocumentRecordsVerbatim() throws IOException {
+        // Given
+        for (int i = 0; i < 5; i++) {
+            writer.addDocument(createDocument(i, "raw copy " + i, i));
+        }
+        writer.commit();
+        List<SegmentInfo> segments = Segments.readLatest(storage).getSegments();
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        for (SegmentInfo segment : segments) {
+            byte[] bytes = Files.readAllBytes(tempDir.resolve(segment.getName() + FileType.DOC.getExtension()));
+            expected.write(bytes, FeatherFileHeader.HEADER_SIZE, bytes.length - FeatherFileHeader.HEADER_SIZE);
+        }
+
+        // When
+        SegmentInfo merged = mergeAll("segment_merged");
+
+        // Then
+        byte[] actual = Files.readAllBytes(tempDir.resolve("segment_merged" + FileType.DOC.getExtension()));
+        assertArrayEquals(expected.toByteArray(),
+                Arrays.copyOfRange(actual, FeatherFileHeader.HEADER_SIZE, actual.length));
+        assertEquals(0, merged.getMinDocId());
+        assertEquals(4, merged.getMaxDocId());
+        try (DocumentFile documents = (DocumentFile) storage.openFile("segment_merged" + FileType.DOC.getExtension())) {
+            assertEquals(5, documents.getHeaderRecordCount());
+        }
+    }
+
+    @Test
+    void merge_ManyTermsAcrossIndexBlocks() throws IOException {
+        // Given - More distinct terms than one dictionary index block holds
+        StringBuilder even = new StringBuilder();
+        StringBuilder odd = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            (i % 2 == 0 ? even : odd).append("term").append(i).append(' ');
+        }
+        writer.addDocument(createDocument(1, even.toString(), 1));
+        writer.addDocument(createDocument(2, odd.toString() + "shared", 2));
+        writer.addDocument(createDocument(3, "shared", 3));
+        writer.commit();
+
+        // When
+        SegmentInfo merged = mergeAll("segment_merged");
+
+        // Then
+        try (SegmentReader reader = SegmentReader.open(storage, merged)) {
+            assertEquals(301, reader.getDictionary().getTermCount());
+            for (int i = 0; i < 300; i++) {
+                Term term = reader.getTerm("content", "term" + i);
+                assertNotNull(term, "term" + i);
+                assertEquals(List.of(i % 2 == 0 ? 1 : 2), docIds(reader.postings(term)));
+            }
+            assertEquals(List.of(2, 3), docIds(reader.postings(reader.getTerm("content", "shared"))));
+        }
+    }
+
+    @Test
+    void merge_Failure_RemovesPartialSegmentFiles() throws IOException {
+        // Given
+        writer.addDocument(createDocument(1, "apple", 1));
+        writer.addDocument(createDocument(2, "banana", 2));
+        writer.addDocument(createDocument(3, "cherry", 3));
+        writer.commit();
+        List<SegmentInfo> segments = Segments.readLatest(storage).getSegments();
+        storage.deleteFile(segments.get(1).getName() + FileType.POST.getExtension());
+
+        // When & Then
+        assertThrows(IOException.class,
+                () -> new SegmentMerger(storage, new MergeSpec(segments), "segment_merged").merge());
+        for (FileType type : FileType.values()) {
+            assertFalse(storage.fileExists("segment_merged" + type.getExtension()));
+        }
+    }
+}
@@ -0,0 +1,179 @@
+import core.index.Segments;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import storage.FileSystemStorage;
+import storage.SegmentInfo;
+import storage.Storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SegmentsTest {
+
+    @TempDir
+    Path tempDir;
+
+    private SegmentInfo createSegment(String name, int minDocId, int docs) {
+        SegmentInfo info = new SegmentInfo(name, 1_700_000_000_000L, docs, minDocId, minDocId + docs - 1);
+        info.setSizeInBytes(4096);
+        info.setFileChecksums(Map.of(name + ".doc", 0xCAFEBABEL, name + ".dic", 42L));
+        return info;
+    }
+
+    @Test
+    void writeAndReadLatest_RoundTripsSegmentsAndUserData() throws IOException {
+        // Given
+        Storage storage = new FileSystemStorage(tempDir);
+        Segments segments = new Segments();
+        segments.addSegment(createSegment("segment_0", 0, 10));
+        segments.addSegment(createSegment("segment_1", 10, 5).withDeletes(3, 2, 7L));
+        segments.setUserData(Map.of("translog_generation", "4"));
+
+        // When
+        segments.write(storage);
+        Segments read = Segments.readLatest(storage);
+
+        // Then
+        assertEquals(0, read.getGeneration());
+        assertEquals(Map.of("translog_generation", "4"), read.getUserData());
+        List<SegmentInfo> infos = read.getSegments();
+        assertEquals(2, infos.size());
+        assertEquals(segments.getSegments(), infos);
+        SegmentInfo second = infos.get(1);
+        assertEquals(4096, second.getSizeInBytes());
+        assertEquals(2, second.getDelCount());
+        assertEquals(3, second.getDelGen());
+        assertEquals(Map.of("segment_1.doc", 0xCAFEBABEL, "segment_1.dic", 42L, "segment_1_3.liv", 7L),
+                second.getFileChecksums());
+    }
+
+    @Test
+    void readLatest_RejectsCorruptedFile() throws IOException {
+        // Given
+        Storage storage = new FileSystemStorage(tempDir);
+        Segments segments = new Segments();
+        segments.addSegment(createSegment("segment_0", 0, 10));
+        segments.write(storage);
+        Path file = tempDir.resolve("segments_0");
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 0x01;
+        Files.write(file, bytes);
+
+        // When & Then
+        IOException e = assertThrows(IOException.class, () -> Segments.readLatest(storage));
+        assertTrue(e.getMessage().contains("Checksum mismatch"));
+    }
+
+    @Test
+    void readLatest_PrefersNewestSegmentsFileOverStaleGenerationFile() throws IOException {
+        // Given - segments.gen was not made durable before a crash
+        Storage storage = new FileSystemStorage(tempDir);
+        Segments segments = new Segments();
+        segments.addSegment(createSegment("segment_0", 0, 10));
+        segments.write(storage);
+        segments.addSegment(createSegment("segment_1", 10, 5));
+        segments.write(storage);
+        Files.writeString(tempDir.resolve(Segments.SEGMENTS_GEN), "0");
+
+        // When
+        Segments read = Segments.readLatest(storage);
+
+        // Then
+        assertEquals(1, read.getGeneration());
+        assertEquals(2, read.getSegments().size());
+    }
+
+    @Test
+    void readLatest_ReadsLegacySerializedFile() throws IOException {
+        // Given - A segments file as written before the binary format
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeLong(3);
+            out.writeInt(1);
+            out.writeObject(new SegmentInfo("segment_7", 1L, 4, 0, 3));
+        }
+        Files.write(tempDir.resolve("segments_3"), bytes.toByteArray());
+        Files.writeString(tempDir.resolve(Segments.SEGMENTS_GEN), "3");
+
+        // When
+        Segments read = Segments.readLatest(new FileSystemStorage(tempDir));
+
+        // Then
+        assertEquals(3, read.getGeneration());
+        assertEquals("segment_7", read.getSegments().get(0).getName());
+        assertEquals(Map.of(), read.getUserData());
+    }
+
+    @Test
+    void readLatest_LegacyInfoWithoutChecksums_CanBeDeletedFromAndRewritten() throws Exception {
+        // Given - A legacy info: the field did not exist, so deserialization leaves it null
+        SegmentInfo legacy = new SegmentInfo("segment_7", 1L, 4, 0, 3);
+        Field checksums = SegmentInfo.class.getDeclaredField("fileChecksums");
+        checksums.setAccessible(true);
+        checksums.set(legacy, null);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeLong(3);
+            out.writeInt(1);
+            out.writeObject(legacy);
+        }
+        Files.write(tempDir.resolve("segments_3"), bytes.toByteArray());
+        Files.writeString(tempDir.resolve(Segments.SEGMENTS_GEN), "3");
+        Storage storage = new FileSystemStorage(tempDir);
+
+        // When
+        Segments read = Segments.readLatest(storage);
+        SegmentInfo info = read.getSegments().get(0);
+
+        // Then
+        assertEquals(Map.of(), info.getFileChecksums());
+        read.checkIntegrity(storage);
+        assertEquals(Map.of("segment_7_1.liv", 5L), info.withDeletes(1, 1, 5L).getFileChecksums());
+        read.write(storage);
+        assertEquals(Map.of(), Segments.readLatest(storage).getSegments().get(0).getFileChecksums());
+    }
+
+    @Test
+    void readLatest_ParsesThousandsOfSegments() throws IOException {
+        // Given
+        Storage storage = new FileSystemStorage(tempDir);
+        Segments segments = new Segments();
+        for (int i = 0; i < 5000; i++) {
+            segments.addSegment(createSegment("segment_" + i, i * 10, 10));
+        }
+        segments.write(storage);
+
+        // When
+        Segments read = Segments.readLatest(storage);
+
+        // Then
+        assertEquals(5000, read.size());
+        assertEquals(segments.getSegments(), read.getSegments());
+    }
+
+    @Test
+    void checkIntegrity_DetectsModifiedSegmentFile() throws IOException {
+        // Given
+        Storage storage = new FileSystemStorage(tempDir);
+        Files.writeString(tempDir.resolve("segment_0.doc"), "original contents");
+        SegmentInfo info = new SegmentInfo("segment_0", 1L, 1, 0, 0);
+        info.setFileChecksums(storage.checksumSegmentFiles("segment_0"));
+        Segments segments = new Segments();
+        segments.addSegment(info);
+        segments.checkIntegrity(storage);
+
+        // When
+        Files.writeString(tempDir.resolve("segment_0.doc"), "modified contents");
+
+        // Then
+        assertThrows(IOException.class, () -> segments.checkIntegrity(storage));
+    }
+}
@@ -0,0 +1,40 @@
+import core.index.IndexReader;
+import core.search.IndexSearcher;
+import core.search.ScoreDoc;
+import core.search.TermQuery;
+import core.search.TopDocs;
+import storage.Storage;
+import storage.file.Document;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Documents and search helpers shared by the indexing and search tests. Documents have a single
+ * "content" field.
+ */
+final class TestDocuments {
+
+    private TestDocuments() {
+    }
+
+    static Document createDocument(int id, String content) {
+        Document doc = new Document(id);
+        doc.addField("content", content);
+        return doc;
+    }
+
+    static Set<Integer> docIds(TopDocs topDocs) {
+        return topDocs.scoreDocs().stream().map(ScoreDoc::docId).collect(Collectors.toSet());
+    }
+
+    /**
+     * Returns the IDs of the committed documents whose content contains the term.
+     */
+    static Set<Integer> search(Storage storage, String text) throws IOException {
+        try (IndexReader reader = IndexReader.open(storage)) {
+            return docIds(new IndexSearcher(reader).search(new TermQuery("content", text), 100));
+        }
+    }
+}
@@ -0,0 +1,131 @@
+import org.junit.jupiter.api.Test;
+import storage.SegmentInfo;
+import storage.merge.MergeSpec;
+import storage.merge.TieredMergePolicy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TieredMergePolicyTest {
+    private static final long MB = 1024 * 1024;
+
+    private int nextDocId = 0;
+
+    private SegmentInfo segment(String name, int docs, long sizeInBytes) {
+        SegmentInfo info = new SegmentInfo(name, System.currentTimeMillis(), docs, nextDocId, nextDocId + docs - 1);
+        nextDocId += docs;
+        info.setSizeInBytes(sizeInBytes);
+        return info;
+    }
+
+    private Set<String> names(MergeSpec spec) {
+        return spec.getSegments().stream().map(SegmentInfo::getName).collect(Collectors.toSet());
+    }
+
+    @Test
+    void findMerges_WithinBudget_ReturnsNothing() {
+        // Given
+        TieredMergePolicy policy = new TieredMergePolicy();
+        List<SegmentInfo> segments = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            segments.add(segment("s" + i, 100, MB));
+        }
+
+        // When & Then
+        assertTrue(policy.findMerges(segments).isEmpty());
+    }
+
+    @Test
+    void findMerges_ManySmallSegments_MergesUpToMaxMergeAtOnce() {
+        // Given
+        TieredMergePolicy policy = new TieredMergePolicy(4, 1_000_000, 3, MB, 1024 * MB, 33.0);
+        List<SegmentInfo> segments = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            segments.add(segment("s" + i, 100, MB));
+        }
+
+        // When
+        List<MergeSpec> merges = policy.findMerges(segments);
+
+        // Then - One merge of four brings the index back within its budget of segments
+        assertEquals(1, merges.size());
+        assertEquals(4, merges.get(0).getSegments().size());
+    }
+
+    @Test
+    void findMerges_PrefersSegmentsOfSimilarSize() {
+        // Given - One large segment and several small ones
+        TieredMergePolicy policy = new TieredMergePolicy(3, 1_000_000, 2, MB, 1024 * MB, 33.0);
+        List<SegmentInfo> segments = new ArrayList<>();
+        segments.add(segment("large", 10_000, 100 * MB));
+        for (int i = 0; i < 20; i++) {
+            segments.add(segment("small" + i, 100, MB));
+        }
+
+        // When
+        List<MergeSpec> merges = policy.findMerges(segments);
+
+        // Then
+        assertFalse(merges.isEmpty());
+        for (MergeSpec merge : merges) {
+            assertEquals(3, merge.getSegments().size());
+            assertFalse(names(merge).contains("large"));
+        }
+    }
+
+    @Test
+    void findMerges_PrefersSegmentsWithReclaimableDeletes() {
+        // Given - Equally sized segments, two of them with many deletes
+        TieredMergePolicy policy = new TieredMergePolicy(2, 1_000_000, 2, MB, 1024 * MB, 33.0);
+        List<SegmentInfo> segments = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            segments.add(segment("clean" + i, 1000, 10 * MB));
+        }
+        SegmentInfo dirty1 = segment("dirty1", 1000, 10 * MB);
+        dirty1.setDelCount(400);
+        SegmentInfo dirty2 = segment("dirty2", 1000, 10 * MB);
+        dirty2.setDelCount(400);
+        segments.add(dirty1);
+        segments.add(dirty2);
+
+        // When
+        List<MergeSpec> merges = policy.findMerges(segments);
+
+        // Then
+        assertFalse(merges.isEmpty());
+        assertEquals(Set.of("dirty1", "dirty2"), names(merges.get(0)));
+    }
+
+    @Test
+    void findMerges_RespectsMaxSegmentDocs() {
+        // Given
+        TieredMergePolicy policy = new TieredMergePolicy(10, 1500, 2, MB, 1024 * MB, 33.0);
+        List<SegmentInfo> segments = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            segments.add(segment("s" + i, 600, MB));
+        }
+
+        // When
+        List<MergeSpec> merges = policy.findMerges(segments);
+
+        // Then
+        assertFalse(merges.isEmpty());
+        for (MergeSpec merge : merges) {
+            assertTrue(merge.getTotalDocumentCount() <= 1500);
+        }
+    }
+
+    @Test
+    void constructor_RejectsInvalidSettings() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new TieredMergePolicy(10, 1_000_000, 1, MB, 1024 * MB, 33.0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new TieredMergePolicy(10, 1_000_000, 10, MB, MB / 2, 33.0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new TieredMergePolicy(1, 1_000_000, 10, MB, 1024 * MB, 33.0));
+    }
+}
@@ -0,0 +1,203 @@
+import core.analysis.LuceneAnalyzerAdapter;
+import core.index.IndexReader;
+import core.index.IndexWriter;
+import core.index.IndexWriterConfig;
+import core.index.Translog;
+import core.index.Translog.Operation;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import storage.FileSystemStorage;
+import storage.Storage;
+import storage.merge.MergePolicy;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TranslogTest {
+
+    @TempDir
+    Path tempDir;
+
+    private IndexWriterConfig createConfig() {
+        MergePolicy mergePolicy = new NoMergePolicy();
+        return new IndexWriterConfig(new LuceneAnalyzerAdapter(new StandardAnalyzer()), mergePolicy, 4);
+    }
+
+    private List<Path> translogFiles() throws IOException {
+        try (Stream<Path> paths = Files.list(tempDir)) {
+            return paths.filter(p -> p.getFileName().toString().endsWith(Translog.FILE_EXTENSION)).sorted().toList();
+        }
+    }
+
+    @Test
+    void reopenAfterCrash_ReplaysUncommittedOperations() throws IOException {
+        // Given - A committed document, then buffered and flushed but uncommitted changes
+        IndexWriter crashed = new IndexWriter(new FileSystemStorage(tempDir), createConfig());
+        crashed.addDocument(TestDocuments.createDocument(1, "committed"));
+        crashed.commit();
+        for (int i = 2; i <= 6; i++) {
+            crashed.addDocument(TestDocuments.createDocument(i, "uncommitted")); // The fourth add flushes a segment
+        }
+        crashed.deleteById(1);
+        crashed.updateDocument(6, TestDocuments.createDocument(6, "revised"));
+        crashed.deleteDocuments("content", "nothing");
+        // The writer is abandoned without commit or close, as by a crash.
+
+        // When
+        Storage storage = new FileSystemStorage(tempDir);
+        try (IndexWriter writer = new IndexWriter(storage, createConfig())) {
+            writer.commit();
+
+            // Then
+            assertEquals(Set.of(2, 3, 4, 5), TestDocuments.search(storage, "uncommitted"));
+            assertEquals(Set.of(6), TestDocuments.search(storage, "revised"));
+            assertEquals(Set.of(), TestDocuments.search(storage, "committed"));
+        }
+    }
+
+    @Test
+    void commit_TrimsCoveredGenerations() throws IOException {
+        // Given
+        Storage storage = new FileSystemStorage(tempDir);
+        try (IndexWriter writer = new IndexWriter(storage, createConfig())) {
+            writer.addDocument(TestDocuments.createDocument(1, "text"));
+            writer.commit();
+            writer.addDocument(TestDocuments.createDocument(2, "text"));
+            writer.commit();
+
+            // Then - Only the generation receiving new operations is left
+            assertEquals(1, translogFiles().size());
+        }
+
+        // When - Reopening replays nothing, so no document is indexed twice
+        Storage reopened = new FileSystemStorage(tempDir);
+        IndexWriter writer = new IndexWriter(reopened, createConfig());
+        try (IndexReader reader = IndexReader.open(reopened)) {
+            assertEquals(2, reader.numDocs());
+        } finally {
+            writer.close();
+        }
+    }
+
+    @Test
+    void open_DropsTornRecordAtEndOfNewestGeneration() throws IOException {
+        // Given
+        try (Translog translog = Translog.open(new FileSystemStorage(tempDir), 0, 1, 0)) {
+            translog.add(Operation.add(TestDocuments.createDocument(1, "first")));
+            translog.add(Operation.deleteById(7));
+            translog.add(Operation.add(TestDocuments.createDocument(2, "torn")));
+        }
+        Path file = translogFiles().get(0);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        // When
+        try (Translog translog = Translog.open(new FileSystemStorage(tempDir), 0, 1, 0)) {
+            List<Operation> recovered = translog.getRecoveredOperations();
+
+            // Then
+            assertEquals(2, recovered.size());
+            assertEquals(Translog.OpType.ADD, recovered.get(0).type());
+            assertEquals("first", recovered.get(0).document().getField("content"));
+            assertEquals(Translog.OpType.DELETE_ID, recovered.get(1).type());
+            assertEquals(7, recovered.get(1).docId());
+        }
+    }
+
+    @Test
+    void open_AfterSecondCrash_StillReplaysGenerationThatHadTornRecord() throws IOException {
+        // Given - A torn record, recovered once, followed by more operations and another crash
+        try (Translog translog = Translog.open(new FileSystemStorage(tempDir), 0, 1, 0)) {
+            translog.add(Operation.add(TestDocuments.createDocument(1, "first")));
+            translog.add(Operation.add(TestDocuments.createDocument(2, "torn")));
+        }
+        Path file = translogFiles().get(0);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+        try (Translog translog = Translog.open(new FileSystemStorage(tempDir), 0, 1, 0)) {
+            assertEquals(1, translog.getRecoveredOperations().size());
+            translog.add(Operation.deleteById(9));
+        }
+
+        // When
+        try (Translog translog = Translog.open(new FileSystemStorage(tempDir), 0, 1, 0)) {
+            List<Operation> recovered = translog.getRecoveredOperations();
+
+            // Then - The torn generation no longer ends in a torn record
+            assertEquals(2, recovered.size());
+            assertEquals("first", recovered.get(0).document().getField("content"));
+            assertEquals(9, recovered.get(1).docId());
+        }
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertTrue(files.noneMatch(path -> path.toString().endsWith(".repair")));
+        }
+    }
+
+    @Test
+    void open_RejectsCorruptRecordInOlderGeneration() throws IOException {
+        // Given - Two generations, the first one damaged in the middle
+        try (Translog translog = Translog.open(new FileSystemStorage(tempDir), 0, 1, 0)) {
+            translog.add(Operation.deleteTerm("content", "first"));
+            translog.add(Operation.deleteTerm("content", "second"));
+            translog.rollGeneration();
+            translog.add(Operation.deleteById(3));
+        }
+        Path older = translogFiles().get(0);
+        byte[] bytes = Files.readAllBytes(older);
+        bytes[bytes.length - 10] ^= 0x5A;
+        Files.write(older, bytes);
+
+        // When & Then
+        assertThrows(IOException.class, () -> Translog.open(new FileSystemStorage(tempDir), 0, 1, 0));
+    }
+
+    @Test
+    void groupedSync_RecoversOperationsAfterClose() throws IOException {
+        // Given - Operations synced in groups of 100 or every 10 ms
+        try (Translog translog = Translog.open(new FileSystemStorage(tempDir), 0, 100, 10)) {
+            for (int i = 0; i < 250; i++) {
+                translog.add(Operation.add(TestDocuments.createDocument(i, "doc " + i)));
+            }
+        }
+
+        // When
+        try (Translog translog = Translog.open(new FileSystemStorage(tempDir), 0, 100, 10)) {
+            List<Operation> recovered = translog.getRecoveredOperations();
+
+            // Then
+            assertEquals(250, recovered.size());
+            assertEquals(249, recovered.get(249).docId());
+        }
+    }
+
+    @Test
+    void newGeneration_IsMadeDurableInDirectory() throws IOException {
+        // Given
+        int[] metaDataSyncs = new int[1];
+        Storage storage = new FileSystemStorage(tempDir) {
+            @Override
+            public void syncMetaData() throws IOException {
+                metaDataSyncs[0]++;
+                super.syncMetaData();
+            }
+        };
+
+        // When & Then: both opening and rolling create a generation whose entry is synced
+        try (Translog translog = Translog.open(storage, 0, 1, 0)) {
+            assertEquals(1, metaDataSyncs[0]);
+            translog.rollGeneration();
+            assertEquals(2, metaDataSyncs[0]);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+import core.analysis.LuceneAnalyzerAdapter;
+import core.index.IndexReader;
+import core.index.IndexWriter;
+import core.index.IndexWriterConfig;
+import core.index.Segments;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import storage.FileSystemStorage;
+import storage.SegmentInfo;
+import storage.Storage;
+import storage.merge.MergePolicy;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UpdateDocumentTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Storage storage;
+    private IndexWriter writer;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        storage = new FileSystemStorage(tempDir);
+        MergePolicy mergePolicy = new NoMergePolicy();
+        IndexWriterConfig config = new IndexWriterConfig(new LuceneAnalyzerAdapter(new StandardAnalyzer()), mergePolicy, 4);
+        writer = new IndexWriter(storage, config);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        writer.close();
+    }
+
+    private int numDocs() throws IOException {
+        try (IndexReader reader = IndexReader.open(storage)) {
+            return reader.numDocs();
+        }
+    }
+
+    @Test
+    void updateDocument_ReplacesFlushedVersion() throws IOException {
+        // Given
+        for (int i = 0; i < 8; i++) {
+            writer.addDocument(TestDocuments.createDocument(i, "original"));
+        }
+        writer.commit();
+
+        // When
+        writer.updateDocument(5, TestDocuments.createDocument(5, "revised"));
+        writer.commit();
+
+        // Then
+        assertEquals(Set.of(5), TestDocuments.search(storage, "revised"));
+        assertFalse(TestDocuments.search(storage, "original").contains(5));
+        assertEquals(8, numDocs());
+    }
+
+    @Test
+    void updateDocument_ReplacesBufferedVersionWithoutWritingIt() throws IOException {
+        // Given
+        writer.addDocument(TestDocuments.createDocument(1, "draft"));
+
+        // When
+        writer.updateDocument(1, TestDocuments.createDocument(1, "final"));
+        writer.commit();
+
+        // Then
+        List<SegmentInfo> segments = Segments.readLatest(storage).getSegments();
+        assertEquals(1, segments.size());
+        assertEquals(1, segments.get(0).getDocumentCount());
+        assertEquals(0, segments.get(0).getDelCount());
+        assertEquals(Set.of(1), TestDocuments.search(storage, "final"));
+        assertEquals(Set.of(), TestDocuments.search(storage, "draft"));
+    }
+
+    @Test
+    void updateDocument_RepeatedAcrossFlushes_KeepsOnlyLatestVersion() throws IOException {
+        // Given
+        writer.addDocument(TestDocuments.createDocument(3, "version 0"));
+        writer.commit();
+
+        // When - Each version is flushed into its own segment
+        for (int version = 1; version <= 5; version++) {
+            writer.updateDocument(3, TestDocuments.createDocument(3, "version " + version));
+            writer.flush();
+        }
+        writer.commit();
+
+        // Then
+        assertEquals(1, numDocs());
+        assertEquals(Set.of(3), TestDocuments.search(storage, "5"));
+        assertEquals(Set.of(), TestDocuments.search(storage, "4"));
+        assertEquals(1, Segments.readLatest(storage).size(), "Segments holding only old versions are dropped");
+    }
+
+    @Test
+    void updateDocument_OfUnknownId_AddsDocument() throws IOException {
+        // When
+        writer.updateDocument(42, TestDocuments.createDocument(42, "fresh"));
+        writer.commit();
+
+        // Then
+        assertEquals(Set.of(42), TestDocuments.search(storage, "fresh"));
+    }
+
+    @Test
+    void updateDocument_RejectsMismatchedId() {
+        assertThrows(IllegalArgumentException.class,
+                () -> writer.updateDocument(1, TestDocuments.createDocument(2, "wrong")));
+    }
+}